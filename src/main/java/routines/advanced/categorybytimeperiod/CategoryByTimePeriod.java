@@ -13,6 +13,11 @@ import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.JobAutoTuner;
+import routines.common.LocalMode;
+import routines.common.PipelineCheckpoint;
+import routines.common.TimePeriod;
 import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
 import routines.intermediate.topcategoriesbycity.TopCategoriesResult;
 
@@ -38,17 +43,27 @@ import routines.intermediate.topcategoriesbycity.TopCategoriesResult;
  *   ✓ Análise multidimensional
  *   ✓ Pipeline multi-step
  *   ✓ Otimização com SequenceFile e Custom Writables
+ *
+ * MODO JOB ÚNICO (-Dfta.category.period.single.job=true):
+ *   Os mappers pré-agregam (cidade, período, MCC) em memória, o shuffle usa a chave
+ *   (cidade, período) e o Step2RankingReducer soma as parciais e mantém o top 3.
+ *   Elimina o segundo job e a escrita/leitura do SequenceFile intermediário.
+ *
+ * CHECKPOINT (modo 2 jobs): cada job grava um marcador com o fingerprint de entradas,
+ * parâmetros e classes; jobs com marcador válido são pulados (ver PipelineCheckpoint).
  */
 public class CategoryByTimePeriod extends Configured implements Tool {
 
+    public static final String SINGLE_JOB_KEY = "fta.category.period.single.job";
+
     @Override
     public int run(String[] args) throws Exception {
         // Verificação dos argumentos
-        if (args.length < 2) {
+        if (args.length < 2 || !JobAutoTuner.isReducersArgument(args, 2)) {
             System.err.println("Usage: CategoryByTimePeriod <input_path> <output_path> [num_reducers] [local]");
             System.err.println("  input_path: caminho do arquivo CSV de transações");
             System.err.println("  output_path: caminho do diretório de saída final");
-            System.err.println("  num_reducers: número de reducers (opcional, padrão: 1)");
+            System.err.println("  num_reducers: número de reducers (opcional, padrão: auto)");
             System.err.println("  local: para execução local (opcional)");
             return -1;
         }
@@ -56,8 +71,8 @@ public class CategoryByTimePeriod extends Configured implements Tool {
         // Parse dos parâmetros
         Path inputPath = new Path(args[0]);
         Path finalOutputDir = new Path(args[1]);
-        int numberOfReducers = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
-        boolean localMode = (args.length > 3 && "local".equals(args[3]));
+        int numberOfReducers = JobAutoTuner.parseReducers(args, 2);
+        boolean localMode = LocalMode.isRequested(args, 2);
 
         // Path intermediário (entre Job 1 e Job 2)
         Path intermediateOutputDir = new Path(finalOutputDir.getParent(),
@@ -69,11 +84,28 @@ public class CategoryByTimePeriod extends Configured implements Tool {
         // Configuração para modo local
         if (localMode) {
             System.out.println("Configurando para execução local (standalone)...");
-            conf.set("fs.defaultFS", "file:///");
-            conf.set("mapreduce.framework.name", "local");
-            conf.set("mapreduce.jobtracker.address", "local");
+            LocalMode.configure(conf);
+        }
+
+        if (conf.getBoolean(SINGLE_JOB_KEY, false)) {
+            return runSingleJob(conf, inputPath, finalOutputDir, numberOfReducers, localMode);
         }
 
+        // Compressão do shuffle e do SequenceFile intermediário (-Dfta.compression=none|fast|dense)
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+
+        // Checkpoint por job (-Dfta.checkpoint): jobs com saída válida para as mesmas
+        // entradas, parâmetros e classes são pulados; retoma do primeiro job inválido
+        PipelineCheckpoint checkpoint = new PipelineCheckpoint(conf, "category_by_timeperiod");
+        PipelineCheckpoint.Step step1 = checkpoint.step("step1_aggregation", intermediateOutputDir)
+                .inputs(inputPath)
+                .code(Step1AggregationMapper.class, Step1AggregationCombiner.class,
+                        Step1AggregationReducer.class, CityPeriodKey.class, MCCTransactionCount.class,
+                        TimePeriod.class);
+        PipelineCheckpoint.Step step2 = checkpoint.step("step2_ranking", finalOutputDir)
+                .inputs(intermediateOutputDir)
+                .code(Step2RankingReducer.class, TopCategoriesResult.class);
+
         // JOB 1: AGREGAÇÃO
         System.out.println();
         System.out.println("========================================");
@@ -82,6 +114,72 @@ public class CategoryByTimePeriod extends Configured implements Tool {
         System.out.println("========================================");
         System.out.println();
 
+        // Executar Job 1
+        long startTime1 = System.currentTimeMillis();
+        boolean success1 = step1.run(() -> runStep1(conf, inputPath, intermediateOutputDir,
+                numberOfReducers, compression));
+        long endTime1 = System.currentTimeMillis();
+
+        if (!success1) {
+            System.err.println("Job 1 falhou!");
+            return 1;
+        }
+
+        // JOB 2: RANKING
+        System.out.println();
+        System.out.println("========================================");
+        System.out.println("JOB 2: RANKING");
+        System.out.println("Identificando Top 3 por cidade-período");
+        System.out.println("========================================");
+        System.out.println();
+
+        // Executar Job 2
+        long startTime2 = System.currentTimeMillis();
+        boolean success2 = step2.run(() -> runStep2(conf, intermediateOutputDir, finalOutputDir,
+                numberOfReducers, compression));
+        long endTime2 = System.currentTimeMillis();
+
+        if (!success2) {
+            System.err.println("Job 2 falhou!");
+            return 1;
+        }
+
+        // FINALIZAÇÃO
+        long totalTime = (endTime2 - startTime1);
+
+        System.out.println();
+        System.out.println("========================================");
+        System.out.println("MULTI-STEP PROCESSING COMPLETO");
+        System.out.println("========================================");
+        System.out.println();
+        System.out.println("Tempo total: " + totalTime + "ms");
+        System.out.println("  Job 1 (Agregação): " + (endTime1 - startTime1) + "ms" +
+                (step1.wasSkipped() ? " (checkpoint)" : ""));
+        System.out.println("  Job 2 (Ranking): " + (endTime2 - startTime2) + "ms" +
+                (step2.wasSkipped() ? " (checkpoint)" : ""));
+        System.out.println();
+
+        if (localMode) {
+            System.out.println("Arquivos gerados:");
+            System.out.println("  Intermediário: " + intermediateOutputDir);
+            System.out.println("  Final: " + finalOutputDir);
+            System.out.println();
+            System.out.println("Para ver os resultados:");
+            System.out.println("  cat " + finalOutputDir + "/part-r-00000");
+            System.out.println();
+            System.out.println("Para remover arquivos intermediários:");
+            System.out.println("  rm -rf " + intermediateOutputDir);
+            System.out.println();
+        }
+
+        return 0;
+    }
+
+    /**
+     * JOB 1: agrega contagens por cidade-período-MCC em SequenceFile
+     */
+    private boolean runStep1(Configuration conf, Path inputPath, Path intermediateOutputDir,
+                             int numberOfReducers, CompressionProfile compression) throws Exception {
         Job job1 = Job.getInstance(conf, "step1_aggregation");
         job1.setJarByClass(CategoryByTimePeriod.class);
 
@@ -105,39 +203,40 @@ public class CategoryByTimePeriod extends Configured implements Tool {
         job1.setOutputKeyClass(CityPeriodKey.class);
         job1.setOutputValueClass(MCCTransactionCount.class);
 
-        job1.setNumReduceTasks(numberOfReducers);
+        // Reducers, split e sort buffer: auto-tuning por amostragem (overrides via -D)
+        JobAutoTuner.Decision tuning1 = JobAutoTuner.tune(conf, inputPath, numberOfReducers,
+                new JobAutoTuner.Profile("step1_aggregation", JobAutoTuner.Profile.csvColumn(7), 0.3));
+        tuning1.apply(job1);
+
+        // Compressão do shuffle e do SequenceFile intermediário (-Dfta.compression=none|fast|dense)
+        compression.applyIntermediate(job1);
 
         System.out.println("Job 1 - Configuração:");
         System.out.println("  Input: " + inputPath);
         System.out.println("  Output: " + intermediateOutputDir);
         System.out.println("  Output Format: SequenceFile");
-        System.out.println("  Reducers: " + numberOfReducers);
+        System.out.println("  Reducers: " + tuning1.getReducers());
+        System.out.println("  Compressão: " + compression.describe());
         System.out.println();
 
-        // Executar Job 1
-        long startTime1 = System.currentTimeMillis();
-        boolean success1 = job1.waitForCompletion(true);
-        long endTime1 = System.currentTimeMillis();
-
-        if (!success1) {
-            System.err.println("Job 1 falhou!");
-            return 1;
+        long startTime = System.currentTimeMillis();
+        if (!job1.waitForCompletion(true)) {
+            return false;
         }
 
         System.out.println();
-        System.out.println("Job 1 completo em " + (endTime1 - startTime1) + "ms");
+        System.out.println("Job 1 completo em " + (System.currentTimeMillis() - startTime) + "ms");
         System.out.println("  Registros processados: " +
                 job1.getCounters().findCounter("org.apache.hadoop.mapreduce.TaskCounter",
                         "MAP_INPUT_RECORDS").getValue());
+        return true;
+    }
 
-        // JOB 2: RANKING
-        System.out.println();
-        System.out.println("========================================");
-        System.out.println("JOB 2: RANKING");
-        System.out.println("Identificando Top 3 por cidade-período");
-        System.out.println("========================================");
-        System.out.println();
-
+    /**
+     * JOB 2: top 3 categorias por cidade-período a partir do SequenceFile do Job 1
+     */
+    private boolean runStep2(Configuration conf, Path intermediateOutputDir, Path finalOutputDir,
+                             int numberOfReducers, CompressionProfile compression) throws Exception {
         Job job2 = Job.getInstance(conf, "step2_ranking");
         job2.setJarByClass(CategoryByTimePeriod.class);
 
@@ -157,55 +256,106 @@ public class CategoryByTimePeriod extends Configured implements Tool {
         job2.setOutputKeyClass(Text.class);
         job2.setOutputValueClass(TopCategoriesResult.class);
 
-        job2.setNumReduceTasks(numberOfReducers);
+        // Entrada em SequenceFile: tuning apenas pelo volume do resultado do Job 1
+        JobAutoTuner.Decision tuning2 = JobAutoTuner.tune(conf, intermediateOutputDir, numberOfReducers,
+                new JobAutoTuner.Profile("step2_ranking", null, 1.0));
+        tuning2.apply(job2);
+        compression.applyFinal(job2);
 
         System.out.println("Job 2 - Configuração:");
         System.out.println("  Input: " + intermediateOutputDir);
         System.out.println("  Input Format: SequenceFile");
         System.out.println("  Output: " + finalOutputDir);
-        System.out.println("  Reducers: " + numberOfReducers);
+        System.out.println("  Reducers: " + tuning2.getReducers());
         System.out.println();
 
-        // Executar Job 2
-        long startTime2 = System.currentTimeMillis();
-        boolean success2 = job2.waitForCompletion(true);
-        long endTime2 = System.currentTimeMillis();
-
-        if (!success2) {
-            System.err.println("Job 2 falhou!");
-            return 1;
+        long startTime = System.currentTimeMillis();
+        if (!job2.waitForCompletion(true)) {
+            return false;
         }
 
         System.out.println();
-        System.out.println("Job 2 completo em " + (endTime2 - startTime2) + "ms");
+        System.out.println("Job 2 completo em " + (System.currentTimeMillis() - startTime) + "ms");
         System.out.println("  Registros processados: " +
                 job2.getCounters().findCounter("org.apache.hadoop.mapreduce.TaskCounter",
                         "MAP_INPUT_RECORDS").getValue());
+        return true;
+    }
 
-        // FINALIZAÇÃO
-        long totalTime = (endTime2 - startTime1);
-
+    /**
+     * Modo job único: agregação in-mapper + ranking no reducer, sem arquivo intermediário
+     */
+    private int runSingleJob(Configuration conf, Path inputPath, Path finalOutputDir,
+                             int numberOfReducers, boolean localMode) throws Exception {
         System.out.println();
         System.out.println("========================================");
-        System.out.println("MULTI-STEP PROCESSING COMPLETO");
+        System.out.println("JOB ÚNICO: AGREGAÇÃO + RANKING");
+        System.out.println("Top 3 por cidade-período com agregação in-mapper");
         System.out.println("========================================");
         System.out.println();
-        System.out.println("Tempo total: " + totalTime + "ms");
-        System.out.println("  Job 1 (Agregação): " + (endTime1 - startTime1) + "ms");
-        System.out.println("  Job 2 (Ranking): " + (endTime2 - startTime2) + "ms");
+
+        Job job = Job.getInstance(conf, "category_by_timeperiod_single_job");
+        job.setJarByClass(CategoryByTimePeriod.class);
+
+        // Input/Output
+        FileInputFormat.addInputPath(job, inputPath);
+        FileOutputFormat.setOutputPath(job, finalOutputDir);
+
+        job.setInputFormatClass(TextInputFormat.class);
+        job.setOutputFormatClass(TextOutputFormat.class);
+
+        // Mapper (agregação in-mapper por cidade-período-MCC)
+        job.setMapperClass(SingleJobAggregationMapper.class);
+        job.setMapOutputKeyClass(CityPeriodKey.class);
+        job.setMapOutputValueClass(MCCTransactionCount.class);
+
+        // Combiner: consolida parciais de flushes diferentes do mesmo mapper
+        job.setCombinerClass(Step1AggregationCombiner.class);
+
+        // Reducer: soma as parciais e mantém o top 3
+        job.setReducerClass(Step2RankingReducer.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(TopCategoriesResult.class);
+
+        // Shuffle bem menor que no Job 1 tradicional: um par por cidade-período-MCC por mapper
+        JobAutoTuner.Decision tuning = JobAutoTuner.tune(conf, inputPath, numberOfReducers,
+                new JobAutoTuner.Profile("category_by_timeperiod_single_job",
+                        JobAutoTuner.Profile.csvColumn(7), 0.05));
+        tuning.apply(job);
+
+        // Compressão do shuffle e da saída (-Dfta.compression=none|fast|dense)
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+        compression.applyFinal(job);
+
+        System.out.println("Job único - Configuração:");
+        System.out.println("  Input: " + inputPath);
+        System.out.println("  Output: " + finalOutputDir);
+        System.out.println("  Reducers: " + tuning.getReducers());
+        System.out.println("  Compressão: " + compression.describe());
+        System.out.println();
+
+        long startTime = System.currentTimeMillis();
+        boolean success = job.waitForCompletion(true);
+        long endTime = System.currentTimeMillis();
+
+        if (!success) {
+            System.err.println("Job único falhou!");
+            return 1;
+        }
+
         System.out.println();
+        System.out.println("========================================");
+        System.out.println("JOB ÚNICO COMPLETO em " + (endTime - startTime) + "ms");
+        System.out.println("  Registros processados: " +
+                job.getCounters().findCounter("org.apache.hadoop.mapreduce.TaskCounter",
+                        "MAP_INPUT_RECORDS").getValue());
+        System.out.println("========================================");
 
         if (localMode) {
-            System.out.println("Arquivos gerados:");
-            System.out.println("  Intermediário: " + intermediateOutputDir);
-            System.out.println("  Final: " + finalOutputDir);
             System.out.println();
             System.out.println("Para ver os resultados:");
             System.out.println("  cat " + finalOutputDir + "/part-r-00000");
             System.out.println();
-            System.out.println("Para remover arquivos intermediários:");
-            System.out.println("  rm -rf " + intermediateOutputDir);
-            System.out.println();
         }
 
         return 0;
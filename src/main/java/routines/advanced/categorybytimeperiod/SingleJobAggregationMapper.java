@@ -0,0 +1,231 @@
+package routines.advanced.categorybytimeperiod;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import routines.common.InMapperAggregationMapper;
+import routines.common.StringLongHashMap;
+import routines.common.TimePeriod;
+import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
+
+/**
+ * Mapper do modo job único - agregação in-mapper de (cidade, período, MCC)
+ *
+ * Em vez de emitir um MCCTransactionCount por transação, acumula as contagens em
+ * memória e emite um par por (cidade, período, MCC) distinto no flush. A chave do
+ * shuffle continua sendo (cidade, período), então o Step2RankingReducer recebe
+ * diretamente as contagens parciais de cada mapper e calcula o top 3.
+ *
+ * O mapa é descarregado quando excede fta.inmapper.memory.mb ou
+ * fta.inmapper.max.entries (mesmos limites de {@link InMapperAggregationMapper}).
+ *
+ * Input:  CSV de transações
+ * Output: (CityPeriodKey, MCCTransactionCount) - contagens parciais
+ */
+public class SingleJobAggregationMapper extends Mapper<LongWritable, Text, CityPeriodKey, MCCTransactionCount> {
+
+    // Separador entre cidade, período e MCC na chave do mapa (não aparece em dados CSV)
+    private static final char KEY_SEPARATOR = '\u0001';
+
+    // Agregação em memória: "cidade␁PERÍODO␁mcc" -> contagem
+    private final StringLongHashMap counts = new StringLongHashMap(1024);
+    private final StringBuilder keyBuilder = new StringBuilder();
+    private long memoryBudgetBytes;
+    private int maxEntries;
+
+    // Objetos reutilizáveis
+    private final CityPeriodKey outputKey = new CityPeriodKey();
+    private final MCCTransactionCount outputValue = new MCCTransactionCount();
+
+    // Contadores para estatísticas
+    private long recordsProcessed = 0;
+    private long validRecords = 0;
+    private long invalidRecords = 0;
+    private long emittedPairs = 0;
+    private int flushCount = 0;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration conf = context.getConfiguration();
+        memoryBudgetBytes = Math.max(1, conf.getInt(InMapperAggregationMapper.MEMORY_MB_KEY,
+                InMapperAggregationMapper.DEFAULT_MEMORY_MB)) * 1024L * 1024L;
+        maxEntries = Math.max(1, conf.getInt(InMapperAggregationMapper.MAX_ENTRIES_KEY,
+                InMapperAggregationMapper.DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * Método map - classifica a transação e soma 1 em (cidade, período, MCC)
+     */
+    @Override
+    protected void map(LongWritable key, Text value, Context context)
+            throws IOException, InterruptedException {
+
+        recordsProcessed++;
+        String line = value.toString();
+
+        // Ignorar cabeçalho
+        if (line.startsWith("id,") || line.startsWith("\"id\"")) {
+            return;
+        }
+
+        try {
+            String[] parts = splitCsv(line);
+            if (parts.length < 12) {
+                invalidRecords++;
+                return;
+            }
+
+            // Mesma classificação do Step1AggregationMapper
+            String city = processCityName(parts[7]);
+            String mcc = processMCC(parts[10]);
+            TimePeriod period = TimePeriod.fromDateTime(parts[1]);
+
+            if (city.isEmpty() || mcc == null || period == null) {
+                invalidRecords++;
+                return;
+            }
+
+            keyBuilder.setLength(0);
+            keyBuilder.append(city).append(KEY_SEPARATOR)
+                    .append(period.name()).append(KEY_SEPARATOR)
+                    .append(mcc);
+            counts.add(keyBuilder.toString(), 1);
+            validRecords++;
+
+            if (counts.size() >= maxEntries || counts.estimatedBytes() >= memoryBudgetBytes) {
+                flush(context);
+            }
+
+        } catch (Exception e) {
+            invalidRecords++;
+            context.setStatus("Erro processando linha: " + e.getMessage());
+        }
+
+        // Log de progresso
+        if (recordsProcessed % 50000 == 0) {
+            context.setStatus("Single-job Mapper: Processados " + recordsProcessed +
+                    " registros. Chaves em memória: " + counts.size());
+        }
+    }
+
+    /**
+     * Emite as contagens acumuladas e esvazia o mapa
+     */
+    private void flush(Context context) throws IOException, InterruptedException {
+        if (counts.isEmpty()) {
+            return;
+        }
+
+        for (int slot = 0; slot < counts.capacity(); slot++) {
+            String composite = counts.keyAt(slot);
+            if (composite == null) {
+                continue;
+            }
+            int first = composite.indexOf(KEY_SEPARATOR);
+            int second = composite.indexOf(KEY_SEPARATOR, first + 1);
+
+            outputKey.setCityName(composite.substring(0, first));
+            outputKey.setTimePeriod(composite.substring(first + 1, second));
+            outputValue.setMccCode(composite.substring(second + 1));
+            outputValue.setCount(counts.valueAt(slot));
+            context.write(outputKey, outputValue);
+            emittedPairs++;
+        }
+
+        counts.clear();
+        flushCount++;
+    }
+
+    /**
+     * Processa e limpa o nome da cidade
+     */
+    private String processCityName(String cityRaw) {
+        if (cityRaw == null || cityRaw.trim().isEmpty()) {
+            return "UNKNOWN";
+        }
+
+        String city = cityRaw.trim()
+                .replace("\"", "")
+                .toUpperCase();
+
+        if (city.isEmpty() || city.equals("NULL") || city.equals("N/A")) {
+            return "UNKNOWN";
+        }
+
+        return city;
+    }
+
+    /**
+     * Processa e valida o código MCC
+     * @return código numérico ou null se inválido
+     */
+    private String processMCC(String mccRaw) {
+        if (mccRaw == null) {
+            return null;
+        }
+
+        String mcc = mccRaw.trim().replace("\"", "");
+        if (mcc.isEmpty()) {
+            return null;
+        }
+
+        for (int i = 0; i < mcc.length(); i++) {
+            if (!Character.isDigit(mcc.charAt(i))) {
+                return null;
+            }
+        }
+        return mcc;
+    }
+
+    /**
+     * Split de CSV que respeita aspas
+     */
+    private static String[] splitCsv(String line) {
+        List<String> result = new ArrayList<>();
+        StringBuilder currentField = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+
+            if (ch == '\"') {
+                inQuotes = !inQuotes;
+            } else if (ch == ',' && !inQuotes) {
+                result.add(currentField.toString());
+                currentField.setLength(0);
+            } else {
+                currentField.append(ch);
+            }
+        }
+
+        result.add(currentField.toString());
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Cleanup - descarrega o que restou no mapa e imprime estatísticas
+     */
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        flush(context);
+
+        System.out.println("========================================");
+        System.out.println("Single-job Mapper - Estatísticas:");
+        System.out.println("  Total de registros processados: " + recordsProcessed);
+        System.out.println("  Registros válidos: " + validRecords);
+        System.out.println("  Registros inválidos: " + invalidRecords);
+        System.out.println("  Pares emitidos: " + emittedPairs);
+        System.out.println("  Flushes: " + flushCount);
+        if (emittedPairs > 0) {
+            System.out.println("  Fator de redução: " +
+                    String.format("%.1fx", (double) validRecords / emittedPairs));
+        }
+        System.out.println("========================================");
+        super.cleanup(context);
+    }
+}
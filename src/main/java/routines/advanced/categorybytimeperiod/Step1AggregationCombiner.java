@@ -1,9 +1,8 @@
 package routines.advanced.categorybytimeperiod;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 import org.apache.hadoop.mapreduce.Reducer;
+import routines.common.MccCounter;
 import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
 
 /**
@@ -18,6 +17,10 @@ import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
  */
 public class Step1AggregationCombiner extends Reducer<CityPeriodKey, MCCTransactionCount, CityPeriodKey, MCCTransactionCount> {
 
+    // Estruturas reutilizáveis entre grupos
+    private final MccCounter localMccCounts = new MccCounter();
+    private final MCCTransactionCount outputValue = new MCCTransactionCount();
+
     /**
      * Método reduce do Combiner - agrega contagens de MCC localmente
      *
@@ -29,21 +32,17 @@ public class Step1AggregationCombiner extends Reducer<CityPeriodKey, MCCTransact
     protected void reduce(CityPeriodKey key, Iterable<MCCTransactionCount> values, Context context)
             throws IOException, InterruptedException {
 
-        // HashMap para agregar contagens por MCC localmente
-        Map<String, Long> localMccCounts = new HashMap<>();
-
         // Somar todos os valores locais para esta cidade-período
+        localMccCounts.reset();
         for (MCCTransactionCount mccCount : values) {
-            String mcc = mccCount.getMccCode();
-            long count = mccCount.getCount();
-            localMccCounts.put(mcc, localMccCounts.getOrDefault(mcc, 0L) + count);
+            localMccCounts.add(mccCount.getMccCode(), mccCount.getCount());
         }
 
-        // Emitir resultados pré-agregados
-        for (Map.Entry<String, Long> entry : localMccCounts.entrySet()) {
-            MCCTransactionCount aggregated = new MCCTransactionCount(
-                    entry.getKey(), entry.getValue());
-            context.write(key, aggregated);
+        // Emitir resultados pré-agregados (valor reutilizado)
+        for (int i = 0; i < localMccCounts.distinctCount(); i++) {
+            int id = localMccCounts.idAt(i);
+            outputValue.set(localMccCounts.code(id), localMccCounts.countOf(id));
+            context.write(key, outputValue);
         }
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import java.util.List;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
+import routines.common.TimePeriod;
 import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
 
 /**
@@ -32,19 +33,8 @@ public class Step1AggregationMapper extends Mapper<LongWritable, Text, CityPerio
     private long headerSkipped = 0;
     private long invalidRecords = 0;
 
-    // Contadores por período
-    private long morningCount = 0;
-    private long afternoonCount = 0;
-    private long nightCount = 0;
-
-    /**
-     * Enum para períodos do dia
-     */
-    private enum TimePeriod {
-        MORNING,    // 00:00 - 11:59
-        AFTERNOON,  // 12:00 - 17:59
-        NIGHT       // 18:00 - 23:59
-    }
+    // Contadores por período, indexados pelo ordinal de TimePeriod
+    private final long[] periodCounts = new long[TimePeriod.COUNT];
 
     /**
      * Método map - processa cada linha do CSV
@@ -82,7 +72,7 @@ public class Step1AggregationMapper extends Mapper<LongWritable, Text, CityPerio
             // Processar campos
             String city = processCityName(cityRaw);
             String mcc = processMCC(mccRaw);
-            TimePeriod period = determineTimePeriod(dateTimeRaw);
+            TimePeriod period = TimePeriod.fromDateTime(dateTimeRaw);
 
             if (!city.isEmpty() && !mcc.equals("UNKNOWN_MCC") && period != null) {
                 // Criar chave composta (cidade + período)
@@ -90,25 +80,15 @@ public class Step1AggregationMapper extends Mapper<LongWritable, Text, CityPerio
                 outputKey.setCityName(city);
                 outputKey.setTimePeriod(periodStr);
 
-                // Criar valor (MCC com contagem 1)
-                MCCTransactionCount mccCount = new MCCTransactionCount(mcc, 1);
+                // Valor reutilizável (MCC com contagem 1)
+                outputValue.set(mcc, 1);
 
                 // Emitir
-                context.write(outputKey, mccCount);
+                context.write(outputKey, outputValue);
                 validRecords++;
 
                 // Atualizar estatísticas
-                switch (period) {
-                    case MORNING:
-                        morningCount++;
-                        break;
-                    case AFTERNOON:
-                        afternoonCount++;
-                        break;
-                    case NIGHT:
-                        nightCount++;
-                        break;
-                }
+                periodCounts[period.ordinal()]++;
             } else {
                 invalidRecords++;
             }
@@ -122,45 +102,8 @@ public class Step1AggregationMapper extends Mapper<LongWritable, Text, CityPerio
         if (recordsProcessed % 50000 == 0) {
             context.setStatus(String.format(
                     "Step 1 Mapper: Processados %d registros. Válidos: %d (M:%d T:%d N:%d)",
-                    recordsProcessed, validRecords, morningCount, afternoonCount, nightCount));
-        }
-    }
-
-    /**
-     * Determina o período do dia baseado no timestamp
-     */
-    private TimePeriod determineTimePeriod(String dateTimeRaw) {
-        if (dateTimeRaw == null || dateTimeRaw.trim().isEmpty()) {
-            return null;
-        }
-
-        try {
-            String dateTime = dateTimeRaw.trim().replace("\"", "");
-            String[] parts = dateTime.split(" ");
-            if (parts.length < 2) {
-                return null;
-            }
-
-            String timePart = parts[1];
-            String[] timeParts = timePart.split(":");
-            if (timeParts.length < 1) {
-                return null;
-            }
-
-            int hour = Integer.parseInt(timeParts[0]);
-
-            if (hour >= 0 && hour < 12) {
-                return TimePeriod.MORNING;
-            } else if (hour >= 12 && hour < 18) {
-                return TimePeriod.AFTERNOON;
-            } else if (hour >= 18 && hour < 24) {
-                return TimePeriod.NIGHT;
-            }
-
-            return null;
-
-        } catch (Exception e) {
-            return null;
+                    recordsProcessed, validRecords, periodCounts[TimePeriod.MORNING.ordinal()],
+                    periodCounts[TimePeriod.AFTERNOON.ordinal()], periodCounts[TimePeriod.NIGHT.ordinal()]));
         }
     }
 
@@ -186,7 +129,7 @@ public class Step1AggregationMapper extends Mapper<LongWritable, Text, CityPerio
     /**
      * Processa e valida o código MCC
      */
-    private String processMCC(String mccRaw) {
+    public static String processMCC(String mccRaw) {
         if (mccRaw == null || mccRaw.trim().isEmpty()) {
             return "UNKNOWN_MCC";
         }
@@ -234,6 +177,9 @@ public class Step1AggregationMapper extends Mapper<LongWritable, Text, CityPerio
      */
     @Override
     protected void cleanup(Context context) throws IOException, InterruptedException {
+        long morningCount = periodCounts[TimePeriod.MORNING.ordinal()];
+        long afternoonCount = periodCounts[TimePeriod.AFTERNOON.ordinal()];
+        long nightCount = periodCounts[TimePeriod.NIGHT.ordinal()];
         long totalValid = morningCount + afternoonCount + nightCount;
 
         System.out.println("========================================");
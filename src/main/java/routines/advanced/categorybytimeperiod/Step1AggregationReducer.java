@@ -1,9 +1,8 @@
 package routines.advanced.categorybytimeperiod;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 import org.apache.hadoop.mapreduce.Reducer;
+import routines.common.MccCounter;
 import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
 
 /**
@@ -20,6 +19,10 @@ import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
  */
 public class Step1AggregationReducer extends Reducer<CityPeriodKey, MCCTransactionCount, CityPeriodKey, MCCTransactionCount> {
 
+    // Estruturas reutilizáveis entre grupos
+    private final MccCounter mccCounts = new MccCounter();
+    private final MCCTransactionCount outputValue = new MCCTransactionCount();
+
     // Estatísticas
     private long totalRecords = 0;
     private long totalCityPeriods = 0;
@@ -33,19 +36,16 @@ public class Step1AggregationReducer extends Reducer<CityPeriodKey, MCCTransacti
                           Context context) throws IOException, InterruptedException {
 
         // Agregar contagens por MCC
-        Map<String, Long> mccCounts = new HashMap<>();
-
+        mccCounts.reset();
         for (MCCTransactionCount mccCount : values) {
-            String mcc = mccCount.getMccCode();
-            long count = mccCount.getCount();
-            mccCounts.put(mcc, mccCounts.getOrDefault(mcc, 0L) + count);
+            mccCounts.add(mccCount.getMccCode(), mccCount.getCount());
         }
 
-        // Emitir cada MCC com sua contagem agregada
-        for (Map.Entry<String, Long> entry : mccCounts.entrySet()) {
-            MCCTransactionCount aggregated = new MCCTransactionCount(
-                    entry.getKey(), entry.getValue());
-            context.write(key, aggregated);
+        // Emitir cada MCC com sua contagem agregada (valor reutilizado)
+        for (int i = 0; i < mccCounts.distinctCount(); i++) {
+            int id = mccCounts.idAt(i);
+            outputValue.set(mccCounts.code(id), mccCounts.countOf(id));
+            context.write(key, outputValue);
             totalRecords++;
         }
 
@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.util.*;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
+import routines.common.MccCounter;
+import routines.common.TopKSelector;
 import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
 import routines.intermediate.topcategoriesbycity.TopCategoriesResult;
 
@@ -14,11 +16,22 @@ import routines.intermediate.topcategoriesbycity.TopCategoriesResult;
  * Ele recebe os dados agregados do Job 1 (via Step2Mapper) e
  * identifica as 3 categorias mais frequentes para cada cidade-período.
  *
+ * Também é o reducer do modo job único, em que recebe contagens parciais do
+ * SingleJobAggregationMapper: as contagens de um mesmo MCC são somadas em um
+ * MccCounter reutilizável e o top K (padrão 3, -Dfta.topk.k) é mantido pelo
+ * TopKSelector, sem copiar e ordenar a lista. Empates são resolvidos pelo menor MCC.
+ *
  * Input:  (CityPeriodKey, MCCTransactionCount)
  * Output: (Text, TopCategoriesResult) - Top 3 categorias formatadas
  */
 public class Step2RankingReducer extends Reducer<CityPeriodKey, MCCTransactionCount, Text, TopCategoriesResult> {
 
+    // Estruturas reutilizáveis entre grupos
+    private final MccCounter mccTotals = new MccCounter();
+    private TopKSelector topK;
+    private final TopCategoriesResult result = new TopCategoriesResult();
+    private final Text outputKey = new Text();
+
     // Estatísticas globais
     private long totalCityPeriods = 0;
     private String mostDiverseCityPeriod = "";
@@ -28,8 +41,14 @@ public class Step2RankingReducer extends Reducer<CityPeriodKey, MCCTransactionCo
     private Map<String, Long> transactionsByPeriod = new HashMap<>();
     private Map<String, Integer> citiesByPeriod = new HashMap<>();
 
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        topK = TopKSelector.fromConf(context.getConfiguration());
+    }
+
     /**
-     * Reduce - Identifica top 3 categorias para cada cidade-período
+     * Reduce - Identifica top K categorias para cada cidade-período
      */
     @Override
     protected void reduce(CityPeriodKey key,
@@ -39,42 +58,32 @@ public class Step2RankingReducer extends Reducer<CityPeriodKey, MCCTransactionCo
         String displayKey = key.toDisplayString();
         String timePeriod = key.getTimePeriod();
 
-        // Lista para ordenar
-        List<MCCTransactionCount> mccList = new ArrayList<>();
+        // Somar as contagens por MCC (parciais no modo job único, já agregadas no Job 1)
+        mccTotals.reset();
         long totalTransactions = 0;
 
-        // Coletar todos os MCCs (já agregados pelo Job 1)
         for (MCCTransactionCount mcc : values) {
-            // Criar cópia porque Hadoop reutiliza objetos
-            MCCTransactionCount copy = new MCCTransactionCount(
-                    mcc.getMccCode(),
-                    mcc.getCount()
-            );
-            mccList.add(copy);
+            mccTotals.add(mcc.getMccCode(), mcc.getCount());
             totalTransactions += mcc.getCount();
         }
 
-        // Ordenar por contagem (decrescente)
-        mccList.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
-
-        // Pegar top 3
-        int topN = Math.min(3, mccList.size());
-        String[] topMCCs = new String[topN];
-        long[] topCounts = new long[topN];
+        // Top K por heap limitado de tamanho fixo
+        topK.reset();
+        mccTotals.offerTo(topK);
+        int topN = topK.finish();
 
+        // Preencher e emitir o resultado reutilizável
+        result.clear();
         for (int i = 0; i < topN; i++) {
-            topMCCs[i] = mccList.get(i).getMccCode();
-            topCounts[i] = mccList.get(i).getCount();
+            result.add(mccTotals.code(topK.idAt(i)), topK.countAt(i));
         }
-
-        // Criar e emitir resultado
-        TopCategoriesResult result = new TopCategoriesResult(topMCCs, topCounts, topN);
-        context.write(new Text(displayKey), result);
+        outputKey.set(displayKey);
+        context.write(outputKey, result);
 
         // Atualizar estatísticas
         totalCityPeriods++;
 
-        int uniqueCategories = mccList.size();
+        int uniqueCategories = mccTotals.distinctCount();
         if (uniqueCategories > highestCategoryCount) {
             highestCategoryCount = uniqueCategories;
             mostDiverseCityPeriod = displayKey;
@@ -129,7 +138,7 @@ public class Step2RankingReducer extends Reducer<CityPeriodKey, MCCTransactionCo
         System.out.println();
         System.out.println("========================================");
         System.out.println("Multi-Step Processing Completo!");
-        System.out.println("Resultado: Top 3 categorias por cidade-período");
+        System.out.println("Resultado: Top " + topK.capacity() + " categorias por cidade-período");
         System.out.println("========================================");
 
         super.cleanup(context);
@@ -24,12 +24,19 @@ import org.apache.hadoop.mapreduce.Mapper;
 public class ClientAggMapper extends Mapper<LongWritable, Text, Text, TransactionMiniWritable> {
 
     private final Text outKey = new Text();
+    private final TransactionMiniWritable mini = new TransactionMiniWritable(); // reutilizado por registro
 
     private long recordsProcessed = 0;
     private long validRecords = 0;
     private long headerSkipped = 0;
     private long invalidRecords = 0;
 
+    @Override
+    protected void setup(Context ctx) {
+        // Dicionário de cidades/UFs do job (serialização compacta no shuffle)
+        mini.setConf(ctx.getConfiguration());
+    }
+
     @Override
     protected void map(LongWritable key, Text value, Context ctx) throws IOException, InterruptedException {
         recordsProcessed++;
@@ -73,9 +80,7 @@ public class ClientAggMapper extends Mapper<LongWritable, Text, Text, Transactio
 
             boolean hasError = (errorsRaw != null && !errorsRaw.trim().isEmpty());
 
-            TransactionMiniWritable mini = new TransactionMiniWritable(
-                    isOnline, hasError, amountCents, merchantCity, merchantState, mcc
-            );
+            mini.set(isOnline, hasError, amountCents, merchantCity, merchantState, mcc);
 
             outKey.set(clientId);
             ctx.write(outKey, mini);
@@ -9,6 +9,11 @@ import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.JobAutoTuner;
+import routines.common.LocalMode;
+import routines.common.PipelineCheckpoint;
+import routines.common.TransactionDictionary;
 
 // Para executar configure os argumentos da seguinte forma:
 // src/main/resources/transactions_data.csv output/client_behavior/client_behavior_stage1 output/client_behavior/client_behavior_final 1 local
@@ -28,12 +33,15 @@ import org.apache.hadoop.util.ToolRunner;
  * Parâmetros configuráveis (exemplo):
  *   -Drisk.error.high=0.05 -Drisk.error.med=0.02 -Drisk.chip.low=0.50 -Drisk.chip.med=0.70 \
  *   -Drisk.avg_amount.high_cents=10000 -Drisk.max_amount.high_cents=50000
+ *
+ * Checkpoint: jobs com marcador válido (mesmas entradas, parâmetros e classes) são pulados;
+ * -Dfta.checkpoint.from=final refaz só o Job 2 (ver PipelineCheckpoint).
  */
 public class ClientBehaviorChipUse extends Configured implements Tool {
 
     @Override
     public int run(String[] args) throws Exception {
-        if (args.length < 3) {
+        if (args.length < 3 || !JobAutoTuner.isReducersArgument(args, 3)) {
             System.err.println("Usage: ClientBehaviorChipUse <input_csv> <stage1_out> <final_out> [num_reducers] [local]");
             return -1;
         }
@@ -41,16 +49,14 @@ public class ClientBehaviorChipUse extends Configured implements Tool {
         Path input = new Path(args[0]);
         Path stage1Out = new Path(args[1]);
         Path finalOut = new Path(args[2]);
-        int reducers = (args.length > 3) ? Integer.parseInt(args[3]) : 1;
-        boolean local = (args.length > 4 && "local".equalsIgnoreCase(args[4]));
+        int reducers = JobAutoTuner.parseReducers(args, 3);
+        boolean local = LocalMode.isRequested(args, 3);
 
         Configuration conf = this.getConf();
 
         if (local) {
             System.out.println("Executando em modo local...");
-            conf.set("fs.defaultFS", "file:///");
-            conf.set("mapreduce.framework.name", "local");
-            conf.set("mapreduce.jobtracker.address", "local");
+            LocalMode.configure(conf);
         }
 
         // Defaults de risco (podem ser sobrescritos com -D)
@@ -61,9 +67,39 @@ public class ClientBehaviorChipUse extends Configured implements Tool {
         conf.setLong("risk.avg_amount.high_cents", conf.getLong("risk.avg_amount.high_cents", 10000L));  // $100
         conf.setLong("risk.max_amount.high_cents", conf.getLong("risk.max_amount.high_cents", 50000L));  // $500
 
-        // -------------------------
-        // Job 1: agrega por client_id
-        // -------------------------
+        // Compressão do shuffle e dos dados entre jobs (-Dfta.compression=none|fast|dense)
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+
+        // Checkpoint por job (-Dfta.checkpoint): jobs com saída válida para as mesmas
+        // entradas, parâmetros e classes são pulados; retoma do primeiro job inválido
+        PipelineCheckpoint checkpoint = new PipelineCheckpoint(conf, "client_behavior");
+        PipelineCheckpoint.Step step1 = checkpoint.step("stage1", stage1Out)
+                .inputs(input)
+                .params("risk.")
+                .code(ClientAggMapper.class, ClientAggReducer.class);
+        PipelineCheckpoint.Step step2 = checkpoint.step("final", finalOut)
+                .inputs(stage1Out)
+                .code(StateAggMapper.class, StateAggCombiner.class, StateAggReducer.class,
+                        StateClientAggWritable.class, StateSummaryWritable.class);
+
+        if (!step1.run(() -> runStage1(conf, input, stage1Out, reducers, compression))) {
+            System.err.println("Job 1 falhou");
+            return 1;
+        }
+
+        boolean ok = step2.run(() -> runStage2(conf, stage1Out, finalOut, reducers, compression));
+        System.out.println(ok ? "Pipeline concluído com sucesso" : "Pipeline falhou");
+        return ok ? 0 : 1;
+    }
+
+    /**
+     * Job 1: agrega por client_id
+     */
+    private boolean runStage1(Configuration conf, Path input, Path stage1Out, int reducers,
+                              CompressionProfile compression) throws Exception {
+        // Dicionário de cidades/UFs para o shuffle compacto do Job 1 (antes de criar o job)
+        int dictionaryEntries = TransactionDictionary.build(conf, input);
+
         Job job1 = Job.getInstance(conf, "client_behavior_stage1_by_client");
         job1.setJarByClass(ClientBehaviorChipUse.class);
 
@@ -79,8 +115,13 @@ public class ClientBehaviorChipUse extends Configured implements Tool {
         job1.setOutputKeyClass(Text.class);
         job1.setOutputValueClass(Text.class);
 
+        // Reducers, split e sort buffer: auto-tuning por amostragem (overrides via -D)
+        JobAutoTuner.tune(conf, input, reducers,
+                new JobAutoTuner.Profile("client_behavior_stage1_by_client",
+                        JobAutoTuner.Profile.csvColumn(2), 0.6)).apply(job1);
 
-        job1.setNumReduceTasks(reducers);
+        // Compressão do shuffle e dos dados entre jobs (-Dfta.compression=none|fast|dense)
+        compression.applyIntermediate(job1);
 
         job1.setOutputFormatClass(TextOutputFormat.class);
         TextOutputFormat.setOutputPath(job1, stage1Out);
@@ -88,14 +129,16 @@ public class ClientBehaviorChipUse extends Configured implements Tool {
         System.out.println("== Job 1 ==");
         System.out.println("Input: " + input);
         System.out.println("Output: " + stage1Out);
-        if (!job1.waitForCompletion(true)) {
-            System.err.println("Job 1 falhou");
-            return 1;
-        }
+        System.out.println("Dicionário (cidade/UF): " + dictionaryEntries + " entradas");
+        System.out.println("Compressão: " + compression.describe());
+        return job1.waitForCompletion(true);
+    }
 
-        // -------------------------
-        // Job 2: agrega por UF
-        // -------------------------
+    /**
+     * Job 2: agrega por UF
+     */
+    private boolean runStage2(Configuration conf, Path stage1Out, Path finalOut, int reducers,
+                              CompressionProfile compression) throws Exception {
         Job job2 = Job.getInstance(conf, "client_behavior_stage2_by_state");
         job2.setJarByClass(ClientBehaviorChipUse.class);
 
@@ -112,7 +155,10 @@ public class ClientBehaviorChipUse extends Configured implements Tool {
         job2.setOutputKeyClass(Text.class);                   // state (UF)
         job2.setOutputValueClass(StateSummaryWritable.class);
 
-        job2.setNumReduceTasks(reducers);
+        JobAutoTuner.tune(conf, stage1Out, reducers,
+                new JobAutoTuner.Profile("client_behavior_stage2_by_state",
+                        JobAutoTuner.Profile.tabColumn(0), 0.1)).apply(job2);
+        compression.applyFinal(job2);
 
         job2.setOutputFormatClass(TextOutputFormat.class);
         TextOutputFormat.setOutputPath(job2, finalOut);
@@ -121,9 +167,7 @@ public class ClientBehaviorChipUse extends Configured implements Tool {
         System.out.println("Input: " + stage1Out);
         System.out.println("Output: " + finalOut);
 
-        boolean ok = job2.waitForCompletion(true);
-        System.out.println(ok ? "Pipeline concluído com sucesso" : "Pipeline falhou");
-        return ok ? 0 : 1;
+        return job2.waitForCompletion(true);
     }
 
     public static void main(String[] args) throws Exception {
@@ -3,7 +3,11 @@ package routines.advanced.clientbehaviorchipuse;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import routines.common.TransactionDictionary;
 
 /**
  * Value do Job 1 (Mapper -> Reducer) com os campos mínimos por transação
@@ -11,8 +15,15 @@ import org.apache.hadoop.io.Writable;
  *
  * Troca principal: campo de canal
  * isOnline (boolean) => true se "ONLINE TRANSACTION", false se "SWIPE TRANSACTION"
+ *
+ * Formato compacto no shuffle: isOnline/hasError num único byte de flags, valor em
+ * VLong, cidade/UF como ids VInt do {@link TransactionDictionary} (recebido via
+ * setConf) e MCC como índice de 4 dígitos. Só é usado como valor (sem comparador raw).
  */
-public class TransactionMiniWritable implements Writable {
+public class TransactionMiniWritable implements Writable, Configurable {
+
+    private static final int FLAG_ONLINE = 1;
+    private static final int FLAG_ERROR = 1 << 1;
 
     private boolean isOnline;     // canal: online vs swipe
     private boolean hasError;     // houve erro no registro (coluna errors não vazia)
@@ -21,6 +32,9 @@ public class TransactionMiniWritable implements Writable {
     private String state;         // merchant_state (UF)
     private String mcc;           // código MCC
 
+    private Configuration conf;
+    private TransactionDictionary dictionary = TransactionDictionary.get(null);
+
     public TransactionMiniWritable() {}
 
     public TransactionMiniWritable(boolean isOnline, boolean hasError, long amountCents,
@@ -33,24 +47,48 @@ public class TransactionMiniWritable implements Writable {
         this.mcc = nz(mcc);
     }
 
+    /**
+     * Redefine todos os campos (permite reutilizar a instância no mapper)
+     */
+    public void set(boolean isOnline, boolean hasError, long amountCents,
+                    String city, String state, String mcc) {
+        this.isOnline = isOnline;
+        this.hasError = hasError;
+        this.amountCents = amountCents;
+        this.city = nz(city);
+        this.state = nz(state);
+        this.mcc = nz(mcc);
+    }
+
+    @Override
+    public void setConf(Configuration conf) {
+        this.conf = conf;
+        this.dictionary = TransactionDictionary.get(conf);
+    }
+
+    @Override
+    public Configuration getConf() {
+        return conf;
+    }
+
     @Override
     public void write(DataOutput out) throws IOException {
-        out.writeBoolean(isOnline);
-        out.writeBoolean(hasError);
-        out.writeLong(amountCents);
-        writeString(out, city);
-        writeString(out, state);
-        writeString(out, mcc);
+        out.writeByte((isOnline ? FLAG_ONLINE : 0) | (hasError ? FLAG_ERROR : 0));
+        WritableUtils.writeVLong(out, amountCents);
+        dictionary.writeString(out, nn(city));
+        dictionary.writeString(out, nn(state));
+        TransactionDictionary.writeMcc(out, nn(mcc));
     }
 
     @Override
     public void readFields(DataInput in) throws IOException {
-        isOnline = in.readBoolean();
-        hasError = in.readBoolean();
-        amountCents = in.readLong();
-        city = readString(in);
-        state = readString(in);
-        mcc = readString(in);
+        int flags = in.readByte();
+        isOnline = (flags & FLAG_ONLINE) != 0;
+        hasError = (flags & FLAG_ERROR) != 0;
+        amountCents = WritableUtils.readVLong(in);
+        city = dictionary.readString(in);
+        state = dictionary.readString(in);
+        mcc = TransactionDictionary.readMcc(in);
     }
 
     // getters / setters
@@ -77,22 +115,8 @@ public class TransactionMiniWritable implements Writable {
         return (s == null || s.trim().isEmpty()) ? "UNKNOWN" : s.trim().toUpperCase();
     }
 
-    private static void writeString(DataOutput out, String s) throws IOException {
-        if (s == null) {
-            out.writeInt(-1);
-        } else {
-            byte[] bytes = s.getBytes("UTF-8");
-            out.writeInt(bytes.length);
-            out.write(bytes);
-        }
-    }
-
-    private static String readString(DataInput in) throws IOException {
-        int len = in.readInt();
-        if (len < 0) return "";
-        byte[] b = new byte[len];
-        in.readFully(b);
-        return new String(b, "UTF-8");
-        // (já normalizamos em setters quando necessário)
+    // null é serializado como "" (mesmo resultado que o formato anterior na leitura)
+    private static String nn(String s) {
+        return s == null ? "" : s;
     }
 }
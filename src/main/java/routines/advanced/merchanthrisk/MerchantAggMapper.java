@@ -22,6 +22,13 @@ import org.apache.hadoop.mapreduce.Mapper;
 public class MerchantAggMapper extends Mapper<LongWritable, Text, Text, TransactionMiniWritable> {
 
     private final Text outKey = new Text();
+    private final TransactionMiniWritable tw = new TransactionMiniWritable(); // reutilizado por registro
+
+    @Override
+    protected void setup(Context ctx) {
+        // Dicionário de cidades/UFs do job (serialização compacta no shuffle)
+        tw.setConf(ctx.getConfiguration());
+    }
 
     @Override
     protected void map(LongWritable key, Text value, Context ctx) throws IOException, InterruptedException {
@@ -49,9 +56,7 @@ public class MerchantAggMapper extends Mapper<LongWritable, Text, Text, Transact
         // errors(11): qualquer flag não vazia/None consideramos erro
         boolean hasError = hasError(nz(parts[11]));
 
-        TransactionMiniWritable tw = new TransactionMiniWritable(
-                amountCents, isOnline, hasError, city, state, mcc
-        );
+        tw.set(amountCents, isOnline, hasError, city, state, mcc);
 
         outKey.set(merchantId);
         ctx.write(outKey, tw);
@@ -6,6 +6,7 @@ import java.util.Map;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
+import routines.common.IndexedOutput;
 
 /**
  * Reducer (JOB 1): agrega por merchant_id, calcula métricas e classifica
@@ -23,12 +24,22 @@ import org.apache.hadoop.mapreduce.Reducer;
  * Observação:
  *  - Escolhemos formato textual para facilitar cat/grep na saída intermediária.
  *  - JOB 2 faz o parsing e reconstrói o agregado por UF.
+ *  - Com -Dfta.indexed.output=true a mesma linha também vai para o índice por merchant_id
+ *    (_index, valor "<UF>\t<linha>"), para consulta pontual com IndexLookup.
  */
 public class MerchantAggReducer extends Reducer<Text, TransactionMiniWritable, Text, Text> {
 
     private final Text outKey = new Text();
     private final Text outVal = new Text();
 
+    // Índice por merchant_id (-Dfta.indexed.output=true), senão null
+    private IndexedOutput.Writer index;
+
+    @Override
+    protected void setup(Context ctx) throws IOException, InterruptedException {
+        index = IndexedOutput.open(ctx);
+    }
+
     @Override
     protected void reduce(Text merchantId, Iterable<TransactionMiniWritable> values, Context ctx)
             throws IOException, InterruptedException {
@@ -89,6 +100,16 @@ public class MerchantAggReducer extends Reducer<Text, TransactionMiniWritable, T
         outKey.set(topState);
         outVal.set(sb.toString());
         ctx.write(outKey, outVal);
+        if (index != null) {
+            index.append(merchantId, topState + "\t" + outVal);
+        }
+    }
+
+    @Override
+    protected void cleanup(Context ctx) throws IOException, InterruptedException {
+        if (index != null) {
+            index.close();
+        }
     }
 
     // ===== Helpers de serialização / regras =====
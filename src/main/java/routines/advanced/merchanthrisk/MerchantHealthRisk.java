@@ -11,6 +11,12 @@ import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.IndexedOutput;
+import routines.common.JobAutoTuner;
+import routines.common.LocalMode;
+import routines.common.PipelineCheckpoint;
+import routines.common.TransactionDictionary;
 
 // Para executar, configure os argumentos nesta ordem (exemplo):
 // src/main/resources/transactions_data.csv output/merchant_stage1 output/merchant_final 1 local
@@ -31,6 +37,8 @@ import org.apache.hadoop.util.ToolRunner;
 //  -Drisk.online.med=0.70 -Drisk.online.high=0.90
 //  -Drisk.max.high_cents=500000
 //  -Dtop.merchants.k=5 -Dmin.uf.merchants=5
+//  -Dfta.indexed.output=true (índice por merchant_id em <stage1_out>/_index)
+//  -Dfta.checkpoint.from=final (refaz só o Job 2; por padrão jobs com saída válida são pulados)
 
 /**
  * Driver para MerchantHealthRisk - Radar de Saúde e Risco por UF (2 jobs encadeados)
@@ -53,7 +61,7 @@ public class MerchantHealthRisk extends Configured implements Tool {
     @Override
     public int run(String[] args) throws Exception {
         // Verificação de argumentos mínimos
-        if (args.length < 3) {
+        if (args.length < 3 || !JobAutoTuner.isReducersArgument(args, 3)) {
             System.err.println("Usage: MerchantHealthRisk <input_csv> <stage1_out> <final_out> [num_reducers] [local] [-D...]");
             return -1;
         }
@@ -62,8 +70,8 @@ public class MerchantHealthRisk extends Configured implements Tool {
         Path input    = new Path(args[0]);
         Path stage1   = new Path(args[1]);
         Path finalOut = new Path(args[2]);
-        int reducers  = (args.length > 3) ? Integer.parseInt(args[3]) : 1;
-        boolean local = (args.length > 4 && "local".equalsIgnoreCase(args[4]));
+        int reducers  = JobAutoTuner.parseReducers(args, 3);
+        boolean local = LocalMode.isRequested(args, 3);
 
         // Configuração base
         Configuration conf = getConf();
@@ -71,17 +79,61 @@ public class MerchantHealthRisk extends Configured implements Tool {
         // Modo local (Standalone)
         if (local) {
             System.out.println("Configurando execução local (Standalone)...");
-            conf.set("fs.defaultFS", "file:///");
-            conf.set("mapreduce.framework.name", "local");
-            conf.set("mapreduce.jobtracker.address", "local");
+            LocalMode.configure(conf);
         }
 
         // Defaults dos parâmetros (-D pode sobrescrever)
         applyDefaultParams(conf);
 
-        // =======================
-        // JOB 1 - Merchant → UF
-        // =======================
+        // Compressão do shuffle e dos dados entre jobs (-Dfta.compression=none|fast|dense)
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+
+        // Checkpoint por job (-Dfta.checkpoint): jobs com saída válida para as mesmas
+        // entradas, parâmetros e classes são pulados; retoma do primeiro job inválido
+        PipelineCheckpoint checkpoint = new PipelineCheckpoint(conf, "merchant_health_risk");
+        PipelineCheckpoint.Step step1 = checkpoint.step("stage1", stage1)
+                .inputs(input)
+                .params("health.", "risk.", IndexedOutput.ENABLED_KEY)
+                .code(MerchantAggMapper.class, MerchantAggReducer.class);
+        PipelineCheckpoint.Step step2 = checkpoint.step("final", finalOut)
+                .inputs(stage1)
+                .params("top.merchants.k", "min.uf.merchants")
+                .code(StateAggMapper.class, StateAggCombiner.class, StateAggReducer.class,
+                        StateMerchantAggWritable.class);
+
+        if (!step1.run(() -> runStage1(conf, input, stage1, reducers, compression))) {
+            System.err.println("Job 1 falhou.");
+            return 1;
+        }
+
+        boolean ok = step2.run(() -> runStage2(conf, stage1, finalOut, reducers, compression));
+
+        if (ok) {
+            System.out.println();
+            System.out.println("========================================");
+            System.out.println("Pipeline concluído com sucesso!");
+            System.out.println("Como inspecionar:");
+            System.out.println("  - Saída intermediária:  cat " + stage1 + "/part-r-00000");
+            System.out.println("  - Saída final        :  cat " + finalOut + "/part-r-00000");
+            if (IndexedOutput.isEnabled(conf)) {
+                System.out.println("  - Merchant (índice)  :  java routines.common.IndexLookup " + stage1 + " <merchant_id>");
+            }
+            System.out.println("========================================");
+            return 0;
+        } else {
+            System.err.println("Job 2 falhou.");
+            return 1;
+        }
+    }
+
+    /**
+     * JOB 1 - Merchant → UF
+     */
+    private boolean runStage1(Configuration conf, Path input, Path stage1, int reducers,
+                              CompressionProfile compression) throws Exception {
+        // Dicionário de cidades/UFs para o shuffle compacto do JOB 1 (antes de criar o job)
+        int dictionaryEntries = TransactionDictionary.build(conf, input);
+
         Job j1 = Job.getInstance(conf, "merchant_health_risk_stage1");
         j1.setJarByClass(MerchantHealthRisk.class);
 
@@ -101,25 +153,36 @@ public class MerchantHealthRisk extends Configured implements Tool {
         j1.setOutputKeyClass(Text.class); // UF predominante
         j1.setOutputValueClass(Text.class);
 
-        j1.setNumReduceTasks(reducers);
+        // Reducers, split e sort buffer: auto-tuning por amostragem (overrides via -D)
+        JobAutoTuner.Decision tuning1 = JobAutoTuner.tune(conf, input, reducers,
+                new JobAutoTuner.Profile("merchant_health_risk_stage1", JobAutoTuner.Profile.csvColumn(6), 0.6));
+        tuning1.apply(j1);
+
+        // Compressão do shuffle e dos dados entre jobs (-Dfta.compression=none|fast|dense)
+        compression.applyIntermediate(j1);
 
         // Logs informativos
         System.out.println("========================================");
         System.out.println("JOB 1 - merchant_health_risk_stage1");
         System.out.println("  Input : " + input);
         System.out.println("  Output: " + stage1);
-        System.out.println("  Reducers: " + reducers);
+        System.out.println("  Reducers: " + tuning1.getReducers());
+        System.out.println("  Compressão: " + compression.describe());
+        System.out.println("  Dicionário (cidade/UF): " + dictionaryEntries + " entradas");
         System.out.println("  Intercâmbio: Texto (legível p/ debug)");
+        if (IndexedOutput.isEnabled(conf)) {
+            System.out.println("  Índice por merchant_id: " + IndexedOutput.indexPath(stage1));
+        }
         System.out.println("========================================");
 
-        if (!j1.waitForCompletion(true)) {
-            System.err.println("Job 1 falhou.");
-            return 1;
-        }
+        return j1.waitForCompletion(true);
+    }
 
-        // =======================
-        // JOB 2 - UF (consolidação)
-        // =======================
+    /**
+     * JOB 2 - UF (consolidação)
+     */
+    private boolean runStage2(Configuration conf, Path stage1, Path finalOut, int reducers,
+                              CompressionProfile compression) throws Exception {
         Job j2 = Job.getInstance(conf, "merchant_health_risk_final");
         j2.setJarByClass(MerchantHealthRisk.class);
 
@@ -142,31 +205,20 @@ public class MerchantHealthRisk extends Configured implements Tool {
         j2.setOutputKeyClass(Text.class);
         j2.setOutputValueClass(Text.class);
 
-        j2.setNumReduceTasks(reducers);
+        JobAutoTuner.Decision tuning2 = JobAutoTuner.tune(conf, stage1, reducers,
+                new JobAutoTuner.Profile("merchant_health_risk_final", JobAutoTuner.Profile.tabColumn(0), 0.1));
+        tuning2.apply(j2);
+        compression.applyFinal(j2);
 
         System.out.println("========================================");
         System.out.println("JOB 2 - merchant_health_risk_final");
         System.out.println("  Input : " + stage1);
         System.out.println("  Output: " + finalOut);
-        System.out.println("  Reducers: " + reducers);
+        System.out.println("  Reducers: " + tuning2.getReducers());
         System.out.println("  Combiner: Habilitado (merge associativo)");
         System.out.println("========================================");
 
-        boolean ok = j2.waitForCompletion(true);
-
-        if (ok) {
-            System.out.println();
-            System.out.println("========================================");
-            System.out.println("Pipeline concluído com sucesso!");
-            System.out.println("Como inspecionar:");
-            System.out.println("  - Saída intermediária:  cat " + stage1 + "/part-r-00000");
-            System.out.println("  - Saída final        :  cat " + finalOut + "/part-r-00000");
-            System.out.println("========================================");
-            return 0;
-        } else {
-            System.err.println("Job 2 falhou.");
-            return 1;
-        }
+        return j2.waitForCompletion(true);
     }
 
     /** Seta padrões apenas se usuário não passou via -D */
@@ -13,6 +13,7 @@ import org.apache.hadoop.mapreduce.Reducer;
  */
 public class StateAggCombiner extends Reducer<Text, StateMerchantAggWritable, Text, StateMerchantAggWritable> {
 
+    private final StateMerchantAggWritable acc = new StateMerchantAggWritable(); // reutilizado via reset()
     private int topK;
 
     @Override
@@ -25,7 +26,7 @@ public class StateAggCombiner extends Reducer<Text, StateMerchantAggWritable, Te
     protected void reduce(Text uf, Iterable<StateMerchantAggWritable> vals, Context ctx)
             throws IOException, InterruptedException {
 
-        StateMerchantAggWritable acc = new StateMerchantAggWritable();
+        acc.reset();
         acc.setK(topK);
 
         for (StateMerchantAggWritable v : vals) {
@@ -20,6 +20,7 @@ import org.apache.hadoop.mapreduce.Mapper;
 public class StateAggMapper extends Mapper<Object, Text, Text, StateMerchantAggWritable> {
 
     private final Text outKey = new Text();
+    private final StateMerchantAggWritable agg = new StateMerchantAggWritable(); // reutilizado via reset()
     private int topK;
 
     @Override
@@ -66,7 +67,7 @@ public class StateAggMapper extends Mapper<Object, Text, Text, StateMerchantAggW
         String riskBucket   = parseRiskBucket(riskStr);
         if (healthBucket == null || riskBucket == null || mer == null) return;
 
-        StateMerchantAggWritable agg = new StateMerchantAggWritable();
+        agg.reset();
         agg.setK(topK);
         agg.addOneMerchant(healthBucket, riskBucket, city, mer, sum);
 
@@ -22,6 +22,7 @@ import org.apache.hadoop.mapreduce.Reducer;
 public class StateAggReducer extends Reducer<Text, StateMerchantAggWritable, Text, Text> {
 
     private final Text outVal = new Text();
+    private final StateMerchantAggWritable acc = new StateMerchantAggWritable(); // reutilizado via reset()
     private int topK;
     private int minUfMerchants;
 
@@ -36,7 +37,7 @@ public class StateAggReducer extends Reducer<Text, StateMerchantAggWritable, Tex
     protected void reduce(Text uf, Iterable<StateMerchantAggWritable> vals, Context ctx)
             throws IOException, InterruptedException {
 
-        StateMerchantAggWritable acc = new StateMerchantAggWritable();
+        acc.reset();
         acc.setK(topK);
 
         for (StateMerchantAggWritable v : vals) {
@@ -15,7 +15,8 @@ import org.apache.hadoop.io.Writable;
  *  - Top-K merchants por valor somado (listas id/valor)
  *
  * Projeta merge associativo (para Combiner/Reducer) e método pushTop
- * que mantém apenas os K maiores.
+ * que mantém apenas os K maiores. Instâncias são reutilizáveis via reset(),
+ * que zera o estado mas preserva o mapa e as listas já alocados.
  */
 public class StateMerchantAggWritable implements Writable {
 
@@ -31,6 +32,19 @@ public class StateMerchantAggWritable implements Writable {
     public void setK(int k) { this.k = k; }
     public int getK() { return k; }
 
+    /**
+     * Zera contadores, hotspots e top-K (K é preservado) para reutilizar a
+     * instância no próximo registro/grupo sem novas alocações.
+     */
+    public void reset() {
+        totalMerchants = 0;
+        healthA = 0; healthB = 0; healthC = 0;
+        riskLow = 0; riskMed = 0; riskHigh = 0;
+        highRiskCityCounts.clear();
+        topIds.clear();
+        topVals.clear();
+    }
+
     public void addOneMerchant(String healthBucket, String riskBucket,
                                String highRiskCityOrNull,
                                String merchId, long sumCents) {
@@ -3,7 +3,11 @@ package routines.advanced.merchanthrisk;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import routines.common.TransactionDictionary;
 
 /**
  * Custom Writable minimalista para eventos de transação
@@ -12,8 +16,16 @@ import org.apache.hadoop.io.Writable;
  *  - online (canal)
  *  - hasError (flag de erro)
  *  - city, state, mcc (para predominâncias/segmentações)
+ *
+ * Formato compacto no shuffle: flags (online/erro) em 1 byte, valor em VLong,
+ * cidade/estado como ids VInt do {@link TransactionDictionary} (fta.dictionary.entries,
+ * recebido via setConf) e MCC como índice de 4 dígitos. Usado só como valor, por isso
+ * não há comparador raw.
  */
-public class TransactionMiniWritable implements Writable {
+public class TransactionMiniWritable implements Writable, Configurable {
+
+    private static final int FLAG_ONLINE = 1;
+    private static final int FLAG_ERROR = 1 << 1;
 
     private long amountCents;
     private boolean online;
@@ -22,9 +34,19 @@ public class TransactionMiniWritable implements Writable {
     private String state;
     private String mcc;
 
+    private Configuration conf;
+    private TransactionDictionary dictionary = TransactionDictionary.get(null);
+
     public TransactionMiniWritable() { }
 
     public TransactionMiniWritable(long amountCents, boolean online, boolean hasError, String city, String state, String mcc) {
+        set(amountCents, online, hasError, city, state, mcc);
+    }
+
+    /**
+     * Redefine todos os campos (permite reutilizar a instância no mapper)
+     */
+    public void set(long amountCents, boolean online, boolean hasError, String city, String state, String mcc) {
         this.amountCents = amountCents;
         this.online = online;
         this.hasError = hasError;
@@ -40,21 +62,28 @@ public class TransactionMiniWritable implements Writable {
     public String getState() { return state; }
     public String getMcc() { return mcc; }
 
+    @Override public void setConf(Configuration conf) {
+        this.conf = conf;
+        this.dictionary = TransactionDictionary.get(conf);
+    }
+
+    @Override public Configuration getConf() { return conf; }
+
     @Override public void write(DataOutput out) throws IOException {
-        out.writeLong(amountCents);
-        out.writeBoolean(online);
-        out.writeBoolean(hasError);
-        out.writeUTF(city == null ? "" : city);
-        out.writeUTF(state == null ? "" : state);
-        out.writeUTF(mcc == null ? "" : mcc);
+        out.writeByte((online ? FLAG_ONLINE : 0) | (hasError ? FLAG_ERROR : 0));
+        WritableUtils.writeVLong(out, amountCents);
+        dictionary.writeString(out, city == null ? "" : city);
+        dictionary.writeString(out, state == null ? "" : state);
+        TransactionDictionary.writeMcc(out, mcc == null ? "" : mcc);
     }
 
     @Override public void readFields(DataInput in) throws IOException {
-        amountCents = in.readLong();
-        online = in.readBoolean();
-        hasError = in.readBoolean();
-        city = in.readUTF();
-        state = in.readUTF();
-        mcc = in.readUTF();
+        int flags = in.readByte();
+        online = (flags & FLAG_ONLINE) != 0;
+        hasError = (flags & FLAG_ERROR) != 0;
+        amountCents = WritableUtils.readVLong(in);
+        city = dictionary.readString(in);
+        state = dictionary.readString(in);
+        mcc = TransactionDictionary.readMcc(in);
     }
 }
@@ -0,0 +1,102 @@
+package routines.advanced.rfmbyuf;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * Estado RFM acumulado de um cliente (independe da data de referência):
+ * última transação, nº de transações, soma em centavos e contadores por UF/cidade.
+ * Dois estados do mesmo cliente se combinam com {@link #merge}.
+ */
+public class ClientRfmStateWritable implements Writable {
+
+    private long lastTimestampMillis = Long.MIN_VALUE;
+    private long transactions;
+    private long sumCents;
+    private final Map<String, Long> stateCounts = new HashMap<>();
+    private final Map<String, Long> cityCounts = new HashMap<>();
+
+    public void reset() {
+        lastTimestampMillis = Long.MIN_VALUE;
+        transactions = 0L;
+        sumCents = 0L;
+        stateCounts.clear();
+        cityCounts.clear();
+    }
+
+    public void addTransaction(long ts, long cents, String city, String state) {
+        transactions++;
+        sumCents += cents;
+        if (ts > lastTimestampMillis) lastTimestampMillis = ts;
+        stateCounts.merge(nz(state), 1L, Long::sum);
+        cityCounts.merge(nz(city), 1L, Long::sum);
+    }
+
+    public void merge(ClientRfmStateWritable other) {
+        transactions += other.transactions;
+        sumCents += other.sumCents;
+        if (other.lastTimestampMillis > lastTimestampMillis) lastTimestampMillis = other.lastTimestampMillis;
+        for (Map.Entry<String, Long> e : other.stateCounts.entrySet()) stateCounts.merge(e.getKey(), e.getValue(), Long::sum);
+        for (Map.Entry<String, Long> e : other.cityCounts.entrySet()) cityCounts.merge(e.getKey(), e.getValue(), Long::sum);
+    }
+
+    public long getLastTimestampMillis() { return lastTimestampMillis; }
+    public long getTransactions() { return transactions; }
+    public long getSumCents() { return sumCents; }
+
+    /** UF predominante (empate: menor nome) */
+    public String topState() { return topKey(stateCounts); }
+
+    /** Cidade predominante (empate: menor nome) */
+    public String topCity() { return topKey(cityCounts); }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(lastTimestampMillis);
+        out.writeLong(transactions);
+        out.writeLong(sumCents);
+        writeCounts(out, stateCounts);
+        writeCounts(out, cityCounts);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        lastTimestampMillis = in.readLong();
+        transactions = in.readLong();
+        sumCents = in.readLong();
+        readCounts(in, stateCounts);
+        readCounts(in, cityCounts);
+    }
+
+    private static String topKey(Map<String, Long> m) {
+        String best = ""; long bv = -1;
+        for (Map.Entry<String, Long> e : m.entrySet()) {
+            long v = e.getValue();
+            if (v > bv || (v == bv && e.getKey().compareTo(best) < 0)) { bv = v; best = e.getKey(); }
+        }
+        return best;
+    }
+
+    private static void writeCounts(DataOutput out, Map<String, Long> m) throws IOException {
+        out.writeInt(m.size());
+        for (Map.Entry<String, Long> e : m.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeLong(e.getValue());
+        }
+    }
+
+    private static void readCounts(DataInput in, Map<String, Long> m) throws IOException {
+        m.clear();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            String k = in.readUTF();
+            m.put(k, in.readLong());
+        }
+    }
+
+    private static String nz(String s) { return (s == null || s.trim().isEmpty()) ? "UNKNOWN" : s.trim().toUpperCase(); }
+}
@@ -0,0 +1,24 @@
+package routines.advanced.rfmbyuf;
+
+import java.io.IOException;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Combiner/reducer do merge incremental: junta os estados parciais de cada cliente
+ * (transações novas + estado anterior) num único ClientRfmStateWritable.
+ */
+public class ClientStateCombiner extends Reducer<Text, ClientRfmStateWritable, Text, ClientRfmStateWritable> {
+
+    private final ClientRfmStateWritable outV = new ClientRfmStateWritable();
+
+    @Override
+    protected void reduce(Text clientId, Iterable<ClientRfmStateWritable> values, Context ctx)
+            throws IOException, InterruptedException {
+        outV.reset();
+        for (ClientRfmStateWritable v : values) {
+            outV.merge(v);
+        }
+        ctx.write(clientId, outV);
+    }
+}
@@ -0,0 +1,40 @@
+package routines.advanced.rfmbyuf;
+
+import java.io.IOException;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+/**
+ * Mapper do merge incremental (estado por cliente):
+ * KEY: client_id
+ * VAL: ClientRfmStateWritable com uma transação (mesmos filtros do RfmClientMapper)
+ */
+public class ClientStateMapper extends Mapper<LongWritable, Text, Text, ClientRfmStateWritable> {
+
+    private final Text outKey = new Text();
+    private final ClientRfmStateWritable outV = new ClientRfmStateWritable();
+
+    @Override
+    protected void map(LongWritable key, Text value, Context ctx) throws IOException, InterruptedException {
+        String line = value.toString();
+        if (line.startsWith("id,") || line.startsWith("\"id\"")) return;
+
+        String[] p = RfmClientMapper.splitCsv(line);
+        if (p.length < 12) return;
+
+        String clientId = RfmClientMapper.tq(p[2]);
+        if (clientId.isEmpty()) return;
+
+        long ts = RfmClientMapper.parseTimestampMillis(RfmClientMapper.tq(p[1]));
+        if (ts == Long.MIN_VALUE) return;
+
+        long cents = RfmClientMapper.parseAmountToCents(RfmClientMapper.tq(p[4]));
+        if (cents == Long.MIN_VALUE) return;
+
+        outV.reset();
+        outV.addTransaction(ts, cents, RfmClientMapper.tq(p[7]), RfmClientMapper.tq(p[8]));
+        outKey.set(clientId);
+        ctx.write(outKey, outV);
+    }
+}
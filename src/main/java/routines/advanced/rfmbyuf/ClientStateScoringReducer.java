@@ -0,0 +1,41 @@
+package routines.advanced.rfmbyuf;
+
+import java.io.IOException;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Re-pontuação a partir do estado por cliente: gera o mesmo Stage 1 do RfmClientReducer
+ * (KEY=<STATE>, VALUE="1:low:med:high|CITY=1") para a rfm.reference.date atual, sem
+ * reler as transações.
+ */
+public class ClientStateScoringReducer extends Reducer<Text, ClientRfmStateWritable, Text, Text> {
+
+    private final Text outK = new Text();
+    private final Text outV = new Text();
+    private final ClientRfmStateWritable client = new ClientRfmStateWritable();
+    private RfmScoring scoring;
+
+    @Override
+    protected void setup(Context ctx) {
+        scoring = RfmScoring.fromConf(ctx.getConfiguration());
+    }
+
+    @Override
+    protected void reduce(Text clientId, Iterable<ClientRfmStateWritable> values, Context ctx)
+            throws IOException, InterruptedException {
+
+        client.reset();
+        for (ClientRfmStateWritable v : values) {
+            client.merge(v);
+        }
+        if (client.getTransactions() == 0) return;
+
+        String topState = client.topState();
+        if (topState != null && !topState.isEmpty()) {
+            outK.set(topState);
+            outV.set(scoring.payload(client));
+            ctx.write(outK, outV);
+        }
+    }
+}
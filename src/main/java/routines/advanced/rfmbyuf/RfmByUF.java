@@ -2,6 +2,7 @@ package routines.advanced.rfmbyuf;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
@@ -11,6 +12,11 @@ import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.IncrementalState;
+import routines.common.JobAutoTuner;
+import routines.common.LocalMode;
+import routines.common.PipelineCheckpoint;
 
 // Para executar configure os argumentos da seguinte forma:
 // src/main/resources/transactions_data.csv output/rfmbyuf/stage1 output/rfmbyuf/rfmbyuf_final 1 local
@@ -22,34 +28,82 @@ KEY: <STATE>
 VALUE: 1:low:med:high|CITY=1 (CITY só se HIGH)
 
 Job 2 (por UF): agrega total/low/med/high e ranqueia top cidades (High Value).
+
+Modo incremental (-Dfta.incremental.state=<dir>): o Job 1 mantém um estado por cliente
+(SequenceFile ordenado por client_id: última transação, nº de transações, soma em centavos,
+contadores por UF/cidade), soma só os arquivos novos da entrada e re-pontua o Stage 1 a
+partir do estado. Rodar de novo com outro -Drfm.reference.date não relê as transações.
 * */
 
 public class RfmByUF extends Configured implements Tool {
 
     @Override
     public int run(String[] args) throws Exception {
-        if (args.length < 3) {
+        if (args.length < 3 || !JobAutoTuner.isReducersArgument(args, 3)) {
             System.err.println("Usage: RfmByUF <input_csv> <stage1_out> <final_out> [num_reducers] [local] [-D...]");
             return -1;
         }
         Path input   = new Path(args[0]);
         Path stage1  = new Path(args[1]);
         Path finalOut= new Path(args[2]);
-        int reducers = (args.length > 3) ? Integer.parseInt(args[3]) : 1;
-        boolean local= (args.length > 4 && "local".equalsIgnoreCase(args[4]));
+        int reducers = JobAutoTuner.parseReducers(args, 3);
+        boolean local= LocalMode.isRequested(args, 3);
 
         Configuration conf = getConf();
         if (local) {
-            conf.set("fs.defaultFS", "file:///");
-            conf.set("mapreduce.framework.name", "local");
-            conf.set("mapreduce.jobtracker.address", "local");
+            LocalMode.configure(conf);
         }
 
         // >>> Defaults calibrados para o seu CSV de 2010
         applyDefaultParams(conf);
         // <<<
 
-        // ===== Job 1
+        // Compressão do shuffle e dos dados entre jobs (-Dfta.compression=none|fast|dense)
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+
+        // Checkpoint por job (-Dfta.checkpoint): jobs com saída válida para as mesmas
+        // entradas, parâmetros e classes são pulados; retoma do primeiro job inválido.
+        // No modo incremental o Stage 1 é controlado pelo manifesto do estado.
+        PipelineCheckpoint checkpoint = new PipelineCheckpoint(conf, "rfm_by_uf");
+        PipelineCheckpoint.Step step1 = checkpoint.step("stage1", stage1)
+                .inputs(input)
+                .params("rfm.", "min.client.tx")
+                .code(RfmClientMapper.class, RfmClientReducer.class, RfmScoring.class);
+        PipelineCheckpoint.Step step2 = checkpoint.step("final", finalOut)
+                .inputs(stage1)
+                .params("top.cities", "min.uf.clients")
+                .code(StateAggMapper.class, StateAggCombiner.class, StateAggReducer.class,
+                        StateClientAggWritable.class);
+
+        if (IncrementalState.isEnabled(conf)) {
+            // ===== Job 1 incremental (-Dfta.incremental.state=<dir>): estado por cliente
+            // (última transação, nº, soma, contadores UF/cidade) + arquivos novos; o Stage 1 é
+            // re-pontuado do estado, então mudar rfm.reference.date não relê as transações
+            JobAutoTuner.Decision tuning = JobAutoTuner.tune(conf, input, reducers, stage1Profile());
+            boolean ok = IncrementalState.run(conf, new IncrementalState.Spec("rfm_client_stage1",
+                    RfmByUF.class, ClientStateMapper.class, ClientRfmStateWritable.class, ClientStateCombiner.class,
+                    ClientStateScoringReducer.class, Text.class).intermediateOutput(), input, stage1, tuning);
+            if (!ok) {
+                System.err.println("Job 1 failed.");
+                return 1;
+            }
+            FileSystem fs = finalOut.getFileSystem(conf);
+            if (fs.exists(finalOut)) fs.delete(finalOut, true);
+        } else {
+            // ===== Job 1 (pulado se o marcador de checkpoint do Stage 1 for válido)
+            if (!step1.run(() -> runStage1(conf, input, stage1, reducers, compression))) {
+                System.err.println("Job 1 failed.");
+                return 1;
+            }
+        }
+
+        // ===== Job 2
+        return step2.run(() -> runStage2(conf, stage1, finalOut, reducers, compression)) ? 0 : 1;
+    }
+
+    /** Job 1 (por cliente): recência, frequência e monetário, 1 linha por cliente na UF predominante */
+    private boolean runStage1(Configuration conf, Path input, Path stage1, int reducers,
+                              CompressionProfile compression) throws Exception {
         Job job1 = Job.getInstance(conf, "rfm_client_stage1");
         job1.setJarByClass(RfmByUF.class);
         job1.setInputFormatClass(TextInputFormat.class);
@@ -64,14 +118,22 @@ public class RfmByUF extends Configured implements Tool {
         job1.setReducerClass(RfmClientReducer.class);
         job1.setOutputKeyClass(Text.class);
         job1.setOutputValueClass(Text.class);
-        job1.setNumReduceTasks(reducers);
+        // Reducers, split e sort buffer: auto-tuning por amostragem (overrides via -D)
+        JobAutoTuner.tune(conf, input, reducers, stage1Profile()).apply(job1);
 
-        if (!job1.waitForCompletion(true)) {
-            System.err.println("Job 1 failed.");
-            return 1;
-        }
+        compression.applyIntermediate(job1);
 
-        // ===== Job 2
+        return job1.waitForCompletion(true);
+    }
+
+    /** Perfil de tuning do Job 1 (normal e incremental): chave client_id, ~60% da entrada no shuffle */
+    private static JobAutoTuner.Profile stage1Profile() {
+        return new JobAutoTuner.Profile("rfm_client_stage1", JobAutoTuner.Profile.csvColumn(2), 0.6);
+    }
+
+    /** Job 2 (por UF): total/low/med/high e top cidades (High Value) */
+    private boolean runStage2(Configuration conf, Path stage1, Path finalOut, int reducers,
+                              CompressionProfile compression) throws Exception {
         Job job2 = Job.getInstance(conf, "rfm_state_aggregate_final");
         job2.setJarByClass(RfmByUF.class);
         job2.setInputFormatClass(TextInputFormat.class);
@@ -87,9 +149,11 @@ public class RfmByUF extends Configured implements Tool {
         job2.setReducerClass(StateAggReducer.class);
         job2.setOutputKeyClass(Text.class);
         job2.setOutputValueClass(Text.class);
-        job2.setNumReduceTasks(reducers);
+        JobAutoTuner.tune(conf, stage1, reducers,
+                new JobAutoTuner.Profile("rfm_state_aggregate_final", JobAutoTuner.Profile.tabColumn(0), 0.1)).apply(job2);
+        compression.applyFinal(job2);
 
-        return job2.waitForCompletion(true) ? 0 : 1;
+        return job2.waitForCompletion(true);
     }
 
     /** ÚNICO lugar com defaults (respeita -D se o usuário passar na linha de comando). */
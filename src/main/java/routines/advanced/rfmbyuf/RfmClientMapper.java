@@ -45,7 +45,7 @@ public class RfmClientMapper extends Mapper<LongWritable, Text, Text, Transactio
         ctx.write(outKey, v);
     }
 
-    private static String tq(String s) {
+    static String tq(String s) {
         if (s == null) return "";
         String t = s.trim();
         if (t.startsWith("\"") && t.endsWith("\"") && t.length() >= 2) {
@@ -54,7 +54,7 @@ public class RfmClientMapper extends Mapper<LongWritable, Text, Text, Transactio
         return t.trim();
     }
 
-    private static long parseAmountToCents(String raw) {
+    static long parseAmountToCents(String raw) {
         try {
             String c = raw.trim().replace("\"","").replace("$","").replace(",","").replace(" ","");
             if (c.isEmpty()) return Long.MIN_VALUE;
@@ -63,7 +63,7 @@ public class RfmClientMapper extends Mapper<LongWritable, Text, Text, Transactio
         } catch (Exception e) { return Long.MIN_VALUE; }
     }
 
-    private static long parseTimestampMillis(String dt) {
+    static long parseTimestampMillis(String dt) {
         try {
             // esperado: "2010-01-01 00:01:00"
             String[] parts = dt.split(" ");
@@ -84,7 +84,7 @@ public class RfmClientMapper extends Mapper<LongWritable, Text, Text, Transactio
         } catch (Exception e) { return Long.MIN_VALUE; }
     }
 
-    private static String[] splitCsv(String line) {
+    static String[] splitCsv(String line) {
         List<String> res = new ArrayList<>();
         StringBuilder cur = new StringBuilder();
         boolean inQ = false;
@@ -0,0 +1,76 @@
+package routines.advanced.rfmbyuf;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Classificação RFM de um cliente (lida uma vez por task a partir do -D):
+ *  HIGH se (recencyDays <= R_high) && (frequency >= F_high || monetaryAvg >= M_high)
+ *  MED  se (recencyDays <= R_med)  || (frequency  >= F_med  || monetaryAvg >= M_med)
+ *  LOW  caso contrário
+ * Usada pelo Job 1 completo (RfmClientReducer) e pela re-pontuação do estado por cliente
+ * (ClientStateScoringReducer).
+ */
+final class RfmScoring {
+
+    private final long refEpochDay;
+    private final int rHigh;
+    private final int rMed;
+    private final long fHigh;
+    private final long fMed;
+    private final long mHigh;
+    private final long mMed;
+
+    private RfmScoring(Configuration conf) {
+        // rfm.reference.date (yyyy-MM-dd) ou hoje UTC
+        String ref = conf.get("rfm.reference.date", null);
+        if (ref != null && ref.matches("\\d{4}-\\d{2}-\\d{2}")) {
+            refEpochDay = LocalDate.parse(ref).toEpochDay();
+        } else {
+            refEpochDay = LocalDate.now(ZoneOffset.UTC).toEpochDay();
+        }
+        rHigh = conf.getInt("rfm.recency.high_days", 30);
+        rMed  = conf.getInt("rfm.recency.med_days", 90);
+        fHigh = conf.getLong("rfm.freq.high", 12);
+        fMed  = conf.getLong("rfm.freq.med", 4);
+        mHigh = conf.getLong("rfm.monetary.high_cents", 10000L);
+        mMed  = conf.getLong("rfm.monetary.med_cents", 4000L);
+    }
+
+    static RfmScoring fromConf(Configuration conf) {
+        return new RfmScoring(conf);
+    }
+
+    /**
+     * Linha do Stage 1 para o cliente: "1:low:med:high|CITY=1" (CITY só se HIGH)
+     */
+    String payload(ClientRfmStateWritable client) {
+        long lastEpochDay = Instant.ofEpochMilli(client.getLastTimestampMillis()).atZone(ZoneOffset.UTC).toLocalDate().toEpochDay();
+        long recencyDays = Math.max(0, refEpochDay - lastEpochDay);
+        long avgCents = client.getSumCents() / client.getTransactions();
+        return serialize(classify(recencyDays, client.getTransactions(), avgCents), client.topCity());
+    }
+
+    private String classify(long recencyDays, long freq, long avgCents) {
+        boolean HIGH = (recencyDays <= rHigh) &&
+                (freq >= fHigh || avgCents >= mHigh);
+        if (HIGH) return "HIGH";
+
+        boolean MED = (recencyDays <= rMed) ||
+                (freq >= fMed) || (avgCents >= mMed);
+        return MED ? "MED" : "LOW";
+    }
+
+    private static String serialize(String bucket, String cityIfHigh) {
+        long low=0, med=0, high=0;
+        if ("LOW".equals(bucket)) low=1; else if ("MED".equals(bucket)) med=1; else high=1;
+        StringBuilder sb = new StringBuilder();
+        sb.append(1).append(":").append(low).append(":").append(med).append(":").append(high).append("|");
+        if ("HIGH".equals(bucket) && cityIfHigh != null && !cityIfHigh.isEmpty()) {
+            sb.append(cityIfHigh).append("=1");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,175 @@
+package routines.advanced.riskanalysis;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Acumula as transações de um cliente no perfil do Step 1.
+ * Usado pelo Step1Reducer e pelo scoring online (deltas em memória), para que os dois
+ * interpretem cada transação da mesma forma.
+ *
+ * Não é thread-safe (SimpleDateFormat, que pode ser compartilhado entre acumuladores
+ * usados pela mesma thread).
+ */
+final class ClientProfileAccumulator {
+
+    private final SimpleDateFormat dateFormat;
+
+    private int transactionCount;
+    private double totalAmount;
+    private final Set<String> cities = new HashSet<>();
+    private final Set<String> mccs = new HashSet<>();
+    private final Set<String> cards = new HashSet<>();
+    private long firstTransaction = Long.MAX_VALUE;
+    private long lastTransaction = Long.MIN_VALUE;
+    private int onlineCount;
+    private int swipeCount;
+    private int errorCount;
+    private int chargebackCount;
+
+    // Valores da última transação que ainda não estavam nos conjuntos (null se repetidos)
+    private String newCity;
+    private String newMcc;
+    private String newCard;
+
+    ClientProfileAccumulator() {
+        this(newDateFormat());
+    }
+
+    ClientProfileAccumulator(SimpleDateFormat dateFormat) {
+        this.dateFormat = dateFormat;
+    }
+
+    /** Formato da coluna date usado pelo Step 1 (fuso da JVM) */
+    static SimpleDateFormat newDateFormat() {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    }
+
+    /**
+     * Zera o perfil para acumular outro cliente
+     */
+    void reset() {
+        transactionCount = 0;
+        totalAmount = 0.0;
+        cities.clear();
+        mccs.clear();
+        cards.clear();
+        firstTransaction = Long.MAX_VALUE;
+        lastTransaction = Long.MIN_VALUE;
+        onlineCount = 0;
+        swipeCount = 0;
+        errorCount = 0;
+        chargebackCount = 0;
+        newCity = null;
+        newMcc = null;
+        newCard = null;
+    }
+
+    /**
+     * Soma a transação (linha CSV completa) ao perfil
+     * @return false se a linha tem menos de 12 campos (ignorada)
+     * @throws ParseException se a data for inválida
+     * @throws NumberFormatException se o valor for inválido
+     */
+    boolean add(String line) throws ParseException {
+        String[] fields = line.split(",", -1);
+
+        if (fields.length < 12) return false;
+
+        // Extrai campos
+        String dateStr = fields[1].trim();
+        String cardId = fields[3].trim();
+        String amountStr = fields[4].trim();
+        String useChip = fields[5].trim();
+        String merchantCity = fields[7].trim();
+        String mcc = fields[10].trim();
+        String errors = fields[11].trim();
+
+        // Converte data para timestamp e amount (antes de alterar o perfil)
+        long timestamp = dateFormat.parse(dateStr).getTime();
+        double amount = Double.parseDouble(amountStr.replace("$", ""));
+
+        // Agrega informações
+        transactionCount++;
+        totalAmount += Math.abs(amount);
+
+        newCity = null;
+        if (!merchantCity.isEmpty() && !merchantCity.equals("ONLINE") && cities.add(merchantCity)) {
+            newCity = merchantCity;
+        }
+
+        newMcc = null;
+        if (!mcc.isEmpty() && mccs.add(mcc)) {
+            newMcc = mcc;
+        }
+
+        newCard = cards.add(cardId) ? cardId : null;
+
+        // Timestamps
+        if (timestamp < firstTransaction) firstTransaction = timestamp;
+        if (timestamp > lastTransaction) lastTransaction = timestamp;
+
+        // Tipo de transação
+        if (useChip.contains("Online")) {
+            onlineCount++;
+        } else {
+            swipeCount++;
+        }
+
+        // Erros - só conta se tiver conteúdo real
+        // Campo vazio = sem erro, Campo com texto = erro
+        if (!errors.isEmpty() && !errors.equalsIgnoreCase("null") && !errors.equals("N/A")) {
+            errorCount++;
+        }
+
+        // Chargebacks (valores negativos)
+        if (amount < 0) {
+            chargebackCount++;
+        }
+        return true;
+    }
+
+    /**
+     * Perfil com os totais acumulados (avgAmount = total / transações)
+     */
+    ClientProfileWritable toProfile(String clientId) {
+        double avgAmount = transactionCount > 0 ? totalAmount / transactionCount : 0.0;
+        return new ClientProfileWritable(
+                clientId,
+                transactionCount,
+                totalAmount,
+                avgAmount,
+                cities.size(),
+                mccs.size(),
+                cards.size(),
+                firstTransaction,
+                lastTransaction,
+                onlineCount,
+                swipeCount,
+                errorCount,
+                chargebackCount
+        );
+    }
+
+    int getTransactionCount() { return transactionCount; }
+    double getTotalAmount() { return totalAmount; }
+    long getFirstTransaction() { return firstTransaction; }
+    long getLastTransaction() { return lastTransaction; }
+    int getOnlineCount() { return onlineCount; }
+    int getSwipeCount() { return swipeCount; }
+    int getErrorCount() { return errorCount; }
+    int getChargebackCount() { return chargebackCount; }
+
+    Set<String> getCities() { return cities; }
+    Set<String> getMccs() { return mccs; }
+    Set<String> getCards() { return cards; }
+
+    /** Cidade da última transação se ela era nova para este acumulador, senão null */
+    String getNewCity() { return newCity; }
+    /** MCC da última transação se ele era novo para este acumulador, senão null */
+    String getNewMcc() { return newMcc; }
+    /** Cartão da última transação se ele era novo para este acumulador, senão null */
+    String getNewCard() { return newCard; }
+}
@@ -0,0 +1,198 @@
+package routines.advanced.riskanalysis;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scoring de risco online: perfis do Step 1 no {@link RiskProfileStore} (mapeado em
+ * memória) + deltas em memória das transações recebidas desde a construção do store.
+ *
+ * Cada transação soma ao delta do cliente (mesmas regras do Step1Reducer, via
+ * ClientProfileAccumulator) e o perfil combinado (store + delta) é pontuado pelo
+ * RiskScoring, as mesmas regras do Step2Reducer. O resultado equivale a rodar o pipeline
+ * de novo com as transações novas incluídas, sem MapReduce.
+ *
+ * Como no pipeline, o Step 2 enxerga o perfil depois da gravação em texto do Step 1
+ * (total e média com 2 casas); o perfil combinado é arredondado da mesma forma.
+ *
+ * Valores distintos (cidades, MCCs, cartões): um valor conta como novo se não estava no
+ * delta nem nos hashes do store. Sem hashes (store construído só do Step 1) todo valor
+ * novo no delta conta como novo, o que pode superestimar essas três contagens.
+ *
+ * Os deltas vivem até a próxima reconstrução do store (modo build com as transações
+ * recebidas) e reinício do servidor; não há compactação em processo. O número de clientes
+ * com delta é limitado: atingido o limite, transações de clientes ainda sem delta são
+ * recusadas (IllegalStateException) e as dos demais continuam sendo pontuadas.
+ *
+ * Thread-safe (métodos sincronizados); o custo por transação é de microssegundos.
+ */
+public class OnlineRiskScorer {
+
+    /** Delta de um cliente desde a construção do store */
+    private static final class Delta {
+        final ClientProfileAccumulator accumulator;
+        int newCities;
+        int newMccs;
+        int newCards;
+
+        Delta(SimpleDateFormat dateFormat) {
+            this.accumulator = new ClientProfileAccumulator(dateFormat);
+        }
+    }
+
+    private final RiskProfileStore store;
+    private final SimpleDateFormat dateFormat = ClientProfileAccumulator.newDateFormat();
+    private final Map<Long, Delta> deltas = new HashMap<>();
+    private final int maxDeltaClients;
+
+    // Estatísticas
+    private long scored;
+    private long rejected;
+    private long newClients;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * @param maxDeltaClients máximo de clientes com delta em memória
+     */
+    public OnlineRiskScorer(RiskProfileStore store, int maxDeltaClients) {
+        this.store = store;
+        this.maxDeltaClients = Math.max(1, maxDeltaClients);
+    }
+
+    /**
+     * Soma a transação (linha CSV do dataset) ao perfil do cliente e retorna o risco atualizado
+     * @throws IllegalArgumentException se a linha for inválida (campos, client_id, data ou valor)
+     * @throws IllegalStateException se o cliente não tem delta e o limite de deltas foi atingido
+     */
+    public synchronized ClientRiskWritable score(String line) {
+        long start = System.nanoTime();
+        String trimmed = line.trim();
+        String[] fields = trimmed.split(",", -1);
+        if (fields.length < 12) {
+            rejected++;
+            throw new IllegalArgumentException("Transação com menos de 12 campos");
+        }
+        long clientId;
+        try {
+            clientId = Long.parseLong(fields[2].trim());
+        } catch (NumberFormatException e) {
+            rejected++;
+            throw new IllegalArgumentException("client_id inválido: " + fields[2]);
+        }
+
+        int index = store.find(clientId);
+        Delta delta = deltas.get(clientId);
+        boolean created = delta == null;
+        if (created) {
+            if (deltas.size() >= maxDeltaClients) {
+                rejected++;
+                throw new IllegalStateException("Limite de " + maxDeltaClients + " clientes com delta atingido; " +
+                        "reconstrua o store com as transações recebidas e reinicie o servidor");
+            }
+            delta = new Delta(dateFormat);
+        }
+        try {
+            delta.accumulator.add(trimmed);
+        } catch (ParseException | NumberFormatException e) {
+            rejected++;
+            throw new IllegalArgumentException("Data ou valor inválido: " + e.getMessage());
+        }
+        if (created) {
+            deltas.put(clientId, delta);
+            if (index < 0) {
+                newClients++;
+            }
+        }
+        ClientProfileAccumulator accumulator = delta.accumulator;
+        if (isNew(index, RiskProfileStore.Dimension.CITY, accumulator.getNewCity())) delta.newCities++;
+        if (isNew(index, RiskProfileStore.Dimension.MCC, accumulator.getNewMcc())) delta.newMccs++;
+        if (isNew(index, RiskProfileStore.Dimension.CARD, accumulator.getNewCard())) delta.newCards++;
+
+        ClientRiskWritable risk = RiskScoring.score(combinedProfile(clientId, index, delta));
+
+        long elapsed = System.nanoTime() - start;
+        scored++;
+        totalNanos += elapsed;
+        maxNanos = Math.max(maxNanos, elapsed);
+        return risk;
+    }
+
+    /**
+     * Perfil atual do cliente (store + delta), ou null se ele não for conhecido
+     */
+    public synchronized ClientProfileWritable profile(long clientId) {
+        int index = store.find(clientId);
+        Delta delta = deltas.get(clientId);
+        if (index < 0 && delta == null) {
+            return null;
+        }
+        return combinedProfile(clientId, index, delta);
+    }
+
+    /**
+     * Risco atual do cliente sem somar transação, ou null se ele não for conhecido
+     */
+    public synchronized ClientRiskWritable risk(long clientId) {
+        ClientProfileWritable profile = profile(clientId);
+        return profile == null ? null : RiskScoring.score(profile);
+    }
+
+    private boolean isNew(int index, RiskProfileStore.Dimension dimension, String value) {
+        return value != null && (index < 0 || !store.containsDistinct(index, dimension, value));
+    }
+
+    private ClientProfileWritable combinedProfile(long clientId, int index, Delta delta) {
+        if (delta == null) {
+            return store.profile(index);
+        }
+        ClientProfileAccumulator accumulator = delta.accumulator;
+        if (index < 0) {
+            ClientProfileWritable profile = accumulator.toProfile(String.valueOf(clientId));
+            profile.setTotalAmount(round2(profile.getTotalAmount()));
+            profile.setAvgAmount(round2(profile.getAvgAmount()));
+            return profile;
+        }
+
+        int transactionCount = store.transactionCount(index) + accumulator.getTransactionCount();
+        double totalAmount = round2(store.totalAmount(index) + accumulator.getTotalAmount());
+        double avgAmount = round2((store.totalAmount(index) + accumulator.getTotalAmount()) / transactionCount);
+        return new ClientProfileWritable(
+                String.valueOf(clientId),
+                transactionCount,
+                totalAmount,
+                avgAmount,
+                store.uniqueCities(index) + delta.newCities,
+                store.uniqueMccs(index) + delta.newMccs,
+                store.uniqueCards(index) + delta.newCards,
+                Math.min(store.firstTransaction(index), accumulator.getFirstTransaction()),
+                Math.max(store.lastTransaction(index), accumulator.getLastTransaction()),
+                store.onlineCount(index) + accumulator.getOnlineCount(),
+                store.swipeCount(index) + accumulator.getSwipeCount(),
+                store.errorCount(index) + accumulator.getErrorCount(),
+                store.chargebackCount(index) + accumulator.getChargebackCount());
+    }
+
+    /**
+     * Arredonda para 2 casas como a gravação "%.2f" do Step 1. Médias que caem exatamente
+     * em meio centavo podem diferir em 0,01 do pipeline, cuja própria soma em double
+     * depende da ordem das transações; o score não muda.
+     */
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    public RiskProfileStore getStore() { return store; }
+
+    public synchronized long getScored() { return scored; }
+    public synchronized long getRejected() { return rejected; }
+    /** Clientes que não estavam no store */
+    public synchronized long getNewClients() { return newClients; }
+    /** Clientes com delta em memória */
+    public synchronized int getDeltaClients() { return deltas.size(); }
+    public int getMaxDeltaClients() { return maxDeltaClients; }
+    public synchronized double getAverageMicros() { return scored == 0 ? 0 : totalNanos / 1000.0 / scored; }
+    public synchronized double getMaxMicros() { return maxNanos / 1000.0; }
+}
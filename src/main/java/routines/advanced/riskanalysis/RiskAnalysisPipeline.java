@@ -10,6 +10,10 @@ import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.JobAutoTuner;
+import routines.common.LocalMode;
+import routines.common.PipelineCheckpoint;
 
 // Para executar configure os argumentos da seguinte forma:
 // src/main/resources/transactions_data.csv output/risk_pipeline local
@@ -33,17 +37,23 @@ import org.apache.hadoop.util.ToolRunner;
  *   - Input: Output do Step 2
  *   - Output: Relatórios consolidados por categoria
  *   - Função: Gerar rankings e estatísticas finais
+ *
+ * Checkpoint (PipelineCheckpoint): cada step grava um marcador com o fingerprint das
+ * entradas, parâmetros e classes; steps com marcador válido são pulados, então mudar as
+ * regras do Step 2 (RiskScoring) refaz apenas os Steps 2 e 3.
+ * -Dfta.checkpoint.from=step2_classifications força refazer a partir de um step.
  */
 public class RiskAnalysisPipeline extends Configured implements Tool {
 
     @Override
     public int run(String[] args) throws Exception {
 
-        if (args.length < 2) {
-            System.err.println("Uso: RiskAnalysisPipeline <input_path> <output_path> [local]");
+        if (args.length < 2 || !JobAutoTuner.isReducersArgument(args, 2)) {
+            System.err.println("Uso: RiskAnalysisPipeline <input_path> <output_path> [num_reducers] [local]");
             System.err.println();
             System.err.println("  input_path: caminho do arquivo CSV de transações");
             System.err.println("  output_path: caminho base do diretório de saída");
+            System.err.println("  num_reducers: número de reducers dos Steps 1 e 2 (opcional, padrão: auto)");
             System.err.println("  local: para execução local no IntelliJ (opcional)");
             System.err.println();
             System.err.println("Este pipeline executa 3 jobs encadeados:");
@@ -61,7 +71,9 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
 
         String inputPath = args[0];
         String outputPath = args[1];
-        boolean localMode = (args.length > 2 && "local".equals(args[2]));
+        // Compatível com a forma antiga "<input> <output> local"
+        int numberOfReducers = JobAutoTuner.parseReducers(args, 2);
+        boolean localMode = LocalMode.isRequested(args, 2);
 
         // Paths intermediários para os steps
         String step1Output = outputPath + "_step1_profiles";
@@ -73,9 +85,7 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
         // Configuração para modo local (IntelliJ)
         if (localMode) {
             System.out.println("Configurando para execução local (standalone)...");
-            conf.set("fs.defaultFS", "file:///");
-            conf.set("mapreduce.framework.name", "local");
-            conf.set("mapreduce.jobtracker.address", "local");
+            LocalMode.configure(conf);
         }
 
         System.out.println("\n============================================================");
@@ -83,16 +93,31 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
         System.out.println("============================================================");
         System.out.println("Mode: " + (localMode ? "Local (Standalone)" : "Cluster"));
         System.out.println("Input: " + inputPath);
+        System.out.println("Reducers: " + JobAutoTuner.describeReducers(numberOfReducers));
+        System.out.println("Compression: " + CompressionProfile.fromConf(conf).describe());
         System.out.println("Final Output: " + step3Output);
         System.out.println("============================================================\n");
 
         long totalStartTime = System.currentTimeMillis();
 
+        // Checkpoint por step: marcador com fingerprint de entradas, parâmetros e classes
+        PipelineCheckpoint checkpoint = new PipelineCheckpoint(conf, "risk_analysis");
+        PipelineCheckpoint.Step step1 = checkpoint.step("step1_profiles", new Path(step1Output))
+                .inputs(new Path(inputPath))
+                .code(Step1Mapper.class, Step1Reducer.class, ClientProfileAccumulator.class,
+                        ClientProfileWritable.class);
+        PipelineCheckpoint.Step step2 = checkpoint.step("step2_classifications", new Path(step2Output))
+                .inputs(new Path(step1Output))
+                .code(Step2Mapper.class, Step2Reducer.class, RiskScoring.class, ClientRiskWritable.class);
+        PipelineCheckpoint.Step step3 = checkpoint.step("step3_final", new Path(step3Output))
+                .inputs(new Path(step2Output))
+                .code(Step3Mapper.class, Step3Reducer.class, RiskCategoryComparator.class);
+
         // STEP 1: CLIENT PROFILE BUILDER
         System.out.println("\n>>> STEP 1: Building Client Profiles...");
         long step1Start = System.currentTimeMillis();
 
-        boolean step1Success = runStep1(conf, inputPath, step1Output);
+        boolean step1Success = step1.run(() -> runStep1(conf, inputPath, step1Output, numberOfReducers));
 
         if (!step1Success) {
             System.err.println("ERRO: Step 1 falhou!");
@@ -100,13 +125,14 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
         }
 
         long step1Duration = System.currentTimeMillis() - step1Start;
-        System.out.println(">>> STEP 1 COMPLETED in " + (step1Duration / 1000) + " seconds");
+        System.out.println(">>> STEP 1 " + (step1.wasSkipped() ? "SKIPPED (checkpoint)" : "COMPLETED") +
+                " in " + (step1Duration / 1000) + " seconds");
 
         // STEP 2: RISK CATEGORY CLASSIFIER
         System.out.println("\n>>> STEP 2: Classifying Risk Categories...");
         long step2Start = System.currentTimeMillis();
 
-        boolean step2Success = runStep2(conf, step1Output, step2Output);
+        boolean step2Success = step2.run(() -> runStep2(conf, step1Output, step2Output, numberOfReducers));
 
         if (!step2Success) {
             System.err.println("ERRO: Step 2 falhou!");
@@ -114,13 +140,14 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
         }
 
         long step2Duration = System.currentTimeMillis() - step2Start;
-        System.out.println(">>> STEP 2 COMPLETED in " + (step2Duration / 1000) + " seconds");
+        System.out.println(">>> STEP 2 " + (step2.wasSkipped() ? "SKIPPED (checkpoint)" : "COMPLETED") +
+                " in " + (step2Duration / 1000) + " seconds");
 
         // STEP 3: FINAL RISK REPORT GENERATOR
         System.out.println("\n>>> STEP 3: Generating Final Risk Reports...");
         long step3Start = System.currentTimeMillis();
 
-        boolean step3Success = runStep3(conf, step2Output, step3Output);
+        boolean step3Success = step3.run(() -> runStep3(conf, step2Output, step3Output));
 
         if (!step3Success) {
             System.err.println("ERRO: Step 3 falhou!");
@@ -128,7 +155,8 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
         }
 
         long step3Duration = System.currentTimeMillis() - step3Start;
-        System.out.println(">>> STEP 3 COMPLETED in " + (step3Duration / 1000) + " seconds");
+        System.out.println(">>> STEP 3 " + (step3.wasSkipped() ? "SKIPPED (checkpoint)" : "COMPLETED") +
+                " in " + (step3Duration / 1000) + " seconds");
 
         // Estatísticas finais
         long totalDuration = System.currentTimeMillis() - totalStartTime;
@@ -136,9 +164,12 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
         System.out.println("\n============================================================");
         System.out.println("       PIPELINE EXECUTION SUMMARY");
         System.out.println("============================================================");
-        System.out.println("Step 1 Duration: " + (step1Duration / 1000) + " seconds");
-        System.out.println("Step 2 Duration: " + (step2Duration / 1000) + " seconds");
-        System.out.println("Step 3 Duration: " + (step3Duration / 1000) + " seconds");
+        System.out.println("Step 1 Duration: " + (step1Duration / 1000) + " seconds" +
+                (step1.wasSkipped() ? " (checkpoint)" : ""));
+        System.out.println("Step 2 Duration: " + (step2Duration / 1000) + " seconds" +
+                (step2.wasSkipped() ? " (checkpoint)" : ""));
+        System.out.println("Step 3 Duration: " + (step3Duration / 1000) + " seconds" +
+                (step3.wasSkipped() ? " (checkpoint)" : ""));
         System.out.println("------------------------------------------------------------");
         System.out.println("Total Duration: " + (totalDuration / 1000) + " seconds");
         System.out.println("============================================================");
@@ -169,7 +200,7 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
      * Step 1: Client Profile Builder
      * Agrega transações e cria perfis comportamentais.
      */
-    private boolean runStep1(Configuration conf, String input, String output)
+    private boolean runStep1(Configuration conf, String input, String output, int reducers)
             throws Exception {
 
         // Remove output anterior se existir
@@ -196,6 +227,14 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
         FileInputFormat.addInputPath(job, new Path(input));
         FileOutputFormat.setOutputPath(job, new Path(output));
 
+        // Reducers, split e sort buffer: auto-tuning por amostragem (overrides via -D)
+        // O mapper emite a linha inteira por cliente, então o shuffle ~ tamanho da entrada
+        JobAutoTuner.tune(conf, new Path(input), reducers,
+                new JobAutoTuner.Profile("risk_step1_profiles", JobAutoTuner.Profile.csvColumn(2), 1.1)).apply(job);
+
+        // Compressão do shuffle e dos dados entre steps (-Dfta.compression=none|fast|dense)
+        CompressionProfile.fromConf(conf).applyIntermediate(job);
+
         return job.waitForCompletion(true);
     }
 
@@ -203,7 +242,7 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
      * Step 2: Risk Category Classifier
      * Classifica clientes em categorias de risco.
      */
-    private boolean runStep2(Configuration conf, String input, String output)
+    private boolean runStep2(Configuration conf, String input, String output, int reducers)
             throws Exception {
 
         // Remove output anterior se existir
@@ -230,6 +269,10 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
         FileInputFormat.addInputPath(job, new Path(input + "/part-r-*"));
         FileOutputFormat.setOutputPath(job, new Path(output));
 
+        JobAutoTuner.tune(conf, new Path(input), reducers,
+                new JobAutoTuner.Profile("risk_step2_classifications", JobAutoTuner.Profile.tabColumn(0), 1.0)).apply(job);
+        CompressionProfile.fromConf(conf).applyIntermediate(job);
+
         return job.waitForCompletion(true);
     }
 
@@ -267,6 +310,12 @@ public class RiskAnalysisPipeline extends Configured implements Tool {
         FileInputFormat.addInputPath(job, new Path(input + "/part-r-*"));
         FileOutputFormat.setOutputPath(job, new Path(output));
 
+        // Relatório em arquivo único, na ordem de severidade do RiskCategoryComparator
+        JobAutoTuner.tune(conf, new Path(input), JobAutoTuner.AUTO,
+                new JobAutoTuner.Profile("risk_step3_final", JobAutoTuner.Profile.tabColumn(0), 1.0)
+                        .withMaxReducers(1)).apply(job);
+        CompressionProfile.fromConf(conf).applyFinal(job);
+
         return job.waitForCompletion(true);
     }
 
@@ -0,0 +1,445 @@
+package routines.advanced.riskanalysis;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import routines.common.InputPreview;
+
+/**
+ * Store binário de perfis de clientes (saída do Step 1 do RiskAnalysisPipeline),
+ * mapeado em memória e indexado por client_id.
+ *
+ * Layout (big-endian):
+ *   cabeçalho (32 bytes): magic, versão, nº de perfis, flags, nº de hashes distintos
+ *   registros (88 bytes cada, em ordem de client_id): client_id, contadores e valores do
+ *     ClientProfileWritable, e a posição dos hashes distintos do cliente
+ *   hashes: int[] com os hashCode() das cidades, MCCs e cartões de cada cliente, ordenados
+ *     dentro de cada grupo
+ *
+ * A busca é binária sobre os registros de tamanho fixo, direto no arquivo mapeado
+ * (nenhum objeto por cliente no heap). Os hashes só existem se o store for construído
+ * também a partir das transações originais (o Step 1 grava apenas as contagens); com
+ * eles o scoring online sabe se a cidade/MCC/cartão de uma transação nova já fazia parte
+ * do perfil, e o total gravado é a soma exata (não a de 2 casas do texto). Uma colisão
+ * de hash entre valores do mesmo cliente faria um valor novo ser tratado como conhecido
+ * (probabilidade desprezível para os poucos valores por cliente).
+ *
+ * client_id precisa ser numérico (como no dataset); perfis com id não numérico são
+ * ignorados na construção e contados no relatório.
+ */
+public final class RiskProfileStore implements Closeable {
+
+    static final int MAGIC = 0x46545250;   // "FTRP"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 88;
+    static final int FLAG_DISTINCT_HASHES = 1;
+
+    // Offsets dentro do registro
+    private static final int CLIENT_ID = 0;
+    private static final int TRANSACTION_COUNT = 8;
+    private static final int ONLINE_COUNT = 12;
+    private static final int TOTAL_AMOUNT = 16;
+    private static final int AVG_AMOUNT = 24;
+    private static final int FIRST_TRANSACTION = 32;
+    private static final int LAST_TRANSACTION = 40;
+    private static final int UNIQUE_CITIES = 48;
+    private static final int UNIQUE_MCCS = 52;
+    private static final int UNIQUE_CARDS = 56;
+    private static final int SWIPE_COUNT = 60;
+    private static final int ERROR_COUNT = 64;
+    private static final int CHARGEBACK_COUNT = 68;
+    private static final int HASH_OFFSET = 72;
+    private static final int HASH_CITIES = 76;
+    private static final int HASH_MCCS = 80;
+    private static final int HASH_CARDS = 84;
+
+    /** Grupo de valores distintos de um cliente */
+    public enum Dimension { CITY, MCC, CARD }
+
+    private final java.nio.file.Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final boolean distinctHashes;
+    private final int hashesStart;
+
+    private RiskProfileStore(java.nio.file.Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        long length = channel.size();
+        if (length > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Store maior que 2 GB não suportado: " + file);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        if (length < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException("Arquivo não é um store de perfis de risco: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Versão de store não suportada (" + buffer.getInt(4) + "): " + file);
+        }
+        this.size = buffer.getInt(8);
+        this.distinctHashes = (buffer.getInt(12) & FLAG_DISTINCT_HASHES) != 0;
+        this.hashesStart = HEADER_BYTES + size * RECORD_BYTES;
+    }
+
+    /**
+     * Abre (mapeia) um store construído por {@link #build}
+     */
+    public static RiskProfileStore open(java.nio.file.Path file) throws IOException {
+        return new RiskProfileStore(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public java.nio.file.Path getFile() { return file; }
+    public int size() { return size; }
+    public boolean hasDistinctHashes() { return distinctHashes; }
+    public long fileBytes() { return buffer.capacity(); }
+
+    /**
+     * Posição do cliente no store, ou -1 se ele não existir
+     */
+    public int find(long clientId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = buffer.getLong(record(mid) + CLIENT_ID);
+            if (midId < clientId) {
+                low = mid + 1;
+            } else if (midId > clientId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public long clientId(int index) { return buffer.getLong(record(index) + CLIENT_ID); }
+    public int transactionCount(int index) { return buffer.getInt(record(index) + TRANSACTION_COUNT); }
+    public double totalAmount(int index) { return buffer.getDouble(record(index) + TOTAL_AMOUNT); }
+    public double avgAmount(int index) { return buffer.getDouble(record(index) + AVG_AMOUNT); }
+    public int uniqueCities(int index) { return buffer.getInt(record(index) + UNIQUE_CITIES); }
+    public int uniqueMccs(int index) { return buffer.getInt(record(index) + UNIQUE_MCCS); }
+    public int uniqueCards(int index) { return buffer.getInt(record(index) + UNIQUE_CARDS); }
+    public long firstTransaction(int index) { return buffer.getLong(record(index) + FIRST_TRANSACTION); }
+    public long lastTransaction(int index) { return buffer.getLong(record(index) + LAST_TRANSACTION); }
+    public int onlineCount(int index) { return buffer.getInt(record(index) + ONLINE_COUNT); }
+    public int swipeCount(int index) { return buffer.getInt(record(index) + SWIPE_COUNT); }
+    public int errorCount(int index) { return buffer.getInt(record(index) + ERROR_COUNT); }
+    public int chargebackCount(int index) { return buffer.getInt(record(index) + CHARGEBACK_COUNT); }
+
+    /**
+     * Perfil do Step 1 do cliente na posição informada
+     */
+    public ClientProfileWritable profile(int index) {
+        return new ClientProfileWritable(String.valueOf(clientId(index)), transactionCount(index),
+                totalAmount(index), avgAmount(index), uniqueCities(index), uniqueMccs(index),
+                uniqueCards(index), firstTransaction(index), lastTransaction(index), onlineCount(index),
+                swipeCount(index), errorCount(index), chargebackCount(index));
+    }
+
+    /**
+     * Indica se o valor já fazia parte do perfil do cliente
+     * (sempre false em um store sem hashes distintos)
+     */
+    public boolean containsDistinct(int index, Dimension dimension, String value) {
+        if (!distinctHashes) {
+            return false;
+        }
+        int base = record(index);
+        int from = buffer.getInt(base + HASH_OFFSET);
+        int cities = buffer.getInt(base + HASH_CITIES);
+        int mccs = buffer.getInt(base + HASH_MCCS);
+        int cards = buffer.getInt(base + HASH_CARDS);
+        int length;
+        switch (dimension) {
+            case CITY:
+                length = cities;
+                break;
+            case MCC:
+                from += cities;
+                length = mccs;
+                break;
+            default:
+                from += cities + mccs;
+                length = cards;
+                break;
+        }
+        int hash = value.hashCode();
+        int low = from;
+        int high = from + length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midHash = buffer.getInt(hashesStart + mid * 4);
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int record(int index) {
+        return HEADER_BYTES + index * RECORD_BYTES;
+    }
+
+    // =======================
+    // Construção
+    // =======================
+
+    /**
+     * Resumo da construção do store
+     */
+    public static final class BuildReport {
+        long profiles;
+        long skippedProfiles;
+        long transactions;
+        long distinctHashes;
+        long countMismatches;
+        long bytes;
+
+        public long getProfiles() { return profiles; }
+        public long getSkippedProfiles() { return skippedProfiles; }
+        public long getTransactions() { return transactions; }
+        public long getDistinctHashes() { return distinctHashes; }
+        /** Perfis cujas contagens distintas diferem dos conjuntos lidos das transações */
+        public long getCountMismatches() { return countMismatches; }
+        public long getBytes() { return bytes; }
+    }
+
+    /**
+     * Constrói o store a partir da saída do Step 1 (texto "client_id\tperfil")
+     * @param transactions CSV original (opcional, pode ser null): grava os hashes distintos
+     * @param storeFile arquivo local de destino (gravado em temporário e renomeado)
+     */
+    public static BuildReport build(Configuration conf, Path step1Output, Path transactions,
+                                    java.nio.file.Path storeFile) throws IOException {
+        BuildReport report = new BuildReport();
+
+        List<ClientProfileWritable> profiles = new ArrayList<>();
+        forEachLine(conf, step1Output, line -> {
+            String[] fields = line.trim().split("\t");
+            if (fields.length < 13) {
+                return;
+            }
+            try {
+                Long.parseLong(fields[0].trim());
+                profiles.add(new ClientProfileWritable(fields[0].trim(), Integer.parseInt(fields[1].trim()),
+                        Double.parseDouble(fields[2].trim()), Double.parseDouble(fields[3].trim()),
+                        Integer.parseInt(fields[4].trim()), Integer.parseInt(fields[5].trim()),
+                        Integer.parseInt(fields[6].trim()), Long.parseLong(fields[7].trim()),
+                        Long.parseLong(fields[8].trim()), Integer.parseInt(fields[9].trim()),
+                        Integer.parseInt(fields[10].trim()), Integer.parseInt(fields[11].trim()),
+                        Integer.parseInt(fields[12].trim())));
+            } catch (NumberFormatException e) {
+                report.skippedProfiles++;
+            }
+        });
+        profiles.sort((a, b) -> Long.compare(Long.parseLong(a.getClientId()), Long.parseLong(b.getClientId())));
+        report.profiles = profiles.size();
+
+        Map<String, ClientProfileAccumulator> accumulators = null;
+        if (transactions != null) {
+            accumulators = accumulateTransactions(conf, transactions, report);
+        }
+
+        java.nio.file.Path parent = storeFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        java.nio.file.Path temporary = storeFile.resolveSibling("_" + storeFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporary), 1 << 16))) {
+            int hashOffset = 0;
+            int[][] groups = new int[3][];
+            // Hashes primeiro (em memória, por cliente) para saber o total do cabeçalho
+            int[][] perClient = new int[profiles.size()][];
+            int[][] groupSizes = new int[profiles.size()][];
+            for (int i = 0; i < profiles.size(); i++) {
+                ClientProfileWritable profile = profiles.get(i);
+                ClientProfileAccumulator accumulator =
+                        accumulators == null ? null : accumulators.get(profile.getClientId());
+                if (accumulator == null) {
+                    perClient[i] = new int[0];
+                    groupSizes[i] = new int[3];
+                    if (accumulators != null) {
+                        report.countMismatches++;
+                    }
+                    continue;
+                }
+                groups[0] = sortedHashes(accumulator.getCities());
+                groups[1] = sortedHashes(accumulator.getMccs());
+                groups[2] = sortedHashes(accumulator.getCards());
+                if (accumulator.getCities().size() != profile.getUniqueCities() ||
+                        accumulator.getMccs().size() != profile.getUniqueMccs() ||
+                        accumulator.getCards().size() != profile.getUniqueCards()) {
+                    report.countMismatches++;
+                }
+                // Total exato (o texto do Step 1 tem 2 casas): a média recalculada com
+                // transações novas fica igual à do pipeline
+                if (accumulator.getTransactionCount() == profile.getTransactionCount()) {
+                    profile.setTotalAmount(accumulator.getTotalAmount());
+                }
+                perClient[i] = concat(groups);
+                groupSizes[i] = new int[]{groups[0].length, groups[1].length, groups[2].length};
+            }
+            int totalHashes = 0;
+            for (int[] clientHashes : perClient) {
+                totalHashes += clientHashes.length;
+            }
+            report.distinctHashes = totalHashes;
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(profiles.size());
+            out.writeInt(accumulators != null ? FLAG_DISTINCT_HASHES : 0);
+            out.writeInt(totalHashes);
+            out.write(new byte[HEADER_BYTES - 20]);
+
+            for (int i = 0; i < profiles.size(); i++) {
+                ClientProfileWritable p = profiles.get(i);
+                out.writeLong(Long.parseLong(p.getClientId()));
+                out.writeInt(p.getTransactionCount());
+                out.writeInt(p.getOnlineCount());
+                out.writeDouble(p.getTotalAmount());
+                out.writeDouble(p.getAvgAmount());
+                out.writeLong(p.getFirstTransaction());
+                out.writeLong(p.getLastTransaction());
+                out.writeInt(p.getUniqueCities());
+                out.writeInt(p.getUniqueMccs());
+                out.writeInt(p.getUniqueCards());
+                out.writeInt(p.getSwipeCount());
+                out.writeInt(p.getErrorCount());
+                out.writeInt(p.getChargebackCount());
+                out.writeInt(hashOffset);
+                out.writeInt(groupSizes[i][0]);
+                out.writeInt(groupSizes[i][1]);
+                out.writeInt(groupSizes[i][2]);
+                hashOffset += perClient[i].length;
+            }
+            for (int[] clientHashes : perClient) {
+                for (int hash : clientHashes) {
+                    out.writeInt(hash);
+                }
+            }
+        }
+        Files.move(temporary, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        report.bytes = Files.size(storeFile);
+        return report;
+    }
+
+    /**
+     * Reagrupa as transações por cliente com as mesmas regras do Step 1 (só os conjuntos
+     * distintos são usados)
+     */
+    private static Map<String, ClientProfileAccumulator> accumulateTransactions(
+            Configuration conf, Path transactions, BuildReport report) throws IOException {
+        SimpleDateFormat dateFormat = ClientProfileAccumulator.newDateFormat();
+        Map<String, ClientProfileAccumulator> accumulators = new HashMap<>();
+        forEachLine(conf, transactions, raw -> {
+            String line = raw.trim();
+            // Mesmo filtro do Step1Mapper
+            if (line.isEmpty() || line.startsWith("id")) {
+                return;
+            }
+            String[] fields = line.split(",", -1);
+            if (fields.length < 12) {
+                return;
+            }
+            String client = fields[2].trim();
+            ClientProfileAccumulator accumulator = accumulators.get(client);
+            if (accumulator == null) {
+                accumulator = new ClientProfileAccumulator(dateFormat);
+                accumulators.put(client, accumulator);
+            }
+            try {
+                accumulator.add(line);
+                report.transactions++;
+            } catch (Exception e) {
+                // Mesma transação é descartada pelo Step1Reducer
+            }
+        });
+        return accumulators;
+    }
+
+    private static int[] sortedHashes(Collection<String> values) {
+        int[] hashes = new int[values.size()];
+        int i = 0;
+        for (String value : values) {
+            hashes[i++] = value.hashCode();
+        }
+        Arrays.sort(hashes);
+        return hashes;
+    }
+
+    private static int[] concat(int[][] groups) {
+        int length = 0;
+        for (int[] group : groups) {
+            length += group.length;
+        }
+        int[] result = new int[length];
+        int position = 0;
+        for (int[] group : groups) {
+            System.arraycopy(group, 0, result, position, group.length);
+            position += group.length;
+        }
+        return result;
+    }
+
+    /**
+     * Percorre as linhas dos arquivos de dados (saídas compactadas são descompactadas)
+     */
+    private static void forEachLine(Configuration conf, Path input, Consumer<String> action) throws IOException {
+        FileSystem fs = input.getFileSystem(conf);
+        CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+        for (Path file : InputPreview.listInputFiles(conf, input)) {
+            InputStream stream = fs.open(file);
+            CompressionCodec codec = codecs.getCodec(file);
+            if (codec != null) {
+                stream = codec.createInputStream(stream);
+            }
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    action.accept(line);
+                }
+            }
+        }
+    }
+}
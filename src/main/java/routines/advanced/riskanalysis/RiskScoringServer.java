@@ -0,0 +1,338 @@
+package routines.advanced.riskanalysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import routines.launcher.LoopbackServer;
+
+// Para executar configure os argumentos da seguinte forma:
+// build output/risk_step1_profiles output/risk_profiles.bin src/main/resources/transactions_data.csv
+// serve output/risk_profiles.bin                     (mapeia o store e atende em localhost:45125)
+// score "7475327,2010-01-01 00:01:00,1556,2972,$-77.00,Swipe Transaction,59935,Beulah,ND,58523,5499,"
+// score -                                            (uma transação por linha da entrada padrão)
+// profile 1556
+// stats
+// shutdown
+
+/**
+ * API de scoring de risco online sobre os perfis pré-computados do RiskAnalysisPipeline
+ *
+ * O Step 1 do pipeline gera o perfil de cada cliente; o modo build converte essa saída
+ * num {@link RiskProfileStore} (binário, mapeado em memória, indexado por client_id). O
+ * servidor recebe transações, atualiza o delta do cliente em memória e devolve o mesmo
+ * score/categoria/fatores que o Step2Reducer produziria com a transação incluída
+ * ({@link OnlineRiskScorer}), sem rodar os 3 jobs.
+ *
+ * Modos:
+ *   build <step1_output> <store> [transações]  constrói o store (transações: CSV original,
+ *                                               opcional, para contar cidades/MCCs/cartões novos)
+ *   serve <store>                               mapeia o store e inicia o servidor (bloqueia)
+ *   score <linha CSV> | score -                 pontua transações (stdin com "-")
+ *   profile <client_id>                         perfil e risco atuais do cliente
+ *   stats                                       clientes, deltas e latência
+ *   shutdown                                    encerra o servidor
+ *
+ * Resposta de score/profile: uma linha "CATEGORIA\tclient_id\tscore\tfatores\ttransações\ttotal",
+ * o mesmo formato da saída do Step 2.
+ *
+ * Protocolo e autenticação: {@link LoopbackServer}, como no JobServer. Só quem lê o arquivo
+ * de token consegue pontuar transações (e portanto alterar os deltas em memória). "score -"
+ * envia as transações em sequência na mesma conexão; cada conexão tem a sua thread, então
+ * um fluxo longo ou um cliente parado não bloqueia os demais (o scorer é sincronizado por
+ * transação).
+ *
+ * Configuração (via -D, antes do modo; ver também {@link LoopbackServer}):
+ *   fta.risk.port              - porta TCP em localhost (padrão: 45125)
+ *   fta.risk.max.delta.clients - máximo de clientes com delta em memória (padrão: 200000);
+ *                                os deltas só saem da memória ao reconstruir o store
+ */
+public class RiskScoringServer extends Configured implements Tool {
+
+    public static final String PORT_KEY = "fta.risk.port";
+    public static final int DEFAULT_PORT = 45125;
+    public static final String MAX_DELTA_CLIENTS_KEY = "fta.risk.max.delta.clients";
+    public static final int DEFAULT_MAX_DELTA_CLIENTS = 200000;
+
+    private static final String SCORE_REQUEST = "--score";
+    private static final String SCORE_STREAM_REQUEST = "--score-stream";
+    private static final String PROFILE_REQUEST = "--profile";
+    private static final String STATS_REQUEST = "--stats";
+    private static final String SHUTDOWN_REQUEST = "--shutdown";
+
+    private OnlineRiskScorer scorer;
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 1) {
+            printUsage();
+            return -1;
+        }
+        int port = getConf().getInt(PORT_KEY, DEFAULT_PORT);
+        String mode = args[0];
+        List<String> rest = Arrays.asList(args).subList(1, args.length);
+
+        switch (mode) {
+            case "build":
+                if (rest.size() < 2 || rest.size() > 3) {
+                    printUsage();
+                    return -1;
+                }
+                return build(new Path(rest.get(0)), rest.get(1), rest.size() == 3 ? new Path(rest.get(2)) : null);
+            case "serve":
+                if (rest.size() != 1) {
+                    printUsage();
+                    return -1;
+                }
+                return serve(port, rest.get(0));
+            case "score":
+            case "profile":
+            case "stats":
+            case "shutdown":
+                return client(LoopbackServer.Client.fromConf(getConf(), PORT_KEY, DEFAULT_PORT), args);
+            default:
+                printUsage();
+                return -1;
+        }
+    }
+
+    // =======================
+    // Build
+    // =======================
+
+    private int build(Path step1Output, String storeFile, Path transactions) throws IOException {
+        long start = System.currentTimeMillis();
+        RiskProfileStore.BuildReport report = RiskProfileStore.build(getConf(), step1Output, transactions,
+                Paths.get(storeFile));
+
+        System.out.println("========================================");
+        System.out.println("RiskProfileStore construído:");
+        System.out.println("  Step 1: " + step1Output);
+        System.out.println("  Store: " + storeFile + " (" + formatKilobytes(report.getBytes()) + ")");
+        System.out.println("  Perfis: " + report.getProfiles() + " | Ignorados (id não numérico): " +
+                report.getSkippedProfiles());
+        if (transactions != null) {
+            System.out.println("  Transações lidas: " + report.getTransactions() + " | Hashes distintos: " +
+                    report.getDistinctHashes());
+            System.out.println("  Perfis divergentes das transações: " + report.getCountMismatches());
+        } else {
+            System.out.println("  Sem transações: cidades/MCCs/cartões novos contam sempre como novos");
+        }
+        System.out.println("  Tempo: " + (System.currentTimeMillis() - start) + " ms");
+        System.out.println("========================================");
+        if (report.getCountMismatches() > 0) {
+            System.err.println("Aviso: as transações não correspondem à entrada do Step 1 para " +
+                    report.getCountMismatches() + " perfil(is)");
+        }
+        return 0;
+    }
+
+    // =======================
+    // Servidor
+    // =======================
+
+    private int serve(int port, String storeFile) throws Exception {
+        long start = System.currentTimeMillis();
+        try (RiskProfileStore store = RiskProfileStore.open(Paths.get(storeFile));
+             LoopbackServer server = new LoopbackServer(getConf(), "risk-server", port)) {
+            scorer = new OnlineRiskScorer(store, getConf().getInt(MAX_DELTA_CLIENTS_KEY, DEFAULT_MAX_DELTA_CLIENTS));
+
+            System.out.println("========================================");
+            System.out.println("RiskScoringServer - localhost:" + port);
+            System.out.println("  Store: " + storeFile + " (" + formatKilobytes(store.fileBytes()) + ", mapeado)");
+            System.out.println("  Perfis: " + store.size() + " | Hashes distintos: " +
+                    (store.hasDistinctHashes() ? "sim" : "não"));
+            System.out.println("  Abertura: " + (System.currentTimeMillis() - start) + " ms");
+            System.out.println("  Conexões: " + server.describe(getConf()));
+            System.out.println("========================================");
+
+            server.serve(request -> {
+                PrintStream client = request.getOut();
+                if (request.is(SHUTDOWN_REQUEST)) {
+                    client.println("RiskScoringServer encerrando após " + scorer.getScored() + " transação(ões)");
+                    request.finish(0);
+                    System.out.println("Shutdown solicitado; " + scorer.getScored() + " transação(ões) pontuada(s)");
+                    return true;
+                }
+                request.finish(answer(client, request.getReader(), request.getArgs()));
+                return false;
+            });
+            return 0;
+        }
+    }
+
+    private int answer(PrintStream client, BufferedReader reader, List<String> request) throws IOException {
+        String type = request.isEmpty() ? "" : request.get(0);
+        switch (type) {
+            case SCORE_REQUEST:
+                if (request.size() != 2) {
+                    client.println("Erro: informe uma transação");
+                    return -1;
+                }
+                return scoreLine(client, request.get(1)) ? 0 : -1;
+            case SCORE_STREAM_REQUEST:
+                long start = System.nanoTime();
+                long lines = 0;
+                long errors = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty() || line.startsWith("id,")) {
+                        continue;
+                    }
+                    lines++;
+                    if (!scoreLine(client, line)) {
+                        errors++;
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                client.println(String.format("# %d transações | %d erros | %.1f µs/transação (com E/S)",
+                        lines, errors, lines == 0 ? 0.0 : elapsed / 1000.0 / lines));
+                return errors == 0 ? 0 : 1;
+            case PROFILE_REQUEST:
+                if (request.size() != 2) {
+                    client.println("Erro: informe o client_id");
+                    return -1;
+                }
+                return profile(client, request.get(1));
+            case STATS_REQUEST:
+                RiskProfileStore store = scorer.getStore();
+                Runtime runtime = Runtime.getRuntime();
+                client.println("Perfis no store: " + store.size() + " (" + formatKilobytes(store.fileBytes()) + ")");
+                client.println("Transações pontuadas: " + scorer.getScored() + " | Rejeitadas: " + scorer.getRejected());
+                client.println("Clientes com delta: " + scorer.getDeltaClients() + " de no máximo " +
+                        scorer.getMaxDeltaClients() + " | Novos (fora do store): " + scorer.getNewClients());
+                client.println(String.format("Latência do scoring: média %.1f µs, máxima %.1f µs",
+                        scorer.getAverageMicros(), scorer.getMaxMicros()));
+                client.println("Heap usado: " + formatKilobytes(runtime.totalMemory() - runtime.freeMemory()));
+                return 0;
+            default:
+                client.println("Erro: pedido desconhecido " + request);
+                return -1;
+        }
+    }
+
+    private boolean scoreLine(PrintStream client, String line) {
+        try {
+            ClientRiskWritable risk = scorer.score(line);
+            client.println(risk.getRiskCategory() + "\t" + risk);
+            return true;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            client.println("Erro: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private int profile(PrintStream client, String clientId) {
+        long id;
+        try {
+            id = Long.parseLong(clientId.trim());
+        } catch (NumberFormatException e) {
+            client.println("Erro: client_id inválido: " + clientId);
+            return -1;
+        }
+        ClientProfileWritable profile = scorer.profile(id);
+        if (profile == null) {
+            client.println("Cliente não encontrado: " + clientId);
+            return 1;
+        }
+        ClientRiskWritable risk = RiskScoring.score(profile);
+        client.println(risk.getRiskCategory() + "\t" + risk);
+        client.println("# perfil: " + profile.toFullString());
+        return 0;
+    }
+
+    // =======================
+    // Cliente
+    // =======================
+
+    /**
+     * Envia o pedido ao servidor e imprime a resposta; "score -" transmite a entrada padrão
+     */
+    static int client(LoopbackServer.Client client, String[] args) throws IOException {
+        String mode = args[0];
+        if (mode.equals("score") && args.length == 2 && args[1].equals("-")) {
+            return scoreStream(client);
+        }
+        if ((mode.equals("score") || mode.equals("profile")) && args.length != 2) {
+            printUsage();
+            return -1;
+        }
+        switch (mode) {
+            case "score":
+                return client.submit(Arrays.asList(SCORE_REQUEST, args[1]));
+            case "profile":
+                return client.submit(Arrays.asList(PROFILE_REQUEST, args[1]));
+            case "stats":
+                return client.submit(Arrays.asList(STATS_REQUEST));
+            default:
+                return client.submit(Arrays.asList(SHUTDOWN_REQUEST));
+        }
+    }
+
+    private static int scoreStream(LoopbackServer.Client client) throws IOException {
+        try (Socket socket = client.open(Arrays.asList(SCORE_STREAM_REQUEST))) {
+            OutputStream output = socket.getOutputStream();
+            // Envio em outra thread: o servidor responde enquanto ainda recebe transações
+            Thread sender = new Thread(() -> {
+                try (BufferedReader input = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+                    PrintStream out = new PrintStream(output, false, "UTF-8");
+                    String line;
+                    while ((line = input.readLine()) != null) {
+                        out.println(line);
+                    }
+                    out.flush();
+                    socket.shutdownOutput();
+                } catch (IOException e) {
+                    System.err.println("Erro enviando transações: " + e.getMessage());
+                }
+            }, "risk-score-sender");
+            sender.setDaemon(true);
+            sender.start();
+
+            return client.printResponse(socket);
+        } catch (ConnectException e) {
+            System.err.println("Servidor não encontrado em localhost:" + client.getPort() + " (inicie com o modo serve)");
+            return -1;
+        }
+    }
+
+    private static String formatKilobytes(long bytes) {
+        return String.format("%.1f KB", bytes / 1024.0);
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: RiskScoringServer build <step1_output> <store> [transações_csv]");
+        System.err.println("       RiskScoringServer [-Dfta.risk.port=45125] serve <store>");
+        System.err.println("       RiskScoringServer [-Dfta.risk.port=45125] score <linha_csv> | score -");
+        System.err.println("       RiskScoringServer [-Dfta.risk.port=45125] profile <client_id>");
+        System.err.println("       RiskScoringServer [-Dfta.risk.port=45125] stats");
+        System.err.println("       RiskScoringServer [-Dfta.risk.port=45125] shutdown");
+    }
+
+    /**
+     * Método main - ponto de entrada da aplicação
+     */
+    public static void main(String[] args) throws Exception {
+        // Cliente leve: score/profile/stats/shutdown não inicializam o Hadoop, só abrem o socket
+        LoopbackServer.Client client = LoopbackServer.Client.fromArgs(args, PORT_KEY, DEFAULT_PORT);
+        int i = client.getFirstArg();
+        if (i < args.length && Arrays.asList("score", "profile", "stats", "shutdown").contains(args[i])) {
+            System.exit(client(client, Arrays.copyOfRange(args, i, args.length)));
+        }
+
+        int exitCode = ToolRunner.run(new Configuration(), new RiskScoringServer(), args);
+        System.exit(exitCode);
+    }
+}
@@ -3,13 +3,11 @@ package routines.advanced.riskanalysis;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
 
 /**
  * Step 2 Reducer - Risk Category Classifier
- * Classifica clientes em categorias de risco baseado no perfil comportamental.
+ * Classifica clientes em categorias de risco baseado no perfil comportamental
+ * (regras em RiskScoring).
  *
  * Categorias de Risco:
  * - LOW (0-30 pontos): Comportamento normal
@@ -63,102 +61,14 @@ public class Step2Reducer extends Reducer<Text, Text, Text, ClientRiskWritable>
                 int errorCount = Integer.parseInt(fields[11]);
                 int chargebackCount = Integer.parseInt(fields[12]);
 
-                // Calcula risk score
-                double riskScore = 0.0;
-                List<String> riskFactors = new ArrayList<>();
+                ClientProfileWritable profile = new ClientProfileWritable(
+                        clientId, transactionCount, totalAmount, avgAmount, uniqueCities, uniqueMccs,
+                        uniqueCards, firstTransaction, lastTransaction, onlineCount, swipeCount,
+                        errorCount, chargebackCount);
 
-                // Fator 1: Muitas cidades diferentes (mobilidade suspeita)
-                if (uniqueCities > 5) {
-                    riskScore += 15;
-                    riskFactors.add("HIGH_MOBILITY[" + uniqueCities + "_cities]");
-                } else if (uniqueCities > 3) {
-                    riskScore += 8;
-                    riskFactors.add("MEDIUM_MOBILITY[" + uniqueCities + "_cities]");
-                }
-
-                // Fator 2: Muitas categorias MCC (comportamento diversificado)
-                if (uniqueMccs > 10) {
-                    riskScore += 12;
-                    riskFactors.add("DIVERSE_MCC[" + uniqueMccs + "_categories]");
-                } else if (uniqueMccs > 6) {
-                    riskScore += 6;
-                    riskFactors.add("VARIED_MCC[" + uniqueMccs + "_categories]");
-                }
-
-                // Fator 3: Múltiplos cartões (pode indicar fraude)
-                if (uniqueCards > 3) {
-                    riskScore += 20;
-                    riskFactors.add("MULTIPLE_CARDS[" + uniqueCards + "_cards]");
-                } else if (uniqueCards > 1) {
-                    riskScore += 8;
-                    riskFactors.add("DUAL_CARDS[" + uniqueCards + "_cards]");
-                }
-
-                // Fator 4: Taxa de erros
-                if (transactionCount > 0) {
-                    double errorRate = (errorCount * 100.0) / transactionCount;
-                    if (errorRate > 20) {
-                        riskScore += 25;
-                        riskFactors.add(String.format(Locale.US, "HIGH_ERROR_RATE[%.1f%%]", errorRate));
-                    } else if (errorRate > 10) {
-                        riskScore += 12;
-                        riskFactors.add(String.format(Locale.US, "MEDIUM_ERROR_RATE[%.1f%%]", errorRate));
-                    }
-                }
-
-                // Fator 5: Chargebacks (estornos)
-                if (chargebackCount > 3) {
-                    riskScore += 25;
-                    riskFactors.add("FREQUENT_CHARGEBACKS[" + chargebackCount + "]");
-                } else if (chargebackCount > 0) {
-                    riskScore += 10;
-                    riskFactors.add("CHARGEBACKS[" + chargebackCount + "]");
-                }
-
-                // Fator 6: Valor médio alto
-                if (avgAmount > 500) {
-                    riskScore += 15;
-                    riskFactors.add(String.format(Locale.US, "HIGH_AVG_AMOUNT[%.2f]", avgAmount));
-                } else if (avgAmount > 200) {
-                    riskScore += 7;
-                    riskFactors.add(String.format(Locale.US, "MEDIUM_AVG_AMOUNT[%.2f]", avgAmount));
-                }
-
-                // Fator 7: Proporção online vs presencial
-                if (transactionCount > 0) {
-                    double onlineRate = (onlineCount * 100.0) / transactionCount;
-                    if (onlineRate > 80 || onlineRate < 20) {
-                        riskScore += 10;
-                        riskFactors.add(String.format(Locale.US, "UNBALANCED_CHANNELS[%.0f%%_online]", onlineRate));
-                    }
-                }
-
-                // Determina categoria de risco
-                String riskCategory;
-                if (riskScore >= 86) {
-                    riskCategory = "CRITICAL";
-                } else if (riskScore >= 61) {
-                    riskCategory = "HIGH";
-                } else if (riskScore >= 31) {
-                    riskCategory = "MEDIUM";
-                } else {
-                    riskCategory = "LOW";
-                }
-
-                // Cria objeto de risco
-                String factorsStr = String.join("; ", riskFactors);
-                if (factorsStr.isEmpty()) {
-                    factorsStr = "NORMAL_BEHAVIOR";
-                }
-
-                ClientRiskWritable risk = new ClientRiskWritable(
-                        clientId,
-                        riskCategory,
-                        riskScore,
-                        factorsStr,
-                        transactionCount,
-                        totalAmount
-                );
+                // Calcula risk score (regras em RiskScoring, compartilhadas com o scoring online)
+                ClientRiskWritable risk = RiskScoring.score(profile);
+                String riskCategory = risk.getRiskCategory();
 
                 // Emite: risk_category -> ClientRiskWritable
                 context.write(new Text(riskCategory), risk);
@@ -12,6 +12,12 @@ import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.IncrementalState;
+import routines.common.JobAutoTuner;
+import routines.common.LocalMode;
+import routines.common.RankedOutput;
+import routines.common.SkewedKeys;
 
 // Para executar configure os argumentos da seguinte forma:
 // src/main/resources/transactions_data.csv output/amount_by_city 1 local
@@ -25,11 +31,11 @@ public class AmountByCity extends Configured implements Tool {
     @Override
     public int run(String[] args) throws Exception {
         // Verificação dos argumentos
-        if (args.length < 2) {
+        if (args.length < 2 || !JobAutoTuner.isReducersArgument(args, 2)) {
             System.err.println("Usage: AmountByCity <input_path> <output_path> [num_reducers] [local]");
             System.err.println("  input_path: caminho do arquivo CSV de transações");
             System.err.println("  output_path: caminho do diretório de saída");
-            System.err.println("  num_reducers: número de reducers (opcional, padrão: 1)");
+            System.err.println("  num_reducers: número de reducers (opcional, padrão: auto)");
             System.err.println("  local: para execução local (opcional)");
             return -1;
         }
@@ -37,8 +43,8 @@ public class AmountByCity extends Configured implements Tool {
         // Parse dos parâmetros
         Path inputPath = new Path(args[0]);
         Path outputDir = new Path(args[1]);
-        int numberOfReducers = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
-        boolean localMode = (args.length > 3 && "local".equals(args[3]));
+        int numberOfReducers = JobAutoTuner.parseReducers(args, 2);
+        boolean localMode = LocalMode.isRequested(args, 2);
 
         // Configuração
         Configuration conf = this.getConf();
@@ -46,11 +52,29 @@ public class AmountByCity extends Configured implements Tool {
         // Se modo local for especificado
         if (localMode) {
             System.out.println("Configurando para execução local (standalone)...");
-            conf.set("fs.defaultFS", "file:///");
-            conf.set("mapreduce.framework.name", "local");
-            conf.set("mapreduce.jobtracker.address", "local");
+            LocalMode.configure(conf);
         }
 
+        // Reducers, split e sort buffer: auto-tuning por amostragem (overrides via -D)
+        JobAutoTuner.Decision tuning = JobAutoTuner.tune(conf, inputPath, numberOfReducers,
+                new JobAutoTuner.Profile("amount_by_city", JobAutoTuner.Profile.csvColumn(7), 0.01));
+
+        // Modo incremental (opcional, -Dfta.incremental.state=<dir>): soma apenas os arquivos
+        // novos da entrada ao estado persistido da execução anterior e regrava a saída
+        if (IncrementalState.isEnabled(conf)) {
+            boolean success = IncrementalState.run(conf, new IncrementalState.Spec("amount_by_city",
+                    AmountByCity.class, AmountByCityMapper.class, LongWritable.class, AmountByCityCombiner.class,
+                    AmountByCityReducer.class, Text.class), inputPath, outputDir, tuning);
+            if (success && RankedOutput.isEnabled(conf)) {
+                success = RankedOutput.runRankingJob(conf, "amount_by_city", outputDir, tuning.getReducers());
+            }
+            return success ? 0 : 1;
+        }
+
+        // Anti-skew: o mapper já agrega em memória (um registro por cidade e map task),
+        // então o sal não teria o que espalhar
+        SkewedKeys.reportPreAggregated(conf, "amount_by_city");
+
         // Criar e configurar o job
         Job job = Job.getInstance(conf, "amount_by_city");
 
@@ -77,7 +101,11 @@ public class AmountByCity extends Configured implements Tool {
         job.setCombinerClass(AmountByCityCombiner.class);
 
         // Número de reducers
-        job.setNumReduceTasks(numberOfReducers);
+        tuning.apply(job);
+
+        // Compressão do shuffle e da saída (-Dfta.compression=none|fast|dense)
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+        compression.applyFinal(job);
 
         // Log de informações
         System.out.println("========================================");
@@ -85,13 +113,22 @@ public class AmountByCity extends Configured implements Tool {
         System.out.println("  Mode: " + (localMode ? "Local (Standalone)" : "Cluster"));
         System.out.println("  Input: " + inputPath);
         System.out.println("  Output: " + outputDir);
-        System.out.println("  Reducers: " + numberOfReducers);
+        System.out.println("  Reducers: " + tuning.getReducers());
+        System.out.println("  Compressão: " + compression.describe());
         System.out.println("  Combiner: Enabled (using Reducer)");
+        if (RankedOutput.isEnabled(conf)) {
+            System.out.println("  Ranked output: " + RankedOutput.rankedPath(outputDir));
+        }
         System.out.println("========================================");
 
         // Executar o job
         boolean success = job.waitForCompletion(true);
 
+        // Ranking opcional (-Dfta.ranked.output=true): cidades em ordem decrescente de valor
+        if (success && RankedOutput.isEnabled(conf)) {
+            success = RankedOutput.runRankingJob(conf, "amount_by_city", outputDir, tuning.getReducers());
+        }
+
         if (success) {
             System.out.println("Job concluído com sucesso!");
 
@@ -105,6 +142,9 @@ public class AmountByCity extends Configured implements Tool {
                 System.out.println("\nPara ver os resultados:");
                 System.out.println("  cat " + outputDir + "/part-r-00000");
                 System.out.println("  # Os valores já estão formatados em dólares com 2 casas decimais");
+                if (RankedOutput.isEnabled(conf)) {
+                    System.out.println("  cat " + RankedOutput.rankedPath(outputDir) + "/part-r-*  # ranking decrescente");
+                }
             }
 
             return 0;
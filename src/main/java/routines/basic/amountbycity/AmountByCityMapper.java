@@ -7,17 +7,14 @@ import java.util.ArrayList;
 import java.util.List;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapreduce.Mapper;
+import routines.common.InMapperAggregationMapper;
 
 /**
  * Mapper class para AmountByCity
- * Processa cada linha de transação CSV e emite pares (cidade, valor_em_centavos)
+ * Processa cada linha de transação CSV e agrega (cidade, valor_em_centavos) em memória,
+ * emitindo os totais parciais no flush/cleanup (ver InMapperAggregationMapper)
  */
-public class AmountByCityMapper extends Mapper<LongWritable, Text, Text, LongWritable> {
-
-    // Objetos reutilizáveis para otimização
-    private Text outputKey = new Text();
-    private LongWritable outputValue = new LongWritable();
+public class AmountByCityMapper extends InMapperAggregationMapper<LongWritable> {
 
     // Contadores para estatísticas
     private long recordsProcessed = 0;
@@ -70,9 +67,7 @@ public class AmountByCityMapper extends Mapper<LongWritable, Text, Text, LongWri
 
             // Se parsing foi bem-sucedido, emitir resultado
             if (amountInCents != Long.MIN_VALUE && !city.isEmpty()) {
-                outputKey.set(city);
-                outputValue.set(amountInCents);
-                context.write(outputKey, outputValue);
+                aggregate(city, amountInCents, context);
                 validRecords++;
             } else {
                 invalidRecords++;
@@ -90,10 +85,20 @@ public class AmountByCityMapper extends Mapper<LongWritable, Text, Text, LongWri
         }
     }
 
+    @Override
+    protected LongWritable createOutputValue() {
+        return new LongWritable();
+    }
+
+    @Override
+    protected void setOutputValue(LongWritable value, long total) {
+        value.set(total);
+    }
+
     /**
      * Processa e limpa o nome da cidade
      */
-    private String processCityName(String cityRaw) {
+    public static String processCityName(String cityRaw) {
         if (cityRaw == null || cityRaw.trim().isEmpty()) {
             return "UNKNOWN";
         }
@@ -140,7 +145,7 @@ public class AmountByCityMapper extends Mapper<LongWritable, Text, Text, LongWri
      * Converte string de valor monetário para centavos (long)
      * Formato esperado: $14.57 (formato americano do dataset Kaggle)
      */
-    private static long parseAmountToCents(String rawAmount) {
+    public static long parseAmountToCents(String rawAmount) {
         if (rawAmount == null || rawAmount.trim().isEmpty()) {
             return Long.MIN_VALUE;
         }
@@ -5,17 +5,14 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapreduce.Mapper;
+import routines.common.InMapperAggregationMapper;
 
 /**
  * Mapper class para AmountByClient
- * Processa cada linha de transação CSV e emite pares (client_id, valor_em_centavos)
+ * Processa cada linha de transação CSV e agrega (client_id, valor_em_centavos) em memória,
+ * emitindo os totais parciais no flush/cleanup (ver InMapperAggregationMapper)
  */
-public class AmountByClientMapper extends Mapper<LongWritable, Text, Text, LongWritable> {
-
-    // Objetos reutilizáveis para otimização
-    private Text outputKey = new Text();
-    private LongWritable outputValue = new LongWritable();
+public class AmountByClientMapper extends InMapperAggregationMapper<LongWritable> {
 
     // Contadores para estatísticas
     private long recordsProcessed = 0;
@@ -69,9 +66,7 @@ public class AmountByClientMapper extends Mapper<LongWritable, Text, Text, LongW
 
             // Se parsing foi bem-sucedido, emitir resultado
             if (amountInCents != Long.MIN_VALUE && !clientId.isEmpty()) {
-                outputKey.set(clientId);
-                outputValue.set(amountInCents);
-                context.write(outputKey, outputValue);
+                aggregate(clientId, amountInCents, context);
                 validRecords++;
             } else {
                 invalidRecords++;
@@ -89,10 +84,20 @@ public class AmountByClientMapper extends Mapper<LongWritable, Text, Text, LongW
         }
     }
 
+    @Override
+    protected LongWritable createOutputValue() {
+        return new LongWritable();
+    }
+
+    @Override
+    protected void setOutputValue(LongWritable value, long total) {
+        value.set(total);
+    }
+
     /**
      * Processa e limpa o client_id
      */
-    private String processClientId(String clientIdRaw) {
+    public static String processClientId(String clientIdRaw) {
         if (clientIdRaw == null || clientIdRaw.trim().isEmpty()) {
             return "";  // Será filtrado como inválido
         }
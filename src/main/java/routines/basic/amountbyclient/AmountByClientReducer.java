@@ -5,6 +5,7 @@ import java.text.DecimalFormat;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
+import routines.common.IndexedOutput;
 
 /**
  * Reducer class para AmountByClient
@@ -27,6 +28,14 @@ public class AmountByClientReducer extends Reducer<Text, LongWritable, Text, Tex
     private long lowestAmount = Long.MAX_VALUE;
     private long totalTransactions = 0;
 
+    // Índice para consultas por client_id (-Dfta.indexed.output=true), senão null
+    private IndexedOutput.Writer index;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        index = IndexedOutput.open(context);
+    }
+
     /**
      * Método reduce - agrega valores para cada cliente
      * @param key ID do cliente
@@ -55,6 +64,9 @@ public class AmountByClientReducer extends Reducer<Text, LongWritable, Text, Tex
         // Emitir o resultado (cliente, valor_formatado)
         result.set(formattedAmount);
         context.write(key, result);
+        if (index != null) {
+            index.append(key, result);
+        }
 
         // Atualizar estatísticas globais
         totalClients++;
@@ -90,6 +102,10 @@ public class AmountByClientReducer extends Reducer<Text, LongWritable, Text, Tex
      */
     @Override
     protected void cleanup(Context context) throws IOException, InterruptedException {
+        if (index != null) {
+            index.close();
+        }
+
         System.out.println("========================================");
         System.out.println("Estatísticas do Reducer:");
         System.out.println("  Total de clientes processados: " + totalClients);
@@ -12,6 +12,9 @@ import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.JobAutoTuner;
+import routines.common.LocalMode;
 
 // Para executar configure os argumentos da seguinte forma:
 // src/main/resources/transactions_data.csv output/chip_usage_count 1 local
@@ -25,11 +28,11 @@ public class ChipUsageCount extends Configured implements Tool {
     @Override
     public int run(String[] args) throws Exception {
         // Verificação dos argumentos
-        if (args.length < 2) {
+        if (args.length < 2 || !JobAutoTuner.isReducersArgument(args, 2)) {
             System.err.println("Usage: ChipUsageCount <input_path> <output_path> [num_reducers] [local]");
             System.err.println("  input_path: caminho do arquivo CSV de transações");
             System.err.println("  output_path: caminho do diretório de saída");
-            System.err.println("  num_reducers: número de reducers (opcional, padrão: 1)");
+            System.err.println("  num_reducers: número de reducers (opcional, padrão: auto)");
             System.err.println("  local: para execução local (opcional)");
             return -1;
         }
@@ -37,8 +40,8 @@ public class ChipUsageCount extends Configured implements Tool {
         // Parse dos parâmetros
         Path inputPath = new Path(args[0]);
         Path outputDir = new Path(args[1]);
-        int numberOfReducers = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
-        boolean localMode = (args.length > 3 && "local".equals(args[3]));
+        int numberOfReducers = JobAutoTuner.parseReducers(args, 2);
+        boolean localMode = LocalMode.isRequested(args, 2);
 
         // Configuração
         Configuration conf = this.getConf();
@@ -46,11 +49,13 @@ public class ChipUsageCount extends Configured implements Tool {
         // Se modo local for especificado
         if (localMode) {
             System.out.println("Configurando para execução local (standalone)...");
-            conf.set("fs.defaultFS", "file:///");
-            conf.set("mapreduce.framework.name", "local");
-            conf.set("mapreduce.jobtracker.address", "local");
+            LocalMode.configure(conf);
         }
 
+        // Reducers, split e sort buffer: auto-tuning por amostragem (overrides via -D)
+        JobAutoTuner.Decision tuning = JobAutoTuner.tune(conf, inputPath, numberOfReducers,
+                new JobAutoTuner.Profile("chip_usage_count", JobAutoTuner.Profile.csvColumn(5), 0.001));
+
         // Criar e configurar o job
         Job job = Job.getInstance(conf, "chip_usage_count");
 
@@ -77,7 +82,11 @@ public class ChipUsageCount extends Configured implements Tool {
         job.setCombinerClass(ChipUsageCountReducer.class);
 
         // Número de reducers
-        job.setNumReduceTasks(numberOfReducers);
+        tuning.apply(job);
+
+        // Compressão do shuffle e da saída (-Dfta.compression=none|fast|dense)
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+        compression.applyFinal(job);
 
         // Log de informações
         System.out.println("========================================");
@@ -85,7 +94,8 @@ public class ChipUsageCount extends Configured implements Tool {
         System.out.println("  Mode: " + (localMode ? "Local (Standalone)" : "Cluster"));
         System.out.println("  Input: " + inputPath);
         System.out.println("  Output: " + outputDir);
-        System.out.println("  Reducers: " + numberOfReducers);
+        System.out.println("  Reducers: " + tuning.getReducers());
+        System.out.println("  Compressão: " + compression.describe());
         System.out.println("  Combiner: Enabled (using Reducer)");
         System.out.println("========================================");
 
@@ -6,17 +6,18 @@ import java.util.List;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapreduce.Mapper;
+import routines.common.InMapperAggregationMapper;
+import routines.common.TransactionChannel;
 
 /**
  * Mapper class para ChipUsageCount
- * Processa cada linha de transação CSV e emite pares (tipo_transacao, 1)
+ * Processa cada linha de transação CSV e agrega (tipo_transacao, contagem) em memória,
+ * emitindo os totais parciais no flush/cleanup (ver InMapperAggregationMapper)
  */
-public class ChipUsageCountMapper extends Mapper<LongWritable, Text, Text, IntWritable> {
+public class ChipUsageCountMapper extends InMapperAggregationMapper<IntWritable> {
 
-    // Objetos reutilizáveis para otimização
-    private final static IntWritable one = new IntWritable(1);
-    private Text outputKey = new Text();
+    // Contagens por canal conhecido, indexadas pelo ordinal de TransactionChannel
+    private final long[] channelCounts = new long[TransactionChannel.COUNT];
 
     // Contadores para estatísticas
     private long recordsProcessed = 0;
@@ -60,16 +61,21 @@ public class ChipUsageCountMapper extends Mapper<LongWritable, Text, Text, IntWr
 
             String useChipRaw = parts[5];
 
-            // Processar tipo de transação
-            String transactionType = processTransactionType(useChipRaw);
-
-            // Se processamento foi bem-sucedido, emitir resultado
-            if (!transactionType.isEmpty()) {
-                outputKey.set(transactionType);
-                context.write(outputKey, one);
+            // Canais conhecidos são contados direto no slot do array
+            TransactionChannel channel = TransactionChannel.fromUseChip(normalizeUseChip(useChipRaw));
+            if (channel != null) {
+                channelCounts[channel.ordinal()]++;
                 validRecords++;
             } else {
-                invalidRecords++;
+                // Valores fora do domínio seguem pelo caminho genérico (String)
+                String transactionType = processTransactionType(useChipRaw);
+
+                if (!transactionType.isEmpty()) {
+                    aggregate(transactionType, 1, context);
+                    validRecords++;
+                } else {
+                    invalidRecords++;
+                }
             }
 
         } catch (Exception e) {
@@ -84,10 +90,50 @@ public class ChipUsageCountMapper extends Mapper<LongWritable, Text, Text, IntWr
         }
     }
 
+    @Override
+    protected IntWritable createOutputValue() {
+        return new IntWritable();
+    }
+
+    @Override
+    protected void setOutputValue(IntWritable value, long total) {
+        value.set((int) total);
+    }
+
+    @Override
+    protected void flushDomainCounters(Context context) throws IOException, InterruptedException {
+        for (TransactionChannel channel : TransactionChannel.values()) {
+            long count = channelCounts[channel.ordinal()];
+            if (count > 0) {
+                emit(channel.getLabel(), count, context);
+                countAggregated(count);
+                channelCounts[channel.ordinal()] = 0;
+            }
+        }
+    }
+
+    /**
+     * Rótulo de saída do campo use_chip (canal conhecido ou tipo derivado do texto)
+     */
+    public static String transactionType(String useChipRaw) {
+        TransactionChannel channel = TransactionChannel.fromUseChip(normalizeUseChip(useChipRaw));
+        return channel != null ? channel.getLabel() : processTransactionType(useChipRaw);
+    }
+
+    /**
+     * Normaliza o campo use_chip (trim, sem aspas, maiúsculas)
+     */
+    private static String normalizeUseChip(String useChipRaw) {
+        if (useChipRaw == null) {
+            return "";
+        }
+        return useChipRaw.trim().replace("\"", "").toUpperCase();
+    }
+
     /**
      * Processa e classifica o tipo de transação baseado no campo use_chip
      */
-    private String processTransactionType(String useChipRaw) {
+    private static String processTransactionType(String useChipRaw) {
         if (useChipRaw == null || useChipRaw.trim().isEmpty()) {
             return "Unknown Transaction";
         }
@@ -135,7 +181,7 @@ public class ChipUsageCountMapper extends Mapper<LongWritable, Text, Text, IntWr
     /**
      * Capitaliza palavras para formatação consistente
      */
-    private String capitalizeWords(String input) {
+    private static String capitalizeWords(String input) {
         if (input == null || input.isEmpty()) {
             return input;
         }
@@ -6,17 +6,18 @@ import java.util.List;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapreduce.Mapper;
+import routines.common.InMapperAggregationMapper;
+import routines.common.MccIndex;
 
 /**
  * Mapper class para ErrorCountByMCC
- * Processa cada linha de transação CSV e emite pares (MCC, 1) apenas para transações com erro
+ * Processa cada linha de transação CSV e agrega (MCC, contagem) apenas para transações com erro,
+ * emitindo os totais parciais no flush/cleanup (ver InMapperAggregationMapper)
  */
-public class ErrorCountByMCCMapper extends Mapper<LongWritable, Text, Text, IntWritable> {
+public class ErrorCountByMCCMapper extends InMapperAggregationMapper<IntWritable> {
 
-    // Objetos reutilizáveis para otimização
-    private final static IntWritable one = new IntWritable(1);
-    private Text outputKey = new Text();
+    // Contagens de erro para MCCs de 4 dígitos, indexadas pelo próprio código (0..9999)
+    private final long[] errorCountsByMcc = new long[MccIndex.DOMAIN_SIZE];
 
     // Contadores para estatísticas
     private long recordsProcessed = 0;
@@ -72,8 +73,12 @@ public class ErrorCountByMCCMapper extends Mapper<LongWritable, Text, Text, IntW
 
             // Se há erro válido e MCC válido, emitir resultado
             if (!mcc.isEmpty() && hasError(errorStatus)) {
-                outputKey.set(mcc);
-                context.write(outputKey, one);
+                int mccIndex = MccIndex.index(mcc);
+                if (mccIndex >= 0) {
+                    errorCountsByMcc[mccIndex]++;
+                } else {
+                    aggregate(mcc, 1, context);
+                }
                 recordsWithErrors++;
                 validRecords++;
             } else if (!mcc.isEmpty() && !hasError(errorStatus)) {
@@ -96,10 +101,44 @@ public class ErrorCountByMCCMapper extends Mapper<LongWritable, Text, Text, IntW
         }
     }
 
+    @Override
+    protected IntWritable createOutputValue() {
+        return new IntWritable();
+    }
+
+    @Override
+    protected void setOutputValue(IntWritable value, long total) {
+        value.set((int) total);
+    }
+
+    @Override
+    protected void flushDomainCounters(Context context) throws IOException, InterruptedException {
+        for (int i = 0; i < errorCountsByMcc.length; i++) {
+            long count = errorCountsByMcc[i];
+            if (count > 0) {
+                emit(MccIndex.code(i), count, context);
+                countAggregated(count);
+                errorCountsByMcc[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Chave de saída da transação (MCC) ou null se ela não tiver erro
+     */
+    public static String errorKey(String mccRaw, String errorRaw) {
+        String mcc = processMCC(mccRaw);
+        if (mcc.isEmpty() || !hasError(processError(errorRaw))) {
+            return null;
+        }
+        int mccIndex = MccIndex.index(mcc);
+        return mccIndex >= 0 ? MccIndex.code(mccIndex) : mcc;
+    }
+
     /**
      * Processa e valida o código MCC (Merchant Category Code)
      */
-    private String processMCC(String mccRaw) {
+    private static String processMCC(String mccRaw) {
         if (mccRaw == null || mccRaw.trim().isEmpty()) {
             return "UNKNOWN_MCC";
         }
@@ -126,7 +165,7 @@ public class ErrorCountByMCCMapper extends Mapper<LongWritable, Text, Text, IntW
     /**
      * Processa o campo de erro
      */
-    private String processError(String errorRaw) {
+    private static String processError(String errorRaw) {
         if (errorRaw == null || errorRaw.trim().isEmpty()) {
             return "NO_ERROR";
         }
@@ -144,7 +183,7 @@ public class ErrorCountByMCCMapper extends Mapper<LongWritable, Text, Text, IntW
     /**
      * Determina se há erro baseado no conteúdo do campo de erro
      */
-    private boolean hasError(String errorStatus) {
+    private static boolean hasError(String errorStatus) {
         if (errorStatus == null || errorStatus.isEmpty()) {
             return false;
         }
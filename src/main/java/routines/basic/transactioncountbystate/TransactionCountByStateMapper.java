@@ -2,23 +2,19 @@ package routines.basic.transactioncountbystate;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapreduce.Mapper;
+import routines.common.InMapperAggregationMapper;
+import routines.common.StateCode;
 
 /**
  * Mapper class para TransactionCountByState
- * Processa cada linha de transação CSV e emite pares (estado, 1)
+ * Processa cada linha de transação CSV e agrega (estado, contagem) em memória,
+ * emitindo os totais parciais no flush/cleanup (ver InMapperAggregationMapper)
  */
-public class TransactionCountByStateMapper extends Mapper<LongWritable, Text, Text, IntWritable> {
-
-    // Objetos reutilizáveis para otimização
-    private final static IntWritable one = new IntWritable(1);
-    private Text outputKey = new Text();
+public class TransactionCountByStateMapper extends InMapperAggregationMapper<IntWritable> {
 
     // Contadores para estatísticas
     private long recordsProcessed = 0;
@@ -28,8 +24,13 @@ public class TransactionCountByStateMapper extends Mapper<LongWritable, Text, Te
     private long onlineTransactions = 0;
     private long unknownStates = 0;
 
-    // Set para rastrear estados únicos vistos durante o processamento
-    private Set<String> statesEncountered = new HashSet<>();
+    // Contagens por estado indexadas pelo ordinal de StateCode, com dois slots extras
+    // para ONLINE e UNKNOWN (substitui o HashSet de estados encontrados)
+    private static final StateCode[] STATES = StateCode.values();
+    private static final int ONLINE_SLOT = StateCode.COUNT;
+    private static final int UNKNOWN_SLOT = StateCode.COUNT + 1;
+    private final long[] stateCounts = new long[StateCode.COUNT + 2];
+    private int statesEncountered = 0;
 
     /**
      * Método map - processa cada linha do arquivo CSV
@@ -69,21 +70,19 @@ public class TransactionCountByStateMapper extends Mapper<LongWritable, Text, Te
             String merchantCityRaw = cols[7];
 
             // Processar estado do comerciante
-            String state = processMerchantState(merchantStateRaw, merchantCityRaw);
+            int slot = processMerchantState(merchantStateRaw, merchantCityRaw);
 
             // Rastrear tipos especiais de transação
-            if ("ONLINE".equals(state)) {
+            if (slot == ONLINE_SLOT) {
                 onlineTransactions++;
-            } else if ("UNKNOWN".equals(state)) {
+            } else if (slot == UNKNOWN_SLOT) {
                 unknownStates++;
             }
 
-            // Adicionar ao set de estados encontrados
-            statesEncountered.add(state);
-
-            // Emitir resultado
-            outputKey.set(state);
-            context.write(outputKey, one);
+            // Contar no slot do estado (emitido no cleanup)
+            if (stateCounts[slot]++ == 0) {
+                statesEncountered++;
+            }
             validRecords++;
 
         } catch (Exception e) {
@@ -94,15 +93,50 @@ public class TransactionCountByStateMapper extends Mapper<LongWritable, Text, Te
         // Log de progresso a cada 50000 registros
         if (recordsProcessed % 50000 == 0) {
             context.setStatus("Processados " + recordsProcessed + " registros. " +
-                    "Válidos: " + validRecords + ", Estados únicos: " + statesEncountered.size());
+                    "Válidos: " + validRecords + ", Estados únicos: " + statesEncountered);
+        }
+    }
+
+    @Override
+    protected IntWritable createOutputValue() {
+        return new IntWritable();
+    }
+
+    @Override
+    protected void setOutputValue(IntWritable value, long total) {
+        value.set((int) total);
+    }
+
+    @Override
+    protected void flushDomainCounters(Context context) throws IOException, InterruptedException {
+        for (int slot = 0; slot < stateCounts.length; slot++) {
+            long count = stateCounts[slot];
+            if (count > 0) {
+                emit(slotLabel(slot), count, context);
+                countAggregated(count);
+                stateCounts[slot] = 0;
+            }
         }
     }
 
+    /**
+     * Rótulo de saída da transação (código do estado, ONLINE ou UNKNOWN)
+     */
+    public static String stateLabel(String stateRaw, String cityRaw) {
+        return slotLabel(processMerchantState(stateRaw, cityRaw));
+    }
+
     /**
      * Processa e valida o estado do comerciante
+     * @return slot em stateCounts (ordinal do estado, ONLINE_SLOT ou UNKNOWN_SLOT)
      */
-    private String processMerchantState(String stateRaw, String cityRaw) {
-        // Primeiro, processar o campo de estado
+    private static int processMerchantState(String stateRaw, String cityRaw) {
+        // Caminho rápido: código de estado americano válido (2 letras)
+        StateCode code = StateCode.parse(stateRaw);
+        if (code != null) {
+            return code.ordinal();
+        }
+
         String state = null;
         if (stateRaw != null && !stateRaw.trim().isEmpty()) {
             state = stateRaw.trim()
@@ -114,50 +148,27 @@ public class TransactionCountByStateMapper extends Mapper<LongWritable, Text, Te
         if (state == null || state.isEmpty() || state.equals("NULL") || state.equals("N/A")) {
             // Verificar se é transação online baseada na cidade
             if (cityRaw != null && "ONLINE".equalsIgnoreCase(cityRaw.trim().replace("\"", ""))) {
-                return "ONLINE";
+                return ONLINE_SLOT;
             } else {
-                return "UNKNOWN";
+                return UNKNOWN_SLOT;
             }
         }
 
-        // Validar códigos de estado americanos (2 letras)
-        if (isValidUSState(state)) {
-            return state;
-        } else {
-            // Se não é um código de estado válido, verificar outros casos
-            if (state.equals("ONLINE")) {
-                return "ONLINE";
-            } else {
-                return "UNKNOWN";
-            }
-        }
+        // Se não é um código de estado válido, verificar outros casos
+        return state.equals("ONLINE") ? ONLINE_SLOT : UNKNOWN_SLOT;
     }
 
     /**
-     * Verifica se é um código de estado americano válido
+     * Rótulo de saída de um slot (código do estado, ONLINE ou UNKNOWN)
      */
-    private boolean isValidUSState(String state) {
-        if (state == null || state.length() != 2) {
-            return false;
+    private static String slotLabel(int slot) {
+        if (slot == ONLINE_SLOT) {
+            return "ONLINE";
         }
-
-        // Lista completa de códigos de estado americanos
-        Set<String> validStates = new HashSet<>();
-        validStates.add("AL"); validStates.add("AK"); validStates.add("AZ"); validStates.add("AR");
-        validStates.add("CA"); validStates.add("CO"); validStates.add("CT"); validStates.add("DE");
-        validStates.add("FL"); validStates.add("GA"); validStates.add("HI"); validStates.add("ID");
-        validStates.add("IL"); validStates.add("IN"); validStates.add("IA"); validStates.add("KS");
-        validStates.add("KY"); validStates.add("LA"); validStates.add("ME"); validStates.add("MD");
-        validStates.add("MA"); validStates.add("MI"); validStates.add("MN"); validStates.add("MS");
-        validStates.add("MO"); validStates.add("MT"); validStates.add("NE"); validStates.add("NV");
-        validStates.add("NH"); validStates.add("NJ"); validStates.add("NM"); validStates.add("NY");
-        validStates.add("NC"); validStates.add("ND"); validStates.add("OH"); validStates.add("OK");
-        validStates.add("OR"); validStates.add("PA"); validStates.add("RI"); validStates.add("SC");
-        validStates.add("SD"); validStates.add("TN"); validStates.add("TX"); validStates.add("UT");
-        validStates.add("VT"); validStates.add("VA"); validStates.add("WA"); validStates.add("WV");
-        validStates.add("WI"); validStates.add("WY"); validStates.add("DC"); // District of Columbia
-
-        return validStates.contains(state);
+        if (slot == UNKNOWN_SLOT) {
+            return "UNKNOWN";
+        }
+        return STATES[slot].name();
     }
 
     /**
@@ -171,7 +182,7 @@ public class TransactionCountByStateMapper extends Mapper<LongWritable, Text, Te
         System.out.println("  Cabeçalhos ignorados: " + headerSkipped);
         System.out.println("  Registros válidos: " + validRecords);
         System.out.println("  Registros inválidos: " + invalidRecords);
-        System.out.println("  Estados únicos encontrados: " + statesEncountered.size());
+        System.out.println("  Estados únicos encontrados: " + statesEncountered);
         System.out.println("  Transações online: " + onlineTransactions);
         System.out.println("  Estados desconhecidos: " + unknownStates);
 
@@ -185,8 +196,13 @@ public class TransactionCountByStateMapper extends Mapper<LongWritable, Text, Te
         }
 
         // Mostrar amostra dos estados encontrados
-        System.out.println("  Amostra de estados encontrados: " +
-                statesEncountered.toString().replaceAll("[\\[\\]]", ""));
+        List<String> sample = new ArrayList<>();
+        for (int slot = 0; slot < stateCounts.length; slot++) {
+            if (stateCounts[slot] > 0) {
+                sample.add(slotLabel(slot));
+            }
+        }
+        System.out.println("  Amostra de estados encontrados: " + String.join(", ", sample));
 
         System.out.println("========================================");
         super.cleanup(context);
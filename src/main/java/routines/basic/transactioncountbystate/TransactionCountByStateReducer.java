@@ -1,11 +1,11 @@
 package routines.basic.transactioncountbystate;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
+import routines.common.StateCode;
+import routines.common.USRegion;
 
 /**
  * Reducer class para TransactionCountByState
@@ -26,8 +26,8 @@ public class TransactionCountByStateReducer extends Reducer<Text, IntWritable, T
     private long onlineTransactions = 0;
     private long unknownStateTransactions = 0;
 
-    // Mapa para análise por região
-    private Map<String, Long> regionCounts = new HashMap<>();
+    // Acumulador para análise por região, indexado pelo ordinal de USRegion
+    private final long[] regionCounts = new long[USRegion.values().length];
 
     /**
      * Método reduce - agrega contagens para cada estado
@@ -40,6 +40,7 @@ public class TransactionCountByStateReducer extends Reducer<Text, IntWritable, T
             throws IOException, InterruptedException {
 
         String state = key.toString();
+        StateCode stateCode = StateCode.parse(state);
         int stateCount = 0;
 
         // Somar todas as contagens para este estado
@@ -70,15 +71,14 @@ public class TransactionCountByStateReducer extends Reducer<Text, IntWritable, T
 
         // Rastrear estado menos ativo (excluindo especiais e apenas estados válidos)
         if (!state.equals("ONLINE") && !state.equals("UNKNOWN") &&
-                isValidUSState(state) && stateCount < lowestCount) {
+                stateCode != null && stateCount < lowestCount) {
             lowestCount = stateCount;
             leastActiveState = state;
         }
 
         // Análise por região geográfica
-        if (isValidUSState(state)) {
-            String region = getUSRegion(state);
-            regionCounts.put(region, regionCounts.getOrDefault(region, 0L) + stateCount);
+        if (stateCode != null) {
+            regionCounts[stateCode.getRegion().ordinal()] += stateCount;
         }
 
         // Log para estados com muitas transações
@@ -158,7 +158,13 @@ public class TransactionCountByStateReducer extends Reducer<Text, IntWritable, T
      * Análise de distribuição por região geográfica dos EUA
      */
     private void analyzeByRegion() {
-        if (regionCounts.isEmpty()) {
+        int regionsWithData = 0;
+        for (long count : regionCounts) {
+            if (count > 0) {
+                regionsWithData++;
+            }
+        }
+        if (regionsWithData == 0) {
             return;
         }
 
@@ -167,78 +173,31 @@ public class TransactionCountByStateReducer extends Reducer<Text, IntWritable, T
         // Encontrar região com mais transações
         String topRegion = "";
         long topRegionCount = 0;
-        for (Map.Entry<String, Long> entry : regionCounts.entrySet()) {
-            if (entry.getValue() > topRegionCount) {
-                topRegionCount = entry.getValue();
-                topRegion = entry.getKey();
+        for (USRegion region : USRegion.values()) {
+            long count = regionCounts[region.ordinal()];
+            if (count == 0) {
+                continue;
+            }
+            if (count > topRegionCount) {
+                topRegionCount = count;
+                topRegion = region.getDisplayName();
             }
 
-            double regionPercentage = (double) entry.getValue() / totalTransactions * 100;
-            System.out.println("    " + entry.getKey() + ": " + entry.getValue() +
+            double regionPercentage = (double) count / totalTransactions * 100;
+            System.out.println("    " + region.getDisplayName() + ": " + count +
                     " (" + String.format("%.2f%%", regionPercentage) + ")");
         }
 
         System.out.println("  Região dominante: " + topRegion + " com " + topRegionCount + " transações");
 
         // Análise de distribuição
-        if (regionCounts.size() >= 4) { // Se temos representação das 4 regiões principais
+        if (regionsWithData >= 4) { // Se temos representação das 4 regiões principais
             System.out.println("  Distribuição geográfica: Bem distribuída entre regiões");
         } else {
             System.out.println("  Distribuição geográfica: Concentrada em poucas regiões");
         }
     }
 
-    /**
-     * Mapeia estados para regiões geográficas dos EUA
-     */
-    private String getUSRegion(String state) {
-        if (state == null || state.length() != 2) {
-            return "Unknown";
-        }
-
-        switch (state) {
-            // Northeast
-            case "CT": case "ME": case "MA": case "NH": case "NJ":
-            case "NY": case "PA": case "RI": case "VT":
-                return "Northeast";
-
-            // Southeast
-            case "AL": case "AR": case "FL": case "GA": case "KY":
-            case "LA": case "MS": case "NC": case "SC": case "TN":
-            case "VA": case "WV": case "MD": case "DE": case "DC":
-                return "Southeast";
-
-            // Midwest
-            case "IL": case "IN": case "IA": case "KS": case "MI":
-            case "MN": case "MO": case "NE": case "ND": case "OH":
-            case "SD": case "WI":
-                return "Midwest";
-
-            // Southwest
-            case "AZ": case "NM": case "OK": case "TX":
-                return "Southwest";
-
-            // West
-            case "AK": case "CA": case "CO": case "HI": case "ID":
-            case "MT": case "NV": case "OR": case "UT": case "WA": case "WY":
-                return "West";
-
-            default:
-                return "Unknown";
-        }
-    }
-
-    /**
-     * Verifica se é um código de estado americano válido
-     */
-    private boolean isValidUSState(String state) {
-        if (state == null || state.length() != 2) {
-            return false;
-        }
-        return !state.equals("ONLINE") && !state.equals("UNKNOWN") &&
-                getUSRegion(state) != null && !getUSRegion(state).equals("Unknown");
-    }
-
     /**
      * Obtém o nome completo do estado baseado no código
      */
@@ -247,34 +206,7 @@ public class TransactionCountByStateReducer extends Reducer<Text, IntWritable, T
             return "Unknown State";
         }
 
-        Map<String, String> stateNames = new HashMap<>();
-        stateNames.put("AL", "Alabama"); stateNames.put("AK", "Alaska");
-        stateNames.put("AZ", "Arizona"); stateNames.put("AR", "Arkansas");
-        stateNames.put("CA", "California"); stateNames.put("CO", "Colorado");
-        stateNames.put("CT", "Connecticut"); stateNames.put("DE", "Delaware");
-        stateNames.put("FL", "Florida"); stateNames.put("GA", "Georgia");
-        stateNames.put("HI", "Hawaii"); stateNames.put("ID", "Idaho");
-        stateNames.put("IL", "Illinois"); stateNames.put("IN", "Indiana");
-        stateNames.put("IA", "Iowa"); stateNames.put("KS", "Kansas");
-        stateNames.put("KY", "Kentucky"); stateNames.put("LA", "Louisiana");
-        stateNames.put("ME", "Maine"); stateNames.put("MD", "Maryland");
-        stateNames.put("MA", "Massachusetts"); stateNames.put("MI", "Michigan");
-        stateNames.put("MN", "Minnesota"); stateNames.put("MS", "Mississippi");
-        stateNames.put("MO", "Missouri"); stateNames.put("MT", "Montana");
-        stateNames.put("NE", "Nebraska"); stateNames.put("NV", "Nevada");
-        stateNames.put("NH", "New Hampshire"); stateNames.put("NJ", "New Jersey");
-        stateNames.put("NM", "New Mexico"); stateNames.put("NY", "New York");
-        stateNames.put("NC", "North Carolina"); stateNames.put("ND", "North Dakota");
-        stateNames.put("OH", "Ohio"); stateNames.put("OK", "Oklahoma");
-        stateNames.put("OR", "Oregon"); stateNames.put("PA", "Pennsylvania");
-        stateNames.put("RI", "Rhode Island"); stateNames.put("SC", "South Carolina");
-        stateNames.put("SD", "South Dakota"); stateNames.put("TN", "Tennessee");
-        stateNames.put("TX", "Texas"); stateNames.put("UT", "Utah");
-        stateNames.put("VT", "Vermont"); stateNames.put("VA", "Virginia");
-        stateNames.put("WA", "Washington"); stateNames.put("WV", "West Virginia");
-        stateNames.put("WI", "Wisconsin"); stateNames.put("WY", "Wyoming");
-        stateNames.put("DC", "District of Columbia");
-
-        return stateNames.getOrDefault(code, "Unknown State: " + code);
+        StateCode stateCode = StateCode.parse(code);
+        return stateCode != null ? stateCode.getDisplayName() : "Unknown State: " + code;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,233 @@
+package routines.common;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+// Para executar configure os argumentos da seguinte forma ({profile} é substituído pelo perfil):
+// routines.advanced.merchanthrisk.MerchantHealthRisk src/main/resources/transactions_data.csv
+//     output/bench/{profile}/stage1 output/bench/{profile}/final 1 local
+
+/**
+ * Benchmark dos perfis de compressão ({@link CompressionProfile}) sobre uma rotina qualquer
+ *
+ * Para cada perfil executa a rotina numa JVM separada (mesmo classpath, JIT frio em todos
+ * os perfis) com -Dfta.compression=<perfil> e relata:
+ *   - shuffle: soma de "Map output materialized bytes" de todos os jobs da rotina
+ *   - saída:   bytes gravados nos caminhos que contêm {profile}
+ *   - CPU:     tempo de CPU do processo filho (todas as threads, inclusive o LocalJobRunner)
+ *   - parede:  tempo total da execução
+ *
+ * Configuração (via -D, antes do nome da rotina):
+ *   fta.compression.profiles       - perfis a comparar (padrão: none,fast,dense)
+ *   fta.compression.benchmark.runs - execuções por perfil; relata a mediana (padrão: 1)
+ *   fta.compression.benchmark.logs - diretório dos logs das execuções (padrão: java.io.tmpdir)
+ */
+public class CompressionBenchmark extends Configured implements Tool {
+
+    public static final String PROFILES_KEY = "fta.compression.profiles";
+    public static final String RUNS_KEY = "fta.compression.benchmark.runs";
+    public static final String LOGS_KEY = "fta.compression.benchmark.logs";
+
+    private static final String PROFILE_PLACEHOLDER = "{profile}";
+    private static final String CHILD_FLAG = "--child";
+    private static final String CPU_MARKER = "fta.benchmark.cpu.ms=";
+    private static final String SHUFFLE_COUNTER = "Map output materialized bytes=";
+
+    /** Métricas de uma execução */
+    private static final class Measurement {
+        long shuffleBytes;
+        long outputBytes;
+        long cpuMillis;
+        long wallMillis;
+    }
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: CompressionBenchmark [-Dfta.compression.profiles=none,fast,dense] " +
+                    "<routine_class> <routine args com {profile} nos caminhos de saída...>");
+            return -1;
+        }
+
+        Configuration conf = getConf();
+        String routineClass = args[0];
+        List<String> routineArgs = Arrays.asList(args).subList(1, args.length);
+        List<CompressionProfile> profiles = new ArrayList<>();
+        for (String name : conf.getTrimmedStrings(PROFILES_KEY, "none", "fast", "dense")) {
+            Configuration single = new Configuration(false);
+            single.set(CompressionProfile.KEY, name);
+            profiles.add(CompressionProfile.fromConf(single));
+        }
+        int runs = Math.max(1, conf.getInt(RUNS_KEY, 1));
+        File logDir = new File(conf.get(LOGS_KEY, System.getProperty("java.io.tmpdir")));
+
+        System.out.println("========================================");
+        System.out.println("CompressionBenchmark - " + routineClass);
+        System.out.println("  Argumentos: " + String.join(" ", routineArgs));
+        System.out.println("  Perfis: " + profiles + " | Execuções por perfil: " + runs);
+        System.out.println("  Logs: " + logDir);
+        System.out.println("========================================");
+
+        List<Measurement> results = new ArrayList<>();
+        for (CompressionProfile profile : profiles) {
+            List<Measurement> samples = new ArrayList<>();
+            for (int run = 1; run <= runs; run++) {
+                Measurement m = runOnce(conf, profile, routineClass, routineArgs, logDir, run);
+                if (m == null) {
+                    return 1;
+                }
+                samples.add(m);
+            }
+            samples.sort((a, b) -> Long.compare(a.wallMillis, b.wallMillis));
+            results.add(samples.get(samples.size() / 2));
+        }
+
+        // Relatório
+        Measurement baseline = results.get(0);
+        System.out.println();
+        System.out.println("========================================");
+        System.out.println("Relatório (mediana de " + runs + " execução(ões); relativo a " +
+                profiles.get(0).name().toLowerCase() + ")");
+        System.out.println(String.format("  %-6s | %16s | %16s | %16s | %16s",
+                "Perfil", "Shuffle (B)", "Saída (B)", "CPU (ms)", "Parede (ms)"));
+        for (int i = 0; i < profiles.size(); i++) {
+            Measurement m = results.get(i);
+            System.out.println(String.format("  %-6s | %16s | %16s | %16s | %16s",
+                    profiles.get(i).name().toLowerCase(),
+                    withRatio(m.shuffleBytes, baseline.shuffleBytes),
+                    withRatio(m.outputBytes, baseline.outputBytes),
+                    withRatio(m.cpuMillis, baseline.cpuMillis),
+                    withRatio(m.wallMillis, baseline.wallMillis)));
+        }
+        System.out.println("========================================");
+        return 0;
+    }
+
+    private Measurement runOnce(Configuration conf, CompressionProfile profile, String routineClass,
+                                List<String> routineArgs, File logDir, int run) throws Exception {
+        String profileName = profile.name().toLowerCase();
+
+        // Caminhos de saída do perfil: removidos antes da execução
+        List<String> args = new ArrayList<>();
+        List<Path> outputs = new ArrayList<>();
+        for (String arg : routineArgs) {
+            if (arg.contains(PROFILE_PLACEHOLDER)) {
+                arg = arg.replace(PROFILE_PLACEHOLDER, profileName);
+                Path path = new Path(arg);
+                path.getFileSystem(conf).delete(path, true);
+                outputs.add(path);
+            }
+            args.add(arg);
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(CompressionBenchmark.class.getName());
+        command.add(CHILD_FLAG);
+        command.add(routineClass);
+        command.add("-D" + CompressionProfile.KEY + "=" + profileName);
+        command.addAll(args);
+
+        File log = new File(logDir, "compression_benchmark_" + profileName + "_" + run + ".log");
+        System.out.println("Executando perfil " + profileName + " (execução " + run + ")... log: " + log);
+
+        long start = System.currentTimeMillis();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(log).start();
+        int exitCode = process.waitFor();
+        Measurement m = new Measurement();
+        m.wallMillis = System.currentTimeMillis() - start;
+
+        if (exitCode != 0) {
+            System.err.println("Rotina falhou com o perfil " + profileName + " (código " + exitCode + "), veja " + log);
+            return null;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(log), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int shuffle = line.indexOf(SHUFFLE_COUNTER);
+                if (shuffle >= 0) {
+                    m.shuffleBytes += Long.parseLong(line.substring(shuffle + SHUFFLE_COUNTER.length()).trim());
+                } else if (line.startsWith(CPU_MARKER)) {
+                    m.cpuMillis = Long.parseLong(line.substring(CPU_MARKER.length()).trim());
+                }
+            }
+        }
+        for (Path output : outputs) {
+            m.outputBytes += dataBytes(output.getFileSystem(conf), output);
+        }
+        return m;
+    }
+
+    /**
+     * Bytes dos arquivos de dados (ignora _SUCCESS e .crc)
+     */
+    private static long dataBytes(FileSystem fs, Path path) throws IOException {
+        if (!fs.exists(path)) {
+            return 0;
+        }
+        long total = 0;
+        for (FileStatus status : fs.listStatus(path)) {
+            String name = status.getPath().getName();
+            if (status.isDirectory()) {
+                total += dataBytes(fs, status.getPath());
+            } else if (!name.startsWith("_") && !name.startsWith(".")) {
+                total += status.getLen();
+            }
+        }
+        return total;
+    }
+
+    private static String withRatio(long value, long baseline) {
+        if (baseline <= 0) {
+            return String.valueOf(value);
+        }
+        return String.format("%d (%.2fx)", value, (double) value / baseline);
+    }
+
+    /**
+     * Execução no processo filho: roda a rotina e imprime o tempo de CPU do processo
+     */
+    private static int runChild(String[] args) throws Exception {
+        Class<?> routine = Class.forName(args[0]);
+        Tool tool = (Tool) ReflectionUtils.newInstance(routine, null);
+        int exitCode = ToolRunner.run(new Configuration(), tool, Arrays.copyOfRange(args, 1, args.length));
+
+        long cpuNanos = ((com.sun.management.OperatingSystemMXBean)
+                ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+        System.out.println(CPU_MARKER + (cpuNanos / 1_000_000L));
+        return exitCode;
+    }
+
+    /**
+     * Método main - ponto de entrada da aplicação
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && CHILD_FLAG.equals(args[0])) {
+            System.exit(runChild(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
+        int exitCode = ToolRunner.run(new Configuration(), new CompressionBenchmark(), args);
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,98 @@
+package routines.common;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.SnappyCodec;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+
+/**
+ * Perfis de compressão aplicados por todos os drivers (-Dfta.compression=none|fast|dense).
+ *
+ *   none  - sem alterações (padrão; respeita mapreduce.* passados via -D)
+ *   fast  - Snappy na saída dos maps, nos dados entre jobs e na saída final
+ *   dense - Deflate na saída dos maps e entre jobs, BZip2 (divisível) na saída final
+ *
+ * Dados entre jobs: SequenceFiles usam compressão por BLOCO; saídas texto intermediárias
+ * são compactadas com o mesmo codec (TextInputFormat descompacta de forma transparente).
+ * Saídas compactadas são lidas com "hadoop fs -text", não com cat.
+ */
+public enum CompressionProfile {
+    NONE(null, null, null),
+    FAST(SnappyCodec.class, SnappyCodec.class, SnappyCodec.class),
+    DENSE(DefaultCodec.class, DefaultCodec.class, BZip2Codec.class);
+
+    public static final String KEY = "fta.compression";
+
+    private final Class<? extends CompressionCodec> mapOutputCodec;
+    private final Class<? extends CompressionCodec> intermediateCodec;
+    private final Class<? extends CompressionCodec> finalCodec;
+
+    CompressionProfile(Class<? extends CompressionCodec> mapOutputCodec,
+                       Class<? extends CompressionCodec> intermediateCodec,
+                       Class<? extends CompressionCodec> finalCodec) {
+        this.mapOutputCodec = mapOutputCodec;
+        this.intermediateCodec = intermediateCodec;
+        this.finalCodec = finalCodec;
+    }
+
+    /**
+     * Perfil configurado em fta.compression
+     * @throws IllegalArgumentException se o valor não for none, fast ou dense
+     */
+    public static CompressionProfile fromConf(Configuration conf) {
+        String value = conf.get(KEY, NONE.name()).trim();
+        try {
+            return valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(KEY + " inválido: '" + value + "' (use none, fast ou dense)");
+        }
+    }
+
+    /**
+     * Job cuja saída é lida por outro job do pipeline
+     */
+    public void applyIntermediate(Job job) {
+        apply(job, intermediateCodec);
+    }
+
+    /**
+     * Job que produz a saída final da rotina
+     */
+    public void applyFinal(Job job) {
+        apply(job, finalCodec);
+    }
+
+    private void apply(Job job, Class<? extends CompressionCodec> outputCodec) {
+        if (this == NONE) {
+            return;
+        }
+        Configuration conf = job.getConfiguration();
+
+        // Shuffle: saída dos maps
+        conf.setBoolean(MRJobConfig.MAP_OUTPUT_COMPRESS, true);
+        conf.setClass(MRJobConfig.MAP_OUTPUT_COMPRESS_CODEC, mapOutputCodec, CompressionCodec.class);
+
+        // Saída do job (texto ou SequenceFile por bloco)
+        FileOutputFormat.setCompressOutput(job, true);
+        FileOutputFormat.setOutputCompressorClass(job, outputCodec);
+        SequenceFileOutputFormat.setOutputCompressionType(job, SequenceFile.CompressionType.BLOCK);
+    }
+
+    /**
+     * Descrição para os logs dos drivers
+     */
+    public String describe() {
+        if (this == NONE) {
+            return "none";
+        }
+        return name().toLowerCase() + " (map: " + mapOutputCodec.getSimpleName() +
+                ", entre jobs: " + intermediateCodec.getSimpleName() +
+                ", final: " + finalCodec.getSimpleName() + ")";
+    }
+}
@@ -0,0 +1,152 @@
+package routines.common;
+
+import java.io.IOException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Mapper;
+
+/**
+ * Mapper base com agregação in-mapper (in-mapper combining).
+ *
+ * Em vez de emitir um par (chave, valor) por transação e deixar o Combiner colapsar
+ * milhões de registros após serialização/ordenação/spill, as subclasses chamam
+ * {@link #aggregate(String, long, Context)} e os valores são somados em um
+ * {@link StringLongHashMap}. O mapa é descarregado (flush) quando o orçamento de
+ * memória ou de entradas é excedido e, obrigatoriamente, no cleanup().
+ *
+ * Configuração:
+ *   fta.inmapper.memory.mb   - orçamento de memória do mapa (padrão: 32 MB)
+ *   fta.inmapper.max.entries - máximo de chaves distintas antes do flush (padrão: 500000)
+ *
+ * O Combiner/Reducer existentes continuam válidos, pois a operação é uma soma.
+ * Estas rotinas não usam o modo anti-skew ({@link SkewedKeys}): cada chave já chega ao
+ * shuffle como poucos registros por map task, e não há o que espalhar entre reducers.
+ *
+ * @param <V> tipo do valor de saída (IntWritable, LongWritable, ...)
+ */
+public abstract class InMapperAggregationMapper<V extends Writable>
+        extends Mapper<LongWritable, Text, Text, V> {
+
+    public static final String MEMORY_MB_KEY = "fta.inmapper.memory.mb";
+    public static final String MAX_ENTRIES_KEY = "fta.inmapper.max.entries";
+
+    public static final int DEFAULT_MEMORY_MB = 32;
+    public static final int DEFAULT_MAX_ENTRIES = 500000;
+
+    // Agregação em memória e objetos reutilizáveis de saída
+    private final StringLongHashMap buffer = new StringLongHashMap(1024);
+    private final Text aggKey = new Text();
+    private V aggValue;
+
+    private long memoryBudgetBytes;
+    private int maxEntries;
+
+    // Contadores para estatísticas
+    private long aggregatedInputs = 0;
+    private long emittedPairs = 0;
+    private int flushCount = 0;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration conf = context.getConfiguration();
+        memoryBudgetBytes = Math.max(1, conf.getInt(MEMORY_MB_KEY, DEFAULT_MEMORY_MB)) * 1024L * 1024L;
+        maxEntries = Math.max(1, conf.getInt(MAX_ENTRIES_KEY, DEFAULT_MAX_ENTRIES));
+        aggValue = createOutputValue();
+    }
+
+    /**
+     * Cria a instância reutilizável do valor de saída.
+     */
+    protected abstract V createOutputValue();
+
+    /**
+     * Copia o total agregado para o valor de saída reutilizável.
+     */
+    protected abstract void setOutputValue(V value, long total);
+
+    /**
+     * Soma delta à chave informada, descarregando o mapa se o orçamento for excedido.
+     */
+    protected final void aggregate(String key, long delta, Context context)
+            throws IOException, InterruptedException {
+        buffer.add(key, delta);
+        aggregatedInputs++;
+
+        if (buffer.size() >= maxEntries || buffer.estimatedBytes() >= memoryBudgetBytes) {
+            flush(context);
+        }
+    }
+
+    /**
+     * Emite um total diretamente, reutilizando os objetos de saída.
+     * Usado pelas subclasses que acumulam domínios fixos em long[] (ver {@link #flushDomainCounters}).
+     */
+    protected final void emit(String key, long total, Context context)
+            throws IOException, InterruptedException {
+        aggKey.set(key);
+        setOutputValue(aggValue, total);
+        context.write(aggKey, aggValue);
+        emittedPairs++;
+    }
+
+    /**
+     * Registra valores acumulados fora do mapa (ex.: em long[] indexado por enum),
+     * para que as estatísticas de redução considerem todas as entradas.
+     */
+    protected final void countAggregated(long inputs) {
+        aggregatedInputs += inputs;
+    }
+
+    /**
+     * Hook para subclasses com acumuladores de domínio fixo (long[]): devem emitir
+     * os totais via {@link #emit} e zerar os arrays. Chamado no cleanup().
+     * Arrays de domínio fixo não crescem, portanto não participam do controle de memória.
+     */
+    protected void flushDomainCounters(Context context) throws IOException, InterruptedException {
+    }
+
+    /**
+     * Emite todas as chaves agregadas e esvazia o mapa.
+     */
+    protected final void flush(Context context) throws IOException, InterruptedException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        for (int slot = 0; slot < buffer.capacity(); slot++) {
+            String key = buffer.keyAt(slot);
+            if (key == null) {
+                continue;
+            }
+            emit(key, buffer.valueAt(slot), context);
+        }
+
+        buffer.clear();
+        flushCount++;
+    }
+
+    /**
+     * Cleanup - descarrega o que restou no mapa e imprime estatísticas da agregação
+     */
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        flushDomainCounters(context);
+        flush(context);
+
+        System.out.println("========================================");
+        System.out.println("Agregação in-mapper:");
+        System.out.println("  Valores agregados: " + aggregatedInputs);
+        System.out.println("  Pares emitidos: " + emittedPairs);
+        System.out.println("  Flushes: " + flushCount);
+        if (emittedPairs > 0) {
+            System.out.println("  Fator de redução: " +
+                    String.format("%.1fx", (double) aggregatedInputs / emittedPairs));
+        }
+        System.out.println("========================================");
+
+        super.cleanup(context);
+    }
+}
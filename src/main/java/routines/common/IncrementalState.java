@@ -0,0 +1,349 @@
+package routines.common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.MultipleInputs;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+
+/**
+ * Modo incremental para rotinas de agregação (AmountByCity, AmountByClient,
+ * TransactionCountByState).
+ *
+ * O estado persistido é o agregado parcial por chave no tipo de saída do mapper (soma em
+ * centavos ou contagem) - o mesmo que o combiner produz - gravado em SequenceFile. Cada
+ * execução:
+ *   1. compara os arquivos da entrada com o manifesto do estado e seleciona só os novos
+ *   2. job de merge: arquivos novos (mapper da rotina) + estado anterior (identidade)
+ *      -> combiner da rotina -> novo estado (SequenceFile)
+ *   3. job de saída: novo estado -> reducer da rotina -> saída texto, idêntica à de uma
+ *      execução completa sobre todos os arquivos
+ *   4. grava o manifesto da nova geração (marca de commit) e remove as anteriores
+ *
+ * Layout do diretório de estado (um subdiretório por rotina, para que várias rotinas do
+ * RoutineLauncher possam receber o mesmo fta.incremental.state, inclusive com --parallel):
+ *   <estado>/<rotina>/v<N>/data/part-r-*   agregados por chave
+ *   <estado>/<rotina>/v<N>/manifest        "#routine" e "#value" (dono do estado) seguidos de
+ *                                          "caminho\ttamanho" dos arquivos já somados
+ *
+ * A geração válida é a maior que tem manifesto; gerações sem manifesto (execução
+ * interrompida) são descartadas. Arquivos já processados não podem mudar de tamanho:
+ * nesse caso o estado deve ser apagado para uma reconstrução completa. A entrada deve ser
+ * um diretório que recebe arquivos novos (ex.: um CSV por dia). Um manifesto de outra rotina
+ * ou de outro tipo de agregado é recusado.
+ *
+ * Configuração (via -D):
+ *   fta.incremental.state - diretório do estado; habilita o modo incremental
+ *
+ * A saída da rotina é regravada a cada execução (é derivada por inteiro do estado).
+ */
+public final class IncrementalState {
+
+    public static final String STATE_DIR_KEY = "fta.incremental.state";
+
+    private static final String GENERATION_PREFIX = "v";
+    private static final String DATA_DIR = "data";
+    private static final String MANIFEST_FILE = "manifest";
+    private static final String ROUTINE_HEADER = "#routine";
+    private static final String VALUE_HEADER = "#value";
+
+    /**
+     * Classes da rotina usadas pelos jobs de merge e de saída
+     */
+    public static final class Spec {
+
+        private final String name;
+        private final Class<?> driverClass;
+        private final Class<? extends Mapper<?, ?, ?, ?>> mapperClass;
+        private final Class<? extends Writable> valueClass;
+        // Raw: combiners genéricos do Hadoop (ex.: IntSumReducer<Key>) só têm literal de classe raw
+        @SuppressWarnings("rawtypes")
+        private final Class<? extends Reducer> combinerClass;
+        private final Class<? extends Reducer<?, ?, ?, ?>> reducerClass;
+        private final Class<? extends Writable> outputValueClass;
+        private boolean intermediateOutput = false;
+
+        /**
+         * @param name nome da rotina (prefixo dos jobs)
+         * @param mapperClass mapper da rotina: CSV -> (Text, valueClass)
+         * @param valueClass tipo do agregado parcial (saída do mapper e do combiner)
+         * @param combinerClass soma agregados parciais; também grava o estado
+         * @param reducerClass reducer final da rotina (gera a saída texto)
+         * @param outputValueClass tipo do valor de saída do reducer final
+         */
+        @SuppressWarnings("rawtypes")
+        public Spec(String name, Class<?> driverClass, Class<? extends Mapper<?, ?, ?, ?>> mapperClass,
+                    Class<? extends Writable> valueClass, Class<? extends Reducer> combinerClass,
+                    Class<? extends Reducer<?, ?, ?, ?>> reducerClass, Class<? extends Writable> outputValueClass) {
+            this.name = name;
+            this.driverClass = driverClass;
+            this.mapperClass = mapperClass;
+            this.valueClass = valueClass;
+            this.combinerClass = combinerClass;
+            this.reducerClass = reducerClass;
+            this.outputValueClass = outputValueClass;
+        }
+
+        /**
+         * Marca a saída como intermediária (lida por outro job da rotina): usa a compressão
+         * de dados entre jobs em vez da compressão da saída final
+         */
+        public Spec intermediateOutput() {
+            this.intermediateOutput = true;
+            return this;
+        }
+    }
+
+    private IncrementalState() {
+    }
+
+    public static boolean isEnabled(Configuration conf) {
+        return !conf.getTrimmed(STATE_DIR_KEY, "").isEmpty();
+    }
+
+    /**
+     * Executa a rotina em modo incremental
+     * @param tuning decisão do auto-tuning (reducers do job de merge)
+     * @return true se os dois jobs terminaram e o novo estado foi gravado
+     */
+    public static boolean run(Configuration conf, Spec spec, Path inputPath, Path outputDir,
+                              JobAutoTuner.Decision tuning) throws Exception {
+        Path stateDir = new Path(conf.getTrimmed(STATE_DIR_KEY), spec.name);
+        FileSystem fs = stateDir.getFileSystem(conf);
+        FileSystem inputFs = inputPath.getFileSystem(conf);
+
+        // Geração atual e arquivos já somados
+        int generation = currentGeneration(fs, stateDir);
+        Path previousData = generation > 0 ? new Path(generationDir(stateDir, generation), DATA_DIR) : null;
+        Map<String, Long> manifest = generation > 0
+                ? readManifest(fs, new Path(generationDir(stateDir, generation), MANIFEST_FILE), spec)
+                : new LinkedHashMap<String, Long>();
+
+        List<FileStatus> newFiles = new ArrayList<>();
+        long newBytes = 0;
+        for (Path file : InputPreview.listInputFiles(conf, inputPath)) {
+            FileStatus status = inputFs.getFileStatus(file);
+            String key = inputFs.makeQualified(file).toString();
+            Long knownLength = manifest.get(key);
+            if (knownLength == null) {
+                newFiles.add(status);
+                newBytes += status.getLen();
+            } else if (knownLength != status.getLen()) {
+                throw new IllegalStateException("Arquivo já incorporado ao estado foi alterado: " + key +
+                        " (" + knownLength + " -> " + status.getLen() + " bytes). Apague " + stateDir +
+                        " para reconstruir o estado a partir de toda a entrada.");
+            }
+        }
+        if (previousData == null && newFiles.isEmpty()) {
+            System.err.println("Modo incremental: nenhum arquivo de entrada em " + inputPath);
+            return false;
+        }
+
+        // Nada novo: o estado atual já está completo, só regrava a saída
+        if (newFiles.isEmpty()) {
+            System.out.println("Modo incremental: nenhum arquivo novo; saída regravada a partir da geração " +
+                    generation + " (" + stateDir + ")");
+            return runOutputJob(conf, spec, previousData, outputDir, tuning.getReducers());
+        }
+
+        int nextGeneration = generation + 1;
+        Path nextDir = generationDir(stateDir, nextGeneration);
+        Path nextData = new Path(nextDir, DATA_DIR);
+        if (fs.exists(nextDir)) {
+            fs.delete(nextDir, true);
+        }
+
+        System.out.println("========================================");
+        System.out.println(spec.name + " - modo incremental:");
+        System.out.println("  Estado: " + stateDir + " (geração " + generation + " -> " + nextGeneration + ")");
+        System.out.println("  Arquivos já incorporados: " + manifest.size());
+        System.out.println("  Arquivos novos: " + newFiles.size() + " (" + newBytes + " bytes)");
+        System.out.println("  Output: " + outputDir + " (regravado a partir do estado)");
+        System.out.println("========================================");
+
+        // Job 1: arquivos novos + estado anterior -> novo estado
+        Job mergeJob = Job.getInstance(conf, spec.name + "_incremental_merge");
+        mergeJob.setJarByClass(spec.driverClass);
+        for (FileStatus file : newFiles) {
+            MultipleInputs.addInputPath(mergeJob, file.getPath(), TextInputFormat.class, spec.mapperClass);
+        }
+        if (previousData != null) {
+            MultipleInputs.addInputPath(mergeJob, previousData, SequenceFileInputFormat.class, Mapper.class);
+        }
+        mergeJob.setMapOutputKeyClass(Text.class);
+        mergeJob.setMapOutputValueClass(spec.valueClass);
+        mergeJob.setCombinerClass(spec.combinerClass);
+        mergeJob.setReducerClass(spec.combinerClass);
+        mergeJob.setOutputKeyClass(Text.class);
+        mergeJob.setOutputValueClass(spec.valueClass);
+        mergeJob.setOutputFormatClass(SequenceFileOutputFormat.class);
+        FileOutputFormat.setOutputPath(mergeJob, nextData);
+        tuning.apply(mergeJob);
+        CompressionProfile.fromConf(conf).applyIntermediate(mergeJob);
+
+        if (!mergeJob.waitForCompletion(true)) {
+            fs.delete(nextDir, true);
+            return false;
+        }
+
+        // Job 2: novo estado -> saída da rotina
+        if (!runOutputJob(conf, spec, nextData, outputDir, tuning.getReducers())) {
+            fs.delete(nextDir, true);
+            return false;
+        }
+
+        // Commit: manifesto da nova geração, depois limpeza das anteriores
+        for (FileStatus file : newFiles) {
+            manifest.put(inputFs.makeQualified(file.getPath()).toString(), file.getLen());
+        }
+        writeManifest(fs, nextDir, spec, manifest);
+        for (FileStatus child : fs.listStatus(stateDir)) {
+            int childGeneration = parseGeneration(child.getPath().getName());
+            if (childGeneration > 0 && childGeneration != nextGeneration) {
+                fs.delete(child.getPath(), true);
+            }
+        }
+
+        System.out.println("Estado incremental gravado: geração " + nextGeneration + ", " +
+                manifest.size() + " arquivo(s) incorporado(s)");
+        return true;
+    }
+
+    /**
+     * Job de saída: agregados do estado -> reducer final da rotina (saída texto)
+     */
+    private static boolean runOutputJob(Configuration conf, Spec spec, Path stateData, Path outputDir,
+                                        int numberOfReducers) throws Exception {
+        FileSystem outputFs = outputDir.getFileSystem(conf);
+        if (outputFs.exists(outputDir)) {
+            outputFs.delete(outputDir, true);
+        }
+        Job outputJob = Job.getInstance(conf, spec.name + "_incremental_output");
+        outputJob.setJarByClass(spec.driverClass);
+        outputJob.setInputFormatClass(SequenceFileInputFormat.class);
+        outputJob.setOutputFormatClass(TextOutputFormat.class);
+        FileInputFormat.addInputPath(outputJob, stateData);
+        FileOutputFormat.setOutputPath(outputJob, outputDir);
+        outputJob.setMapperClass(Mapper.class);
+        outputJob.setMapOutputKeyClass(Text.class);
+        outputJob.setMapOutputValueClass(spec.valueClass);
+        outputJob.setReducerClass(spec.reducerClass);
+        outputJob.setOutputKeyClass(Text.class);
+        outputJob.setOutputValueClass(spec.outputValueClass);
+        outputJob.setNumReduceTasks(numberOfReducers);
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+        if (spec.intermediateOutput) {
+            compression.applyIntermediate(outputJob);
+        } else {
+            compression.applyFinal(outputJob);
+        }
+        return outputJob.waitForCompletion(true);
+    }
+
+    /**
+     * Maior geração com manifesto (0 se o estado ainda não existe)
+     */
+    static int currentGeneration(FileSystem fs, Path stateDir) throws IOException {
+        if (!fs.exists(stateDir)) {
+            return 0;
+        }
+        int current = 0;
+        for (FileStatus child : fs.listStatus(stateDir)) {
+            int generation = parseGeneration(child.getPath().getName());
+            if (generation > current && fs.exists(new Path(child.getPath(), MANIFEST_FILE))) {
+                current = generation;
+            }
+        }
+        return current;
+    }
+
+    private static Path generationDir(Path stateDir, int generation) {
+        return new Path(stateDir, GENERATION_PREFIX + generation);
+    }
+
+    private static int parseGeneration(String name) {
+        if (!name.startsWith(GENERATION_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(GENERATION_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Lê o manifesto: caminho qualificado -> tamanho em bytes
+     * @throws IllegalStateException se o estado pertence a outra rotina ou a outro tipo de agregado
+     */
+    static Map<String, Long> readManifest(FileSystem fs, Path manifestFile, Spec spec) throws IOException {
+        Map<String, Long> manifest = new LinkedHashMap<>();
+        String routine = null;
+        String valueClass = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(fs.open(manifestFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length < 2) {
+                    continue;
+                }
+                if (ROUTINE_HEADER.equals(fields[0])) {
+                    routine = fields[1];
+                } else if (VALUE_HEADER.equals(fields[0])) {
+                    valueClass = fields[1];
+                } else {
+                    manifest.put(fields[0], Long.parseLong(fields[1]));
+                }
+            }
+        }
+        if (!spec.name.equals(routine) || !spec.valueClass.getName().equals(valueClass)) {
+            throw new IllegalStateException("Estado incremental em " + manifestFile.getParent().getParent() +
+                    " pertence a " + (routine == null ? "?" : routine) + " (" + (valueClass == null ? "?" : valueClass) +
+                    "), não a " + spec.name + " (" + spec.valueClass.getName() + "). Use outro " +
+                    STATE_DIR_KEY + " ou apague o diretório para reconstruir o estado.");
+        }
+        return manifest;
+    }
+
+    /**
+     * Grava o manifesto em arquivo temporário e renomeia: o manifesto só aparece completo
+     */
+    private static void writeManifest(FileSystem fs, Path generationDir, Spec spec, Map<String, Long> manifest)
+            throws IOException {
+        Path temporary = new Path(generationDir, "_" + MANIFEST_FILE);
+        try (FSDataOutputStream stream = fs.create(temporary, true);
+             Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8)) {
+            writer.write(ROUTINE_HEADER + "\t" + spec.name + "\n");
+            writer.write(VALUE_HEADER + "\t" + spec.valueClass.getName() + "\n");
+            for (Map.Entry<String, Long> entry : manifest.entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+            }
+        }
+        if (!fs.rename(temporary, new Path(generationDir, MANIFEST_FILE))) {
+            throw new IOException("Falha ao gravar o manifesto em " + generationDir);
+        }
+    }
+}
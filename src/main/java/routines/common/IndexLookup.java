@@ -0,0 +1,77 @@
+package routines.common;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+// Para executar configure os argumentos da seguinte forma:
+// output/amount_by_client 1556 1002
+// output/merchant_stage1 59935
+// output/amount_by_client -   (uma chave por linha no stdin)
+
+/**
+ * Consulta pontual no índice gravado com -Dfta.indexed.output=true (ver {@link IndexedOutput})
+ *
+ * Imprime "chave\tvalor" para cada chave encontrada, como a linha correspondente da saída
+ * texto; chaves ausentes são listadas no stderr. Retorna 1 se nenhuma chave for encontrada.
+ */
+public class IndexLookup extends Configured implements Tool {
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: IndexLookup <output_dir> <key> [key...]");
+            System.err.println("       IndexLookup <output_dir> -   (chaves no stdin, uma por linha)");
+            System.err.println("  output_dir: saída da rotina executada com -D" + IndexedOutput.ENABLED_KEY + "=true");
+            return -1;
+        }
+
+        long found = 0;
+        long missing = 0;
+        long start = System.nanoTime();
+        try (IndexedOutput.Lookup lookup = new IndexedOutput.Lookup(getConf(), new Path(args[0]))) {
+            if (args.length == 2 && "-".equals(args[1])) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String key = line.trim();
+                    if (key.isEmpty()) {
+                        continue;
+                    }
+                    if (print(lookup, key)) found++; else missing++;
+                }
+            } else {
+                for (int i = 1; i < args.length; i++) {
+                    if (print(lookup, args[i].trim())) found++; else missing++;
+                }
+            }
+
+            double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+            System.err.println(String.format("%d encontrada(s), %d ausente(s) em %.1f ms (%d partições)",
+                    found, missing, elapsedMs, lookup.getPartitions()));
+        }
+        return found > 0 ? 0 : 1;
+    }
+
+    private static boolean print(IndexedOutput.Lookup lookup, String key) throws Exception {
+        String value = lookup.get(key);
+        if (value == null) {
+            System.err.println("Não encontrada: " + key);
+            return false;
+        }
+        System.out.println(key + "\t" + value);
+        return true;
+    }
+
+    /**
+     * Método main - ponto de entrada da aplicação
+     */
+    public static void main(String[] args) throws Exception {
+        System.exit(ToolRunner.run(new Configuration(), new IndexLookup(), args));
+    }
+}
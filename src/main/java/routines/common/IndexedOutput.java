@@ -0,0 +1,204 @@
+package routines.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.partition.HashPartitioner;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Índice ordenado (MapFile) ao lado da saída texto, para consultas pontuais por chave
+ * (AmountByClient por client_id, MerchantHealthRisk stage 1 por merchant_id).
+ *
+ * Com -Dfta.indexed.output=true cada reducer grava, além do part-r-NNNNN texto, o MapFile
+ * "<output>/_index/part-r-NNNNN" (data + índice esparso, uma entrada a cada
+ * io.map.index.interval registros). O reducer recebe as chaves já ordenadas, então o
+ * índice sai de graça do shuffle; o diretório começa com "_" e é ignorado por quem lê a
+ * saída como entrada (job 2, ranking, cat part-r-*).
+ *
+ * A consulta ({@link Lookup}, CLI {@link IndexLookup}) calcula a partição da chave com o
+ * mesmo particionador do job (HashPartitioner sobre o Text) e faz a busca binária no
+ * índice de um único MapFile: milissegundos, independente do tamanho da saída. Todo
+ * reducer cria o seu MapFile, mesmo sem chaves, para que o número de partições seja o
+ * número de arquivos.
+ *
+ * Compressão: segue a saída do job (-Dfta.compression), por bloco, como o MapFileOutputFormat.
+ */
+public final class IndexedOutput {
+
+    public static final String ENABLED_KEY = "fta.indexed.output";
+    public static final String INDEX_DIR = "_index";
+
+    private IndexedOutput() {
+    }
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(ENABLED_KEY, false);
+    }
+
+    /**
+     * Diretório do índice dentro da saída da rotina
+     */
+    public static Path indexPath(Path outputDir) {
+        return new Path(outputDir, INDEX_DIR);
+    }
+
+    /**
+     * Abre o MapFile da partição do reducer, ou retorna null se o índice não estiver habilitado.
+     * Deve ser chamado no setup() (as chaves precisam chegar em ordem crescente).
+     */
+    public static Writer open(TaskInputOutputContext<?, ?, ?, ?> context)
+            throws IOException, InterruptedException {
+        Configuration conf = context.getConfiguration();
+        if (!isEnabled(conf)) {
+            return null;
+        }
+        int partition = context.getTaskAttemptID().getTaskID().getId();
+        Path file = new Path(indexPath(FileOutputFormat.getWorkOutputPath(context)),
+                String.format("part-r-%05d", partition));
+
+        SequenceFile.CompressionType compressionType = SequenceFile.CompressionType.NONE;
+        CompressionCodec codec = null;
+        if (FileOutputFormat.getCompressOutput(context)) {
+            compressionType = SequenceFileOutputFormat.getOutputCompressionType(context);
+            codec = ReflectionUtils.newInstance(
+                    FileOutputFormat.getOutputCompressorClass(context, DefaultCodec.class), conf);
+        }
+        return new Writer(new MapFile.Writer(conf, file,
+                MapFile.Writer.keyClass(Text.class),
+                SequenceFile.Writer.valueClass(Text.class),
+                SequenceFile.Writer.compression(compressionType, codec)));
+    }
+
+    /**
+     * MapFile de uma partição; as chaves devem ser anexadas em ordem crescente
+     */
+    public static final class Writer implements Closeable {
+        private final MapFile.Writer writer;
+        private final Text value = new Text();
+
+        private Writer(MapFile.Writer writer) {
+            this.writer = writer;
+        }
+
+        public void append(Text key, Text value) throws IOException {
+            writer.append(key, value);
+        }
+
+        public void append(Text key, String value) throws IOException {
+            this.value.set(value);
+            writer.append(key, this.value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Consulta pontual sobre o índice de uma saída. Os MapFiles são abertos sob demanda
+     * (só a partição consultada) e mantidos abertos até o close().
+     * Não é thread-safe.
+     */
+    public static final class Lookup implements Closeable {
+        private final Configuration conf;
+        private final Path[] partitions;
+        private final MapFile.Reader[] readers;
+        private final HashPartitioner<Text, Text> partitioner = new HashPartitioner<>();
+        private final Text key = new Text();
+        private final Text value = new Text();
+
+        /**
+         * @param outputDir saída da rotina (contendo _index) ou o próprio diretório _index
+         * @throws IOException se o índice não existir ou tiver partições faltando
+         */
+        public Lookup(Configuration conf, Path outputDir) throws IOException {
+            this.conf = conf;
+            Path indexDir = INDEX_DIR.equals(outputDir.getName()) ? outputDir : indexPath(outputDir);
+            FileSystem fs = indexDir.getFileSystem(conf);
+            if (!fs.exists(indexDir)) {
+                throw new IOException("Índice não encontrado: " + indexDir +
+                        " (execute a rotina com -D" + ENABLED_KEY + "=true)");
+            }
+
+            List<Path> files = new ArrayList<>();
+            for (FileStatus status : fs.listStatus(indexDir)) {
+                String name = status.getPath().getName();
+                if (status.isDirectory() && name.startsWith("part-")) {
+                    files.add(status.getPath());
+                }
+            }
+            if (files.isEmpty()) {
+                throw new IOException("Índice vazio: " + indexDir);
+            }
+            this.partitions = new Path[files.size()];
+            for (Path file : files) {
+                int partition = partitionOf(file);
+                if (partition < 0 || partition >= partitions.length || partitions[partition] != null) {
+                    throw new IOException("Partições do índice incompletas em " + indexDir +
+                            " (arquivo inesperado: " + file.getName() + ")");
+                }
+                partitions[partition] = file;
+            }
+            this.readers = new MapFile.Reader[partitions.length];
+        }
+
+        private static int partitionOf(Path file) {
+            String name = file.getName();
+            try {
+                return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        public int getPartitions() {
+            return partitions.length;
+        }
+
+        /**
+         * Partição (reducer) responsável pela chave, como no job
+         */
+        public int partition(String key) {
+            this.key.set(key);
+            return partitioner.getPartition(this.key, value, partitions.length);
+        }
+
+        /**
+         * Valor gravado para a chave, ou null se ela não estiver na saída
+         */
+        public String get(String key) throws IOException {
+            int partition = partition(key);
+            MapFile.Reader reader = readers[partition];
+            if (reader == null) {
+                reader = new MapFile.Reader(partitions[partition], conf);
+                readers[partition] = reader;
+            }
+            return reader.get(this.key, value) == null ? null : value.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (int i = 0; i < readers.length; i++) {
+                if (readers[i] != null) {
+                    readers[i].close();
+                    readers[i] = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package routines.common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+
+/**
+ * Leitura barata do início da entrada (arquivo ou diretório) no driver, usada pelas
+ * decisões tomadas antes de submeter o job (amostragem de chaves quentes, auto-tuning).
+ */
+public final class InputPreview {
+
+    private InputPreview() {
+    }
+
+    /**
+     * Lista os arquivos de dados da entrada, ignorando arquivos ocultos e marcadores (_SUCCESS)
+     */
+    public static List<Path> listInputFiles(Configuration conf, Path input) throws IOException {
+        FileSystem fs = input.getFileSystem(conf);
+        List<Path> files = new ArrayList<>();
+        FileStatus status = fs.getFileStatus(input);
+        if (!status.isDirectory()) {
+            files.add(input);
+            return files;
+        }
+        for (FileStatus child : fs.listStatus(input)) {
+            String name = child.getPath().getName();
+            if (child.isFile() && !name.startsWith("_") && !name.startsWith(".")) {
+                files.add(child.getPath());
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Tamanho total em bytes dos arquivos de dados da entrada
+     */
+    public static long totalBytes(Configuration conf, Path input) throws IOException {
+        FileSystem fs = input.getFileSystem(conf);
+        long total = 0;
+        for (Path file : listInputFiles(conf, input)) {
+            total += fs.getFileStatus(file).getLen();
+        }
+        return total;
+    }
+
+    /**
+     * Lê até maxLines linhas do início da entrada, ignorando o cabeçalho do CSV.
+     * Saídas compactadas de jobs anteriores (fta.compression) são descompactadas pelo codec.
+     */
+    public static List<String> readLines(Configuration conf, Path input, int maxLines) throws IOException {
+        FileSystem fs = input.getFileSystem(conf);
+        CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+        List<String> lines = new ArrayList<>();
+
+        for (Path file : listInputFiles(conf, input)) {
+            InputStream stream = fs.open(file);
+            CompressionCodec codec = codecs.getCodec(file);
+            if (codec != null) {
+                stream = codec.createInputStream(stream);
+            }
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                String line;
+                while (lines.size() < maxLines && (line = reader.readLine()) != null) {
+                    if (line.startsWith("id,") || line.startsWith("\"id\"")) {
+                        continue;
+                    }
+                    lines.add(line);
+                }
+            }
+            if (lines.size() >= maxLines) {
+                break;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Split de CSV que respeita aspas
+     */
+    public static String[] splitCsv(String line) {
+        List<String> result = new ArrayList<>();
+        StringBuilder currentField = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+
+            if (ch == '\"') {
+                inQuotes = !inQuotes;
+            } else if (ch == ',' && !inQuotes) {
+                result.add(currentField.toString());
+                currentField.setLength(0);
+            } else {
+                currentField.append(ch);
+            }
+        }
+
+        result.add(currentField.toString());
+        return result.toArray(new String[0]);
+    }
+}
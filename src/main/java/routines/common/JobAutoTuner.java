@@ -0,0 +1,407 @@
+package routines.common;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+
+/**
+ * Auto-tuning de reducers, tamanho de split e buffer de ordenação por job.
+ *
+ * Antes de submeter cada job o driver amostra a entrada (tamanho total, bytes por
+ * registro, cardinalidade estimada da chave e participação da maior chave) e aplica:
+ *   - reducers:  bytes de shuffle estimados / fta.tune.bytes.per.reducer.mb, limitado pela
+ *                cardinalidade, pela chave mais quente (exceto quando as chaves quentes
+ *                recebem sal, ver {@link SkewedKeys}) e por fta.tune.max.reducers
+ *   - split:     só aumenta o split mínimo quando a entrada geraria mais de fta.tune.max.maps maps
+ *   - sort.mb:   dimensionado pela saída estimada de cada map (mapreduce.task.io.sort.mb),
+ *                limitado a fta.tune.sort.heap.fraction do heap do map
+ *
+ * Precedência: -Dfta.tune.reducers / -Dfta.tune.split.mb / -Dfta.tune.sort.mb, depois o
+ * argumento posicional num_reducers (quando numérico), depois a decisão automática.
+ * Valores de mapreduce.* definidos explicitamente pelo usuário também são respeitados.
+ * Com -Dfta.tune.enabled=false o comportamento antigo (1 reducer) é mantido.
+ */
+public final class JobAutoTuner {
+
+    public static final String ENABLED_KEY = "fta.tune.enabled";
+    public static final String REDUCERS_KEY = "fta.tune.reducers";
+    public static final String SPLIT_MB_KEY = "fta.tune.split.mb";
+    public static final String SORT_MB_KEY = "fta.tune.sort.mb";
+    public static final String MAX_REDUCERS_KEY = "fta.tune.max.reducers";
+    public static final String MAX_MAPS_KEY = "fta.tune.max.maps";
+    public static final String BYTES_PER_REDUCER_MB_KEY = "fta.tune.bytes.per.reducer.mb";
+    public static final String SAMPLE_RECORDS_KEY = "fta.tune.sample.records";
+    public static final String SORT_HEAP_FRACTION_KEY = "fta.tune.sort.heap.fraction";
+
+    public static final int DEFAULT_MAX_REDUCERS = 64;
+    public static final int DEFAULT_MAX_MAPS = 400;
+    public static final int DEFAULT_BYTES_PER_REDUCER_MB = 256;
+    public static final int DEFAULT_SAMPLE_RECORDS = 20000;
+    public static final float DEFAULT_SORT_HEAP_FRACTION = 0.6f;
+
+    /** Valor usado pelos drivers quando num_reducers é omitido ou "auto" */
+    public static final int AUTO = -1;
+
+    private static final long MB = 1024L * 1024L;
+    private static final long DEFAULT_BLOCK_BYTES = 128 * MB;
+    private static final int DEFAULT_SORT_MB = 100;
+    private static final int MAX_SORT_MB = 1024;
+
+    private static final String SORT_MB_PROPERTY = "mapreduce.task.io.sort.mb";
+    private static final String SPLIT_MIN_PROPERTY = "mapreduce.input.fileinputformat.split.minsize";
+    private static final String MAP_JAVA_OPTS_PROPERTY = "mapreduce.map.java.opts";
+    private static final String MAP_MEMORY_MB_PROPERTY = "mapreduce.map.memory.mb";
+    private static final String HEAP_RATIO_PROPERTY = "mapreduce.job.heap.memory-mb.ratio";
+    private static final int DEFAULT_MAP_MEMORY_MB = 1024;
+    private static final float DEFAULT_HEAP_RATIO = 0.8f;
+    private static final Pattern XMX = Pattern.compile("-Xmx(\\d+)([kKmMgGtT]?)");
+
+    /**
+     * Extrai a chave de agregação de uma linha da entrada do job (CSV ou saída texto de outro job)
+     */
+    public interface LineKeyExtractor {
+        String keyOf(String line);
+    }
+
+    /**
+     * Perfil de um job: como extrair a chave e quanto da entrada chega ao shuffle.
+     */
+    public static final class Profile {
+
+        private final String name;
+        private final LineKeyExtractor keyExtractor;
+        private final double shuffleRatio;
+        private int maxReducers = Integer.MAX_VALUE;
+        private boolean saltedHotKeys = false;
+
+        /**
+         * @param name nome do job (usado no log)
+         * @param keyExtractor extrator de chave, ou null se a entrada não for texto (ex.: SequenceFile)
+         * @param shuffleRatio bytes de shuffle estimados por byte de entrada (após combiner)
+         */
+        public Profile(String name, LineKeyExtractor keyExtractor, double shuffleRatio) {
+            this.name = name;
+            this.keyExtractor = keyExtractor;
+            this.shuffleRatio = shuffleRatio;
+        }
+
+        /**
+         * Limita os reducers deste job (ex.: relatório que precisa de um único arquivo ordenado)
+         */
+        public Profile withMaxReducers(int maxReducers) {
+            this.maxReducers = maxReducers;
+            return this;
+        }
+
+        /**
+         * Indica que as chaves quentes recebem sal (modo anti-skew): a maior chave deixa de
+         * limitar o número de reducers, pois é dividida entre vários deles
+         */
+        public Profile withSaltedHotKeys(boolean saltedHotKeys) {
+            this.saltedHotKeys = saltedHotKeys;
+            return this;
+        }
+
+        /**
+         * Chave = coluna do CSV de transações, normalizada como nos mappers
+         */
+        public static LineKeyExtractor csvColumn(final int column) {
+            return line -> {
+                String[] cols = InputPreview.splitCsv(line);
+                return cols.length > column ? SkewedKeys.normalize(cols[column]) : null;
+            };
+        }
+
+        /**
+         * Chave = coluna de uma saída texto separada por tab (jobs encadeados)
+         */
+        public static LineKeyExtractor tabColumn(final int column) {
+            return line -> {
+                String[] cols = line.split("\t");
+                return cols.length > column ? cols[column].trim() : null;
+            };
+        }
+    }
+
+    /**
+     * Decisão de tuning para um job
+     */
+    public static final class Decision {
+
+        private final String name;
+        private final int reducers;
+        private final long splitBytes;
+        private final int sortMb;
+        private final String summary;
+
+        private Decision(String name, int reducers, long splitBytes, int sortMb, String summary) {
+            this.name = name;
+            this.reducers = reducers;
+            this.splitBytes = splitBytes;
+            this.sortMb = sortMb;
+            this.summary = summary;
+        }
+
+        public int getReducers() {
+            return reducers;
+        }
+
+        /**
+         * Aplica a decisão ao job e registra no log
+         */
+        public void apply(Job job) {
+            job.setNumReduceTasks(reducers);
+            if (splitBytes > 0) {
+                FileInputFormat.setMinInputSplitSize(job, splitBytes);
+            }
+            if (sortMb > 0) {
+                job.getConfiguration().setInt(SORT_MB_PROPERTY, sortMb);
+            }
+            System.out.println(toString());
+        }
+
+        @Override
+        public String toString() {
+            return "AutoTune[" + name + "]: " + summary + " -> reducers=" + reducers +
+                    ", split=" + (splitBytes > 0 ? (splitBytes / MB) + " MB" : "padrão") +
+                    ", sort.mb=" + (sortMb > 0 ? sortMb : "padrão");
+        }
+    }
+
+    private JobAutoTuner() {
+    }
+
+    /**
+     * Verifica o argumento posicional num_reducers: ausente, inteiro, "auto" ou "local"
+     * (forma antiga "<input> <output> local", com os reducers omitidos).
+     * Os drivers imprimem o uso quando o valor é inválido.
+     */
+    public static boolean isReducersArgument(String[] args, int index) {
+        if (args.length <= index || isAutoOrLocal(args[index])) {
+            return true;
+        }
+        try {
+            Integer.parseInt(args[index].trim());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lê o argumento posicional num_reducers
+     * @return número informado, ou AUTO se ausente, "auto" ou "local" (reducers omitidos)
+     * @throws IllegalArgumentException se o valor não for um desses
+     */
+    public static int parseReducers(String[] args, int index) {
+        if (args.length <= index || isAutoOrLocal(args[index])) {
+            return AUTO;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(args[index].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("num_reducers inválido: '" + args[index] +
+                    "' (use um inteiro, auto ou local)");
+        }
+    }
+
+    private static boolean isAutoOrLocal(String value) {
+        String trimmed = value.trim();
+        return "auto".equalsIgnoreCase(trimmed) || LocalMode.ARGUMENT.equalsIgnoreCase(trimmed);
+    }
+
+    /**
+     * Descreve o número de reducers para os banners dos drivers
+     */
+    public static String describeReducers(int requestedReducers) {
+        return requestedReducers == AUTO ? "auto" : String.valueOf(requestedReducers);
+    }
+
+    /**
+     * Amostra a entrada e decide reducers, split e sort buffer para um job.
+     * @param requestedReducers valor posicional (ou AUTO)
+     */
+    public static Decision tune(Configuration conf, Path input, int requestedReducers, Profile profile)
+            throws IOException {
+
+        // Overrides explícitos
+        int forcedReducers = conf.getInt(REDUCERS_KEY, 0);
+        int reducersOverride = forcedReducers > 0 ? forcedReducers
+                : (requestedReducers != AUTO ? requestedReducers : 0);
+
+        if (!conf.getBoolean(ENABLED_KEY, true)) {
+            int reducers = reducersOverride > 0 ? reducersOverride : 1;
+            return new Decision(profile.name, reducers, 0, 0, "desabilitado");
+        }
+
+        long totalBytes = InputPreview.totalBytes(conf, input);
+
+        // Amostragem: bytes por registro, cardinalidade e maior chave
+        int sampleSize = Math.max(1, conf.getInt(SAMPLE_RECORDS_KEY, DEFAULT_SAMPLE_RECORDS));
+        long sampledBytes = 0;
+        int sampled = 0;
+        int distinct = 0;
+        long hottest = 0;
+
+        if (profile.keyExtractor != null) {
+            List<String> lines = InputPreview.readLines(conf, input, sampleSize);
+            Map<String, Long> counts = new HashMap<>();
+            for (String line : lines) {
+                sampledBytes += line.length() + 1;
+                String key = profile.keyExtractor.keyOf(line);
+                if (key == null) {
+                    continue;
+                }
+                Long current = counts.get(key);
+                long updated = current == null ? 1L : current + 1;
+                counts.put(key, updated);
+                hottest = Math.max(hottest, updated);
+                sampled++;
+            }
+            distinct = counts.size();
+        }
+
+        long estimatedRecords = sampled > 0 && sampledBytes > 0
+                ? Math.max(sampled, totalBytes * sampled / sampledBytes) : 0;
+
+        // Domínio "saturado" (muitas repetições na amostra) => cardinalidade ~ distintos vistos;
+        // caso contrário extrapola linearmente para o total de registros
+        long estimatedCardinality;
+        if (sampled == 0) {
+            estimatedCardinality = Long.MAX_VALUE;
+        } else if (distinct <= sampled / 2) {
+            estimatedCardinality = distinct;
+        } else {
+            estimatedCardinality = Math.max(distinct, distinct * estimatedRecords / sampled);
+        }
+        double hottestShare = sampled > 0 ? (double) hottest / sampled : 0.0;
+
+        // Reducers
+        int reducers;
+        String hotKeyLimit = "-";
+        if (reducersOverride > 0) {
+            reducers = reducersOverride;
+        } else {
+            long bytesPerReducer = Math.max(1, conf.getInt(BYTES_PER_REDUCER_MB_KEY, DEFAULT_BYTES_PER_REDUCER_MB)) * MB;
+            long shuffleBytes = (long) (totalBytes * profile.shuffleRatio);
+            long byVolume = Math.max(1, (shuffleBytes + bytesPerReducer - 1) / bytesPerReducer);
+
+            long candidate = Math.min(byVolume, estimatedCardinality);
+            // Acima de 1/participação da maior chave, o reducer dessa chave domina o tempo;
+            // com sal (fta.skew.enabled) a chave é espalhada e o limite não se aplica
+            if (profile.saltedHotKeys) {
+                hotKeyLimit = "ignorado (chaves quentes com sal)";
+            } else if (hottestShare > 0) {
+                long limit = Math.max(1, (long) Math.ceil(1.0 / hottestShare));
+                candidate = Math.min(candidate, limit);
+                hotKeyLimit = String.valueOf(limit);
+            }
+            int maxReducers = Math.min(profile.maxReducers,
+                    Math.max(1, conf.getInt(MAX_REDUCERS_KEY, DEFAULT_MAX_REDUCERS)));
+            reducers = (int) Math.max(1, Math.min(candidate, maxReducers));
+        }
+        reducers = Math.min(reducers, profile.maxReducers);
+
+        // Split: só aumenta quando a entrada geraria maps demais
+        long splitBytes = 0;
+        int splitOverride = conf.getInt(SPLIT_MB_KEY, 0);
+        if (splitOverride > 0) {
+            splitBytes = splitOverride * MB;
+        } else if (!isUserDefined(conf, SPLIT_MIN_PROPERTY)) {
+            int maxMaps = Math.max(1, conf.getInt(MAX_MAPS_KEY, DEFAULT_MAX_MAPS));
+            if (totalBytes / DEFAULT_BLOCK_BYTES > maxMaps) {
+                long perMap = (totalBytes + maxMaps - 1) / maxMaps;
+                splitBytes = ((perMap + MB - 1) / MB) * MB;
+            }
+        }
+
+        // Sort buffer: saída estimada de cada map com folga para metadados, sem passar
+        // de uma fração do heap do map (o buffer é alocado inteiro no início da task)
+        int sortMb = 0;
+        long heapMb = mapHeapMb(conf);
+        float heapFraction = conf.getFloat(SORT_HEAP_FRACTION_KEY, DEFAULT_SORT_HEAP_FRACTION);
+        int sortCapMb = (int) Math.min(MAX_SORT_MB, Math.max(1L, (long) (heapMb * heapFraction)));
+        int sortOverride = conf.getInt(SORT_MB_KEY, 0);
+        if (sortOverride > 0) {
+            sortMb = sortOverride;
+        } else if (!isUserDefined(conf, SORT_MB_PROPERTY)) {
+            long perMapInput = Math.min(totalBytes, splitBytes > 0 ? splitBytes : DEFAULT_BLOCK_BYTES);
+            long perMapOutputMb = (long) Math.ceil(perMapInput * profile.shuffleRatio * 1.3 / MB);
+            if (perMapOutputMb > DEFAULT_SORT_MB) {
+                sortMb = (int) Math.min(sortCapMb, perMapOutputMb);
+                if (sortMb <= DEFAULT_SORT_MB) {
+                    sortMb = 0;
+                }
+            }
+        }
+
+        String summary = String.format("entrada=%d MB, ~%d registros, cardinalidade~%s, maior chave=%.1f%%%s, " +
+                        "limite pela maior chave=%s, sort.mb máx=%d (heap do map=%d MB)",
+                totalBytes / MB, estimatedRecords,
+                estimatedCardinality == Long.MAX_VALUE ? "?" : String.valueOf(estimatedCardinality),
+                hottestShare * 100, reducersOverride > 0 ? " (reducers fixados)" : "",
+                hotKeyLimit, sortCapMb, heapMb);
+        return new Decision(profile.name, reducers, splitBytes, sortMb, summary);
+    }
+
+    /**
+     * Heap do map em MB: último -Xmx de mapreduce.map.java.opts; sem ele, o Hadoop deriva o
+     * heap de mapreduce.map.memory.mb * mapreduce.job.heap.memory-mb.ratio
+     */
+    private static long mapHeapMb(Configuration conf) {
+        String opts = conf.get(MAP_JAVA_OPTS_PROPERTY, "");
+        Matcher matcher = XMX.matcher(opts);
+        long xmxMb = 0;
+        while (matcher.find()) {
+            long value = Long.parseLong(matcher.group(1));
+            switch (matcher.group(2).toLowerCase()) {
+                case "k":
+                    xmxMb = value / 1024;
+                    break;
+                case "m":
+                    xmxMb = value;
+                    break;
+                case "g":
+                    xmxMb = value * 1024;
+                    break;
+                case "t":
+                    xmxMb = value * 1024 * 1024;
+                    break;
+                default:
+                    xmxMb = value / MB;
+            }
+        }
+        if (xmxMb > 0) {
+            return xmxMb;
+        }
+        int memoryMb = conf.getInt(MAP_MEMORY_MB_PROPERTY, -1);
+        if (memoryMb <= 0) {
+            memoryMb = DEFAULT_MAP_MEMORY_MB;
+        }
+        float ratio = conf.getFloat(HEAP_RATIO_PROPERTY, DEFAULT_HEAP_RATIO);
+        return Math.max(1L, (long) (memoryMb * ratio));
+    }
+
+    /**
+     * Verifica se a propriedade foi definida pelo usuário (e não apenas herdada dos *-default.xml)
+     */
+    private static boolean isUserDefined(Configuration conf, String key) {
+        String[] sources = conf.getPropertySources(key);
+        if (sources == null) {
+            return false;
+        }
+        for (String source : sources) {
+            if (!source.endsWith("-default.xml")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
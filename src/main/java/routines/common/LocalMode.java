@@ -0,0 +1,39 @@
+package routines.common;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Configuração de execução local (standalone) compartilhada pelos drivers e pelo
+ * RoutineLauncher: sistema de arquivos local e LocalJobRunner, sem YARN.
+ */
+public final class LocalMode {
+
+    /** Argumento posicional que ativa o modo local nos drivers */
+    public static final String ARGUMENT = "local";
+
+    private LocalMode() {
+    }
+
+    /**
+     * Verifica se o modo local foi pedido nos argumentos posicionais: logo após num_reducers,
+     * ou no lugar dele (forma antiga "<input> <output> local")
+     * @param reducersIndex posição do argumento num_reducers
+     */
+    public static boolean isRequested(String[] args, int reducersIndex) {
+        for (int i = reducersIndex; i <= reducersIndex + 1 && i < args.length; i++) {
+            if (ARGUMENT.equalsIgnoreCase(args[i].trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Aplica as propriedades do modo local na configuração
+     */
+    public static void configure(Configuration conf) {
+        conf.set("fs.defaultFS", "file:///");
+        conf.set("mapreduce.framework.name", "local");
+        conf.set("mapreduce.jobtracker.address", "local");
+    }
+}
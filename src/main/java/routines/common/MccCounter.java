@@ -0,0 +1,133 @@
+package routines.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Acumulador de contagens por MCC para reducers de ranking, reutilizável entre grupos.
+ *
+ * MCCs de 4 dígitos usam o índice denso de {@link MccIndex} (long[10000]) e uma lista
+ * dos índices tocados, de modo que {@link #reset()} custa proporcional ao número de
+ * categorias do grupo, não ao domínio. Códigos fora desse formato recebem ids
+ * sequenciais a partir de {@link MccIndex#DOMAIN_SIZE}, preservando o texto original.
+ *
+ * Os ids são compatíveis com {@link TopKSelector}: empates no ranking ficam na ordem
+ * numérica do MCC (e códigos atípicos depois dos de 4 dígitos).
+ */
+public final class MccCounter {
+
+    private final long[] dense = new long[MccIndex.DOMAIN_SIZE];
+    private final boolean[] denseUsed = new boolean[MccIndex.DOMAIN_SIZE];
+    private int[] touched = new int[256];
+    private int touchedCount;
+
+    // Códigos atípicos (não 4 dígitos): id = DOMAIN_SIZE + posição
+    private final StringLongHashMap otherIds = new StringLongHashMap(16);
+    private final List<String> otherCodes = new ArrayList<>();
+    private long[] otherCounts = new long[16];
+
+    /**
+     * Soma delta à contagem do MCC
+     */
+    public void add(String mccCode, long delta) {
+        int index = MccIndex.index(mccCode);
+        // Só o formato exato de 4 dígitos: MccIndex.code(index) precisa reproduzir o texto
+        if (index >= 0 && mccCode.length() == 4) {
+            if (!denseUsed[index]) {
+                denseUsed[index] = true;
+                if (touchedCount == touched.length) {
+                    int[] grown = new int[touched.length * 2];
+                    System.arraycopy(touched, 0, grown, 0, touchedCount);
+                    touched = grown;
+                }
+                touched[touchedCount++] = index;
+            }
+            dense[index] += delta;
+            return;
+        }
+
+        // O mapa guarda posição + 1 para que 0 signifique "ausente"
+        int position = (int) otherIds.get(mccCode, 0L) - 1;
+        if (position < 0) {
+            position = otherCodes.size();
+            otherIds.add(mccCode, position + 1);
+            otherCodes.add(mccCode);
+            if (otherCodes.size() > otherCounts.length) {
+                long[] grown = new long[otherCounts.length * 2];
+                System.arraycopy(otherCounts, 0, grown, 0, otherCounts.length);
+                otherCounts = grown;
+            }
+        }
+        otherCounts[position] += delta;
+    }
+
+    /**
+     * Número de MCCs distintos acumulados
+     */
+    public int distinctCount() {
+        return touchedCount + otherCodes.size();
+    }
+
+    /**
+     * Id da i-ésima categoria acumulada (0 <= i < distinctCount()), para iteração
+     */
+    public int idAt(int position) {
+        if (position < touchedCount) {
+            return touched[position];
+        }
+        return MccIndex.DOMAIN_SIZE + (position - touchedCount);
+    }
+
+    /**
+     * Total acumulado para o id
+     */
+    public long countOf(int id) {
+        if (id < MccIndex.DOMAIN_SIZE) {
+            return dense[id];
+        }
+        return otherCounts[id - MccIndex.DOMAIN_SIZE];
+    }
+
+    /**
+     * Oferece todas as contagens ao seletor (que deve ter sido resetado pelo chamador)
+     */
+    public void offerTo(TopKSelector selector) {
+        for (int i = 0; i < touchedCount; i++) {
+            int index = touched[i];
+            selector.offer(index, dense[index]);
+        }
+        for (int i = 0; i < otherCodes.size(); i++) {
+            selector.offer(MccIndex.DOMAIN_SIZE + i, otherCounts[i]);
+        }
+    }
+
+    /**
+     * Converte um id (de {@link #offerTo}) de volta para o código MCC
+     */
+    public String code(int id) {
+        if (id < MccIndex.DOMAIN_SIZE) {
+            return MccIndex.code(id);
+        }
+        return otherCodes.get(id - MccIndex.DOMAIN_SIZE);
+    }
+
+    /**
+     * Zera apenas as posições usadas pelo grupo anterior
+     */
+    public void reset() {
+        for (int i = 0; i < touchedCount; i++) {
+            int index = touched[i];
+            dense[index] = 0;
+            denseUsed[index] = false;
+        }
+        touchedCount = 0;
+
+        if (!otherCodes.isEmpty()) {
+            for (int i = 0; i < otherCodes.size(); i++) {
+                otherCounts[i] = 0;
+            }
+            otherCodes.clear();
+            otherIds.clear();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package routines.common;
+
+/**
+ * Codificação densa de códigos MCC de 4 dígitos no intervalo 0..9999.
+ *
+ * Permite acumular contagens em um long[DOMAIN_SIZE] em vez de usar o código
+ * como String em HashMaps. Códigos fora do formato de 4 dígitos devem seguir
+ * pelo caminho genérico (String).
+ */
+public final class MccIndex {
+
+    /** Tamanho do domínio de MCCs de 4 dígitos */
+    public static final int DOMAIN_SIZE = 10000;
+
+    private MccIndex() {
+    }
+
+    /**
+     * Converte o MCC em índice, ignorando espaços e aspas nas extremidades.
+     * @return índice 0..9999, ou -1 se o valor não tiver exatamente 4 dígitos
+     */
+    public static int index(String raw) {
+        if (raw == null) {
+            return -1;
+        }
+
+        int start = 0;
+        int end = raw.length();
+        while (start < end && isTrimmable(raw.charAt(start))) {
+            start++;
+        }
+        while (end > start && isTrimmable(raw.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start != 4) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char ch = raw.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return -1;
+            }
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Converte o índice de volta para o código MCC de 4 dígitos (com zeros à esquerda)
+     */
+    public static String code(int index) {
+        char[] digits = new char[4];
+        for (int i = 3; i >= 0; i--) {
+            digits[i] = (char) ('0' + index % 10);
+            index /= 10;
+        }
+        return new String(digits);
+    }
+
+    private static boolean isTrimmable(char ch) {
+        return ch == '"' || Character.isWhitespace(ch);
+    }
+}
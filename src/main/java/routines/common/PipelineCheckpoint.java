@@ -0,0 +1,265 @@
+package routines.common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Checkpoint e retomada dos drivers com vários jobs encadeados (RiskAnalysisPipeline,
+ * MerchantHealthRisk, ClientBehaviorChipUse, RfmByUF, CategoryByTimePeriod).
+ *
+ * Ao terminar, cada step grava o marcador "<saída>/_CHECKPOINT" com o fingerprint de:
+ *   - arquivos de entrada (caminho, tamanho, data de modificação);
+ *   - parâmetros -D que o step usa (e fta.compression, que muda o formato da saída);
+ *   - bytecode das classes do step (mapper, reducer, regras), a "versão" da rotina.
+ *
+ * Na execução seguinte, um step cujo marcador tem o mesmo fingerprint é pulado; a partir
+ * do primeiro step inválido, ele e todos os seguintes rodam de novo (a saída de um step
+ * refeito tem novas datas de modificação, o que também invalida quem a lê). Ajustar as
+ * regras do Step 2 do RiskAnalysisPipeline, por exemplo, não refaz o Step 1.
+ *
+ * Saídas com marcador desatualizado são removidas antes do job; saídas sem marcador não
+ * são tocadas (o driver mantém o comportamento anterior). O marcador começa com "_" e é
+ * ignorado por quem lê a saída.
+ *
+ * Configuração (via -D):
+ *   fta.checkpoint      - habilita marcadores e retomada (padrão: true)
+ *   fta.checkpoint.from - refaz a partir do step informado, mesmo com marcador válido
+ */
+public final class PipelineCheckpoint {
+
+    public static final String ENABLED_KEY = "fta.checkpoint";
+    public static final String FROM_KEY = "fta.checkpoint.from";
+    public static final String MARKER = "_CHECKPOINT";
+
+    /** Execução de um step; retorna false se o job falhou */
+    public interface StepRunner {
+        boolean run() throws Exception;
+    }
+
+    private final Configuration conf;
+    private final String pipeline;
+    private final boolean enabled;
+    private final String from;
+
+    // Algum step anterior rodou nesta execução: os seguintes não podem ser pulados
+    private boolean upstreamRan;
+
+    public PipelineCheckpoint(Configuration conf, String pipeline) {
+        this.conf = conf;
+        this.pipeline = pipeline;
+        this.enabled = conf.getBoolean(ENABLED_KEY, true);
+        this.from = conf.getTrimmed(FROM_KEY, "");
+    }
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(ENABLED_KEY, true);
+    }
+
+    /**
+     * Declara um step; complete com inputs/params/code e execute com {@link Step#run}
+     * @param name nome do step (usado no marcador e em fta.checkpoint.from)
+     * @param output diretório de saída do job
+     */
+    public Step step(String name, Path output) {
+        return new Step(name, output);
+    }
+
+    /**
+     * Step do pipeline
+     */
+    public final class Step {
+        private final String name;
+        private final Path output;
+        private final List<Path> inputs = new ArrayList<>();
+        private final List<String> params = new ArrayList<>();
+        private final List<Class<?>> code = new ArrayList<>();
+        private boolean skipped;
+
+        private Step(String name, Path output) {
+            this.name = name;
+            this.output = output;
+            this.params.add(CompressionProfile.KEY);
+        }
+
+        /** Arquivos ou diretórios lidos pelo step */
+        public Step inputs(Path... paths) {
+            for (Path path : paths) inputs.add(path);
+            return this;
+        }
+
+        /** Parâmetros do step: chave exata ou prefixo terminado em "." (ex.: "risk.") */
+        public Step params(String... keys) {
+            for (String key : keys) params.add(key);
+            return this;
+        }
+
+        /** Classes cujo bytecode define o resultado do step */
+        public Step code(Class<?>... classes) {
+            for (Class<?> cls : classes) code.add(cls);
+            return this;
+        }
+
+        /** true se o step foi pulado na última chamada de run() */
+        public boolean wasSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Pula o step se o marcador for válido; senão remove a saída desatualizada (apenas
+         * se ela tiver marcador), executa o job e grava o marcador em caso de sucesso.
+         * @return false se o job falhou
+         */
+        public boolean run(StepRunner runner) throws Exception {
+            skipped = false;
+            if (!enabled) {
+                return runner.run();
+            }
+
+            FileSystem fs = output.getFileSystem(conf);
+            Path marker = new Path(output, MARKER);
+            String reason = upstreamRan ? "step anterior refeito" : "entradas, parâmetros ou código mudaram";
+            if (name.equals(from)) {
+                reason = FROM_KEY + "=" + from;
+                upstreamRan = true;
+            }
+
+            List<String> description = describe();
+            String fingerprint = fingerprint(description);
+            String recorded = fs.exists(marker) ? readFingerprint(fs, marker) : null;
+
+            if (!upstreamRan && fingerprint.equals(recorded)) {
+                skipped = true;
+                System.out.println("[checkpoint] " + pipeline + "/" + name + ": saída válida em " + output +
+                        " (fingerprint " + fingerprint.substring(0, 12) + "), step pulado");
+                return true;
+            }
+
+            if (recorded != null) {
+                System.out.println("[checkpoint] " + pipeline + "/" + name + ": " + reason +
+                        ", removendo " + output);
+                fs.delete(output, true);
+            }
+            upstreamRan = true;
+
+            if (!runner.run()) {
+                return false;
+            }
+            writeMarker(fs, marker, fingerprint, description);
+            return true;
+        }
+
+        /**
+         * Linhas que compõem o fingerprint (gravadas no marcador para inspeção)
+         */
+        private List<String> describe() throws IOException {
+            List<String> lines = new ArrayList<>();
+            lines.add("pipeline=" + pipeline);
+            lines.add("step=" + name);
+
+            for (Path input : inputs) {
+                for (Path file : InputPreview.listInputFiles(conf, input)) {
+                    FileStatus status = file.getFileSystem(conf).getFileStatus(file);
+                    lines.add("input=" + status.getPath() + " " + status.getLen() + " " + status.getModificationTime());
+                }
+            }
+
+            Map<String, String> values = new TreeMap<>();
+            for (Map.Entry<String, String> entry : conf) {
+                for (String key : params) {
+                    boolean prefix = key.endsWith(".");
+                    if (prefix ? entry.getKey().startsWith(key) : entry.getKey().equals(key)) {
+                        values.put(entry.getKey(), conf.get(entry.getKey()));
+                    }
+                }
+            }
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                lines.add("param=" + entry.getKey() + "=" + entry.getValue());
+            }
+
+            for (Class<?> cls : code) {
+                lines.add("code=" + cls.getName() + " " + classDigest(cls));
+            }
+            return lines;
+        }
+
+        private void writeMarker(FileSystem fs, Path marker, String fingerprint, List<String> description)
+                throws IOException {
+            try (Writer writer = new OutputStreamWriter(fs.create(marker, true), StandardCharsets.UTF_8)) {
+                writer.write("fingerprint=" + fingerprint + "\n");
+                writer.write("completed=" + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()) + "\n");
+                for (String line : description) {
+                    writer.write(line + "\n");
+                }
+            }
+        }
+    }
+
+    private static String readFingerprint(FileSystem fs, Path marker) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(fs.open(marker), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            return line != null && line.startsWith("fingerprint=") ? line.substring("fingerprint=".length()) : null;
+        }
+    }
+
+    private static String fingerprint(List<String> lines) {
+        MessageDigest digest = sha256();
+        for (String line : lines) {
+            digest.update(line.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * Hash do .class carregado (o mesmo que os tasks vão executar)
+     */
+    private static String classDigest(Class<?> cls) throws IOException {
+        String resource = "/" + cls.getName().replace('.', '/') + ".class";
+        try (InputStream in = cls.getResourceAsStream(resource)) {
+            if (in == null) {
+                return "?";
+            }
+            MessageDigest digest = sha256();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return hex(digest.digest()).substring(0, 16);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,332 @@
+package routines.common;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.lib.partition.InputSampler;
+import org.apache.hadoop.mapreduce.lib.partition.TotalOrderPartitioner;
+
+/**
+ * Saída ranqueada (ordem total) para rotinas que geram "chave\tvalor" em dólares
+ * (AmountByClient, AmountByCity).
+ *
+ * Um segundo job, leve, relê a saída da agregação com o valor como chave (em centavos),
+ * ordena de forma decrescente e usa o {@link TotalOrderPartitioner} com pontos de corte
+ * obtidos por amostragem ({@link InputSampler}). Assim o part-r-00000 contém os maiores
+ * valores, o part-r-00001 os seguintes, e assim por diante - concatenar os part files
+ * na ordem do nome produz o ranking completo sem funil em um único reducer.
+ *
+ * Configuração (via -D):
+ *   fta.ranked.output   - habilita o job de ranking (padrão: false)
+ *   fta.ranked.reducers - reducers do job de ranking (padrão: os mesmos da agregação)
+ *   fta.ranked.samples  - número máximo de amostras para os pontos de corte (padrão: 10000)
+ *
+ * A saída vai para "<output>_ranked"; empates no valor são ordenados pela chave.
+ */
+public final class RankedOutput {
+
+    public static final String ENABLED_KEY = "fta.ranked.output";
+    public static final String REDUCERS_KEY = "fta.ranked.reducers";
+    public static final String SAMPLES_KEY = "fta.ranked.samples";
+
+    public static final int DEFAULT_SAMPLES = 10000;
+
+    // Amostragem: probabilidade por registro e número máximo de splits lidos
+    private static final double SAMPLE_FREQUENCY = 0.1;
+    private static final int SAMPLE_MAX_SPLITS = 10;
+
+    private RankedOutput() {
+    }
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(ENABLED_KEY, false);
+    }
+
+    /**
+     * Diretório da saída ranqueada
+     */
+    public static Path rankedPath(Path outputDir) {
+        return new Path(outputDir.toString() + "_ranked");
+    }
+
+    /**
+     * Arquivo de partições do TotalOrderPartitioner, ao lado da saída ranqueada
+     */
+    public static Path partitionPath(Path outputDir) {
+        return new Path(rankedPath(outputDir).toString() + "_partitions");
+    }
+
+    /**
+     * Caminhos gravados fora do diretório da rotina quando a saída ranqueada está ligada
+     */
+    public static List<Path> siblingPaths(Path outputDir) {
+        return Arrays.asList(rankedPath(outputDir), partitionPath(outputDir));
+    }
+
+    /**
+     * Executa o job de ranking sobre a saída (texto) da agregação.
+     * @param jobName nome da rotina (o job recebe o sufixo "_ranked")
+     * @param aggregatedDir diretório com os part files "chave\tvalor"
+     * @param defaultReducers reducers usados quando fta.ranked.reducers não é informado
+     */
+    public static boolean runRankingJob(Configuration conf, String jobName, Path aggregatedDir,
+                                        int defaultReducers) throws Exception {
+        Path rankedDir = rankedPath(aggregatedDir);
+        Path partitionFile = partitionPath(aggregatedDir);
+        FileSystem fs = rankedDir.getFileSystem(conf);
+        if (fs.exists(rankedDir)) {
+            fs.delete(rankedDir, true);
+        }
+
+        // Sem dados não há o que amostrar: um único reducer gera a saída vazia
+        int reducers = Math.max(1, conf.getInt(REDUCERS_KEY, defaultReducers));
+        if (InputPreview.totalBytes(conf, aggregatedDir) == 0) {
+            reducers = 1;
+        }
+
+        Job job = Job.getInstance(conf, jobName + "_ranked");
+        job.setJarByClass(RankedOutput.class);
+
+        job.setInputFormatClass(AmountKeyInputFormat.class);
+        job.setOutputFormatClass(TextOutputFormat.class);
+        FileInputFormat.addInputPath(job, aggregatedDir);
+        FileOutputFormat.setOutputPath(job, rankedDir);
+
+        // O InputFormat já entrega (centavos, chave): mapper identidade
+        job.setMapperClass(Mapper.class);
+        job.setMapOutputKeyClass(LongWritable.class);
+        job.setMapOutputValueClass(Text.class);
+        job.setSortComparatorClass(LongWritable.DecreasingComparator.class);
+
+        job.setReducerClass(RankingReducer.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(Text.class);
+        job.setNumReduceTasks(reducers);
+        CompressionProfile.fromConf(conf).applyFinal(job);
+
+        // Pontos de corte por amostragem, na mesma ordem (decrescente) do sort comparator
+        if (reducers > 1) {
+            int samples = Math.max(reducers, conf.getInt(SAMPLES_KEY, DEFAULT_SAMPLES));
+            // getSample devolve um Object[] apesar da assinatura genérica
+            Object[] sample = new InputSampler.RandomSampler<LongWritable, Text>(
+                    SAMPLE_FREQUENCY, samples, SAMPLE_MAX_SPLITS)
+                    .getSample(new AmountKeyInputFormat(), job);
+            reducers = writePartitionFile(job.getConfiguration(), partitionFile, sample, reducers);
+            job.setNumReduceTasks(reducers);
+            if (reducers > 1) {
+                TotalOrderPartitioner.setPartitionFile(job.getConfiguration(), partitionFile);
+                job.setPartitionerClass(TotalOrderPartitioner.class);
+            }
+        }
+
+        System.out.println("========================================");
+        System.out.println("Ranked output (ordem total decrescente):");
+        System.out.println("  Input: " + aggregatedDir);
+        System.out.println("  Output: " + rankedDir);
+        System.out.println("  Reducers: " + reducers);
+        System.out.println("========================================");
+
+        boolean success = job.waitForCompletion(true);
+        if (fs.exists(partitionFile)) {
+            fs.delete(partitionFile, false);
+        }
+        return success;
+    }
+
+    /**
+     * Grava os pontos de corte (decrescentes e distintos) para o TotalOrderPartitioner.
+     * Diferente do InputSampler.writePartitionFile, tolera amostras pequenas ou com muitos
+     * valores repetidos: nesses casos o número de reducers é reduzido.
+     * @return número de reducers efetivo (pontos de corte + 1)
+     */
+    private static int writePartitionFile(Configuration conf, Path partitionFile,
+                                          Object[] sample, int reducers) throws IOException {
+        long[] amounts = new long[sample.length];
+        for (int i = 0; i < sample.length; i++) {
+            amounts[i] = ((LongWritable) sample[i]).get();
+        }
+        Arrays.sort(amounts);
+
+        // Percorre a amostra do maior para o menor valor, escolhendo cortes equidistantes
+        List<Long> splitPoints = new ArrayList<>();
+        float step = amounts.length / (float) reducers;
+        for (int i = 1; i < reducers; i++) {
+            int index = amounts.length - 1 - Math.round(step * i);
+            if (index < 0) {
+                break;
+            }
+            long candidate = amounts[index];
+            if (splitPoints.isEmpty() || candidate < splitPoints.get(splitPoints.size() - 1)) {
+                splitPoints.add(candidate);
+            }
+        }
+
+        if (splitPoints.isEmpty()) {
+            return 1;
+        }
+
+        SequenceFile.Writer writer = SequenceFile.createWriter(conf,
+                SequenceFile.Writer.file(partitionFile),
+                SequenceFile.Writer.keyClass(LongWritable.class),
+                SequenceFile.Writer.valueClass(NullWritable.class));
+        try {
+            LongWritable key = new LongWritable();
+            for (long splitPoint : splitPoints) {
+                key.set(splitPoint);
+                writer.append(key, NullWritable.get());
+            }
+        } finally {
+            writer.close();
+        }
+
+        System.out.println("Ranking: " + sample.length + " amostras -> " +
+                splitPoints.size() + " ponto(s) de corte");
+        return splitPoints.size() + 1;
+    }
+
+    /**
+     * Converte o valor formatado ("1234.56", "-7.10" ou "1234,56") para centavos
+     */
+    static long parseCents(String formatted) {
+        String value = formatted.trim().replace(',', '.');
+        return Math.round(Double.parseDouble(value) * 100.0);
+    }
+
+    /**
+     * Lê linhas "chave\tvalor" e entrega (valor em centavos, chave), para que tanto o
+     * InputSampler quanto o shuffle trabalhem diretamente sobre o valor.
+     * Linhas sem tab ou com valor inválido são ignoradas.
+     */
+    public static class AmountKeyInputFormat extends FileInputFormat<LongWritable, Text> {
+
+        /** Igual ao TextInputFormat: arquivos compactados (fta.compression) só são divididos se o codec permitir */
+        @Override
+        protected boolean isSplitable(JobContext context, Path file) {
+            CompressionCodec codec = new CompressionCodecFactory(context.getConfiguration()).getCodec(file);
+            return codec == null || codec instanceof SplittableCompressionCodec;
+        }
+
+        @Override
+        public RecordReader<LongWritable, Text> createRecordReader(InputSplit split,
+                                                                   TaskAttemptContext context) {
+            return new AmountKeyRecordReader();
+        }
+    }
+
+    static class AmountKeyRecordReader extends RecordReader<LongWritable, Text> {
+
+        private final LineRecordReader lineReader = new LineRecordReader();
+        private final LongWritable amount = new LongWritable();
+        private final Text name = new Text();
+
+        @Override
+        public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+            lineReader.initialize(split, context);
+        }
+
+        @Override
+        public boolean nextKeyValue() throws IOException {
+            while (lineReader.nextKeyValue()) {
+                String line = lineReader.getCurrentValue().toString();
+                int tab = line.lastIndexOf('\t');
+                if (tab <= 0) {
+                    continue;
+                }
+                try {
+                    amount.set(parseCents(line.substring(tab + 1)));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                name.set(line.substring(0, tab));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public LongWritable getCurrentKey() {
+            return amount;
+        }
+
+        @Override
+        public Text getCurrentValue() {
+            return name;
+        }
+
+        @Override
+        public float getProgress() throws IOException {
+            return lineReader.getProgress();
+        }
+
+        @Override
+        public void close() throws IOException {
+            lineReader.close();
+        }
+    }
+
+    /**
+     * Recebe os valores em ordem decrescente e restaura o formato "chave\tvalor"
+     */
+    public static class RankingReducer extends Reducer<LongWritable, Text, Text, Text> {
+
+        // Objetos reutilizáveis para o resultado
+        private final Text outputKey = new Text();
+        private final Text outputValue = new Text();
+        private final List<String> ties = new ArrayList<>();
+
+        // Mesmo formato das rotinas de origem
+        private final DecimalFormat decimalFormat = new DecimalFormat("0.00");
+
+        private long rankedKeys = 0;
+
+        @Override
+        protected void reduce(LongWritable key, Iterable<Text> values, Context context)
+                throws IOException, InterruptedException {
+            // Empates (raros) ordenados pela chave para uma saída determinística
+            ties.clear();
+            for (Text value : values) {
+                ties.add(value.toString());
+            }
+            if (ties.size() > 1) {
+                Collections.sort(ties);
+            }
+
+            outputValue.set(decimalFormat.format(key.get() / 100.0));
+            for (String tie : ties) {
+                outputKey.set(tie);
+                context.write(outputKey, outputValue);
+                rankedKeys++;
+            }
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            System.out.println("Ranking: " + rankedKeys + " chaves emitidas em ordem decrescente");
+            super.cleanup(context);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package routines.common;
+
+import java.io.IOException;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Mapper;
+
+/**
+ * Mapper da fase 2 do modo anti-skew: lê os agregados parciais (SequenceFile) da fase 1,
+ * remove o sal das chaves e os repassa ao combiner/reducer original da rotina.
+ */
+public class SaltMergeMapper<V extends Writable> extends Mapper<Text, V, Text, V> {
+
+    @Override
+    protected void map(Text key, V value, Context context) throws IOException, InterruptedException {
+        SkewedKeys.unsalt(key);
+        context.write(key, value);
+    }
+}
@@ -0,0 +1,236 @@
+package routines.common;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Agregação em duas fases resistente a skew (chaves quentes como ONLINE ou grandes metrópoles).
+ *
+ * Fase 1: os mappers espalham cada chave quente em N sub-chaves com sal
+ *         ("CHAVE" + SALT_SEPARATOR + n), de modo que vários reducers dividem o trabalho,
+ *         e os reducers gravam agregados parciais em SequenceFile.
+ * Fase 2: {@link SaltMergeMapper} remove o sal e o reducer original da rotina consolida
+ *         os parciais - o formato de saída não muda.
+ *
+ * Só compensa quando os registros chegam ao shuffle sem pré-agregação (CityStatistics,
+ * um registro por transação). Rotinas com {@link InMapperAggregationMapper} já reduzem
+ * cada chave a um registro por map task: o sal não equilibraria nada e só somaria o job
+ * de merge, então elas ignoram fta.skew.enabled ({@link #reportPreAggregated}).
+ *
+ * Configuração (via -D):
+ *   fta.skew.enabled        - habilita o modo (padrão: false)
+ *   fta.skew.hot.keys       - lista de chaves quentes separadas por vírgula; se ausente,
+ *                             as chaves são detectadas por amostragem da entrada
+ *   fta.skew.salts          - número de sub-chaves por chave quente (padrão: max(2, reducers))
+ *   fta.skew.sample.records - registros lidos na amostragem (padrão: 100000)
+ *   fta.skew.hot.share      - fração mínima da amostra para uma chave ser quente (padrão: 0.05)
+ */
+public final class SkewedKeys {
+
+    public static final String ENABLED_KEY = "fta.skew.enabled";
+    public static final String HOT_KEYS_KEY = "fta.skew.hot.keys";
+    public static final String SALTS_KEY = "fta.skew.salts";
+    public static final String SAMPLE_RECORDS_KEY = "fta.skew.sample.records";
+    public static final String HOT_SHARE_KEY = "fta.skew.hot.share";
+
+    /** Chaves quentes efetivas; definida pelo driver somente quando o job de merge será executado */
+    public static final String ACTIVE_KEYS_KEY = "fta.skew.active.keys";
+
+    public static final int DEFAULT_SAMPLE_RECORDS = 100000;
+    public static final float DEFAULT_HOT_SHARE = 0.05f;
+
+    /** Separador entre a chave original e o sal (não aparece em dados CSV) */
+    public static final char SALT_SEPARATOR = '\u0001';
+
+    // Separador da lista de chaves ativas no Configuration (vírgulas podem ocorrer em cidades)
+    private static final String ACTIVE_KEYS_DELIMITER = "|";
+
+    /**
+     * Extrai, de uma linha CSV já separada em colunas, a chave de agregação da rotina
+     * (deve reproduzir a normalização feita pelo mapper).
+     */
+    public interface KeyExtractor {
+        String extract(String[] cols);
+    }
+
+    private SkewedKeys() {
+    }
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(ENABLED_KEY, false);
+    }
+
+    /**
+     * Registra que o modo foi pedido para uma rotina com agregação in-mapper, que o ignora
+     */
+    public static void reportPreAggregated(Configuration conf, String routine) {
+        if (isEnabled(conf)) {
+            System.out.println("Skew: " + ENABLED_KEY + " ignorado em " + routine +
+                    " - a agregação no mapper já reduz cada chave a um registro por map task");
+        }
+    }
+
+    /**
+     * Determina as chaves quentes: lista explícita (fta.skew.hot.keys) ou amostragem da entrada.
+     * @return conjunto vazio se o modo estiver desabilitado ou nenhuma chave for quente
+     */
+    public static Set<String> resolveHotKeys(Configuration conf, Path input, KeyExtractor extractor)
+            throws IOException {
+        if (!isEnabled(conf)) {
+            return Collections.emptySet();
+        }
+
+        String configured = conf.get(HOT_KEYS_KEY);
+        if (configured != null && !configured.trim().isEmpty()) {
+            Set<String> hotKeys = new LinkedHashSet<>();
+            for (String key : configured.split(",")) {
+                if (!key.trim().isEmpty()) {
+                    hotKeys.add(key.trim());
+                }
+            }
+            System.out.println("Skew: chaves quentes configuradas: " + hotKeys);
+            return hotKeys;
+        }
+
+        return sampleHotKeys(conf, input, extractor);
+    }
+
+    /**
+     * Lê as primeiras linhas da entrada e retorna as chaves cuja participação na
+     * amostra é >= fta.skew.hot.share.
+     */
+    public static Set<String> sampleHotKeys(Configuration conf, Path input, KeyExtractor extractor)
+            throws IOException {
+        int maxRecords = Math.max(1, conf.getInt(SAMPLE_RECORDS_KEY, DEFAULT_SAMPLE_RECORDS));
+        float hotShare = conf.getFloat(HOT_SHARE_KEY, DEFAULT_HOT_SHARE);
+
+        Map<String, Long> counts = new HashMap<>();
+        long sampled = 0;
+
+        for (String line : InputPreview.readLines(conf, input, maxRecords)) {
+            String[] cols = InputPreview.splitCsv(line);
+            if (cols.length < 12) {
+                continue;
+            }
+            String key = extractor.extract(cols);
+            if (key == null || key.isEmpty()) {
+                continue;
+            }
+            Long current = counts.get(key);
+            counts.put(key, current == null ? 1L : current + 1);
+            sampled++;
+        }
+
+        Set<String> hotKeys = new TreeSet<>();
+        long threshold = (long) Math.ceil(sampled * (double) hotShare);
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (entry.getValue() >= Math.max(1, threshold)) {
+                hotKeys.add(entry.getKey());
+            }
+        }
+
+        System.out.println("Skew: amostragem de " + sampled + " registros, limiar " +
+                String.format("%.1f%%", hotShare * 100) + " -> chaves quentes: " + hotKeys);
+        return hotKeys;
+    }
+
+    /**
+     * Ativa o sal no Configuration para as chaves informadas (chamado pelo driver
+     * antes de criar o job da fase 1).
+     */
+    public static void activate(Configuration conf, Set<String> hotKeys, int numberOfReducers) {
+        conf.set(ACTIVE_KEYS_KEY, String.join(ACTIVE_KEYS_DELIMITER, hotKeys));
+        if (conf.get(SALTS_KEY) == null) {
+            conf.setInt(SALTS_KEY, Math.max(2, numberOfReducers));
+        }
+    }
+
+    /**
+     * Diretório intermediário com os agregados parciais da fase 1
+     */
+    public static Path intermediatePath(Path outputDir) {
+        return new Path(outputDir.toString() + "_salted");
+    }
+
+    /**
+     * Remove o sal da chave (in-place). Chaves sem sal permanecem inalteradas.
+     */
+    public static void unsalt(Text key) {
+        byte[] bytes = key.getBytes();
+        int length = key.getLength();
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == SALT_SEPARATOR) {
+                key.set(bytes, 0, i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Normalização padrão de chaves textuais (cidade/estado), igual à dos mappers:
+     * trim, sem aspas, maiúsculas; vazio/NULL/N/A viram "UNKNOWN".
+     */
+    public static String normalize(String raw) {
+        if (raw == null || raw.trim().isEmpty()) {
+            return "UNKNOWN";
+        }
+        String value = raw.trim().replace("\"", "").toUpperCase();
+        if (value.isEmpty() || value.equals("NULL") || value.equals("N/A")) {
+            return "UNKNOWN";
+        }
+        return value;
+    }
+
+    /**
+     * Aplica o sal às chaves quentes ativas no job.
+     */
+    public static final class Salter {
+
+        private final Set<String> hotKeys;
+        private final int salts;
+
+        private Salter(Set<String> hotKeys, int salts) {
+            this.hotKeys = hotKeys;
+            this.salts = salts;
+        }
+
+        /**
+         * @return Salter configurado, ou null se o job não estiver no modo anti-skew
+         */
+        public static Salter fromConf(Configuration conf) {
+            String active = conf.get(ACTIVE_KEYS_KEY);
+            if (active == null || active.isEmpty()) {
+                return null;
+            }
+            Set<String> keys = new HashSet<>(
+                    Arrays.asList(active.split(Pattern.quote(ACTIVE_KEYS_DELIMITER))));
+            return new Salter(keys, Math.max(1, conf.getInt(SALTS_KEY, 2)));
+        }
+
+        public boolean isHot(String key) {
+            return hotKeys.contains(key);
+        }
+
+        /**
+         * Retorna a chave com sal (se quente) ou a própria chave.
+         * @param seed valor usado para escolher o sal (ex.: contador de registros)
+         */
+        public String salt(String key, long seed) {
+            if (!hotKeys.contains(key)) {
+                return key;
+            }
+            return key + SALT_SEPARATOR + (int) ((seed & Long.MAX_VALUE) % salts);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package routines.common;
+
+/**
+ * Códigos de estado americanos (50 estados + DC) como domínio fixo.
+ *
+ * Substitui os HashSet/HashMap/switch de String montados a cada chamada nos mappers
+ * e reducers: a busca por código usa uma tabela 26x26 indexada pelas duas letras
+ * (hash perfeito) e o ordinal serve de índice para acumuladores long[].
+ */
+public enum StateCode {
+    AL("Alabama", USRegion.SOUTHEAST),
+    AK("Alaska", USRegion.WEST),
+    AZ("Arizona", USRegion.SOUTHWEST),
+    AR("Arkansas", USRegion.SOUTHEAST),
+    CA("California", USRegion.WEST),
+    CO("Colorado", USRegion.WEST),
+    CT("Connecticut", USRegion.NORTHEAST),
+    DE("Delaware", USRegion.SOUTHEAST),
+    FL("Florida", USRegion.SOUTHEAST),
+    GA("Georgia", USRegion.SOUTHEAST),
+    HI("Hawaii", USRegion.WEST),
+    ID("Idaho", USRegion.WEST),
+    IL("Illinois", USRegion.MIDWEST),
+    IN("Indiana", USRegion.MIDWEST),
+    IA("Iowa", USRegion.MIDWEST),
+    KS("Kansas", USRegion.MIDWEST),
+    KY("Kentucky", USRegion.SOUTHEAST),
+    LA("Louisiana", USRegion.SOUTHEAST),
+    ME("Maine", USRegion.NORTHEAST),
+    MD("Maryland", USRegion.SOUTHEAST),
+    MA("Massachusetts", USRegion.NORTHEAST),
+    MI("Michigan", USRegion.MIDWEST),
+    MN("Minnesota", USRegion.MIDWEST),
+    MS("Mississippi", USRegion.SOUTHEAST),
+    MO("Missouri", USRegion.MIDWEST),
+    MT("Montana", USRegion.WEST),
+    NE("Nebraska", USRegion.MIDWEST),
+    NV("Nevada", USRegion.WEST),
+    NH("New Hampshire", USRegion.NORTHEAST),
+    NJ("New Jersey", USRegion.NORTHEAST),
+    NM("New Mexico", USRegion.SOUTHWEST),
+    NY("New York", USRegion.NORTHEAST),
+    NC("North Carolina", USRegion.SOUTHEAST),
+    ND("North Dakota", USRegion.MIDWEST),
+    OH("Ohio", USRegion.MIDWEST),
+    OK("Oklahoma", USRegion.SOUTHWEST),
+    OR("Oregon", USRegion.WEST),
+    PA("Pennsylvania", USRegion.NORTHEAST),
+    RI("Rhode Island", USRegion.NORTHEAST),
+    SC("South Carolina", USRegion.SOUTHEAST),
+    SD("South Dakota", USRegion.MIDWEST),
+    TN("Tennessee", USRegion.SOUTHEAST),
+    TX("Texas", USRegion.SOUTHWEST),
+    UT("Utah", USRegion.WEST),
+    VT("Vermont", USRegion.NORTHEAST),
+    VA("Virginia", USRegion.SOUTHEAST),
+    WA("Washington", USRegion.WEST),
+    WV("West Virginia", USRegion.SOUTHEAST),
+    WI("Wisconsin", USRegion.MIDWEST),
+    WY("Wyoming", USRegion.WEST),
+    DC("District of Columbia", USRegion.SOUTHEAST);
+
+    /** Quantidade de códigos, útil para dimensionar acumuladores long[] */
+    public static final int COUNT = values().length;
+
+    // Tabela de hash perfeito: (letra1 - 'A') * 26 + (letra2 - 'A')
+    private static final StateCode[] LOOKUP = new StateCode[26 * 26];
+
+    static {
+        for (StateCode code : values()) {
+            String name = code.name();
+            LOOKUP[(name.charAt(0) - 'A') * 26 + (name.charAt(1) - 'A')] = code;
+        }
+    }
+
+    private final String displayName;
+    private final USRegion region;
+
+    StateCode(String displayName, USRegion region) {
+        this.displayName = displayName;
+        this.region = region;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public USRegion getRegion() {
+        return region;
+    }
+
+    /**
+     * Resolve um código de estado sem alocar Strings: ignora espaços e aspas nas
+     * extremidades e aceita letras minúsculas.
+     * @return o código, ou null se o valor não for um estado americano válido
+     */
+    public static StateCode parse(String raw) {
+        if (raw == null) {
+            return null;
+        }
+
+        int start = 0;
+        int end = raw.length();
+        while (start < end && isTrimmable(raw.charAt(start))) {
+            start++;
+        }
+        while (end > start && isTrimmable(raw.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start != 2) {
+            return null;
+        }
+
+        int first = letterIndex(raw.charAt(start));
+        int second = letterIndex(raw.charAt(start + 1));
+        if (first < 0 || second < 0) {
+            return null;
+        }
+        return LOOKUP[first * 26 + second];
+    }
+
+    /**
+     * Verifica se é um código de estado americano válido
+     */
+    public static boolean isValid(String raw) {
+        return parse(raw) != null;
+    }
+
+    private static boolean isTrimmable(char ch) {
+        return ch == '"' || Character.isWhitespace(ch);
+    }
+
+    private static int letterIndex(char ch) {
+        if (ch >= 'A' && ch <= 'Z') {
+            return ch - 'A';
+        }
+        if (ch >= 'a' && ch <= 'z') {
+            return ch - 'a';
+        }
+        return -1;
+    }
+}
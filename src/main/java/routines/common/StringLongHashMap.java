@@ -0,0 +1,153 @@
+package routines.common;
+
+import java.util.Arrays;
+
+/**
+ * Hash map de endereçamento aberto (sondagem linear) com chave String e valor long primitivo.
+ *
+ * Evita o boxing de Long e as entradas encadeadas do HashMap, o que reduz a memória
+ * por chave e permite estimar o consumo de forma barata (ver {@link #estimatedBytes()}).
+ * A iteração é feita por slot: percorra 0..capacity()-1 e ignore os slots com keyAt == null.
+ */
+public class StringLongHashMap {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // Overhead aproximado de uma String no heap (cabeçalho + array) e dos dois slots
+    private static final int STRING_OVERHEAD_BYTES = 56;
+    private static final int SLOT_BYTES = 8 + 8;
+
+    private String[] keys;
+    private long[] values;
+    private int size;
+    private int threshold;
+    private long keyBytes;
+
+    public StringLongHashMap() {
+        this(64);
+    }
+
+    public StringLongHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Soma delta ao valor associado à chave (inserindo com 0 se ausente).
+     * @return novo valor acumulado
+     */
+    public long add(String key, long delta) {
+        int mask = keys.length - 1;
+        int slot = mix(key.hashCode()) & mask;
+
+        while (true) {
+            String current = keys[slot];
+            if (current == null) {
+                keys[slot] = key;
+                values[slot] = delta;
+                size++;
+                keyBytes += STRING_OVERHEAD_BYTES + 2L * key.length();
+                if (size > threshold) {
+                    rehash(keys.length << 1);
+                }
+                return delta;
+            }
+            if (current.equals(key)) {
+                values[slot] += delta;
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Retorna o valor da chave ou defaultValue se ausente.
+     */
+    public long get(String key, long defaultValue) {
+        int mask = keys.length - 1;
+        int slot = mix(key.hashCode()) & mask;
+
+        while (true) {
+            String current = keys[slot];
+            if (current == null) {
+                return defaultValue;
+            }
+            if (current.equals(key)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public String keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public long valueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Estimativa (conservadora) de bytes ocupados pelas chaves e pelos arrays de slots.
+     */
+    public long estimatedBytes() {
+        return keyBytes + (long) keys.length * SLOT_BYTES;
+    }
+
+    /**
+     * Esvazia o mapa mantendo a capacidade atual (evita realocar após cada flush).
+     */
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, 0L);
+        size = 0;
+        keyBytes = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        values = new long[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int newCapacity) {
+        String[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        int mask = newCapacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            String key = oldKeys[i];
+            if (key == null) {
+                continue;
+            }
+            int slot = mix(key.hashCode()) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
+    }
+
+    // Espalha os bits do hash para reduzir agrupamento na sondagem linear
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
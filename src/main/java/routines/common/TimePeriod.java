@@ -0,0 +1,92 @@
+package routines.common;
+
+/**
+ * Períodos do dia usados nas análises temporais.
+ *
+ * A classificação por hora usa uma tabela de 24 posições e a hora é extraída do
+ * timestamp ("yyyy-MM-dd HH:mm:ss") sem split/regex. O ordinal serve de índice
+ * para acumuladores long[].
+ */
+public enum TimePeriod {
+    MORNING("Manhã"),       // 00:00 - 11:59
+    AFTERNOON("Tarde"),     // 12:00 - 17:59
+    NIGHT("Noite");         // 18:00 - 23:59
+
+    /** Quantidade de períodos, útil para dimensionar acumuladores long[] */
+    public static final int COUNT = values().length;
+
+    private static final TimePeriod[] BY_HOUR = new TimePeriod[24];
+
+    static {
+        for (int hour = 0; hour < 24; hour++) {
+            BY_HOUR[hour] = hour < 12 ? MORNING : (hour < 18 ? AFTERNOON : NIGHT);
+        }
+    }
+
+    private final String displayName;
+
+    TimePeriod(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Retorna o período para a hora informada (0-23) ou null se fora do intervalo
+     */
+    public static TimePeriod fromHour(int hour) {
+        return (hour >= 0 && hour < 24) ? BY_HOUR[hour] : null;
+    }
+
+    /**
+     * Determina o período do dia baseado no timestamp
+     * Formato esperado: "2010-01-01 00:01:00"
+     * @return o período, ou null se o timestamp for inválido
+     */
+    public static TimePeriod fromDateTime(String dateTimeRaw) {
+        return fromHour(parseHour(dateTimeRaw));
+    }
+
+    /**
+     * Extrai a hora (0-23) do timestamp "yyyy-MM-dd HH:mm:ss"
+     * @return a hora, ou -1 se o timestamp for inválido
+     */
+    public static int parseHour(String dateTimeRaw) {
+        if (dateTimeRaw == null) {
+            return -1;
+        }
+
+        // A hora começa após o primeiro espaço que segue a data
+        int length = dateTimeRaw.length();
+        int i = 0;
+        while (i < length && (dateTimeRaw.charAt(i) == ' ' || dateTimeRaw.charAt(i) == '"')) {
+            i++;
+        }
+        i = dateTimeRaw.indexOf(' ', i);
+        if (i < 0) {
+            return -1;
+        }
+        while (i < length && dateTimeRaw.charAt(i) == ' ') {
+            i++;
+        }
+
+        int hour = 0;
+        int digits = 0;
+        while (i < length && digits < 2) {
+            char ch = dateTimeRaw.charAt(i);
+            if (ch < '0' || ch > '9') {
+                break;
+            }
+            hour = hour * 10 + (ch - '0');
+            digits++;
+            i++;
+        }
+
+        if (digits == 0 || (i < length && dateTimeRaw.charAt(i) != ':')) {
+            return -1;
+        }
+        return hour < 24 ? hour : -1;
+    }
+}
@@ -0,0 +1,144 @@
+package routines.common;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Seleção top-K primitiva: (id int -> contagem long) em um heap de tamanho fixo.
+ *
+ * Substitui o padrão "copiar tudo para uma lista, ordenar e pegar os 3 primeiros"
+ * dos reducers de ranking: cada candidato custa O(log K), sem boxing nem objetos
+ * por entrada, e os arrays são reutilizados entre grupos via {@link #reset()}.
+ *
+ * Ordem do ranking: contagem decrescente; empates pelo menor id (determinístico).
+ *
+ * Uso:
+ *   selector.reset();
+ *   selector.offer(id, count) ...;
+ *   int n = selector.finish();      // ordena o resultado
+ *   selector.idAt(0) / countAt(0)   // 1º colocado
+ */
+public final class TopKSelector {
+
+    /** Número de posições do ranking (padrão: 3) */
+    public static final String K_KEY = "fta.topk.k";
+    public static final int DEFAULT_K = 3;
+
+    private final int k;
+    private final int[] ids;
+    private final long[] counts;
+    private int size;
+
+    public TopKSelector(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("K deve ser >= 1: " + k);
+        }
+        this.k = k;
+        this.ids = new int[k];
+        this.counts = new long[k];
+    }
+
+    /**
+     * Cria o seletor com K lido de fta.topk.k
+     */
+    public static TopKSelector fromConf(Configuration conf) {
+        return new TopKSelector(Math.max(1, conf.getInt(K_KEY, DEFAULT_K)));
+    }
+
+    public int capacity() {
+        return k;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * Oferece um candidato. Enquanto o heap não está cheio o candidato entra direto;
+     * depois, só substitui a raiz (pior colocado) se for melhor que ela.
+     */
+    public void offer(int id, long count) {
+        if (size < k) {
+            ids[size] = id;
+            counts[size] = count;
+            siftUp(size++);
+        } else if (better(id, count, 0)) {
+            ids[0] = id;
+            counts[0] = count;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Ordena o conteúdo do heap do 1º ao último colocado (heapsort in-place).
+     * Após a chamada, use {@link #idAt}/{@link #countAt}; o próximo grupo começa com reset().
+     * @return número de posições preenchidas
+     */
+    public int finish() {
+        // O heap tem o pior na raiz: extrair repetidamente coloca os piores no fim
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        return size;
+    }
+
+    public int idAt(int position) {
+        return ids[position];
+    }
+
+    public long countAt(int position) {
+        return counts[position];
+    }
+
+    // Verdadeiro se (id, count) deve ficar à frente do elemento em slot
+    private boolean better(int id, long count, int slot) {
+        if (count != counts[slot]) {
+            return count > counts[slot];
+        }
+        return id < ids[slot];
+    }
+
+    // Min-heap pela ordem do ranking: o pai é sempre pior ou igual aos filhos
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!better(ids[parent], counts[parent], slot)) {
+                break;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot, int limit) {
+        while (true) {
+            int worst = slot;
+            int left = 2 * slot + 1;
+            int right = left + 1;
+            if (left < limit && better(ids[worst], counts[worst], left)) {
+                worst = left;
+            }
+            if (right < limit && better(ids[worst], counts[worst], right)) {
+                worst = right;
+            }
+            if (worst == slot) {
+                return;
+            }
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+    }
+}
@@ -0,0 +1,68 @@
+package routines.common;
+
+/**
+ * Canais de transação (campo use_chip) como domínio fixo.
+ * O ordinal serve de índice para acumuladores long[].
+ */
+public enum TransactionChannel {
+    CHIP("Chip Transaction"),
+    SWIPE("Swipe Transaction"),
+    ONLINE("Online Transaction"),
+    CONTACTLESS("Contactless Transaction"),
+    UNKNOWN("Unknown Transaction");
+
+    /** Quantidade de canais, útil para dimensionar acumuladores long[] */
+    public static final int COUNT = values().length;
+
+    private final String label;
+
+    TransactionChannel(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Rótulo usado como chave de saída (ex.: "Chip Transaction")
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Classifica o valor normalizado (trim, sem aspas, maiúsculas) do campo use_chip.
+     * @return o canal, ou null se o valor não pertencer ao domínio conhecido
+     */
+    public static TransactionChannel fromUseChip(String useChip) {
+        switch (useChip) {
+            case "CHIP TRANSACTION":
+            case "Y":
+            case "YES":
+            case "TRUE":
+            case "1":
+                return CHIP;
+
+            case "SWIPE TRANSACTION":
+            case "N":
+            case "NO":
+            case "FALSE":
+            case "0":
+                return SWIPE;
+
+            case "ONLINE TRANSACTION":
+            case "ONLINE":
+                return ONLINE;
+
+            case "CONTACTLESS TRANSACTION":
+            case "CONTACTLESS":
+                return CONTACTLESS;
+
+            case "UNKNOWN TRANSACTION":
+            case "NULL":
+            case "N/A":
+            case "":
+                return UNKNOWN;
+
+            default:
+                return null;
+        }
+    }
+}
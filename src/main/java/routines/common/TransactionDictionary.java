@@ -0,0 +1,197 @@
+package routines.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * Dicionário de strings (cidade, estado/país) compartilhado por mapper e reducer
+ * para serialização compacta dos eventos de transação no shuffle.
+ *
+ * Construído no driver a partir de uma amostra do início da entrada: as strings mais
+ * frequentes recebem os menores ids (VInt de 1 byte) e a lista vai para a Configuration
+ * do job. Valores fora do dicionário seguem inline (id 0 + string), então a codificação
+ * é sempre sem perdas; o dicionário só afeta o tamanho.
+ *
+ * Codificação de um campo: VInt id (> 0 = entrada do dicionário) | 0 + Text.writeString.
+ * MCCs de 4 dígitos usam o próprio código (VInt índice + 1) via {@link MccIndex}.
+ *
+ * Configuração (via -D):
+ *   fta.dictionary.max.entries   - tamanho máximo do dicionário (padrão: 4096)
+ *   fta.dictionary.sample.lines  - linhas amostradas pelo driver (padrão: 50000)
+ */
+public final class TransactionDictionary {
+
+    public static final String ENTRIES_KEY = "fta.dictionary.entries";
+    public static final String MAX_ENTRIES_KEY = "fta.dictionary.max.entries";
+    public static final String SAMPLE_LINES_KEY = "fta.dictionary.sample.lines";
+
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+    public static final int DEFAULT_SAMPLE_LINES = 50000;
+
+    /** Colunas do CSV com valores repetitivos: merchant_city(7), merchant_state(8) */
+    private static final int[] SAMPLED_COLUMNS = {7, 8};
+
+    /** Prefixo de cada entrada serializada (evita entradas vazias, ex.: estado "" das compras online) */
+    private static final char ENTRY_PREFIX = '=';
+
+    private static final TransactionDictionary EMPTY = new TransactionDictionary("", new String[0]);
+
+    // Cache do último dicionário decodificado (uma instância por task, não por objeto)
+    private static volatile TransactionDictionary cached = EMPTY;
+
+    private final String raw;                     // valor de fta.dictionary.entries
+    private final String[] entries;               // id - 1 -> string
+    private final Map<String, Integer> ids;       // string -> id
+
+    private TransactionDictionary(String raw, String[] entries) {
+        this.raw = raw;
+        this.entries = entries;
+        this.ids = new HashMap<>(entries.length * 2);
+        for (int i = 0; i < entries.length; i++) {
+            ids.put(entries[i], i + 1);
+        }
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Amostra a entrada, grava o dicionário em conf (fta.dictionary.entries) e devolve
+     * o número de entradas. Deve ser chamado antes de Job.getInstance(conf, ...).
+     */
+    public static int build(Configuration conf, Path input) throws IOException {
+        int maxEntries = Math.max(0, conf.getInt(MAX_ENTRIES_KEY, DEFAULT_MAX_ENTRIES));
+        int sampleLines = Math.max(0, conf.getInt(SAMPLE_LINES_KEY, DEFAULT_SAMPLE_LINES));
+
+        // Frequência dos valores normalizados (maiúsculas, sem aspas/espaços)
+        Map<String, Long> frequencies = new HashMap<>();
+        for (StateCode state : StateCode.values()) {
+            frequencies.put(state.name(), 0L);
+        }
+        frequencies.put("", 0L);
+        frequencies.put("UNKNOWN", 0L);
+
+        if (sampleLines > 0) {
+            for (String line : InputPreview.readLines(conf, input, sampleLines)) {
+                String[] parts = InputPreview.splitCsv(line);
+                if (parts.length < 12) {
+                    continue;
+                }
+                for (int column : SAMPLED_COLUMNS) {
+                    String normalized = parts[column].replace("\"", "").trim().toUpperCase();
+                    Long count = frequencies.get(normalized);
+                    frequencies.put(normalized, count == null ? 1L : count + 1);
+                }
+            }
+        }
+
+        // Mais frequentes primeiro (ids menores = VInt de 1 byte); empates em ordem alfabética
+        List<Map.Entry<String, Long>> sorted = new ArrayList<>(frequencies.entrySet());
+        sorted.sort((a, b) -> {
+            int byCount = Long.compare(b.getValue(), a.getValue());
+            return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+        });
+
+        int size = Math.min(maxEntries, sorted.size());
+        String[] escaped = new String[size];
+        for (int i = 0; i < size; i++) {
+            escaped[i] = ENTRY_PREFIX + StringUtils.escapeString(sorted.get(i).getKey());
+        }
+        conf.set(ENTRIES_KEY, StringUtils.join(",", escaped));
+        return size;
+    }
+
+    /**
+     * Dicionário configurado no job (vazio se o driver não o construiu)
+     */
+    public static TransactionDictionary get(Configuration conf) {
+        String raw = conf == null ? "" : conf.get(ENTRIES_KEY, "");
+        TransactionDictionary current = cached;
+        if (raw.equals(current.raw)) {
+            return current;
+        }
+        if (raw.isEmpty()) {
+            return EMPTY;
+        }
+
+        String[] parts = StringUtils.split(raw);
+        String[] entries = new String[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            entries[i] = StringUtils.unEscapeString(parts[i].substring(1));
+        }
+
+        current = new TransactionDictionary(raw, entries);
+        cached = current;
+        return current;
+    }
+
+    /**
+     * Escreve a string como id do dicionário ou, se ausente, inline
+     */
+    public void writeString(DataOutput out, String value) throws IOException {
+        int id = idOf(value);
+        if (id != 0) {
+            WritableUtils.writeVInt(out, id);
+        } else {
+            WritableUtils.writeVInt(out, 0);
+            Text.writeString(out, value);
+        }
+    }
+
+    /**
+     * Id gravado para a string: posição no dicionário (1..size) ou 0 quando vai inline
+     */
+    public int idOf(String value) {
+        Integer id = ids.get(value);
+        return id == null ? 0 : id;
+    }
+
+    public String readString(DataInput in) throws IOException {
+        int id = WritableUtils.readVInt(in);
+        if (id == 0) {
+            return Text.readString(in);
+        }
+        if (id > entries.length) {
+            throw new IOException("Id " + id + " fora do dicionário (" + entries.length +
+                    " entradas): mapper e reducer com fta.dictionary.entries diferentes?");
+        }
+        return entries[id - 1];
+    }
+
+    /**
+     * Escreve o MCC como índice de 4 dígitos (VInt índice + 1) ou, se não canônico, inline
+     */
+    public static void writeMcc(DataOutput out, String mcc) throws IOException {
+        int id = mccId(mcc);
+        if (id != 0) {
+            WritableUtils.writeVInt(out, id);
+        } else {
+            WritableUtils.writeVInt(out, 0);
+            Text.writeString(out, mcc);
+        }
+    }
+
+    /**
+     * Id gravado para o MCC: índice + 1, ou 0 quando vai inline
+     */
+    public static int mccId(String mcc) {
+        int index = MccIndex.index(mcc);
+        return index >= 0 && mcc.length() == 4 ? index + 1 : 0;
+    }
+
+    public static String readMcc(DataInput in) throws IOException {
+        int id = WritableUtils.readVInt(in);
+        return id == 0 ? Text.readString(in) : MccIndex.code(id - 1);
+    }
+}
@@ -0,0 +1,23 @@
+package routines.common;
+
+/**
+ * Regiões geográficas dos EUA usadas nas análises por estado.
+ * O ordinal serve de índice para acumuladores long[] (ver {@link StateCode#getRegion()}).
+ */
+public enum USRegion {
+    NORTHEAST("Northeast"),
+    SOUTHEAST("Southeast"),
+    MIDWEST("Midwest"),
+    SOUTHWEST("Southwest"),
+    WEST("West");
+
+    private final String displayName;
+
+    USRegion(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
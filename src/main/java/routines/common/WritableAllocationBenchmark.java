@@ -0,0 +1,143 @@
+package routines.common;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Writable;
+import routines.advanced.merchanthrisk.StateMerchantAggWritable;
+import routines.intermediate.citytimeperiod.CityTimePeriodStatsWritable;
+import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
+
+// Para executar (sem Hadoop/cluster, apenas a JVM):
+// java -cp target/classes:<dependências> routines.common.WritableAllocationBenchmark [registros]
+
+/**
+ * Benchmark de taxa de alocação dos valores de saída dos mappers/combiners
+ *
+ * Compara, para cada Custom Writable emitido por registro, o padrão antigo (nova
+ * instância a cada context.write) com o padrão atual (instância única redefinida
+ * via set()/reset()). Cada "registro" preenche o valor e o serializa num buffer,
+ * como faz o MapOutputBuffer, e o valor escapa por um campo volátil para que o
+ * JIT não elimine a alocação.
+ *
+ * Mede bytes alocados pela thread (com.sun.management.ThreadMXBean) e tempo por
+ * registro, após uma rodada de aquecimento.
+ */
+public final class WritableAllocationBenchmark {
+
+    private static final int DEFAULT_RECORDS = 5_000_000;
+
+    private static final String[] MCCS = {"5411", "5812", "5541", "4829", "5499", "7011", "5912", "4121"};
+    private static final String[] MERCHANTS = {"59935", "67570", "27092", "61195", "43293", "50783"};
+    private static final String[] CITIES = {"HOUSTON", "CHICAGO", "BOSTON", "MIAMI"};
+    private static final String[] HEALTH = {"A", "B", "C"};
+    private static final String[] RISK = {"LOW", "MED", "HIGH"};
+
+    /** Destino do valor emitido (impede escape analysis de remover a alocação) */
+    private static volatile Writable sink;
+
+    private final DataOutputBuffer buffer = new DataOutputBuffer(256);
+
+    private WritableAllocationBenchmark() {
+    }
+
+    /** Um cenário: preenche e serializa o valor do registro i */
+    private interface Scenario {
+        void emit(int i) throws IOException;
+    }
+
+    private void write(Writable value) throws IOException {
+        buffer.reset();
+        value.write(buffer);
+        sink = value;
+    }
+
+    private double[] measure(Scenario scenario, int records) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Aquecimento (JIT)
+        for (int i = 0; i < Math.max(1, records / 10); i++) {
+            scenario.emit(i);
+        }
+
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < records; i++) {
+            scenario.emit(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        return new double[] {(double) bytes / records, (double) elapsed / records};
+    }
+
+    private void report(String name, Scenario perRecord, Scenario reused, int records) throws IOException {
+        double[] before = measure(perRecord, records);
+        double[] after = measure(reused, records);
+        double reduction = before[0] > 0 ? (1 - after[0] / before[0]) * 100 : 0;
+
+        System.out.println(String.format("  %-28s | %10.1f | %10.1f | %7.1f%% | %8.1f | %8.1f",
+                name, before[0], after[0], reduction, before[1], after[1]));
+    }
+
+    private void run(int records) throws IOException {
+        final MCCTransactionCount mccValue = new MCCTransactionCount();
+        report("MCCTransactionCount",
+                i -> write(new MCCTransactionCount(MCCS[i & 7], 1)),
+                i -> {
+                    mccValue.set(MCCS[i & 7], 1);
+                    write(mccValue);
+                },
+                records);
+
+        final CityTimePeriodStatsWritable periodValue = new CityTimePeriodStatsWritable();
+        report("CityTimePeriodStatsWritable",
+                i -> write(new CityTimePeriodStatsWritable(i & 1, (i >> 1) & 1, (i >> 2) & 1)),
+                i -> {
+                    periodValue.set(i & 1, (i >> 1) & 1, (i >> 2) & 1);
+                    write(periodValue);
+                },
+                records);
+
+        final StateMerchantAggWritable aggValue = new StateMerchantAggWritable();
+        report("StateMerchantAggWritable",
+                i -> {
+                    StateMerchantAggWritable agg = new StateMerchantAggWritable();
+                    agg.setK(5);
+                    agg.addOneMerchant(HEALTH[i % 3], RISK[(i / 3) % 3], CITIES[i & 3], MERCHANTS[i % 6], i);
+                    write(agg);
+                },
+                i -> {
+                    aggValue.reset();
+                    aggValue.setK(5);
+                    aggValue.addOneMerchant(HEALTH[i % 3], RISK[(i / 3) % 3], CITIES[i & 3], MERCHANTS[i % 6], i);
+                    write(aggValue);
+                },
+                records);
+    }
+
+    /**
+     * Método main - ponto de entrada do benchmark
+     */
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RECORDS;
+
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            System.err.println("JVM sem suporte a com.sun.management.ThreadMXBean (bytes alocados por thread)");
+            System.exit(1);
+        }
+
+        System.out.println("========================================");
+        System.out.println("WritableAllocationBenchmark - " + records + " registros por cenário");
+        System.out.println("  Antes: nova instância por registro | Depois: instância reutilizada (set/reset)");
+        System.out.println("========================================");
+        System.out.println(String.format("  %-28s | %10s | %10s | %8s | %8s | %8s",
+                "Writable", "B/reg ant.", "B/reg dep.", "Redução", "ns ant.", "ns dep."));
+
+        new WritableAllocationBenchmark().run(records);
+
+        System.out.println("========================================");
+    }
+}
@@ -0,0 +1,223 @@
+package routines.cube;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import routines.common.TransactionDictionary;
+
+/**
+ * Célula do cubo: estado × cidade × MCC × canal (use_chip) × hora do dia × dia
+ *
+ * Os textos já chegam normalizados pelo mapper (trim, sem aspas, maiúsculas), a forma
+ * sobre a qual as regras de cada rotina (UNKNOWN, ONLINE, país, MCC numérico...) são
+ * aplicadas na consulta.
+ *
+ * Formato compacto no shuffle: cidade/estado como ids VInt do {@link TransactionDictionary}
+ * (recebido via setConf), MCC como índice de 4 dígitos, canal inline, hora + presença do
+ * dia num byte e o dia (dias desde 1970) em VLong.
+ *
+ * Ordem (também no {@link Comparator}, sem desserializar): estado, cidade e MCC pelo id
+ * gravado (ids do dicionário por frequência; id 0 = texto inline, desempatado pelos bytes
+ * UTF-8), canal, hora, presença do dia e dia. Não é alfabética - nem o reducer nem o
+ * {@link CubeFile} dependem da ordem, só do agrupamento de células iguais.
+ */
+public class CubeCellWritable implements WritableComparable<CubeCellWritable>, Configurable {
+
+    /** Hora ausente/ilegível */
+    public static final int NO_HOUR = -1;
+
+    private static final int FLAG_DAY = 1 << 5;
+    private static final int HOUR_MASK = FLAG_DAY - 1;
+
+    private String state = "";
+    private String city = "";
+    private String mcc = "";
+    private String channel = "";
+    private int hour = NO_HOUR;
+    private boolean hasDay;
+    private long day;
+
+    private Configuration conf;
+    private TransactionDictionary dictionary = TransactionDictionary.get(null);
+
+    static {
+        // Comparator binário padrão da classe (ordena e agrupa sem passar pelo dicionário)
+        WritableComparator.define(CubeCellWritable.class, new Comparator());
+    }
+
+    public CubeCellWritable() { }
+
+    /**
+     * Redefine todos os campos (permite reutilizar a instância no mapper)
+     * @param day dias desde 1970, ignorado se hasDay for false
+     */
+    public void set(String state, String city, String mcc, String channel, int hour, boolean hasDay, long day) {
+        this.state = state;
+        this.city = city;
+        this.mcc = mcc;
+        this.channel = channel;
+        this.hour = hour >= 0 && hour < 24 ? hour : NO_HOUR;
+        this.hasDay = hasDay;
+        this.day = hasDay ? day : 0;
+    }
+
+    public String getState() { return state; }
+    public String getCity() { return city; }
+    public String getMcc() { return mcc; }
+    public String getChannel() { return channel; }
+    public int getHour() { return hour; }
+    public boolean hasDay() { return hasDay; }
+    public long getDay() { return day; }
+
+    @Override public void setConf(Configuration conf) {
+        this.conf = conf;
+        this.dictionary = TransactionDictionary.get(conf);
+    }
+
+    @Override public Configuration getConf() { return conf; }
+
+    @Override public void write(DataOutput out) throws IOException {
+        dictionary.writeString(out, state);
+        dictionary.writeString(out, city);
+        TransactionDictionary.writeMcc(out, mcc);
+        WritableUtils.writeString(out, channel);
+        out.writeByte((hour + 1) | (hasDay ? FLAG_DAY : 0));
+        if (hasDay) {
+            WritableUtils.writeVLong(out, day);
+        }
+    }
+
+    @Override public void readFields(DataInput in) throws IOException {
+        state = dictionary.readString(in);
+        city = dictionary.readString(in);
+        mcc = TransactionDictionary.readMcc(in);
+        channel = WritableUtils.readString(in);
+        int flags = in.readByte();
+        hour = (flags & HOUR_MASK) - 1;
+        hasDay = (flags & FLAG_DAY) != 0;
+        day = hasDay ? WritableUtils.readVLong(in) : 0;
+    }
+
+    @Override public int compareTo(CubeCellWritable other) {
+        int cmp = compareCoded(dictionary.idOf(state), state, dictionary.idOf(other.state), other.state);
+        if (cmp != 0) return cmp;
+        cmp = compareCoded(dictionary.idOf(city), city, dictionary.idOf(other.city), other.city);
+        if (cmp != 0) return cmp;
+        cmp = compareCoded(TransactionDictionary.mccId(mcc), mcc, TransactionDictionary.mccId(other.mcc), other.mcc);
+        if (cmp != 0) return cmp;
+        cmp = compareCodePoints(channel, other.channel);
+        if (cmp != 0) return cmp;
+        cmp = Integer.compare(hour, other.hour);
+        if (cmp != 0) return cmp;
+        cmp = Boolean.compare(hasDay, other.hasDay);
+        return cmp != 0 ? cmp : Long.compare(day, other.day);
+    }
+
+    /**
+     * Mesma ordem do {@link Comparator}: id gravado e, se ambos inline, o texto
+     */
+    private static int compareCoded(int id1, String value1, int id2, String value2) {
+        if (id1 != id2) return Integer.compare(id1, id2);
+        return id1 != 0 ? 0 : compareCodePoints(value1, value2);
+    }
+
+    /**
+     * Ordem por code point, igual à dos bytes UTF-8 comparados pelo {@link Comparator}
+     */
+    private static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int c1 = a.codePointAt(i);
+            int c2 = b.codePointAt(j);
+            if (c1 != c2) return Integer.compare(c1, c2);
+            i += Character.charCount(c1);
+            j += Character.charCount(c2);
+        }
+        return Boolean.compare(i < a.length(), j < b.length());
+    }
+
+    @Override public boolean equals(Object obj) {
+        return obj instanceof CubeCellWritable && compareTo((CubeCellWritable) obj) == 0;
+    }
+
+    @Override public int hashCode() {
+        int h = state.hashCode();
+        h = 31 * h + city.hashCode();
+        h = 31 * h + mcc.hashCode();
+        h = 31 * h + channel.hashCode();
+        h = 31 * h + hour;
+        return 31 * h + (hasDay ? Long.hashCode(day) : -1);
+    }
+
+    @Override public String toString() {
+        return state + "\t" + city + "\t" + mcc + "\t" + channel + "\t" + hour + "\t" + (hasDay ? day : "-");
+    }
+
+    /**
+     * Comparator binário: compara os ids e os textos inline direto nos bytes serializados
+     */
+    public static class Comparator extends WritableComparator {
+
+        public Comparator() {
+            super(CubeCellWritable.class);
+        }
+
+        @Override
+        public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+            try {
+                // Estado, cidade e MCC: VInt id (0 = Text inline a seguir)
+                int p1 = s1;
+                int p2 = s2;
+                for (int field = 0; field < 3; field++) {
+                    int cmp = compareCoded(b1, p1, b2, p2);
+                    if (cmp != 0) return cmp;
+                    p1 = codedEnd(b1, p1);
+                    p2 = codedEnd(b2, p2);
+                }
+
+                // Canal: int tamanho + UTF-8 (WritableUtils.writeString)
+                int channel1 = Math.max(0, readInt(b1, p1));
+                int channel2 = Math.max(0, readInt(b2, p2));
+                int cmp = compareBytes(b1, p1 + 4, channel1, b2, p2 + 4, channel2);
+                if (cmp != 0) return cmp;
+                p1 += 4 + channel1;
+                p2 += 4 + channel2;
+
+                // Hora + 1 nos bits baixos, presença do dia em FLAG_DAY, depois o dia em VLong
+                int flags1 = b1[p1];
+                int flags2 = b2[p2];
+                cmp = Integer.compare(flags1 & HOUR_MASK, flags2 & HOUR_MASK);
+                if (cmp != 0) return cmp;
+                cmp = Integer.compare(flags1 & FLAG_DAY, flags2 & FLAG_DAY);
+                if (cmp != 0 || (flags1 & FLAG_DAY) == 0) return cmp;
+                return Long.compare(readVLong(b1, p1 + 1), readVLong(b2, p2 + 1));
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        private static int compareCoded(byte[] b1, int p1, byte[] b2, int p2) throws IOException {
+            int id1 = readVInt(b1, p1);
+            int id2 = readVInt(b2, p2);
+            if (id1 != id2) return Integer.compare(id1, id2);
+            if (id1 != 0) return 0;
+            int t1 = p1 + WritableUtils.decodeVIntSize(b1[p1]);
+            int t2 = p2 + WritableUtils.decodeVIntSize(b2[p2]);
+            return compareBytes(b1, t1 + WritableUtils.decodeVIntSize(b1[t1]), readVInt(b1, t1),
+                    b2, t2 + WritableUtils.decodeVIntSize(b2[t2]), readVInt(b2, t2));
+        }
+
+        /** Posição logo após um campo codificado (id, e o Text inline quando id = 0) */
+        private static int codedEnd(byte[] b, int p) throws IOException {
+            int next = p + WritableUtils.decodeVIntSize(b[p]);
+            if (readVInt(b, p) != 0) return next;
+            return next + WritableUtils.decodeVIntSize(b[next]) + readVInt(b, next);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package routines.cube;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Formato binário do cubo ("cube.bin"), gravado pelo driver a partir das células do job
+ *
+ * Layout:
+ *   "FTACUBE" + versão (1 byte), sem compressão
+ *   bloco deflate de células, na ordem em que foram gravadas:
+ *     boolean byDay
+ *     por célula: 4 ids VInt | byte hora+1 (bit 5 = tem dia) | [VLong dia] |
+ *                 VLong count | VLong amountCount | VLong amountCents | VLong errors
+ *   bloco deflate do trailer:
+ *     VLong células | 4 dicionários (estado, cidade, MCC, canal): VInt tamanho + strings
+ *   long: posição do trailer no arquivo
+ *
+ * As células vão direto para o bloco deflate à medida que chegam; só os dicionários
+ * (valores distintos por dimensão) ficam em memória até o trailer, então a memória do
+ * driver não cresce com o número de células. Cada texto distinto aparece uma única vez;
+ * a célula carrega só ids pequenos e contadores. O ganho sobre o CSV depende de quanto
+ * as células agregam: sem a dimensão dia são ordens de grandeza; com o dia, numa base
+ * grande as células se aproximam de uma por transação e o ganho vem só da codificação
+ * (ids, VLong e deflate).
+ */
+public final class CubeFile {
+
+    public static final String FILE_NAME = "cube.bin";
+
+    /** Dimensões dicionarizadas, na ordem do arquivo */
+    public static final int STATE = 0;
+    public static final int CITY = 1;
+    public static final int MCC = 2;
+    public static final int CHANNEL = 3;
+    public static final int DIMENSIONS = 4;
+
+    private static final byte[] MAGIC = "FTACUBE".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 2;
+    private static final int FLAG_DAY = 1 << 5;
+    private static final int HOUR_MASK = FLAG_DAY - 1;
+
+    private CubeFile() {
+    }
+
+    /**
+     * Arquivo do cubo: o próprio caminho ou "<dir>/cube.bin" se for a saída do RollupCube
+     */
+    public static Path resolve(Configuration conf, Path path) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        return fs.getFileStatus(path).isDirectory() ? new Path(path, FILE_NAME) : path;
+    }
+
+    /**
+     * true se o caminho (arquivo ou saída do RollupCube) contém um cubo
+     */
+    public static boolean isCube(Configuration conf, Path path) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        if (!fs.exists(path)) {
+            return false;
+        }
+        Path file = resolve(conf, path);
+        if (!fs.exists(file) || fs.getFileStatus(file).getLen() < MAGIC.length + 1) {
+            return false;
+        }
+        try (InputStream in = fs.open(file)) {
+            byte[] header = new byte[MAGIC.length];
+            new DataInputStream(in).readFully(header);
+            return Arrays.equals(header, MAGIC);
+        }
+    }
+
+    // =======================
+    // Escrita
+    // =======================
+
+    /**
+     * Grava as células no bloco deflate à medida que chegam; dicionários e número de
+     * células vão para o trailer no close()
+     */
+    public static final class Writer implements Closeable {
+        private final FSDataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        private final DeflaterOutputStream block;
+        private final DataOutputStream data;
+        private final List<Map<String, Integer>> ids = new ArrayList<>();
+        private final List<List<String>> values = new ArrayList<>();
+        private long cells = 0;
+        private boolean closed = false;
+
+        public Writer(Configuration conf, Path file, boolean byDay) throws IOException {
+            this.out = file.getFileSystem(conf).create(file, true);
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            this.block = new DeflaterOutputStream(out, deflater, 1 << 16);
+            this.data = new DataOutputStream(block);
+            data.writeBoolean(byDay);
+            for (int i = 0; i < DIMENSIONS; i++) {
+                ids.add(new HashMap<>());
+                values.add(new ArrayList<>());
+            }
+        }
+
+        public void append(CubeCellWritable cell, CubeMeasuresWritable measures) throws IOException {
+            WritableUtils.writeVInt(data, id(STATE, cell.getState()));
+            WritableUtils.writeVInt(data, id(CITY, cell.getCity()));
+            WritableUtils.writeVInt(data, id(MCC, cell.getMcc()));
+            WritableUtils.writeVInt(data, id(CHANNEL, cell.getChannel()));
+            data.writeByte((cell.getHour() + 1) | (cell.hasDay() ? FLAG_DAY : 0));
+            if (cell.hasDay()) {
+                WritableUtils.writeVLong(data, cell.getDay());
+            }
+            WritableUtils.writeVLong(data, measures.getCount());
+            WritableUtils.writeVLong(data, measures.getAmountCount());
+            WritableUtils.writeVLong(data, measures.getAmountCents());
+            WritableUtils.writeVLong(data, measures.getErrors());
+            cells++;
+        }
+
+        private int id(int dimension, String value) {
+            Integer id = ids.get(dimension).get(value);
+            if (id == null) {
+                id = values.get(dimension).size();
+                ids.get(dimension).put(value, id);
+                values.get(dimension).add(value);
+            }
+            return id;
+        }
+
+        public long getCells() {
+            return cells;
+        }
+
+        public int dictionarySize(int dimension) {
+            return values.get(dimension).size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                data.flush();
+                block.finish();
+
+                // Trailer: número de células e dicionários, em um segundo bloco deflate
+                long trailer = out.getPos();
+                deflater.reset();
+                DeflaterOutputStream trailerBlock = new DeflaterOutputStream(out, deflater, 1 << 16);
+                DataOutputStream meta = new DataOutputStream(trailerBlock);
+                WritableUtils.writeVLong(meta, cells);
+                for (List<String> dictionary : values) {
+                    WritableUtils.writeVInt(meta, dictionary.size());
+                    for (String value : dictionary) {
+                        WritableUtils.writeString(meta, value);
+                    }
+                }
+                meta.flush();
+                trailerBlock.finish();
+                out.writeLong(trailer);
+            } finally {
+                out.close();
+                deflater.end();
+            }
+        }
+    }
+
+    // =======================
+    // Leitura
+    // =======================
+
+    /**
+     * Recebe o conteúdo do cubo durante a leitura
+     */
+    public interface Visitor {
+        /** Cabeçalho: granularidade, número de células e dicionários [dimensão][id] */
+        void begin(boolean byDay, long cells, String[][] dictionaries);
+
+        /**
+         * Uma célula; ids indexados por {@link CubeFile#STATE}..{@link CubeFile#CHANNEL}, hour -1 se ausente
+         */
+        void cell(int[] ids, int hour, boolean hasDay, long day,
+                  long count, long amountCount, long amountCents, long errors);
+    }
+
+    /**
+     * Lê o cubo (arquivo ou saída do RollupCube) entregando cada célula ao visitor
+     */
+    public static void read(Configuration conf, Path path, Visitor visitor) throws IOException {
+        Path file = resolve(conf, path);
+        FileSystem fs = file.getFileSystem(conf);
+        long length = fs.getFileStatus(file).getLen();
+        Inflater inflater = new Inflater();
+        try (FSDataInputStream raw = fs.open(file)) {
+            byte[] magic = new byte[MAGIC.length];
+            raw.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Arquivo não é um cubo: " + file);
+            }
+            int version = raw.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Versão do cubo não suportada: " + version + " (" + file +
+                        "; gere o cubo de novo com o RollupCube)");
+            }
+            long cellsStart = raw.getPos();
+
+            // Trailer primeiro: o visitor recebe o número de células e os dicionários antes delas
+            raw.seek(length - 8);
+            raw.seek(raw.readLong());
+            DataInputStream meta = new DataInputStream(new InflaterInputStream(raw, inflater, 1 << 16));
+            long cells = WritableUtils.readVLong(meta);
+            String[][] dictionaries = new String[DIMENSIONS][];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                dictionaries[d] = new String[WritableUtils.readVInt(meta)];
+                for (int id = 0; id < dictionaries[d].length; id++) {
+                    dictionaries[d][id] = WritableUtils.readString(meta);
+                }
+            }
+
+            raw.seek(cellsStart);
+            inflater.reset();
+            DataInputStream in = new DataInputStream(new InflaterInputStream(raw, inflater, 1 << 16));
+            boolean byDay = in.readBoolean();
+            visitor.begin(byDay, cells, dictionaries);
+
+            int[] ids = new int[DIMENSIONS];
+            for (long c = 0; c < cells; c++) {
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    ids[d] = WritableUtils.readVInt(in);
+                }
+                int flags = in.readUnsignedByte();
+                boolean hasDay = (flags & FLAG_DAY) != 0;
+                long day = hasDay ? WritableUtils.readVLong(in) : 0;
+                visitor.cell(ids, (flags & HOUR_MASK) - 1, hasDay, day, WritableUtils.readVLong(in),
+                        WritableUtils.readVLong(in), WritableUtils.readVLong(in), WritableUtils.readVLong(in));
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package routines.cube;
+
+import java.io.IOException;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import routines.basic.amountbycity.AmountByCityMapper;
+import routines.basic.errorcountbymcc.ErrorCountByMCCMapper;
+import routines.common.InputPreview;
+import routines.common.TimePeriod;
+import routines.dataset.ColumnarDataset;
+
+/**
+ * Mapper do RollupCube: cada transação vira (célula, medidas de uma transação)
+ *
+ * Dimensões normalizadas com {@link #clean} (trim, sem aspas, maiúsculas); as regras
+ * específicas de cada rotina ficam para a consulta, que as aplica uma vez por valor
+ * distinto. Hora pela mesma regra do CityTimePeriod e dia pela mesma regra dos filtros
+ * --from/--to do DatasetQuery.
+ */
+public class CubeMapper extends Mapper<LongWritable, Text, CubeCellWritable, CubeMeasuresWritable> {
+
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    // Objetos reutilizáveis
+    private final CubeCellWritable cell = new CubeCellWritable();
+    private final CubeMeasuresWritable measures = new CubeMeasuresWritable();
+
+    private boolean byDay;
+
+    // Contadores para estatísticas
+    private long recordsProcessed = 0;
+    private long validRecords = 0;
+    private long invalidRecords = 0;
+    private long invalidAmounts = 0;
+    private long errorRecords = 0;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        byDay = RollupCube.isByDay(context.getConfiguration());
+    }
+
+    @Override
+    protected void map(LongWritable key, Text value, Context context)
+            throws IOException, InterruptedException {
+
+        recordsProcessed++;
+        String line = value.toString();
+
+        // Ignorar cabeçalho
+        if (line.startsWith("id,") || line.startsWith("\"id\"")) {
+            return;
+        }
+
+        // Estrutura CSV: id(0),date(1),client_id(2),card_id(3),amount(4),use_chip(5),
+        //                merchant_id(6),merchant_city(7),merchant_state(8),zip(9),mcc(10),errors(11)
+        String[] parts = InputPreview.splitCsv(line);
+        if (parts.length < 12) {
+            invalidRecords++;
+            return;
+        }
+
+        long epoch = byDay ? ColumnarDataset.parseEpochSeconds(parts[1]) : ColumnarDataset.INVALID;
+        boolean hasDay = epoch != ColumnarDataset.INVALID;
+        cell.set(clean(parts[8]), clean(parts[7]), clean(parts[10]), clean(parts[5]),
+                TimePeriod.parseHour(parts[1]), hasDay, hasDay ? Math.floorDiv(epoch, SECONDS_PER_DAY) : 0);
+
+        long cents = AmountByCityMapper.parseAmountToCents(parts[4]);
+        boolean validAmount = cents != Long.MIN_VALUE;
+        boolean error = ErrorCountByMCCMapper.errorKey("0000", parts[11]) != null;
+        measures.set(1, validAmount ? 1 : 0, validAmount ? cents : 0, error ? 1 : 0);
+        context.write(cell, measures);
+
+        validRecords++;
+        if (!validAmount) invalidAmounts++;
+        if (error) errorRecords++;
+
+        if (recordsProcessed % 100000 == 0) {
+            context.setStatus("Processados " + recordsProcessed + " registros");
+        }
+    }
+
+    /**
+     * Normalização comum às dimensões textuais (trim, sem aspas, maiúsculas)
+     */
+    static String clean(String raw) {
+        return raw == null ? "" : raw.trim().replace("\"", "").toUpperCase();
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        System.out.println("========================================");
+        System.out.println("Estatísticas do Mapper (RollupCube):");
+        System.out.println("  Total de registros processados: " + recordsProcessed);
+        System.out.println("  Registros válidos: " + validRecords);
+        System.out.println("  Registros inválidos: " + invalidRecords);
+        System.out.println("  Valores ilegíveis: " + invalidAmounts);
+        System.out.println("  Transações com erro: " + errorRecords);
+        System.out.println("========================================");
+        super.cleanup(context);
+    }
+}
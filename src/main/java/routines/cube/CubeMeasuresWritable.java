@@ -0,0 +1,68 @@
+package routines.cube;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Medidas de uma célula do cubo, todas aditivas (combiner = reducer):
+ *  - count       - transações
+ *  - amountCount - transações com valor legível (as demais não entram na soma)
+ *  - amountCents - soma dos valores em centavos
+ *  - errors      - transações com o campo errors preenchido
+ *
+ * amountCount separa "soma zero" de "nenhum valor legível": a rotina de valor ignora a
+ * transação sem valor, então uma célula sem nenhum valor legível não gera chave.
+ */
+public class CubeMeasuresWritable implements Writable {
+
+    private long count;
+    private long amountCount;
+    private long amountCents;
+    private long errors;
+
+    public CubeMeasuresWritable() { }
+
+    public void set(long count, long amountCount, long amountCents, long errors) {
+        this.count = count;
+        this.amountCount = amountCount;
+        this.amountCents = amountCents;
+        this.errors = errors;
+    }
+
+    public void reset() {
+        set(0, 0, 0, 0);
+    }
+
+    public void add(CubeMeasuresWritable other) {
+        count += other.count;
+        amountCount += other.amountCount;
+        amountCents += other.amountCents;
+        errors += other.errors;
+    }
+
+    public long getCount() { return count; }
+    public long getAmountCount() { return amountCount; }
+    public long getAmountCents() { return amountCents; }
+    public long getErrors() { return errors; }
+
+    @Override public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVLong(out, count);
+        WritableUtils.writeVLong(out, amountCount);
+        WritableUtils.writeVLong(out, amountCents);
+        WritableUtils.writeVLong(out, errors);
+    }
+
+    @Override public void readFields(DataInput in) throws IOException {
+        count = WritableUtils.readVLong(in);
+        amountCount = WritableUtils.readVLong(in);
+        amountCents = WritableUtils.readVLong(in);
+        errors = WritableUtils.readVLong(in);
+    }
+
+    @Override public String toString() {
+        return count + "\t" + amountCount + "\t" + amountCents + "\t" + errors;
+    }
+}
@@ -0,0 +1,101 @@
+package routines.cube;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import routines.dataset.ColumnarDataset;
+import routines.dataset.DatasetQuery;
+import routines.dataset.DatasetServer;
+
+// Para executar configure os argumentos da seguinte forma:
+// output/cube amount_by_city
+// output/cube top_categories_by_state --from 2015-01-01 --to 2015-12-31 --metric amount --k 5
+// output/cube city_time_period --state TX
+
+/**
+ * Consulta pontual sobre o cubo do {@link RollupCube}, sem submeter jobs
+ *
+ * Carrega "cube.bin" como um {@link ColumnarDataset} de células e executa a mesma
+ * {@link DatasetQuery} do DatasetServer: a resposta tem o conteúdo "chave\tvalor" da saída
+ * MapReduce da rotina, em ordem de chave (stdout); o resumo vai para o stderr. Para várias
+ * consultas seguidas, "DatasetServer serve <cubo>" mantém o cubo em memória.
+ */
+public class CubeQuery extends Configured implements Tool {
+
+    /**
+     * Rotinas que o cubo consegue responder (todas as consultas em memória, exceto as que
+     * agrupam por colunas fora do cubo)
+     */
+    public static List<String> supportedRoutines() {
+        List<String> routines = new ArrayList<>();
+        for (DatasetQuery.Kind kind : DatasetQuery.Kind.values()) {
+            if (kind != DatasetQuery.Kind.AMOUNT_BY_CLIENT) {
+                routines.add(kind.getRoutineName());
+            }
+        }
+        return routines;
+    }
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: CubeQuery <cubo> <rotina> [--from yyyy-MM-dd] [--to yyyy-MM-dd]");
+            System.err.println("                 [--state TX,CA] [--mcc 5411,5812] [--k 3] [--metric count|amount]");
+            System.err.println("  cubo: saída do RollupCube (ou o arquivo " + CubeFile.FILE_NAME + ")");
+            System.err.println("  rotinas: " + String.join(", ", supportedRoutines()));
+            return -1;
+        }
+
+        DatasetQuery query;
+        try {
+            query = DatasetQuery.parse(Arrays.asList(args).subList(1, args.length));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro: " + e.getMessage());
+            return -1;
+        }
+
+        long start = System.nanoTime();
+        ColumnarDataset cube = ColumnarDataset.loadCube(getConf(), new Path(args[0]));
+        long loadNanos = System.nanoTime() - start;
+
+        int threads = Math.max(1, getConf().getInt(DatasetServer.THREADS_KEY,
+                Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            DatasetQuery.Result result = query.execute(cube, pool, threads);
+            // UTF-8 como nos part-r-* (ex.: "Manhã" do city_time_period)
+            PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8.name());
+            for (String line : result.getLines()) {
+                out.println(line);
+            }
+            out.flush();
+            System.err.println(String.format("# %s | filtros: %s | %d linhas | %d transações | " +
+                            "%d células | carga %.1f ms | consulta %.1f ms",
+                    query.getKind().getRoutineName(), query.describeFilters(), result.getLines().size(),
+                    result.getMatchedRows(), cube.size(), loadNanos / 1_000_000.0,
+                    (System.nanoTime() - start - loadNanos) / 1_000_000.0));
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro: " + e.getMessage());
+            return -1;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Método main - ponto de entrada da aplicação
+     */
+    public static void main(String[] args) throws Exception {
+        System.exit(ToolRunner.run(new Configuration(), new CubeQuery(), args));
+    }
+}
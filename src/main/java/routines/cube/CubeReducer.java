@@ -0,0 +1,25 @@
+package routines.cube;
+
+import java.io.IOException;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Soma as medidas de cada célula do cubo. As medidas são aditivas, então a mesma
+ * classe serve de combiner.
+ */
+public class CubeReducer extends Reducer<CubeCellWritable, CubeMeasuresWritable,
+        CubeCellWritable, CubeMeasuresWritable> {
+
+    // Objeto reutilizável para o resultado
+    private final CubeMeasuresWritable result = new CubeMeasuresWritable();
+
+    @Override
+    protected void reduce(CubeCellWritable key, Iterable<CubeMeasuresWritable> values, Context context)
+            throws IOException, InterruptedException {
+        result.reset();
+        for (CubeMeasuresWritable value : values) {
+            result.add(value);
+        }
+        context.write(key, result);
+    }
+}
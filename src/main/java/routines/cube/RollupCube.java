@@ -0,0 +1,202 @@
+package routines.cube;
+
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.InputPreview;
+import routines.common.JobAutoTuner;
+import routines.common.LocalMode;
+import routines.common.TransactionDictionary;
+
+// Para executar configure os argumentos da seguinte forma:
+// src/main/resources/transactions_data.csv output/cube 1 local
+
+/**
+ * Driver do cubo de agregados (rollup): estado × cidade × MCC × canal × hora × dia,
+ * com contagem, soma em centavos e contagem de erros por célula.
+ *
+ * Um único job lê o CSV; o combiner soma as células ainda no map e o shuffle carrega
+ * chaves dicionarizadas ({@link TransactionDictionary} + índice de MCC). No final, o
+ * driver compacta as células no arquivo "<output>/cube.bin" ({@link CubeFile}) e remove
+ * a saída intermediária do job. A compactação é em fluxo (parte a parte, célula a
+ * célula): a memória do driver depende só do número de valores distintos por dimensão.
+ *
+ * Com a dimensão dia, numa base grande o número de células se aproxima do de transações
+ * (veja "transações por célula" no resumo); para relatórios sem filtro de data,
+ * fta.cube.by.day=false gera um cubo ordens de grandeza menor.
+ *
+ * As consultas sobre o cubo ({@link CubeQuery}, DatasetServer serve <cubo>) respondem
+ * amount_by_city, transaction_count_by_state, error_count_by_mcc, chip_usage_count,
+ * city_time_period e top_categories_by_city/state/country sem reler as transações.
+ *
+ * Configuração (via -D):
+ *   fta.cube.by.day - mantém a dimensão dia, usada pelos filtros --from/--to (padrão: true);
+ *                     false deixa o cubo bem menor quando os relatórios não filtram por data
+ */
+public class RollupCube extends Configured implements Tool {
+
+    public static final String BY_DAY_KEY = "fta.cube.by.day";
+
+    /** Saída do job (SequenceFile de células), removida após a compactação */
+    static final String CELLS_DIR = "_cells";
+
+    public static boolean isByDay(Configuration conf) {
+        return conf.getBoolean(BY_DAY_KEY, true);
+    }
+
+    @Override
+    public int run(String[] args) throws Exception {
+        // Verificação dos argumentos
+        if (args.length < 2 || !JobAutoTuner.isReducersArgument(args, 2)) {
+            System.err.println("Usage: RollupCube <input_path> <output_path> [num_reducers] [local]");
+            System.err.println("  input_path: caminho do arquivo CSV de transações");
+            System.err.println("  output_path: diretório de saída (recebe " + CubeFile.FILE_NAME + ")");
+            System.err.println("  num_reducers: número de reducers (opcional, padrão: auto)");
+            System.err.println("  local: para execução local (opcional)");
+            return -1;
+        }
+
+        // Parse dos parâmetros
+        Path inputPath = new Path(args[0]);
+        Path outputDir = new Path(args[1]);
+        int numberOfReducers = JobAutoTuner.parseReducers(args, 2);
+        boolean localMode = LocalMode.isRequested(args, 2);
+
+        // Configuração
+        Configuration conf = this.getConf();
+        if (localMode) {
+            System.out.println("Configurando para execução local (standalone)...");
+            LocalMode.configure(conf);
+        }
+
+        FileSystem fs = outputDir.getFileSystem(conf);
+        if (fs.exists(outputDir)) {
+            System.err.println("Diretório de saída já existe: " + outputDir);
+            return 1;
+        }
+        Path cellsDir = new Path(outputDir, CELLS_DIR);
+        Path cubeFile = new Path(outputDir, CubeFile.FILE_NAME);
+
+        // Dicionário de cidades/estados do shuffle (antes de Job.getInstance)
+        int dictionaryEntries = TransactionDictionary.build(conf, inputPath);
+
+        // Reducers, split e sort buffer: auto-tuning por amostragem (overrides via -D)
+        JobAutoTuner.Decision tuning = JobAutoTuner.tune(conf, inputPath, numberOfReducers,
+                new JobAutoTuner.Profile("rollup_cube", JobAutoTuner.Profile.csvColumn(7), 0.3));
+
+        // Criar e configurar o job
+        Job job = Job.getInstance(conf, "rollup_cube");
+        job.setJarByClass(RollupCube.class);
+        job.setInputFormatClass(TextInputFormat.class);
+        job.setOutputFormatClass(SequenceFileOutputFormat.class);
+
+        FileInputFormat.addInputPath(job, inputPath);
+        FileOutputFormat.setOutputPath(job, cellsDir);
+
+        job.setMapperClass(CubeMapper.class);
+        job.setCombinerClass(CubeReducer.class);
+        job.setReducerClass(CubeReducer.class);
+        job.setMapOutputKeyClass(CubeCellWritable.class);
+        job.setMapOutputValueClass(CubeMeasuresWritable.class);
+        job.setOutputKeyClass(CubeCellWritable.class);
+        job.setOutputValueClass(CubeMeasuresWritable.class);
+
+        // Ordenação e agrupamento binários (ids do dicionário, sem desserializar)
+        job.setSortComparatorClass(CubeCellWritable.Comparator.class);
+
+        tuning.apply(job);
+
+        // Só o shuffle é comprimido: a saída do job é intermediária
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+        compression.applyIntermediate(job);
+
+        // Log de informações
+        System.out.println("========================================");
+        System.out.println("RollupCube Job Configuration:");
+        System.out.println("  Mode: " + (localMode ? "Local (Standalone)" : "Cluster"));
+        System.out.println("  Input: " + inputPath);
+        System.out.println("  Output: " + cubeFile);
+        System.out.println("  Reducers: " + tuning.getReducers());
+        System.out.println("  Compressão: " + compression.describe());
+        System.out.println("  Dimensões: estado, cidade, MCC, canal, hora" + (isByDay(conf) ? ", dia" : ""));
+        System.out.println("  Dicionário do shuffle: " + dictionaryEntries + " entradas");
+        System.out.println("  Combiner: Enabled (using Reducer)");
+        System.out.println("========================================");
+
+        if (!job.waitForCompletion(true)) {
+            System.err.println("Job falhou!");
+            return 1;
+        }
+
+        // Compactação das células no arquivo do cubo
+        long start = System.currentTimeMillis();
+        CubeFile.Writer writer = new CubeFile.Writer(conf, cubeFile, isByDay(conf));
+        try {
+            CubeCellWritable cell = new CubeCellWritable();
+            cell.setConf(job.getConfiguration());
+            CubeMeasuresWritable measures = new CubeMeasuresWritable();
+            for (FileStatus status : fs.listStatus(cellsDir)) {
+                if (!status.getPath().getName().startsWith("part-")) {
+                    continue;
+                }
+                try (SequenceFile.Reader reader = new SequenceFile.Reader(job.getConfiguration(),
+                        SequenceFile.Reader.file(status.getPath()))) {
+                    while (reader.next(cell, measures)) {
+                        writer.append(cell, measures);
+                    }
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        fs.delete(cellsDir, true);
+
+        long inputBytes = InputPreview.totalBytes(conf, inputPath);
+        long cubeBytes = fs.getFileStatus(cubeFile).getLen();
+        long transactions = job.getCounters().findCounter("org.apache.hadoop.mapreduce.TaskCounter",
+                "MAP_OUTPUT_RECORDS").getValue();
+
+        System.out.println("========================================");
+        System.out.println("Cubo gravado em " + cubeFile + " (" + (System.currentTimeMillis() - start) + " ms)");
+        System.out.println("  Transações: " + transactions);
+        System.out.println("  Células: " + writer.getCells() +
+                String.format(" (%.1f transações por célula)", transactions / Math.max(1.0, writer.getCells())));
+        System.out.println("  Valores distintos - estados: " + writer.dictionarySize(CubeFile.STATE) +
+                ", cidades: " + writer.dictionarySize(CubeFile.CITY) +
+                ", MCCs: " + writer.dictionarySize(CubeFile.MCC) +
+                ", canais: " + writer.dictionarySize(CubeFile.CHANNEL));
+        System.out.println(String.format("  Tamanho: %d bytes (entrada: %d bytes, %.1fx menor)",
+                cubeBytes, inputBytes, inputBytes / Math.max(1.0, cubeBytes)));
+        System.out.println("========================================");
+
+        if (localMode) {
+            List<String> routines = CubeQuery.supportedRoutines();
+            System.out.println("\nPara consultar o cubo:");
+            System.out.println("  java routines.cube.CubeQuery " + outputDir + " <rotina> [filtros]");
+            System.out.println("  Rotinas: " + String.join(", ", routines));
+        }
+        return 0;
+    }
+
+    /**
+     * Método main - ponto de entrada da aplicação
+     */
+    public static void main(String[] args) throws Exception {
+        System.out.println("Iniciando RollupCube...");
+        int exitCode = ToolRunner.run(new Configuration(), new RollupCube(), args);
+        System.out.println("RollupCube finalizado com código: " + exitCode);
+        System.exit(exitCode);
+    }
+}
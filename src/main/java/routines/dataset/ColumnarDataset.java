@@ -0,0 +1,368 @@
+package routines.dataset;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import routines.basic.amountbycity.AmountByCityMapper;
+import routines.common.InputPreview;
+import routines.common.TimePeriod;
+import routines.cube.CubeFile;
+
+/**
+ * Transações em memória, em colunas primitivas
+ *
+ * Cada linha válida do CSV (12 campos) vira uma posição nos arrays:
+ *   amountCents  - valor em centavos (long; {@link #INVALID} se não for numérico)
+ *   epochSeconds - data/hora em segundos desde 1970 (UTC; {@link #INVALID} se ilegível)
+ *   demais campos usados pelas rotinas - ids int de um {@link Dictionary} por coluna
+ *
+ * Os dicionários guardam o texto original do campo (sem aspas). A normalização de cada
+ * rotina (maiúsculas, UNKNOWN, ONLINE...) é aplicada uma vez por valor distinto na hora
+ * da consulta, não por linha, o que mantém as respostas idênticas às dos mappers.
+ *
+ * Também pode ser carregado de um cubo do RollupCube ({@link #loadCube}): cada linha é
+ * então uma célula pré-agregada, com peso (transações) e erros próprios, e só as colunas
+ * do cubo (estado, cidade, MCC, use_chip, hora, dia) existem.
+ */
+public final class ColumnarDataset {
+
+    public static final long INVALID = Long.MIN_VALUE;
+
+    // Estrutura CSV: id(0),date(1),client_id(2),card_id(3),amount(4),use_chip(5),
+    //                merchant_id(6),merchant_city(7),merchant_state(8),zip(9),mcc(10),errors(11)
+    static final int DATE = 1;
+    static final int CLIENT = 2;
+    static final int AMOUNT = 4;
+    static final int USE_CHIP = 5;
+    static final int MERCHANT = 6;
+    static final int CITY = 7;
+    static final int STATE = 8;
+    static final int ZIP = 9;
+    static final int MCC = 10;
+    static final int ERRORS = 11;
+
+    /** Colunas dicionarizadas, na ordem de {@link #columns} */
+    static final int[] DICTIONARY_COLUMNS = {CLIENT, USE_CHIP, MERCHANT, CITY, STATE, ZIP, MCC, ERRORS};
+
+    /**
+     * Dicionário texto -> id denso (0..size-1) de uma coluna
+     */
+    public static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int id(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        public String value(int id) {
+            return values.get(id);
+        }
+
+        public int size() {
+            return values.size();
+        }
+    }
+
+    /** Colunas do CSV presentes no cubo, na ordem das dimensões de {@link CubeFile} */
+    private static final int[] CUBE_COLUMNS = {STATE, CITY, MCC, USE_CHIP};
+
+    private int size;
+    private long[] amountCents;
+    private long[] epochSeconds;
+    private byte[] hours;                // hora do dia (0-23) ou -1
+    private long[] counts;               // cubo: transações por célula (null = 1 por linha)
+    private long[] errorCounts;          // cubo: transações com erro por célula
+    private final int[][] columns = new int[DICTIONARY_COLUMNS.length][];
+    private final Dictionary[] dictionaries = new Dictionary[DICTIONARY_COLUMNS.length];
+    private long rejectedLines;
+    private boolean hasDates = true;
+
+    private ColumnarDataset(int capacity, int[] loadedColumns) {
+        amountCents = new long[capacity];
+        epochSeconds = new long[capacity];
+        hours = new byte[capacity];
+        for (int column : loadedColumns) {
+            columns[slot(column)] = new int[capacity];
+            dictionaries[slot(column)] = new Dictionary();
+        }
+    }
+
+    /**
+     * Carrega o CSV (arquivo ou diretório, compactado ou não) para a memória
+     */
+    public static ColumnarDataset load(Configuration conf, Path input) throws IOException {
+        ColumnarDataset data = new ColumnarDataset(1 << 16, DICTIONARY_COLUMNS);
+        FileSystem fs = input.getFileSystem(conf);
+        CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+
+        for (Path file : InputPreview.listInputFiles(conf, input)) {
+            InputStream stream = fs.open(file);
+            CompressionCodec codec = codecs.getCodec(file);
+            if (codec != null) {
+                stream = codec.createInputStream(stream);
+            }
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(stream, StandardCharsets.UTF_8), 1 << 16)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("id,") || line.startsWith("\"id\"")) {
+                        continue;
+                    }
+                    data.append(line);
+                }
+            }
+        }
+        data.trim();
+        return data;
+    }
+
+    private void append(String line) {
+        String[] parts = InputPreview.splitCsv(line);
+        if (parts.length < 12) {
+            rejectedLines++;
+            return;
+        }
+        if (size == amountCents.length) {
+            grow(size * 2);
+        }
+        amountCents[size] = AmountByCityMapper.parseAmountToCents(parts[AMOUNT]);
+        epochSeconds[size] = parseEpochSeconds(parts[DATE]);
+        hours[size] = (byte) TimePeriod.parseHour(parts[DATE]);
+        for (int i = 0; i < DICTIONARY_COLUMNS.length; i++) {
+            columns[i][size] = dictionaries[i].id(parts[DICTIONARY_COLUMNS[i]]);
+        }
+        size++;
+    }
+
+    /**
+     * Carrega um cubo do RollupCube (arquivo cube.bin ou o diretório de saída do job)
+     */
+    public static ColumnarDataset loadCube(Configuration conf, Path cube) throws IOException {
+        ColumnarDataset[] holder = new ColumnarDataset[1];
+        CubeFile.read(conf, cube, new CubeFile.Visitor() {
+            private ColumnarDataset data;
+            private final int[][] ids = new int[CubeFile.DIMENSIONS][];
+
+            @Override
+            public void begin(boolean byDay, long cells, String[][] values) {
+                if (cells > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Cubo com células demais para a memória: " + cells);
+                }
+                data = new ColumnarDataset(Math.max(1, (int) cells), CUBE_COLUMNS);
+                data.counts = new long[data.amountCents.length];
+                data.errorCounts = new long[data.amountCents.length];
+                data.hasDates = byDay;
+                for (int d = 0; d < CubeFile.DIMENSIONS; d++) {
+                    Dictionary dictionary = data.dictionary(CUBE_COLUMNS[d]);
+                    ids[d] = new int[values[d].length];
+                    for (int id = 0; id < values[d].length; id++) {
+                        ids[d][id] = dictionary.id(values[d][id]);
+                    }
+                }
+                holder[0] = data;
+            }
+
+            @Override
+            public void cell(int[] cellIds, int hour, boolean hasDay, long day,
+                             long count, long amountCount, long amountCents, long errors) {
+                int row = data.size++;
+                for (int d = 0; d < CubeFile.DIMENSIONS; d++) {
+                    data.column(CUBE_COLUMNS[d])[row] = ids[d][cellIds[d]];
+                }
+                data.hours[row] = (byte) hour;
+                data.epochSeconds[row] = hasDay ? day * 86400L : INVALID;
+                data.amountCents[row] = amountCount > 0 ? amountCents : INVALID;
+                data.counts[row] = count;
+                data.errorCounts[row] = errors;
+            }
+        });
+        holder[0].trim();
+        return holder[0];
+    }
+
+    private void grow(int capacity) {
+        amountCents = Arrays.copyOf(amountCents, capacity);
+        epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+        hours = Arrays.copyOf(hours, capacity);
+        if (counts != null) {
+            counts = Arrays.copyOf(counts, capacity);
+            errorCounts = Arrays.copyOf(errorCounts, capacity);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] != null) {
+                columns[i] = Arrays.copyOf(columns[i], capacity);
+            }
+        }
+    }
+
+    private void trim() {
+        if (size < amountCents.length) {
+            grow(size);
+        }
+    }
+
+    /**
+     * Converte "yyyy-MM-dd HH:mm[:ss]" em segundos desde 1970 (UTC)
+     * @return segundos, ou {@link #INVALID} se a data não estiver nesse formato
+     */
+    public static long parseEpochSeconds(String raw) {
+        String value = raw.trim();
+        if (value.length() < 10) {
+            return INVALID;
+        }
+        try {
+            int year = digits(value, 0, 4);
+            int month = digits(value, 5, 7);
+            int day = digits(value, 8, 10);
+            int hour = value.length() >= 13 ? digits(value, 11, 13) : 0;
+            int minute = value.length() >= 16 ? digits(value, 14, 16) : 0;
+            int second = value.length() >= 19 ? digits(value, 17, 19) : 0;
+            if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+                return INVALID;
+            }
+            return LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(ZoneOffset.UTC);
+        } catch (DateTimeException e) {
+            return INVALID;
+        }
+    }
+
+    private static int digits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            char ch = value.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return -1;
+            }
+            result = result * 10 + (ch - '0');
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * true se as linhas são células de um cubo (pré-agregadas)
+     */
+    public boolean isCube() {
+        return counts != null;
+    }
+
+    /**
+     * false para um cubo gerado sem a dimensão dia (filtros de data indisponíveis)
+     */
+    public boolean hasDates() {
+        return hasDates;
+    }
+
+    /**
+     * Transações representadas (no cubo, a soma dos pesos das células)
+     */
+    public long transactions() {
+        if (counts == null) {
+            return size;
+        }
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            total += counts[row];
+        }
+        return total;
+    }
+
+    public long getRejectedLines() {
+        return rejectedLines;
+    }
+
+    long[] amountCents() {
+        return amountCents;
+    }
+
+    long[] epochSeconds() {
+        return epochSeconds;
+    }
+
+    byte[] hours() {
+        return hours;
+    }
+
+    /** Transações por linha (cubo) ou null (uma transação por linha) */
+    long[] counts() {
+        return counts;
+    }
+
+    /** Transações com erro por linha (cubo) ou null */
+    long[] errorCounts() {
+        return errorCounts;
+    }
+
+    /**
+     * Ids por linha de uma coluna dicionarizada (índice do CSV, ex.: {@link #CITY})
+     */
+    int[] column(int csvColumn) {
+        return columns[loaded(csvColumn)];
+    }
+
+    public Dictionary dictionary(int csvColumn) {
+        return dictionaries[loaded(csvColumn)];
+    }
+
+    /**
+     * true se a coluna foi carregada (no cubo, só estado, cidade, MCC e use_chip)
+     */
+    public boolean hasColumn(int csvColumn) {
+        return columns[slot(csvColumn)] != null;
+    }
+
+    private int loaded(int csvColumn) {
+        int slot = slot(csvColumn);
+        if (columns[slot] == null) {
+            throw new IllegalArgumentException("Coluna " + csvColumn + " do CSV ausente no cubo " +
+                    "(dimensões: estado, cidade, MCC, use_chip, hora, dia)");
+        }
+        return slot;
+    }
+
+    private static int slot(int csvColumn) {
+        for (int i = 0; i < DICTIONARY_COLUMNS.length; i++) {
+            if (DICTIONARY_COLUMNS[i] == csvColumn) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Coluna não carregada: " + csvColumn);
+    }
+
+    /**
+     * Estimativa dos bytes ocupados pelas colunas (sem os dicionários)
+     */
+    public long columnBytes() {
+        int loadedColumns = 0;
+        for (int[] column : columns) {
+            if (column != null) loadedColumns++;
+        }
+        int weights = counts != null ? 2 * Long.BYTES : 0;
+        return (long) size * (2 * Long.BYTES + 1 + weights + loadedColumns * Integer.BYTES);
+    }
+}
@@ -0,0 +1,657 @@
+package routines.dataset;
+
+import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import routines.basic.amountbycity.AmountByCityMapper;
+import routines.basic.amountbyclient.AmountByClientMapper;
+import routines.basic.chipusagecount.ChipUsageCountMapper;
+import routines.basic.errorcountbymcc.ErrorCountByMCCMapper;
+import routines.basic.transactioncountbystate.TransactionCountByStateMapper;
+import routines.common.MccCounter;
+import routines.common.StateCode;
+import routines.common.TimePeriod;
+import routines.common.TopKSelector;
+import routines.intermediate.citytimeperiod.CityTimePeriodStatsWritable;
+import routines.intermediate.topcategoriesbycity.TopCategoriesResult;
+import routines.intermediate.topcategoriesbydimension.Dimension;
+import routines.intermediate.topcategoriesbydimension.Metric;
+import routines.launcher.Routine;
+
+/**
+ * Consulta sobre o {@link ColumnarDataset}: reproduz a agregação de uma rotina
+ * MapReduce (mesmas chaves e mesmo formato "chave\tvalor" da saída), com filtros
+ * opcionais por período, estado e MCC.
+ *
+ * Execução: a normalização de chaves é resolvida uma vez por valor distinto de cada
+ * dicionário (id -> grupo); em seguida as linhas são varridas em blocos paralelos, cada
+ * bloco somando num mapa primitivo próprio (grupo[, MCC] -> total), e os mapas são
+ * combinados no final - o mesmo papel do combiner/reducer, sem serialização.
+ *
+ * Sobre um cubo do RollupCube cada linha é uma célula: contagens somam o peso da célula,
+ * valores somam o total da célula e erros vêm da medida de erros. Rotinas que precisam de
+ * colunas fora do cubo (amount_by_client) são recusadas.
+ *
+ * Uso (argumentos da consulta):
+ *   <rotina> [--from yyyy-MM-dd] [--to yyyy-MM-dd] [--state TX,CA] [--mcc 5411,5812]
+ *            [--k 3] [--metric count|amount]   (--k/--metric: top_categories_by_*)
+ */
+public final class DatasetQuery {
+
+    /** Rotinas suportadas em memória */
+    public enum Kind {
+        AMOUNT_BY_CITY(Routine.AMOUNT_BY_CITY, null),
+        AMOUNT_BY_CLIENT(Routine.AMOUNT_BY_CLIENT, null),
+        TRANSACTION_COUNT_BY_STATE(Routine.TRANSACTION_COUNT_BY_STATE, null),
+        CHIP_USAGE_COUNT(Routine.CHIP_USAGE_COUNT, null),
+        ERROR_COUNT_BY_MCC(Routine.ERROR_COUNT_BY_MCC, null),
+        CITY_TIME_PERIOD(Routine.CITY_TIME_PERIOD, null),
+        TOP_CATEGORIES_BY_CITY(Routine.TOP_CATEGORIES_BY_CITY, Dimension.CITY),
+        TOP_CATEGORIES_BY_STATE(Routine.TOP_CATEGORIES_BY_STATE, Dimension.STATE),
+        TOP_CATEGORIES_BY_COUNTRY(Routine.TOP_CATEGORIES_BY_COUNTRY, Dimension.COUNTRY);
+
+        private final Routine routine;
+        private final Dimension dimension;
+
+        Kind(Routine routine, Dimension dimension) {
+            this.routine = routine;
+            this.dimension = dimension;
+        }
+
+        public String getRoutineName() {
+            return routine.getRoutineName();
+        }
+
+        static Kind fromName(String name) {
+            Routine routine = Routine.fromName(name);
+            for (Kind kind : values()) {
+                if (kind.routine == routine) {
+                    return kind;
+                }
+            }
+            throw new IllegalArgumentException("Rotina sem suporte em memória: " + routine.getRoutineName());
+        }
+    }
+
+    /** Resultado de uma consulta */
+    public static final class Result {
+        private final List<String> lines;
+        private final long matchedRows;
+
+        Result(List<String> lines, long matchedRows) {
+            this.lines = lines;
+            this.matchedRows = matchedRows;
+        }
+
+        public List<String> getLines() { return lines; }
+        public long getMatchedRows() { return matchedRows; }
+    }
+
+    private static final int MIN_CHUNK_ROWS = 1 << 14;
+
+    private final Kind kind;
+    private long fromEpoch = Long.MIN_VALUE;
+    private long toEpoch = Long.MAX_VALUE;
+    private Set<String> states;
+    private Set<String> mccs;
+    private int k = TopKSelector.DEFAULT_K;
+    private Metric metric = Metric.COUNT;
+
+    private DatasetQuery(Kind kind) {
+        this.kind = kind;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Interpreta os argumentos de uma consulta
+     * @throws IllegalArgumentException se a rotina ou alguma opção for inválida
+     */
+    public static DatasetQuery parse(List<String> args) {
+        if (args.isEmpty()) {
+            throw new IllegalArgumentException("Consulta vazia");
+        }
+        DatasetQuery query = new DatasetQuery(Kind.fromName(args.get(0)));
+        for (int i = 1; i < args.size(); i++) {
+            String option = args.get(i);
+            if (i + 1 >= args.size()) {
+                throw new IllegalArgumentException("Valor ausente para " + option);
+            }
+            String value = args.get(++i);
+            switch (option) {
+                case "--from":
+                    query.fromEpoch = parseDay(value).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+                    break;
+                case "--to":
+                    query.toEpoch = parseDay(value).plusDays(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC) - 1;
+                    break;
+                case "--state":
+                    query.states = parseSet(value, true);
+                    break;
+                case "--mcc":
+                    query.mccs = parseSet(value, false);
+                    break;
+                case "--k":
+                    query.k = Math.max(1, Integer.parseInt(value.trim()));
+                    break;
+                case "--metric":
+                    query.metric = Metric.valueOf(value.trim().toUpperCase());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opção desconhecida: " + option);
+            }
+        }
+        return query;
+    }
+
+    private static LocalDate parseDay(String value) {
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Data inválida (use yyyy-MM-dd): " + value);
+        }
+    }
+
+    private static Set<String> parseSet(String value, boolean upperCase) {
+        Set<String> set = new HashSet<>();
+        for (String item : value.split(",")) {
+            String trimmed = item.trim();
+            if (!trimmed.isEmpty()) {
+                set.add(upperCase ? trimmed.toUpperCase() : trimmed);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Descrição dos filtros para os logs
+     */
+    public String describeFilters() {
+        List<String> filters = new ArrayList<>();
+        if (fromEpoch != Long.MIN_VALUE) {
+            filters.add("from=" + LocalDate.ofEpochDay(Math.floorDiv(fromEpoch, 86400L)));
+        }
+        if (toEpoch != Long.MAX_VALUE) {
+            filters.add("to=" + LocalDate.ofEpochDay(Math.floorDiv(toEpoch, 86400L)));
+        }
+        if (states != null) {
+            filters.add("state=" + String.join(",", states));
+        }
+        if (mccs != null) {
+            filters.add("mcc=" + String.join(",", mccs));
+        }
+        return filters.isEmpty() ? "nenhum" : String.join(" ", filters);
+    }
+
+    // =======================
+    // Plano: chaves resolvidas por valor distinto
+    // =======================
+
+    /** Tabelas id -> grupo, calculadas uma vez por consulta */
+    private static final class Plan {
+        final List<String> labels = new ArrayList<>();
+        private final Map<String, Integer> labelIds = new HashMap<>();
+
+        int[] groupColumn;          // ids por linha da coluna de agrupamento
+        int[] groupOf;              // id do dicionário -> grupo (-1 = linha ignorada)
+        int[] altColumn;            // coluna que escolhe o grupo alternativo (ou null)
+        boolean[] useAlt;           // id da coluna alternativa -> usa altGroupOf
+        int[] altGroupOf;
+        int[] gateColumn;           // coluna que habilita a linha (ou null)
+        boolean[] gateOpen;
+        int[] mccColumn;            // top categorias: ids de MCC por linha (ou null)
+        int[] mccSlotOf;            // id do dicionário de MCC -> slot (-1 = MCC inválido)
+        String[] mccCodes;          // slot -> código
+        boolean sumAmount;
+        boolean sumErrors;          // cubo: soma a medida de erros (sem gate)
+        boolean byPeriod;           // city_time_period: chave = grupo × período do dia
+
+        int group(String label) {
+            if (label == null) {
+                return -1;
+            }
+            Integer id = labelIds.get(label);
+            if (id == null) {
+                id = labels.size();
+                labelIds.put(label, id);
+                labels.add(label);
+            }
+            return id;
+        }
+    }
+
+    private Plan plan(ColumnarDataset data) {
+        Plan plan = new Plan();
+        ColumnarDataset.Dictionary cities = data.dictionary(ColumnarDataset.CITY);
+        ColumnarDataset.Dictionary statesDictionary = data.dictionary(ColumnarDataset.STATE);
+
+        switch (kind) {
+            case AMOUNT_BY_CITY:
+                plan.sumAmount = true;
+                plan.groupColumn = data.column(ColumnarDataset.CITY);
+                plan.groupOf = new int[cities.size()];
+                for (int id = 0; id < cities.size(); id++) {
+                    String city = AmountByCityMapper.processCityName(cities.value(id));
+                    plan.groupOf[id] = city.isEmpty() ? -1 : plan.group(city);
+                }
+                break;
+
+            case AMOUNT_BY_CLIENT:
+                if (!data.hasColumn(ColumnarDataset.CLIENT)) {
+                    throw new IllegalArgumentException(kind.getRoutineName() +
+                            " precisa de client_id, que não é dimensão do cubo");
+                }
+                plan.sumAmount = true;
+                ColumnarDataset.Dictionary clients = data.dictionary(ColumnarDataset.CLIENT);
+                plan.groupColumn = data.column(ColumnarDataset.CLIENT);
+                plan.groupOf = new int[clients.size()];
+                for (int id = 0; id < clients.size(); id++) {
+                    String client = AmountByClientMapper.processClientId(clients.value(id));
+                    plan.groupOf[id] = client.isEmpty() ? -1 : plan.group(client);
+                }
+                break;
+
+            case TRANSACTION_COUNT_BY_STATE:
+                // O rótulo só depende da cidade quando o estado está vazio (ONLINE vs UNKNOWN)
+                plan.groupColumn = data.column(ColumnarDataset.STATE);
+                plan.groupOf = new int[statesDictionary.size()];
+                plan.altGroupOf = new int[statesDictionary.size()];
+                for (int id = 0; id < statesDictionary.size(); id++) {
+                    String raw = statesDictionary.value(id);
+                    plan.groupOf[id] = plan.group(TransactionCountByStateMapper.stateLabel(raw, ""));
+                    plan.altGroupOf[id] = plan.group(TransactionCountByStateMapper.stateLabel(raw, "ONLINE"));
+                }
+                plan.altColumn = data.column(ColumnarDataset.CITY);
+                plan.useAlt = new boolean[cities.size()];
+                for (int id = 0; id < cities.size(); id++) {
+                    plan.useAlt[id] = "ONLINE".equals(TransactionCountByStateMapper.stateLabel("", cities.value(id)));
+                }
+                break;
+
+            case CHIP_USAGE_COUNT:
+                ColumnarDataset.Dictionary chips = data.dictionary(ColumnarDataset.USE_CHIP);
+                plan.groupColumn = data.column(ColumnarDataset.USE_CHIP);
+                plan.groupOf = new int[chips.size()];
+                for (int id = 0; id < chips.size(); id++) {
+                    String type = ChipUsageCountMapper.transactionType(chips.value(id));
+                    plan.groupOf[id] = type.isEmpty() ? -1 : plan.group(type);
+                }
+                break;
+
+            case ERROR_COUNT_BY_MCC:
+                // Chave vem do MCC; a linha só conta se o campo errors indicar erro
+                ColumnarDataset.Dictionary mccDictionary = data.dictionary(ColumnarDataset.MCC);
+                plan.groupColumn = data.column(ColumnarDataset.MCC);
+                plan.groupOf = new int[mccDictionary.size()];
+                for (int id = 0; id < mccDictionary.size(); id++) {
+                    plan.groupOf[id] = plan.group(ErrorCountByMCCMapper.errorKey(mccDictionary.value(id), "error"));
+                }
+                if (data.isCube()) {
+                    plan.sumErrors = true;
+                    break;
+                }
+                ColumnarDataset.Dictionary errors = data.dictionary(ColumnarDataset.ERRORS);
+                plan.gateColumn = data.column(ColumnarDataset.ERRORS);
+                plan.gateOpen = new boolean[errors.size()];
+                for (int id = 0; id < errors.size(); id++) {
+                    plan.gateOpen[id] = ErrorCountByMCCMapper.errorKey("0000", errors.value(id)) != null;
+                }
+                break;
+
+            case CITY_TIME_PERIOD:
+                // Mesma cidade do CityTimePeriodMapper (vazio/NULL/N/A -> UNKNOWN)
+                plan.byPeriod = true;
+                plan.groupColumn = data.column(ColumnarDataset.CITY);
+                plan.groupOf = new int[cities.size()];
+                String[] row = new String[12];
+                for (int id = 0; id < cities.size(); id++) {
+                    row[ColumnarDataset.CITY] = cities.value(id);
+                    plan.groupOf[id] = plan.group(Dimension.CITY.extract(row));
+                }
+                break;
+
+            default:
+                planTopCategories(plan, data);
+        }
+        return plan;
+    }
+
+    private void planTopCategories(Plan plan, ColumnarDataset data) {
+        Dimension dimension = kind.dimension;
+        ColumnarDataset.Dictionary keys = data.dictionary(dimension.getColumn());
+        plan.sumAmount = metric == Metric.AMOUNT;
+        plan.groupColumn = data.column(dimension.getColumn());
+        plan.groupOf = new int[keys.size()];
+        String[] cols = new String[12];
+        Arrays.fill(cols, "");
+        for (int id = 0; id < keys.size(); id++) {
+            cols[dimension.getColumn()] = keys.value(id);
+            plan.groupOf[id] = plan.group(dimension.extract(cols));
+        }
+
+        // MCC: apenas códigos numéricos (mesma regra do DimensionCategoryMapper)
+        ColumnarDataset.Dictionary mccDictionary = data.dictionary(ColumnarDataset.MCC);
+        plan.mccColumn = data.column(ColumnarDataset.MCC);
+        plan.mccSlotOf = new int[mccDictionary.size()];
+        List<String> codes = new ArrayList<>();
+        Map<String, Integer> slots = new HashMap<>();
+        for (int id = 0; id < mccDictionary.size(); id++) {
+            String mcc = mccDictionary.value(id).trim().replace("\"", "");
+            boolean numeric = !mcc.isEmpty();
+            for (int i = 0; i < mcc.length() && numeric; i++) {
+                numeric = Character.isDigit(mcc.charAt(i));
+            }
+            if (!numeric) {
+                plan.mccSlotOf[id] = -1;
+                continue;
+            }
+            Integer slot = slots.get(mcc);
+            if (slot == null) {
+                slot = codes.size();
+                slots.put(mcc, slot);
+                codes.add(mcc);
+            }
+            plan.mccSlotOf[id] = slot;
+        }
+        plan.mccCodes = codes.toArray(new String[0]);
+    }
+
+    /**
+     * Filtros resolvidos por id de dicionário (null = sem filtro)
+     */
+    private boolean[] allowed(ColumnarDataset.Dictionary dictionary, Set<String> accepted, boolean state) {
+        if (accepted == null) {
+            return null;
+        }
+        boolean[] allowed = new boolean[dictionary.size()];
+        for (int id = 0; id < dictionary.size(); id++) {
+            String raw = dictionary.value(id);
+            String value;
+            if (state) {
+                StateCode code = StateCode.parse(raw);
+                value = code != null ? code.name() : raw.trim().replace("\"", "").toUpperCase();
+            } else {
+                value = raw.trim().replace("\"", "");
+            }
+            allowed[id] = accepted.contains(value);
+        }
+        return allowed;
+    }
+
+    // =======================
+    // Execução
+    // =======================
+
+    /**
+     * Executa a consulta em paralelo (até threads blocos simultâneos no pool)
+     */
+    public Result execute(ColumnarDataset data, ExecutorService pool, int threads) throws InterruptedException {
+        if ((fromEpoch != Long.MIN_VALUE || toEpoch != Long.MAX_VALUE) && !data.hasDates()) {
+            throw new IllegalArgumentException("Cubo gerado sem a dimensão dia: --from/--to indisponíveis");
+        }
+        Plan plan = plan(data);
+        boolean[] stateAllowed = allowed(data.dictionary(ColumnarDataset.STATE), states, true);
+        boolean[] mccAllowed = allowed(data.dictionary(ColumnarDataset.MCC), mccs, false);
+
+        int rows = data.size();
+        int chunks = Math.max(1, Math.min(threads * 4, (rows + MIN_CHUNK_ROWS - 1) / MIN_CHUNK_ROWS));
+        int chunkSize = (rows + chunks - 1) / chunks;
+
+        List<Future<Totals>> futures = new ArrayList<>();
+        for (int c = 0; c < chunks; c++) {
+            int start = c * chunkSize;
+            int end = Math.min(rows, start + chunkSize);
+            Callable<Totals> task = () -> scan(data, plan, stateAllowed, mccAllowed, start, end);
+            futures.add(pool.submit(task));
+        }
+
+        Totals totals = new Totals(plan.labels.size() * 2 + 16);
+        long matched = 0;
+        try {
+            for (Future<Totals> future : futures) {
+                Totals partial = future.get();
+                totals.merge(partial);
+                matched += partial.matchedRows;
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na varredura paralela", e.getCause());
+        }
+        return new Result(format(plan, totals), matched);
+    }
+
+    private Totals scan(ColumnarDataset data, Plan plan, boolean[] stateAllowed, boolean[] mccAllowed,
+                        int start, int end) {
+        long[] amounts = data.amountCents();
+        long[] epochs = data.epochSeconds();
+        int[] stateColumn = data.column(ColumnarDataset.STATE);
+        int[] mccColumn = data.column(ColumnarDataset.MCC);
+        byte[] hours = data.hours();
+        long[] counts = data.counts();
+        long[] errorCounts = data.errorCounts();
+        boolean dateFilter = fromEpoch != Long.MIN_VALUE || toEpoch != Long.MAX_VALUE;
+        int mccSlots = plan.mccCodes == null ? 1 : Math.max(1, plan.mccCodes.length);
+
+        Totals totals = new Totals(1024);
+        for (int row = start; row < end; row++) {
+            // Filtros
+            if (dateFilter) {
+                long epoch = epochs[row];
+                if (epoch == ColumnarDataset.INVALID || epoch < fromEpoch || epoch > toEpoch) {
+                    continue;
+                }
+            }
+            if (stateAllowed != null && !stateAllowed[stateColumn[row]]) {
+                continue;
+            }
+            if (mccAllowed != null && !mccAllowed[mccColumn[row]]) {
+                continue;
+            }
+            totals.matchedRows += counts == null ? 1 : counts[row];
+
+            // Chave
+            if (plan.gateColumn != null && !plan.gateOpen[plan.gateColumn[row]]) {
+                continue;
+            }
+            int id = plan.groupColumn[row];
+            int group = (plan.altColumn != null && plan.useAlt[plan.altColumn[row]])
+                    ? plan.altGroupOf[id] : plan.groupOf[id];
+            if (group < 0) {
+                continue;
+            }
+            long key = group;
+            if (plan.byPeriod) {
+                TimePeriod period = TimePeriod.fromHour(hours[row]);
+                if (period == null) {
+                    continue;
+                }
+                key = (long) group * TimePeriod.COUNT + period.ordinal();
+            } else if (plan.mccColumn != null) {
+                int slot = plan.mccSlotOf[plan.mccColumn[row]];
+                if (slot < 0) {
+                    continue;
+                }
+                key = (long) group * mccSlots + slot;
+            }
+
+            // Valor
+            long value = counts == null ? 1 : counts[row];
+            if (plan.sumAmount) {
+                value = amounts[row];
+                if (value == ColumnarDataset.INVALID) {
+                    continue;
+                }
+            } else if (plan.sumErrors) {
+                value = errorCounts[row];
+                if (value == 0) {
+                    continue;
+                }
+            }
+            totals.add(key, value);
+        }
+        return totals;
+    }
+
+    private List<String> format(Plan plan, Totals totals) {
+        List<String> lines = new ArrayList<>();
+        if (plan.byPeriod) {
+            // Contagens por período de cada cidade, no formato do CityTimePeriodReducer
+            long[][] periods = new long[plan.labels.size()][];
+            for (int slot = 0; slot < totals.capacity(); slot++) {
+                if (totals.used(slot)) {
+                    int group = (int) (totals.keyAt(slot) / TimePeriod.COUNT);
+                    if (periods[group] == null) {
+                        periods[group] = new long[TimePeriod.COUNT];
+                    }
+                    periods[group][(int) (totals.keyAt(slot) % TimePeriod.COUNT)] = totals.sumAt(slot);
+                }
+            }
+            CityTimePeriodStatsWritable stats = new CityTimePeriodStatsWritable();
+            for (int group = 0; group < periods.length; group++) {
+                long[] counts = periods[group];
+                if (counts != null) {
+                    stats.set(counts[TimePeriod.MORNING.ordinal()], counts[TimePeriod.AFTERNOON.ordinal()],
+                            counts[TimePeriod.NIGHT.ordinal()]);
+                    lines.add(plan.labels.get(group) + "\t" + stats);
+                }
+            }
+        } else if (plan.mccColumn == null) {
+            DecimalFormat decimalFormat = new DecimalFormat("0.00");
+            String[] output = new String[plan.labels.size()];
+            for (int slot = 0; slot < totals.capacity(); slot++) {
+                if (totals.used(slot)) {
+                    int group = (int) totals.keyAt(slot);
+                    long value = totals.sumAt(slot);
+                    output[group] = plan.sumAmount ? decimalFormat.format(value / 100.0) : String.valueOf(value);
+                }
+            }
+            for (int group = 0; group < output.length; group++) {
+                if (output[group] != null) {
+                    lines.add(plan.labels.get(group) + "\t" + output[group]);
+                }
+            }
+        } else {
+            // Top K por grupo, com os mesmos MccCounter/TopKSelector do reducer
+            int mccSlots = Math.max(1, plan.mccCodes.length);
+            long[] sums = new long[plan.labels.size() * mccSlots];
+            boolean[] seen = new boolean[sums.length];
+            for (int slot = 0; slot < totals.capacity(); slot++) {
+                if (totals.used(slot)) {
+                    int index = (int) totals.keyAt(slot);
+                    sums[index] = totals.sumAt(slot);
+                    seen[index] = true;
+                }
+            }
+            MccCounter counter = new MccCounter();
+            TopKSelector topK = new TopKSelector(k);
+            TopCategoriesResult result = new TopCategoriesResult();
+            result.setMonetary(metric == Metric.AMOUNT);
+            for (int group = 0; group < plan.labels.size(); group++) {
+                counter.reset();
+                boolean any = false;
+                for (int mcc = 0; mcc < mccSlots; mcc++) {
+                    int index = group * mccSlots + mcc;
+                    if (seen[index]) {
+                        counter.add(plan.mccCodes[mcc], sums[index]);
+                        any = true;
+                    }
+                }
+                if (!any) {
+                    continue;
+                }
+                topK.reset();
+                counter.offerTo(topK);
+                int topN = topK.finish();
+                result.clear();
+                for (int i = 0; i < topN; i++) {
+                    result.add(counter.code(topK.idAt(i)), topK.countAt(i));
+                }
+                lines.add(plan.labels.get(group) + "\t" + result);
+            }
+        }
+        // Mesma ordem de um reducer único (chaves em ordem crescente)
+        lines.sort(null);
+        return lines;
+    }
+
+    /**
+     * Mapa aberto primitivo chave long -> soma long (um por bloco varrido)
+     */
+    private static final class Totals {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys;
+        private long[] sums;
+        private int size;
+        long matchedRows;
+
+        Totals(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+            keys = new long[capacity];
+            sums = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        void add(long key, long value) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    sums[slot] = value;
+                    rehash();
+                    return;
+                }
+            }
+            sums[slot] += value;
+        }
+
+        void merge(Totals other) {
+            for (int slot = 0; slot < other.keys.length; slot++) {
+                if (other.keys[slot] != EMPTY) {
+                    add(other.keys[slot], other.sums[slot]);
+                }
+            }
+        }
+
+        int capacity() { return keys.length; }
+        boolean used(int slot) { return keys[slot] != EMPTY; }
+        long keyAt(int slot) { return keys[slot]; }
+        long sumAt(int slot) { return sums[slot]; }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            long[] oldSums = sums;
+            keys = new long[oldKeys.length * 2];
+            sums = new long[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY) {
+                    add(oldKeys[slot], oldSums[slot]);
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
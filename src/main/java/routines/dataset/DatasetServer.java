@@ -0,0 +1,227 @@
+package routines.dataset;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import routines.cube.CubeFile;
+import routines.launcher.LoopbackServer;
+
+// Para executar configure os argumentos da seguinte forma:
+// serve src/main/resources/transactions_data.csv      (carrega o CSV e atende em localhost:45124)
+// query amount_by_city
+// query top_categories_by_state --from 2015-01-01 --to 2015-12-31 --metric amount --k 5
+// query transaction_count_by_state --mcc 5411,5812
+// stats
+// shutdown
+
+/**
+ * Servidor de consultas sobre o dataset residente em memória
+ *
+ * Carrega o CSV uma única vez num {@link ColumnarDataset} e responde consultas das
+ * rotinas de agregação ({@link DatasetQuery.Kind}) sem submeter jobs: a resposta tem o
+ * mesmo conteúdo "chave\tvalor" da saída MapReduce da rotina, em ordem de chave, e pode
+ * ser filtrada por período, estado e MCC. Rotinas com vários jobs ou estado entre
+ * estágios (RFM, risco, saúde de comerciantes...) continuam no RoutineLauncher/JobServer.
+ *
+ * Modos:
+ *   serve <input>            carrega o dataset e inicia o servidor (bloqueia); se <input>
+ *                            for um cubo do RollupCube, carrega as células pré-agregadas
+ *   query <rotina> [filtros] envia uma consulta e imprime o resultado
+ *   stats                    linhas, dicionários e memória do dataset carregado
+ *   shutdown                 encerra o servidor
+ *
+ * Protocolo e autenticação: {@link LoopbackServer}, como no JobServer. As consultas só
+ * leem o dataset e são atendidas em paralelo. Cada resposta de consulta termina com uma
+ * linha de resumo iniciada por "#".
+ *
+ * Configuração (via -D, antes do modo; ver também {@link LoopbackServer}):
+ *   fta.dataset.port     - porta TCP em localhost (padrão: 45124)
+ *   fta.dataset.threads  - threads da varredura paralela (padrão: núcleos disponíveis)
+ */
+public class DatasetServer extends Configured implements Tool {
+
+    public static final String PORT_KEY = "fta.dataset.port";
+    public static final int DEFAULT_PORT = 45124;
+    public static final String THREADS_KEY = "fta.dataset.threads";
+
+    private static final String STATS_REQUEST = "--stats";
+    private static final String SHUTDOWN_REQUEST = "--shutdown";
+
+    private ColumnarDataset data;
+    private ExecutorService pool;
+    private int threads;
+    private final AtomicInteger served = new AtomicInteger();
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 1) {
+            printUsage();
+            return -1;
+        }
+        int port = getConf().getInt(PORT_KEY, DEFAULT_PORT);
+        LoopbackServer.Client client = LoopbackServer.Client.fromConf(getConf(), PORT_KEY, DEFAULT_PORT);
+        String mode = args[0];
+        List<String> rest = Arrays.asList(args).subList(1, args.length);
+
+        switch (mode) {
+            case "serve":
+                if (rest.size() != 1) {
+                    printUsage();
+                    return -1;
+                }
+                return serve(port, new Path(rest.get(0)));
+            case "query":
+                if (rest.isEmpty()) {
+                    printUsage();
+                    return -1;
+                }
+                return client.submit(rest);
+            case "stats":
+                return client.submit(Arrays.asList(STATS_REQUEST));
+            case "shutdown":
+                return client.submit(Arrays.asList(SHUTDOWN_REQUEST));
+            default:
+                printUsage();
+                return -1;
+        }
+    }
+
+    // =======================
+    // Servidor
+    // =======================
+
+    private int serve(int port, Path input) throws Exception {
+        threads = Math.max(1, getConf().getInt(THREADS_KEY, Runtime.getRuntime().availableProcessors()));
+
+        long start = System.currentTimeMillis();
+        boolean cube = CubeFile.isCube(getConf(), input);
+        data = cube ? ColumnarDataset.loadCube(getConf(), input) : ColumnarDataset.load(getConf(), input);
+        long loadMillis = System.currentTimeMillis() - start;
+
+        pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "dataset-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (LoopbackServer server = new LoopbackServer(getConf(), "dataset-server", port)) {
+            System.out.println("========================================");
+            System.out.println("DatasetServer - localhost:" + port);
+            System.out.println("  Input: " + input + (cube ? " (cubo)" : ""));
+            System.out.println("  Transações carregadas: " + data.transactions());
+            if (cube) {
+                System.out.println("  Células do cubo: " + data.size());
+            }
+            System.out.println("  Linhas rejeitadas: " + data.getRejectedLines());
+            System.out.println("  Carga: " + loadMillis + " ms");
+            System.out.println("  Colunas em memória: " + formatMegabytes(data.columnBytes()));
+            System.out.println("  Threads de varredura: " + threads);
+            System.out.println("  Conexões: " + server.describe(getConf()));
+            System.out.println("========================================");
+
+            server.serve(request -> {
+                PrintStream client = request.getOut();
+                if (request.is(SHUTDOWN_REQUEST)) {
+                    client.println("DatasetServer encerrando após " + served.get() + " consulta(s)");
+                    request.finish(0);
+                    System.out.println("Shutdown solicitado; " + served.get() + " consulta(s) atendida(s)");
+                    return true;
+                }
+                if (request.is(STATS_REQUEST)) {
+                    printStats(client);
+                    request.finish(0);
+                    return false;
+                }
+                int number = served.incrementAndGet();
+                long requestStart = System.nanoTime();
+                int exitCode = answer(client, request.getArgs());
+                request.finish(exitCode);
+                System.out.println("Consulta #" + number + " [" + String.join(" ", request.getArgs()) +
+                        "] -> código " + exitCode + " (" + (System.nanoTime() - requestStart) / 1_000_000 + " ms)");
+                return false;
+            });
+            return 0;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int answer(PrintStream client, List<String> request) {
+        long start = System.nanoTime();
+        int exitCode;
+        try {
+            DatasetQuery query = DatasetQuery.parse(request);
+            DatasetQuery.Result result = query.execute(data, pool, threads);
+            for (String line : result.getLines()) {
+                client.println(line);
+            }
+            client.println("# " + query.getKind().getRoutineName() + " | filtros: " + query.describeFilters() +
+                    " | " + result.getLines().size() + " linhas | " + result.getMatchedRows() +
+                    " transações | " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            exitCode = 0;
+        } catch (IllegalArgumentException e) {
+            client.println("Erro: " + e.getMessage());
+            exitCode = -1;
+        } catch (Exception e) {
+            client.println("Erro: " + e);
+            exitCode = 1;
+        }
+        return exitCode;
+    }
+
+    private void printStats(PrintStream client) {
+        Runtime runtime = Runtime.getRuntime();
+        client.println("Transações: " + data.transactions());
+        if (data.isCube()) {
+            client.println("Células do cubo: " + data.size());
+        }
+        client.println("Linhas rejeitadas: " + data.getRejectedLines());
+        client.println("Colunas em memória: " + formatMegabytes(data.columnBytes()));
+        client.println("Valores distintos - clientes: " + (data.hasColumn(ColumnarDataset.CLIENT)
+                ? String.valueOf(data.dictionary(ColumnarDataset.CLIENT).size()) : "-") +
+                ", cidades: " + data.dictionary(ColumnarDataset.CITY).size() +
+                ", estados: " + data.dictionary(ColumnarDataset.STATE).size() +
+                ", MCCs: " + data.dictionary(ColumnarDataset.MCC).size());
+        client.println("Heap usado: " + formatMegabytes(runtime.totalMemory() - runtime.freeMemory()) +
+                " de " + formatMegabytes(runtime.maxMemory()));
+        client.println("Rotinas: " + Arrays.toString(DatasetQuery.Kind.values()).toLowerCase());
+    }
+
+    private static String formatMegabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: DatasetServer [-Dfta.dataset.port=45124] [-Dfta.dataset.threads=N] serve <input|cubo>");
+        System.err.println("       DatasetServer [-Dfta.dataset.port=45124] query <rotina> [--from yyyy-MM-dd] [--to yyyy-MM-dd]");
+        System.err.println("                     [--state TX,CA] [--mcc 5411,5812] [--k 3] [--metric count|amount]");
+        System.err.println("       DatasetServer [-Dfta.dataset.port=45124] stats");
+        System.err.println("       DatasetServer [-Dfta.dataset.port=45124] shutdown");
+        System.err.println("Rotinas: " + Arrays.toString(DatasetQuery.Kind.values()).toLowerCase());
+    }
+
+    /**
+     * Método main - ponto de entrada da aplicação
+     */
+    public static void main(String[] args) throws Exception {
+        // Cliente leve: query/stats/shutdown não inicializam o Hadoop, só abrem o socket
+        LoopbackServer.Client client = LoopbackServer.Client.fromArgs(args, PORT_KEY, DEFAULT_PORT);
+        int i = client.getFirstArg();
+        if (i < args.length && "query".equals(args[i]) && i + 1 < args.length) {
+            System.exit(client.submit(Arrays.asList(args).subList(i + 1, args.length)));
+        }
+        if (i < args.length && ("stats".equals(args[i]) || "shutdown".equals(args[i]))) {
+            System.exit(client.submit(Arrays.asList("stats".equals(args[i]) ? STATS_REQUEST : SHUTDOWN_REQUEST)));
+        }
+
+        int exitCode = ToolRunner.run(new Configuration(), new DatasetServer(), args);
+        System.exit(exitCode);
+    }
+}
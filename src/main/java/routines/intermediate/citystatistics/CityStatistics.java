@@ -1,16 +1,25 @@
 package routines.intermediate.citystatistics;
 
+import java.util.Set;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.JobAutoTuner;
+import routines.common.LocalMode;
+import routines.common.SaltMergeMapper;
+import routines.common.SkewedKeys;
 
 // Para executar configure os argumentos da seguinte forma:
 // src/main/resources/transactions_data.csv output/city_statistics 1 local
@@ -32,11 +41,11 @@ public class CityStatistics extends Configured implements Tool {
     @Override
     public int run(String[] args) throws Exception {
         // Verificação dos argumentos
-        if (args.length < 2) {
+        if (args.length < 2 || !JobAutoTuner.isReducersArgument(args, 2)) {
             System.err.println("Usage: CityStatistics <input_path> <output_path> [num_reducers] [local]");
             System.err.println("  input_path: caminho do arquivo CSV de transações");
             System.err.println("  output_path: caminho do diretório de saída");
-            System.err.println("  num_reducers: número de reducers (opcional, padrão: 1)");
+            System.err.println("  num_reducers: número de reducers (opcional, padrão: auto)");
             System.err.println("  local: para execução local (opcional)");
             return -1;
         }
@@ -44,8 +53,8 @@ public class CityStatistics extends Configured implements Tool {
         // Parse dos parâmetros
         Path inputPath = new Path(args[0]);
         Path outputDir = new Path(args[1]);
-        int numberOfReducers = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
-        boolean localMode = (args.length > 3 && "local".equals(args[3]));
+        int numberOfReducers = JobAutoTuner.parseReducers(args, 2);
+        boolean localMode = LocalMode.isRequested(args, 2);
 
         // Configuração
         Configuration conf = this.getConf();
@@ -53,9 +62,27 @@ public class CityStatistics extends Configured implements Tool {
         // Configuração para modo local
         if (localMode) {
             System.out.println("Configurando para execução local (standalone)...");
-            conf.set("fs.defaultFS", "file:///");
-            conf.set("mapreduce.framework.name", "local");
-            conf.set("mapreduce.jobtracker.address", "local");
+            LocalMode.configure(conf);
+        }
+
+        // Modo anti-skew (opcional, -Dfta.skew.enabled=true): chaves quentes recebem sal
+        // na fase 1 e um segundo job consolida os parciais, sem alterar o formato da saída
+        Set<String> hotKeys = SkewedKeys.resolveHotKeys(conf, inputPath,
+                cols -> SkewedKeys.normalize(cols[7]));
+        boolean skewMode = !hotKeys.isEmpty();
+
+        // Reducers, split e sort buffer: auto-tuning por amostragem (overrides via -D);
+        // com sal, a cidade mais quente não limita o número de reducers
+        JobAutoTuner.Decision tuning = JobAutoTuner.tune(conf, inputPath, numberOfReducers,
+                new JobAutoTuner.Profile("city_statistics", JobAutoTuner.Profile.csvColumn(7), 0.05)
+                        .withSaltedHotKeys(skewMode));
+        Path saltedDir = SkewedKeys.intermediatePath(outputDir);
+        if (skewMode) {
+            SkewedKeys.activate(conf, hotKeys, tuning.getReducers());
+            FileSystem fs = saltedDir.getFileSystem(conf);
+            if (fs.exists(saltedDir)) {
+                fs.delete(saltedDir, true);
+            }
         }
 
         // Criar e configurar o job
@@ -68,7 +95,7 @@ public class CityStatistics extends Configured implements Tool {
 
         // Configuração dos caminhos
         FileInputFormat.addInputPath(job, inputPath);
-        FileOutputFormat.setOutputPath(job, outputDir);
+        FileOutputFormat.setOutputPath(job, skewMode ? saltedDir : outputDir);
 
         // Configuração do Mapper
         job.setMapperClass(CityStatisticsMapper.class);
@@ -79,12 +106,29 @@ public class CityStatistics extends Configured implements Tool {
         job.setCombinerClass(CityStatisticsCombiner.class);
 
         // Configuração do Reducer
-        job.setReducerClass(CityStatisticsReducer.class);
-        job.setOutputKeyClass(Text.class);
-        job.setOutputValueClass(CityStatsWritable.class); // Custom Writable
+        if (skewMode) {
+            // Fase 1 do modo anti-skew: apenas soma os parciais de cada sub-chave
+            job.setReducerClass(CityStatisticsCombiner.class);
+            job.setOutputKeyClass(Text.class);
+            job.setOutputValueClass(CityStatsWritable.class);
+            job.setOutputFormatClass(SequenceFileOutputFormat.class);
+        } else {
+            job.setReducerClass(CityStatisticsReducer.class);
+            job.setOutputKeyClass(Text.class);
+            job.setOutputValueClass(CityStatsWritable.class); // Custom Writable
+        }
 
         // Número de reducers
-        job.setNumReduceTasks(numberOfReducers);
+        tuning.apply(job);
+
+        // Compressão do shuffle e da saída (-Dfta.compression=none|fast|dense);
+        // no modo anti-skew a saída desta fase é intermediária (lida pelo merge)
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+        if (skewMode) {
+            compression.applyIntermediate(job);
+        } else {
+            compression.applyFinal(job);
+        }
 
         // Log de informações
         System.out.println("========================================");
@@ -92,9 +136,14 @@ public class CityStatistics extends Configured implements Tool {
         System.out.println("  Mode: " + (localMode ? "Local (Standalone)" : "Cluster"));
         System.out.println("  Input: " + inputPath);
         System.out.println("  Output: " + outputDir);
-        System.out.println("  Reducers: " + numberOfReducers);
+        System.out.println("  Reducers: " + tuning.getReducers());
+        System.out.println("  Compressão: " + compression.describe());
         System.out.println("  Combiner: Enabled");
         System.out.println("  Custom Writable: CityStatsWritable");
+        if (skewMode) {
+            System.out.println("  Skew mode: " + hotKeys.size() + " chave(s) quente(s), " +
+                    conf.getInt(SkewedKeys.SALTS_KEY, 2) + " sub-chaves cada");
+        }
         System.out.println("========================================");
         System.out.println();
         System.out.println("Esta rotina usa Custom Writable para armazenar");
@@ -104,6 +153,11 @@ public class CityStatistics extends Configured implements Tool {
         // Executar o job
         boolean success = job.waitForCompletion(true);
 
+        // Fase 2 do modo anti-skew: consolida as sub-chaves na saída final
+        if (success && skewMode) {
+            success = runSaltMergeJob(conf, saltedDir, outputDir, tuning.getReducers());
+        }
+
         if (success) {
             System.out.println();
             System.out.println("========================================");
@@ -139,6 +193,40 @@ public class CityStatistics extends Configured implements Tool {
         }
     }
 
+    /**
+     * Fase 2 do modo anti-skew: remove o sal das chaves e consolida os parciais
+     * com o reducer original, gerando a mesma saída do modo normal
+     */
+    private boolean runSaltMergeJob(Configuration conf, Path saltedDir, Path outputDir,
+                                    int numberOfReducers) throws Exception {
+        conf.unset(SkewedKeys.ACTIVE_KEYS_KEY);
+        Job mergeJob = Job.getInstance(conf, "city_statistics_salt_merge");
+
+        mergeJob.setJarByClass(CityStatistics.class);
+        mergeJob.setInputFormatClass(SequenceFileInputFormat.class);
+        mergeJob.setOutputFormatClass(TextOutputFormat.class);
+
+        FileInputFormat.addInputPath(mergeJob, saltedDir);
+        FileOutputFormat.setOutputPath(mergeJob, outputDir);
+
+        mergeJob.setMapperClass(SaltMergeMapper.class);
+        mergeJob.setMapOutputKeyClass(Text.class);
+        mergeJob.setMapOutputValueClass(CityStatsWritable.class);
+
+        mergeJob.setCombinerClass(CityStatisticsCombiner.class);
+        mergeJob.setReducerClass(CityStatisticsReducer.class);
+        mergeJob.setOutputKeyClass(Text.class);
+        mergeJob.setOutputValueClass(CityStatsWritable.class);
+        mergeJob.setNumReduceTasks(numberOfReducers);
+        CompressionProfile.fromConf(conf).applyFinal(mergeJob);
+
+        boolean success = mergeJob.waitForCompletion(true);
+        if (success) {
+            saltedDir.getFileSystem(conf).delete(saltedDir, true);
+        }
+        return success;
+    }
+
     /**
      * Método main - ponto de entrada da aplicação
      */
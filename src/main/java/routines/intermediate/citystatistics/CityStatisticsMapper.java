@@ -8,6 +8,7 @@ import java.util.List;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
+import routines.common.SkewedKeys;
 
 /**
  * Mapper para estatísticas completas por cidade
@@ -25,6 +26,15 @@ public class CityStatisticsMapper extends Mapper<LongWritable, Text, Text, CityS
     private long headerSkipped = 0;
     private long invalidRecords = 0;
 
+    // Modo anti-skew (null quando desabilitado)
+    private SkewedKeys.Salter salter;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        salter = SkewedKeys.Salter.fromConf(context.getConfiguration());
+    }
+
     /**
      * Método map - processa cada linha do CSV
      */
@@ -69,7 +79,7 @@ public class CityStatisticsMapper extends Mapper<LongWritable, Text, Text, CityS
                 stats.addTransaction(amountInCents);
 
                 // Emitir resultado
-                outputKey.set(city);
+                outputKey.set(salter == null ? city : salter.salt(city, recordsProcessed));
                 context.write(outputKey, stats);
                 validRecords++;
             } else {
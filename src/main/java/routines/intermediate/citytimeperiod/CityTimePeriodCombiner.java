@@ -36,9 +36,7 @@ public class CityTimePeriodCombiner extends Reducer<Text, CityTimePeriodStatsWri
         }
 
         // Criar resultado pré-agregado
-        result.setMorningCount(totalMorning);
-        result.setAfternoonCount(totalAfternoon);
-        result.setNightCount(totalNight);
+        result.set(totalMorning, totalAfternoon, totalNight);
 
         // Emitir resultado pré-agregado
         context.write(key, result);
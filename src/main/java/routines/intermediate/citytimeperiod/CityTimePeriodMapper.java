@@ -2,14 +2,21 @@ package routines.intermediate.citytimeperiod;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
+import routines.common.InMapperAggregationMapper;
+import routines.common.TimePeriod;
 
 /**
  * Mapper para análise temporal de transações por cidade
  * Classifica cada transação em período do dia (manhã, tarde, noite)
+ *
+ * As contagens são acumuladas em memória por cidade (long[] indexado pelo período)
+ * e emitidas no cleanup ou quando o número de cidades excede fta.inmapper.max.entries.
  */
 public class CityTimePeriodMapper extends Mapper<LongWritable, Text, Text, CityTimePeriodStatsWritable> {
 
@@ -22,17 +29,19 @@ public class CityTimePeriodMapper extends Mapper<LongWritable, Text, Text, CityT
     private long validRecords = 0;
     private long headerSkipped = 0;
     private long invalidRecords = 0;
-    private long morningTransactions = 0;
-    private long afternoonTransactions = 0;
-    private long nightTransactions = 0;
 
-    /**
-     * Enum para períodos do dia
-     */
-    private enum TimePeriod {
-        MORNING,    // 00:00 - 11:59
-        AFTERNOON,  // 12:00 - 17:59
-        NIGHT       // 18:00 - 23:59
+    // Totais por período, indexados pelo ordinal de TimePeriod
+    private final long[] periodTotals = new long[TimePeriod.COUNT];
+
+    // Agregação in-mapper: cidade -> contagens por período
+    private final Map<String, long[]> cityPeriodCounts = new HashMap<>();
+    private int maxCities;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        maxCities = Math.max(1, context.getConfiguration().getInt(
+                InMapperAggregationMapper.MAX_ENTRIES_KEY, InMapperAggregationMapper.DEFAULT_MAX_ENTRIES));
     }
 
     /**
@@ -71,31 +80,22 @@ public class CityTimePeriodMapper extends Mapper<LongWritable, Text, Text, CityT
             String city = processCityName(cityRaw);
 
             // Determinar período do dia
-            TimePeriod period = determineTimePeriod(dateTimeRaw);
+            TimePeriod period = TimePeriod.fromDateTime(dateTimeRaw);
 
             if (!city.isEmpty() && period != null) {
-                // Criar CityTimePeriodStatsWritable com esta transação
-                CityTimePeriodStatsWritable stats = new CityTimePeriodStatsWritable();
-
-                switch (period) {
-                    case MORNING:
-                        stats.incrementMorning();
-                        morningTransactions++;
-                        break;
-                    case AFTERNOON:
-                        stats.incrementAfternoon();
-                        afternoonTransactions++;
-                        break;
-                    case NIGHT:
-                        stats.incrementNight();
-                        nightTransactions++;
-                        break;
+                // Acumular no slot do período para esta cidade
+                long[] counts = cityPeriodCounts.get(city);
+                if (counts == null) {
+                    counts = new long[TimePeriod.COUNT];
+                    cityPeriodCounts.put(city, counts);
                 }
-
-                // Emitir resultado
-                outputKey.set(city);
-                context.write(outputKey, stats);
+                counts[period.ordinal()]++;
+                periodTotals[period.ordinal()]++;
                 validRecords++;
+
+                if (cityPeriodCounts.size() >= maxCities) {
+                    flushCities(context);
+                }
             } else {
                 invalidRecords++;
             }
@@ -109,50 +109,25 @@ public class CityTimePeriodMapper extends Mapper<LongWritable, Text, Text, CityT
         if (recordsProcessed % 50000 == 0) {
             context.setStatus(String.format(
                     "Processados %d registros. Manhã: %d, Tarde: %d, Noite: %d",
-                    recordsProcessed, morningTransactions, afternoonTransactions, nightTransactions));
+                    recordsProcessed, periodTotals[TimePeriod.MORNING.ordinal()],
+                    periodTotals[TimePeriod.AFTERNOON.ordinal()], periodTotals[TimePeriod.NIGHT.ordinal()]));
         }
     }
 
     /**
-     * Determina o período do dia baseado no timestamp
-     * Formato esperado: "2010-01-01 00:01:00"
+     * Emite as contagens acumuladas por cidade e limpa o mapa
      */
-    private TimePeriod determineTimePeriod(String dateTimeRaw) {
-        if (dateTimeRaw == null || dateTimeRaw.trim().isEmpty()) {
-            return null;
-        }
-
-        try {
-            String dateTime = dateTimeRaw.trim().replace("\"", "");
-
-            // Extrair a parte da hora: "2010-01-01 00:01:00" -> "00:01:00"
-            String[] parts = dateTime.split(" ");
-            if (parts.length < 2) {
-                return null;
-            }
-
-            String timePart = parts[1]; // "00:01:00"
-            String[] timeParts = timePart.split(":");
-            if (timeParts.length < 1) {
-                return null;
-            }
-
-            int hour = Integer.parseInt(timeParts[0]);
-
-            // Classificar por período
-            if (hour >= 0 && hour < 12) {
-                return TimePeriod.MORNING;
-            } else if (hour >= 12 && hour < 18) {
-                return TimePeriod.AFTERNOON;
-            } else if (hour >= 18 && hour < 24) {
-                return TimePeriod.NIGHT;
-            }
-
-            return null;
-
-        } catch (Exception e) {
-            return null;
+    private void flushCities(Context context) throws IOException, InterruptedException {
+        for (Map.Entry<String, long[]> entry : cityPeriodCounts.entrySet()) {
+            long[] counts = entry.getValue();
+            outputValue.set(counts[TimePeriod.MORNING.ordinal()],
+                    counts[TimePeriod.AFTERNOON.ordinal()],
+                    counts[TimePeriod.NIGHT.ordinal()]);
+
+            outputKey.set(entry.getKey());
+            context.write(outputKey, outputValue);
         }
+        cityPeriodCounts.clear();
     }
 
     /**
@@ -204,6 +179,11 @@ public class CityTimePeriodMapper extends Mapper<LongWritable, Text, Text, CityT
      */
     @Override
     protected void cleanup(Context context) throws IOException, InterruptedException {
+        flushCities(context);
+
+        long morningTransactions = periodTotals[TimePeriod.MORNING.ordinal()];
+        long afternoonTransactions = periodTotals[TimePeriod.AFTERNOON.ordinal()];
+        long nightTransactions = periodTotals[TimePeriod.NIGHT.ordinal()];
         long total = morningTransactions + afternoonTransactions + nightTransactions;
 
         System.out.println("========================================");
@@ -51,12 +51,11 @@ public class CityTimePeriodReducer extends Reducer<Text, CityTimePeriodStatsWrit
             cityNight += stats.getNightCount();
         }
 
-        // Criar objeto final com estatísticas agregadas
-        CityTimePeriodStatsWritable finalStats = new CityTimePeriodStatsWritable(
-                cityMorning, cityAfternoon, cityNight);
+        // Preencher o objeto reutilizável com as estatísticas agregadas
+        result.set(cityMorning, cityAfternoon, cityNight);
 
         // Emitir objeto diretamente (Custom Writable)
-        context.write(key, finalStats);
+        context.write(key, result);
 
         // Atualizar estatísticas globais
         totalCities++;
@@ -65,11 +64,11 @@ public class CityTimePeriodReducer extends Reducer<Text, CityTimePeriodStatsWrit
         totalNightTransactions += cityNight;
 
         // Análise de padrões (apenas para cidades com volume significativo)
-        long cityTotal = finalStats.getTotalCount();
+        long cityTotal = result.getTotalCount();
         if (cityTotal >= 50) {
-            double morningPct = finalStats.getMorningPercentage();
-            double afternoonPct = finalStats.getAfternoonPercentage();
-            double nightPct = finalStats.getNightPercentage();
+            double morningPct = result.getMorningPercentage();
+            double afternoonPct = result.getAfternoonPercentage();
+            double nightPct = result.getNightPercentage();
 
             // Rastrear cidade mais orientada para manhã
             if (morningPct > highestMorningPercentage) {
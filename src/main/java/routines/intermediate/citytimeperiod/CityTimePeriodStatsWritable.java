@@ -81,6 +81,23 @@ public class CityTimePeriodStatsWritable implements WritableComparable<CityTimeP
         this.nightCount++;
     }
 
+    /**
+     * Redefine os três contadores, permitindo reutilizar a mesma instância
+     * como valor de saída (evita uma alocação por registro/grupo)
+     */
+    public void set(long morning, long afternoon, long night) {
+        this.morningCount = morning;
+        this.afternoonCount = afternoon;
+        this.nightCount = night;
+    }
+
+    /**
+     * Zera os contadores (estado do construtor padrão)
+     */
+    public void reset() {
+        set(0, 0, 0);
+    }
+
     /**
      * Adiciona contadores de outro objeto a este
      */
@@ -0,0 +1,137 @@
+package routines.intermediate.georollup;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.JobAutoTuner;
+import routines.common.LocalMode;
+
+// Para executar configure os argumentos da seguinte forma:
+// src/main/resources/transactions_data.csv output/geo_rollup 1 local
+
+/**
+ * Driver class para GeoRollup - Relatório hierárquico cidade → estado → total geral
+ *
+ * Equivale a um GROUP BY ROLLUP(estado, cidade) em um único job (uma leitura, um shuffle):
+ * - O mapper emite cada transação uma vez, com chave marcada pelo nível CITY
+ * - O combiner soma os parciais de cada cidade
+ * - O reducer emite as cidades, o subtotal de cada estado e o total geral
+ *
+ * A chave ({@link GeoRollupKey}) tem 1 byte de nível e é ordenada por um comparator
+ * binário; o particionador mantém cada estado inteiro em um reducer.
+ *
+ * Output: NÍVEL  ESTADO  CIDADE  Transações: N | Total: $X.XX | Média: $Y.YY
+ *   CITY     TX  HOUSTON  ...
+ *   STATE    TX  *        ...   (após as cidades do estado)
+ *   COUNTRY  *   *        ...   (última linha de part-r-00000)
+ * Estado pelas regras do TransactionCountByState (ONLINE/UNKNOWN inclusos), cidade pelas
+ * do AmountByCity; total e média consideram só os valores legíveis.
+ */
+public class GeoRollup extends Configured implements Tool {
+
+    @Override
+    public int run(String[] args) throws Exception {
+        // Verificação dos argumentos
+        if (args.length < 2 || !JobAutoTuner.isReducersArgument(args, 2)) {
+            System.err.println("Usage: GeoRollup <input_path> <output_path> [num_reducers] [local]");
+            System.err.println("  input_path: caminho do arquivo CSV de transações");
+            System.err.println("  output_path: caminho do diretório de saída");
+            System.err.println("  num_reducers: número de reducers (opcional, padrão: auto)");
+            System.err.println("  local: para execução local (opcional)");
+            return -1;
+        }
+
+        // Parse dos parâmetros
+        Path inputPath = new Path(args[0]);
+        Path outputDir = new Path(args[1]);
+        int numberOfReducers = JobAutoTuner.parseReducers(args, 2);
+        boolean localMode = LocalMode.isRequested(args, 2);
+
+        // Configuração
+        Configuration conf = this.getConf();
+        if (localMode) {
+            System.out.println("Configurando para execução local (standalone)...");
+            LocalMode.configure(conf);
+        }
+
+        // Reducers, split e sort buffer: auto-tuning por amostragem (overrides via -D);
+        // a chave de partição é o estado
+        JobAutoTuner.Decision tuning = JobAutoTuner.tune(conf, inputPath, numberOfReducers,
+                new JobAutoTuner.Profile("geo_rollup", JobAutoTuner.Profile.csvColumn(8), 0.05));
+
+        // Criar e configurar o job
+        Job job = Job.getInstance(conf, "geo_rollup");
+        job.setJarByClass(GeoRollup.class);
+        job.setInputFormatClass(TextInputFormat.class);
+        job.setOutputFormatClass(TextOutputFormat.class);
+
+        FileInputFormat.addInputPath(job, inputPath);
+        FileOutputFormat.setOutputPath(job, outputDir);
+
+        job.setMapperClass(GeoRollupMapper.class);
+        job.setCombinerClass(GeoRollupCombiner.class);
+        job.setReducerClass(GeoRollupReducer.class);
+        job.setMapOutputKeyClass(GeoRollupKey.class);
+        job.setMapOutputValueClass(GeoRollupStats.class);
+        job.setOutputKeyClass(GeoRollupKey.class);
+        job.setOutputValueClass(GeoRollupStats.class);
+
+        // Chave marcada por nível: partição por estado e ordenação binária
+        job.setPartitionerClass(GeoRollupPartitioner.class);
+        job.setSortComparatorClass(GeoRollupKey.Comparator.class);
+
+        tuning.apply(job);
+
+        // Compressão do shuffle e da saída (-Dfta.compression=none|fast|dense)
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+        compression.applyFinal(job);
+
+        // Log de informações
+        System.out.println("========================================");
+        System.out.println("GeoRollup Job Configuration:");
+        System.out.println("  Mode: " + (localMode ? "Local (Standalone)" : "Cluster"));
+        System.out.println("  Input: " + inputPath);
+        System.out.println("  Output: " + outputDir);
+        System.out.println("  Reducers: " + tuning.getReducers());
+        System.out.println("  Compressão: " + compression.describe());
+        System.out.println("  Níveis: cidade, estado, total geral (um shuffle)");
+        System.out.println("  Combiner: Enabled");
+        System.out.println("========================================");
+
+        if (!job.waitForCompletion(true)) {
+            System.err.println("Job falhou!");
+            return 1;
+        }
+
+        System.out.println();
+        System.out.println("========================================");
+        System.out.println("Job concluído com sucesso!");
+        System.out.println("========================================");
+
+        if (localMode) {
+            System.out.println();
+            System.out.println("Para ver os resultados:");
+            System.out.println("  cat " + outputDir + "/part-r-*");
+            System.out.println("  grep -P '^STATE\\t' " + outputDir + "/part-r-*   (só os subtotais por estado)");
+        }
+        return 0;
+    }
+
+    /**
+     * Método main - ponto de entrada da aplicação
+     */
+    public static void main(String[] args) throws Exception {
+        System.out.println("Iniciando GeoRollup...");
+        int exitCode = ToolRunner.run(new Configuration(), new GeoRollup(), args);
+        System.out.println("GeoRollup finalizado com código: " + exitCode);
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,26 @@
+package routines.intermediate.georollup;
+
+import java.io.IOException;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Combiner do GeoRollup: soma os parciais de cada chave (cidade ou total geral)
+ *
+ * Não gera subtotais de estado: o combiner pode rodar várias vezes sobre os mesmos
+ * registros, e só o reducer vê cada cidade uma única vez.
+ */
+public class GeoRollupCombiner extends Reducer<GeoRollupKey, GeoRollupStats, GeoRollupKey, GeoRollupStats> {
+
+    // Objeto reutilizável para resultado
+    private final GeoRollupStats result = new GeoRollupStats();
+
+    @Override
+    protected void reduce(GeoRollupKey key, Iterable<GeoRollupStats> values, Context context)
+            throws IOException, InterruptedException {
+        result.reset();
+        for (GeoRollupStats stats : values) {
+            result.add(stats);
+        }
+        context.write(key, result);
+    }
+}
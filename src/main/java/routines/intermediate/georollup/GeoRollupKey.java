@@ -0,0 +1,158 @@
+package routines.intermediate.georollup;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Chave do GeoRollup marcada pelo nível de agrupamento (grouping set)
+ *
+ * Serialização compacta: 1 byte de nível + estado e cidade como Text (VInt tamanho + UTF-8).
+ * Os níveis vazios ficam com string vazia, então a chave COUNTRY ocupa 3 bytes.
+ *
+ * Ordem (também no {@link Comparator}, sem desserializar):
+ *   estado | CITY antes de STATE | cidade, e COUNTRY depois de todos os estados
+ * Assim o reducer vê as cidades de um estado em sequência, fecha o subtotal do estado
+ * na troca de estado e recebe o total geral por último.
+ */
+public class GeoRollupKey implements WritableComparable<GeoRollupKey> {
+
+    /** Níveis de agrupamento, do mais fino ao total geral */
+    public static final byte CITY = 0;
+    public static final byte STATE = 1;
+    public static final byte COUNTRY = 2;
+
+    private static final String[] LEVEL_NAMES = {"CITY", "STATE", "COUNTRY"};
+    private static final String ROLLED_UP = "*";
+
+    static {
+        // Comparator binário padrão da classe (como o Text)
+        WritableComparator.define(GeoRollupKey.class, new Comparator());
+    }
+
+    private byte level;
+    private final Text state = new Text();
+    private final Text city = new Text();
+
+    public GeoRollupKey() {
+    }
+
+    public void setCity(String stateName, String cityName) {
+        level = CITY;
+        state.set(stateName);
+        city.set(cityName);
+    }
+
+    public void setState(Text stateName) {
+        level = STATE;
+        state.set(stateName);
+        city.clear();
+    }
+
+    public void setCountry() {
+        level = COUNTRY;
+        state.clear();
+        city.clear();
+    }
+
+    public byte getLevel() {
+        return level;
+    }
+
+    public Text getState() {
+        return state;
+    }
+
+    public Text getCity() {
+        return city;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(level);
+        state.write(out);
+        city.write(out);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        level = in.readByte();
+        state.readFields(in);
+        city.readFields(in);
+    }
+
+    @Override
+    public int compareTo(GeoRollupKey other) {
+        if (level == COUNTRY || other.level == COUNTRY) {
+            return Integer.compare(level, other.level);
+        }
+        int cmp = state.compareTo(other.state);
+        if (cmp != 0) return cmp;
+        cmp = Integer.compare(level, other.level);
+        return cmp != 0 ? cmp : city.compareTo(other.city);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof GeoRollupKey && compareTo((GeoRollupKey) obj) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return level == COUNTRY ? COUNTRY : 31 * (31 * level + state.hashCode()) + city.hashCode();
+    }
+
+    /**
+     * Formato da saída: NÍVEL \t ESTADO \t CIDADE, com "*" nas dimensões agregadas
+     */
+    @Override
+    public String toString() {
+        return LEVEL_NAMES[level] + "\t" +
+                (level == COUNTRY ? ROLLED_UP : state.toString()) + "\t" +
+                (level == CITY ? city.toString() : ROLLED_UP);
+    }
+
+    /**
+     * Comparator binário: compara nível, estado e cidade direto nos bytes serializados
+     */
+    public static class Comparator extends WritableComparator {
+
+        public Comparator() {
+            super(GeoRollupKey.class);
+        }
+
+        @Override
+        public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+            int level1 = b1[s1];
+            int level2 = b2[s2];
+            if (level1 == COUNTRY || level2 == COUNTRY) {
+                return Integer.compare(level1, level2);
+            }
+            try {
+                // Estado: VInt tamanho + bytes
+                int sizeLen1 = WritableUtils.decodeVIntSize(b1[s1 + 1]);
+                int sizeLen2 = WritableUtils.decodeVIntSize(b2[s2 + 1]);
+                int state1 = readVInt(b1, s1 + 1);
+                int state2 = readVInt(b2, s2 + 1);
+                int cmp = compareBytes(b1, s1 + 1 + sizeLen1, state1, b2, s2 + 1 + sizeLen2, state2);
+                if (cmp != 0) return cmp;
+                cmp = Integer.compare(level1, level2);
+                if (cmp != 0) return cmp;
+
+                // Cidade: logo após o estado
+                int c1 = s1 + 1 + sizeLen1 + state1;
+                int c2 = s2 + 1 + sizeLen2 + state2;
+                int citySizeLen1 = WritableUtils.decodeVIntSize(b1[c1]);
+                int citySizeLen2 = WritableUtils.decodeVIntSize(b2[c2]);
+                return compareBytes(b1, c1 + citySizeLen1, readVInt(b1, c1),
+                        b2, c2 + citySizeLen2, readVInt(b2, c2));
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+}
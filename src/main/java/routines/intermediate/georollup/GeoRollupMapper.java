@@ -0,0 +1,91 @@
+package routines.intermediate.georollup;
+
+import java.io.IOException;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import routines.basic.amountbycity.AmountByCityMapper;
+import routines.basic.transactioncountbystate.TransactionCountByStateMapper;
+import routines.common.InputPreview;
+
+/**
+ * Mapper do GeoRollup: cada transação é emitida uma única vez, no nível CITY
+ * (estado + cidade); os subtotais por estado saem do reducer
+ *
+ * O total geral precisa de todos os estados, que ficam espalhados entre os reducers;
+ * por isso o mapper soma a sua parte e emite um único parcial COUNTRY no cleanup.
+ */
+public class GeoRollupMapper extends Mapper<LongWritable, Text, GeoRollupKey, GeoRollupStats> {
+
+    // Objetos reutilizáveis
+    private final GeoRollupKey outputKey = new GeoRollupKey();
+    private final GeoRollupStats outputValue = new GeoRollupStats();
+
+    // Parcial do total geral desta task
+    private final GeoRollupStats countryTotal = new GeoRollupStats();
+
+    // Contadores para estatísticas
+    private long recordsProcessed = 0;
+    private long validRecords = 0;
+    private long headerSkipped = 0;
+    private long invalidRecords = 0;
+    private long invalidAmounts = 0;
+
+    @Override
+    protected void map(LongWritable key, Text value, Context context)
+            throws IOException, InterruptedException {
+
+        recordsProcessed++;
+        String line = value.toString();
+
+        // Ignorar cabeçalho
+        if (line.startsWith("id,") || line.startsWith("\"id\"")) {
+            headerSkipped++;
+            return;
+        }
+
+        // Estrutura CSV: id(0),date(1),client_id(2),card_id(3),amount(4),use_chip(5),
+        //                merchant_id(6),merchant_city(7),merchant_state(8),zip(9),mcc(10),errors(11)
+        String[] parts = InputPreview.splitCsv(line);
+        if (parts.length < 12) {
+            invalidRecords++;
+            return;
+        }
+
+        // Mesmas regras de cidade e estado das rotinas AmountByCity e TransactionCountByState
+        String state = TransactionCountByStateMapper.stateLabel(parts[8], parts[7]);
+        String city = AmountByCityMapper.processCityName(parts[7]);
+        long cents = AmountByCityMapper.parseAmountToCents(parts[4]);
+        boolean validAmount = cents != Long.MIN_VALUE;
+
+        outputKey.setCity(state, city);
+        outputValue.set(1, validAmount ? 1 : 0, validAmount ? cents : 0);
+        context.write(outputKey, outputValue);
+        countryTotal.add(outputValue);
+
+        validRecords++;
+        if (!validAmount) invalidAmounts++;
+
+        if (recordsProcessed % 50000 == 0) {
+            context.setStatus("Processados " + recordsProcessed + " registros");
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        if (countryTotal.getTransactionCount() > 0) {
+            outputKey.setCountry();
+            context.write(outputKey, countryTotal);
+        }
+
+        System.out.println("========================================");
+        System.out.println("Estatísticas do Mapper (GeoRollup):");
+        System.out.println("  Total de registros processados: " + recordsProcessed);
+        System.out.println("  Cabeçalhos ignorados: " + headerSkipped);
+        System.out.println("  Registros válidos: " + validRecords);
+        System.out.println("  Registros inválidos: " + invalidRecords);
+        System.out.println("  Valores ilegíveis: " + invalidAmounts);
+        System.out.println("========================================");
+        super.cleanup(context);
+    }
+}
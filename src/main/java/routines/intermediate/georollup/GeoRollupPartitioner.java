@@ -0,0 +1,18 @@
+package routines.intermediate.georollup;
+
+import org.apache.hadoop.mapreduce.Partitioner;
+
+/**
+ * Particiona por estado, para que cada reducer feche sozinho o subtotal dos seus
+ * estados; os parciais do total geral (COUNTRY) vão todos para a partição 0
+ */
+public class GeoRollupPartitioner extends Partitioner<GeoRollupKey, GeoRollupStats> {
+
+    @Override
+    public int getPartition(GeoRollupKey key, GeoRollupStats value, int numPartitions) {
+        if (key.getLevel() == GeoRollupKey.COUNTRY) {
+            return 0;
+        }
+        return (key.getState().hashCode() & Integer.MAX_VALUE) % numPartitions;
+    }
+}
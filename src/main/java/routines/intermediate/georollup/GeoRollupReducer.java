@@ -0,0 +1,95 @@
+package routines.intermediate.georollup;
+
+import java.io.IOException;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Reducer do GeoRollup: emite cada cidade, o subtotal de cada estado e o total geral
+ *
+ * Pela ordem do {@link GeoRollupKey}, as cidades de um estado chegam em sequência;
+ * o subtotal do estado é acumulado enquanto elas passam e emitido logo após a última
+ * (na troca de estado, na chegada do total geral ou no cleanup). O total geral vem
+ * dos parciais COUNTRY dos mappers, todos na partição 0.
+ */
+public class GeoRollupReducer extends Reducer<GeoRollupKey, GeoRollupStats, GeoRollupKey, GeoRollupStats> {
+
+    // Objetos reutilizáveis
+    private final GeoRollupStats result = new GeoRollupStats();
+    private final GeoRollupKey stateKey = new GeoRollupKey();
+    private final GeoRollupStats stateTotal = new GeoRollupStats();
+
+    // Estado cujas cidades estão sendo recebidas (o objeto da chave é reusado pelo Hadoop)
+    private final Text currentState = new Text();
+    private boolean hasState = false;
+
+    // Estatísticas
+    private long cities = 0;
+    private long states = 0;
+    private long transactions = 0;
+    private long countryTransactions = -1;
+
+    @Override
+    protected void reduce(GeoRollupKey key, Iterable<GeoRollupStats> values, Context context)
+            throws IOException, InterruptedException {
+
+        result.reset();
+        for (GeoRollupStats stats : values) {
+            result.add(stats);
+        }
+
+        if (key.getLevel() == GeoRollupKey.COUNTRY) {
+            flushState(context);
+            countryTransactions = result.getTransactionCount();
+            context.write(key, result);
+            return;
+        }
+
+        if (hasState && !currentState.equals(key.getState())) {
+            flushState(context);
+        }
+        if (!hasState) {
+            currentState.set(key.getState());
+            hasState = true;
+        }
+
+        context.write(key, result);
+        stateTotal.add(result);
+        cities++;
+        transactions += result.getTransactionCount();
+
+        if (cities % 1000 == 0) {
+            context.setStatus("Processadas " + cities + " cidades");
+        }
+    }
+
+    /**
+     * Emite o subtotal do estado corrente (se houver)
+     */
+    private void flushState(Context context) throws IOException, InterruptedException {
+        if (!hasState) {
+            return;
+        }
+        stateKey.setState(currentState);
+        context.write(stateKey, stateTotal);
+        stateTotal.reset();
+        hasState = false;
+        states++;
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        flushState(context);
+
+        System.out.println("========================================");
+        System.out.println("Estatísticas do Reducer (GeoRollup):");
+        System.out.println("  Cidades: " + cities);
+        System.out.println("  Estados: " + states);
+        System.out.println("  Transações nesta partição: " + transactions);
+        if (countryTransactions >= 0) {
+            System.out.println("  Total geral (todas as partições): " + countryTransactions);
+        }
+        System.out.println("========================================");
+        super.cleanup(context);
+    }
+}
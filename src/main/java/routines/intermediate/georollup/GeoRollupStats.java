@@ -0,0 +1,72 @@
+package routines.intermediate.georollup;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Medidas aditivas de um grupo do GeoRollup (VLong, poucos bytes para parciais pequenos)
+ *
+ * transactionCount conta todas as transações (como o TransactionCountByState); total e
+ * média consideram só os valores legíveis (como o CityStatistics).
+ */
+public class GeoRollupStats implements Writable {
+
+    private long transactionCount;
+    private long amountCount;
+    private long totalAmountInCents;
+
+    public void set(long transactionCount, long amountCount, long totalAmountInCents) {
+        this.transactionCount = transactionCount;
+        this.amountCount = amountCount;
+        this.totalAmountInCents = totalAmountInCents;
+    }
+
+    public void reset() {
+        set(0, 0, 0);
+    }
+
+    public void add(GeoRollupStats other) {
+        transactionCount += other.transactionCount;
+        amountCount += other.amountCount;
+        totalAmountInCents += other.totalAmountInCents;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public long getAmountCount() {
+        return amountCount;
+    }
+
+    public long getTotalAmountInCents() {
+        return totalAmountInCents;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVLong(out, transactionCount);
+        WritableUtils.writeVLong(out, amountCount);
+        WritableUtils.writeVLong(out, totalAmountInCents);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        transactionCount = WritableUtils.readVLong(in);
+        amountCount = WritableUtils.readVLong(in);
+        totalAmountInCents = WritableUtils.readVLong(in);
+    }
+
+    /**
+     * Mesmo formato do CityStatsWritable
+     */
+    @Override
+    public String toString() {
+        long average = amountCount > 0 ? totalAmountInCents / amountCount : 0;
+        return String.format("Transações: %d | Total: $%.2f | Média: $%.2f",
+                transactionCount, totalAmountInCents / 100.0, average / 100.0);
+    }
+}
@@ -49,6 +49,23 @@ public class MCCTransactionCount implements WritableComparable<MCCTransactionCou
         this.count = count;
     }
 
+    /**
+     * Redefine código e contagem, permitindo reutilizar a mesma instância
+     * como valor de saída em mappers/combiners (evita uma alocação por registro)
+     */
+    public void set(String mccCode, long count) {
+        this.mccCode = mccCode;
+        this.count = count;
+    }
+
+    /**
+     * Volta ao estado do construtor padrão
+     */
+    public void reset() {
+        this.mccCode = "";
+        this.count = 0;
+    }
+
     /**
      * Incrementa o contador
      */
@@ -13,17 +13,23 @@ import org.apache.hadoop.io.WritableUtils;
  */
 public class TopCategoriesResult implements WritableComparable<TopCategoriesResult> {
 
-    // Arrays para armazenar até 3 categorias
+    // Capacidade inicial (top 3); cresce quando K > 3 (fta.topk.k)
+    private static final int DEFAULT_CAPACITY = 3;
+
+    // Arrays para armazenar as top N categorias
     private String[] mccCodes;      // Códigos MCC das top categorias
     private long[] counts;          // Contagens correspondentes
-    private int size;               // Número de categorias armazenadas (1, 2 ou 3)
+    private int size;               // Número de categorias armazenadas
+
+    // Apenas formatação do texto de saída (não serializado): valores em centavos
+    private boolean monetary = false;
 
     /**
      * Construtor padrão (necessário para Hadoop)
      */
     public TopCategoriesResult() {
-        this.mccCodes = new String[3];
-        this.counts = new long[3];
+        this.mccCodes = new String[DEFAULT_CAPACITY];
+        this.counts = new long[DEFAULT_CAPACITY];
         this.size = 0;
     }
 
@@ -31,9 +37,9 @@ public class TopCategoriesResult implements WritableComparable<TopCategoriesResu
      * Construtor que aceita arrays de códigos e contagens
      */
     public TopCategoriesResult(String[] mccCodes, long[] counts, int size) {
-        this.mccCodes = new String[3];
-        this.counts = new long[3];
-        this.size = Math.min(size, 3);
+        this.mccCodes = new String[Math.max(size, DEFAULT_CAPACITY)];
+        this.counts = new long[Math.max(size, DEFAULT_CAPACITY)];
+        this.size = size;
 
         for (int i = 0; i < this.size; i++) {
             this.mccCodes[i] = mccCodes[i];
@@ -41,6 +47,42 @@ public class TopCategoriesResult implements WritableComparable<TopCategoriesResu
         }
     }
 
+    /**
+     * Indica que os valores são montantes em centavos (métrica AMOUNT) em vez de contagens;
+     * afeta apenas o toString()
+     */
+    public void setMonetary(boolean monetary) {
+        this.monetary = monetary;
+    }
+
+    /**
+     * Esvazia o resultado para reutilização (o reducer mantém uma única instância)
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Acrescenta a próxima posição do ranking
+     */
+    public void add(String mccCode, long count) {
+        ensureCapacity(size + 1);
+        mccCodes[size] = mccCode;
+        counts[size] = count;
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mccCodes.length) {
+            String[] grownCodes = new String[capacity];
+            long[] grownCounts = new long[capacity];
+            System.arraycopy(mccCodes, 0, grownCodes, 0, size);
+            System.arraycopy(counts, 0, grownCounts, 0, size);
+            mccCodes = grownCodes;
+            counts = grownCounts;
+        }
+    }
+
     // Getters
     public String[] getMccCodes() {
         return mccCodes;
@@ -96,7 +138,10 @@ public class TopCategoriesResult implements WritableComparable<TopCategoriesResu
      */
     @Override
     public void readFields(DataInput in) throws IOException {
-        size = in.readInt();
+        int newSize = in.readInt();
+        size = 0;
+        ensureCapacity(newSize);
+        size = newSize;
         for (int i = 0; i < size; i++) {
             mccCodes[i] = WritableUtils.readString(in);
             counts[i] = in.readLong();
@@ -131,8 +176,13 @@ public class TopCategoriesResult implements WritableComparable<TopCategoriesResu
             }
 
             String description = MCCDescriptionMapper.getDescription(mccCodes[i]);
-            sb.append(String.format("Top-%d: %s (%s) %d",
-                    i + 1, mccCodes[i], description, counts[i]));
+            if (monetary) {
+                sb.append(String.format("Top-%d: %s (%s) $%.2f",
+                        i + 1, mccCodes[i], description, counts[i] / 100.0));
+            } else {
+                sb.append(String.format("Top-%d: %s (%s) %d",
+                        i + 1, mccCodes[i], description, counts[i]));
+            }
         }
 
         return sb.toString();
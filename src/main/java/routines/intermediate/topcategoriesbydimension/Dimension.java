@@ -0,0 +1,108 @@
+package routines.intermediate.topcategoriesbydimension;
+
+import java.util.ArrayList;
+import java.util.List;
+import routines.common.StateCode;
+
+/**
+ * Dimensões de agrupamento suportadas pelo TopCategoriesByDimension.
+ *
+ * Cada dimensão sabe de qual coluna do CSV vem a chave e como normalizá-la/validá-la,
+ * reproduzindo as regras dos antigos TopCategoriesByCity/State/Country:
+ *   CITY     - merchant_city (7); vazio/NULL/N/A viram "UNKNOWN"
+ *   STATE    - merchant_state (8); apenas estados dos EUA + DC
+ *   COUNTRY  - merchant_state (8); apenas valores que NÃO são estados dos EUA
+ *   ZIP      - zip (9); ignora vazios
+ *   MERCHANT - merchant_id (6); ignora vazios
+ */
+public enum Dimension {
+    CITY("cidade", 7),
+    STATE("estado", 8),
+    COUNTRY("país", 8),
+    ZIP("CEP", 9),
+    MERCHANT("comerciante", 6);
+
+    /** Quantidade de dimensões, útil para dimensionar acumuladores por dimensão */
+    public static final int COUNT = values().length;
+
+    private final String displayName;
+    private final int column;
+
+    Dimension(String displayName, int column) {
+        this.displayName = displayName;
+        this.column = column;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Nome do subdiretório de saída quando várias dimensões rodam no mesmo job
+     */
+    public String getOutputName() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * Extrai a chave normalizada desta dimensão de uma linha CSV já separada.
+     * @return a chave, ou null se a transação não pertence a esta dimensão
+     */
+    public String extract(String[] cols) {
+        String raw = cols[column];
+        switch (this) {
+            case CITY:
+                String city = clean(raw);
+                if (city.isEmpty() || city.equals("NULL") || city.equals("N/A")) {
+                    return "UNKNOWN";
+                }
+                return city;
+
+            case STATE:
+                StateCode state = StateCode.parse(raw);
+                return state == null ? null : state.name();
+
+            case COUNTRY:
+                String location = clean(raw);
+                if (location.isEmpty() || location.equals("NULL") || location.equals("N/A")
+                        || StateCode.parse(location) != null) {
+                    return null;
+                }
+                return location;
+
+            default:
+                String value = clean(raw);
+                return value.isEmpty() ? null : value;
+        }
+    }
+
+    /**
+     * Converte uma lista separada por vírgulas ("city,state") em dimensões, sem repetições
+     * @throws IllegalArgumentException se algum nome for desconhecido
+     */
+    public static List<Dimension> parseList(String names) {
+        List<Dimension> dimensions = new ArrayList<>();
+        for (String name : names.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            Dimension dimension = valueOf(trimmed.toUpperCase());
+            if (!dimensions.contains(dimension)) {
+                dimensions.add(dimension);
+            }
+        }
+        if (dimensions.isEmpty()) {
+            throw new IllegalArgumentException("Nenhuma dimensão informada: '" + names + "'");
+        }
+        return dimensions;
+    }
+
+    private static String clean(String raw) {
+        return raw == null ? "" : raw.trim().replace("\"", "").toUpperCase();
+    }
+}
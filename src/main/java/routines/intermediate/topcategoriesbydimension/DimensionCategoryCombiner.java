@@ -0,0 +1,41 @@
+package routines.intermediate.topcategoriesbydimension;
+
+import java.io.IOException;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+import routines.common.MccCounter;
+import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
+
+/**
+ * Combiner genérico - soma localmente os totais parciais por MCC de cada chave
+ *
+ * Necessário quando o mapper faz mais de um flush (orçamento de memória excedido):
+ * consolida as parciais do mesmo mapper antes do shuffle. Só soma, nunca corta
+ * o ranking - o top K precisa dos totais completos e é calculado no reducer.
+ *
+ * Input:  (chave marcada, MCCTransactionCount) - parciais
+ * Output: (chave marcada, MCCTransactionCount) - um por MCC
+ */
+public class DimensionCategoryCombiner extends Reducer<Text, MCCTransactionCount, Text, MCCTransactionCount> {
+
+    // Estruturas reutilizáveis entre grupos
+    private final MccCounter mccTotals = new MccCounter();
+    private final MCCTransactionCount outputValue = new MCCTransactionCount();
+
+    @Override
+    protected void reduce(Text key, Iterable<MCCTransactionCount> values, Context context)
+            throws IOException, InterruptedException {
+
+        mccTotals.reset();
+        for (MCCTransactionCount value : values) {
+            mccTotals.add(value.getMccCode(), value.getCount());
+        }
+
+        for (int i = 0; i < mccTotals.distinctCount(); i++) {
+            int id = mccTotals.idAt(i);
+            outputValue.setMccCode(mccTotals.code(id));
+            outputValue.setCount(mccTotals.countOf(id));
+            context.write(key, outputValue);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package routines.intermediate.topcategoriesbydimension;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import routines.common.InMapperAggregationMapper;
+import routines.common.StringLongHashMap;
+import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
+
+/**
+ * Mapper genérico para top categorias por dimensão
+ *
+ * Para cada transação e cada dimensão configurada, soma a métrica (contagem ou
+ * valor em centavos) em (dimensão, chave, MCC) num mapa em memória. No flush emite
+ * uma chave marcada com a dimensão ({@link TopCategoriesByDimension#appendTaggedKey}) e um
+ * MCCTransactionCount com o total parcial, reutilizando os objetos de saída.
+ *
+ * Limites de memória: fta.inmapper.memory.mb / fta.inmapper.max.entries.
+ *
+ * Input:  CSV de transações
+ * Output: ("<dimensão>␁<chave>", MCCTransactionCount)
+ */
+public class DimensionCategoryMapper extends Mapper<LongWritable, Text, Text, MCCTransactionCount> {
+
+    // Separador entre chave marcada e MCC no mapa em memória
+    private static final char MCC_SEPARATOR = '\u0002';
+
+    private Dimension[] dimensions;
+    private Metric metric;
+
+    // Agregação em memória: "<dimensão>␁<chave>␂<mcc>" -> total
+    private final StringLongHashMap totals = new StringLongHashMap(1024);
+    private final StringBuilder keyBuilder = new StringBuilder();
+    private long memoryBudgetBytes;
+    private int maxEntries;
+
+    // Objetos reutilizáveis
+    private final Text outputKey = new Text();
+    private final MCCTransactionCount outputValue = new MCCTransactionCount();
+
+    // Contadores para estatísticas
+    private long recordsProcessed = 0;
+    private long validRecords = 0;
+    private long headerSkipped = 0;
+    private long invalidRecords = 0;
+    private final long[] recordsByDimension = new long[Dimension.COUNT];
+    private long emittedPairs = 0;
+    private int flushCount = 0;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration conf = context.getConfiguration();
+        dimensions = TopCategoriesByDimension.getDimensions(conf).toArray(new Dimension[0]);
+        metric = TopCategoriesByDimension.getMetric(conf);
+        memoryBudgetBytes = Math.max(1, conf.getInt(InMapperAggregationMapper.MEMORY_MB_KEY,
+                InMapperAggregationMapper.DEFAULT_MEMORY_MB)) * 1024L * 1024L;
+        maxEntries = Math.max(1, conf.getInt(InMapperAggregationMapper.MAX_ENTRIES_KEY,
+                InMapperAggregationMapper.DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * Método map - processa cada linha do CSV
+     */
+    @Override
+    protected void map(LongWritable key, Text value, Context context)
+            throws IOException, InterruptedException {
+
+        recordsProcessed++;
+        String line = value.toString();
+
+        // Ignorar cabeçalho
+        if (line.startsWith("id,") || line.startsWith("\"id\"")) {
+            headerSkipped++;
+            return;
+        }
+
+        try {
+            String[] parts = splitCsv(line);
+
+            // Estrutura CSV: id(0),date(1),client_id(2),card_id(3),amount(4),use_chip(5),
+            //                merchant_id(6),merchant_city(7),merchant_state(8),zip(9),mcc(10),errors(11)
+            if (parts.length < 12) {
+                invalidRecords++;
+                return;
+            }
+
+            String mcc = processMCC(parts[10]);
+            long contribution = metric.valueOf(parts);
+            if (mcc == null || contribution == Metric.INVALID) {
+                invalidRecords++;
+                return;
+            }
+
+            boolean accepted = false;
+            for (Dimension dimension : dimensions) {
+                String dimensionKey = dimension.extract(parts);
+                if (dimensionKey == null) {
+                    continue;
+                }
+
+                keyBuilder.setLength(0);
+                TopCategoriesByDimension.appendTaggedKey(keyBuilder, dimension, dimensionKey);
+                keyBuilder.append(MCC_SEPARATOR).append(mcc);
+                totals.add(keyBuilder.toString(), contribution);
+
+                recordsByDimension[dimension.ordinal()]++;
+                accepted = true;
+            }
+
+            if (accepted) {
+                validRecords++;
+            } else {
+                invalidRecords++;
+            }
+
+            if (totals.size() >= maxEntries || totals.estimatedBytes() >= memoryBudgetBytes) {
+                flush(context);
+            }
+
+        } catch (Exception e) {
+            invalidRecords++;
+            context.setStatus("Erro processando linha: " + e.getMessage());
+        }
+
+        // Log de progresso
+        if (recordsProcessed % 50000 == 0) {
+            context.setStatus(String.format("Processados %d registros. Válidos: %d, Inválidos: %d",
+                    recordsProcessed, validRecords, invalidRecords));
+        }
+    }
+
+    /**
+     * Emite os totais acumulados e esvazia o mapa
+     */
+    private void flush(Context context) throws IOException, InterruptedException {
+        if (totals.isEmpty()) {
+            return;
+        }
+
+        for (int slot = 0; slot < totals.capacity(); slot++) {
+            String composite = totals.keyAt(slot);
+            if (composite == null) {
+                continue;
+            }
+            int separator = composite.lastIndexOf(MCC_SEPARATOR);
+            outputKey.set(composite.substring(0, separator));
+            outputValue.setMccCode(composite.substring(separator + 1));
+            outputValue.setCount(totals.valueAt(slot));
+            context.write(outputKey, outputValue);
+            emittedPairs++;
+        }
+
+        totals.clear();
+        flushCount++;
+    }
+
+    /**
+     * Processa e valida o código MCC
+     * @return código numérico, ou null se inválido
+     */
+    private String processMCC(String mccRaw) {
+        if (mccRaw == null) {
+            return null;
+        }
+
+        String mcc = mccRaw.trim().replace("\"", "");
+        if (mcc.isEmpty()) {
+            return null;
+        }
+
+        for (int i = 0; i < mcc.length(); i++) {
+            if (!Character.isDigit(mcc.charAt(i))) {
+                return null;
+            }
+        }
+        return mcc;
+    }
+
+    /**
+     * Split de CSV que respeita aspas
+     */
+    private static String[] splitCsv(String line) {
+        List<String> result = new ArrayList<>();
+        StringBuilder currentField = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+
+            if (ch == '\"') {
+                inQuotes = !inQuotes;
+            } else if (ch == ',' && !inQuotes) {
+                result.add(currentField.toString());
+                currentField.setLength(0);
+            } else {
+                currentField.append(ch);
+            }
+        }
+
+        result.add(currentField.toString());
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Cleanup - descarrega o mapa e imprime estatísticas finais
+     */
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        flush(context);
+
+        System.out.println("========================================");
+        System.out.println("Estatísticas do Mapper (métrica: " + metric + "):");
+        System.out.println("  Total de registros processados: " + recordsProcessed);
+        System.out.println("  Cabeçalhos ignorados: " + headerSkipped);
+        System.out.println("  Registros válidos: " + validRecords);
+        System.out.println("  Registros inválidos/rejeitados: " + invalidRecords);
+        for (Dimension dimension : dimensions) {
+            System.out.println("  Registros por " + dimension.getDisplayName() + ": " +
+                    recordsByDimension[dimension.ordinal()]);
+        }
+        System.out.println("  Pares emitidos: " + emittedPairs + " (flushes: " + flushCount + ")");
+
+        if (recordsProcessed > 0) {
+            double successRate = (double) validRecords / recordsProcessed * 100;
+            System.out.println("  Taxa de sucesso: " + String.format("%.2f%%", successRate));
+        }
+
+        System.out.println("========================================");
+        super.cleanup(context);
+    }
+}
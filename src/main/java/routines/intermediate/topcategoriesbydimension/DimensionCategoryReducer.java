@@ -0,0 +1,134 @@
+package routines.intermediate.topcategoriesbydimension;
+
+import java.io.IOException;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import routines.common.MccCounter;
+import routines.common.TopKSelector;
+import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
+import routines.intermediate.topcategoriesbycity.TopCategoriesResult;
+
+/**
+ * Reducer genérico - top K categorias (MCC) por chave de dimensão
+ *
+ * Soma as parciais por MCC num {@link MccCounter}, seleciona o top K com o
+ * {@link TopKSelector} (K via -Dfta.topk.k) e emite um TopCategoriesResult
+ * reutilizável. Com uma única dimensão a saída é idêntica à das antigas rotinas
+ * TopCategoriesBy*; com várias, cada dimensão vai para o seu subdiretório
+ * (ex.: output/city/part-r-00000) via MultipleOutputs.
+ *
+ * Input:  ("<dimensão>␁<chave>", MCCTransactionCount)
+ * Output: (chave, TopCategoriesResult)
+ */
+public class DimensionCategoryReducer extends Reducer<Text, MCCTransactionCount, Text, TopCategoriesResult> {
+
+    // Estruturas reutilizáveis entre grupos
+    private final MccCounter mccTotals = new MccCounter();
+    private TopKSelector topK;
+    private final TopCategoriesResult result = new TopCategoriesResult();
+    private final Text outputKey = new Text();
+
+    // Saída por dimensão (null quando há uma só dimensão)
+    private MultipleOutputs<Text, TopCategoriesResult> multipleOutputs;
+    private List<Dimension> dimensions;
+    private Metric metric;
+
+    // Estatísticas por dimensão
+    private final long[] groups = new long[Dimension.COUNT];
+    private final long[] categories = new long[Dimension.COUNT];
+    private final String[] mostDiverseKey = new String[Dimension.COUNT];
+    private final int[] highestUniqueMCCCount = new int[Dimension.COUNT];
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration conf = context.getConfiguration();
+        topK = TopKSelector.fromConf(conf);
+        dimensions = TopCategoriesByDimension.getDimensions(conf);
+        metric = TopCategoriesByDimension.getMetric(conf);
+        result.setMonetary(metric == Metric.AMOUNT);
+        if (dimensions.size() > 1) {
+            multipleOutputs = new MultipleOutputs<>(context);
+        }
+    }
+
+    /**
+     * Método reduce - soma por MCC e ranqueia as categorias da chave
+     */
+    @Override
+    protected void reduce(Text key, Iterable<MCCTransactionCount> values, Context context)
+            throws IOException, InterruptedException {
+
+        String tagged = key.toString();
+        Dimension dimension = TopCategoriesByDimension.dimensionOf(tagged);
+        String dimensionKey = TopCategoriesByDimension.untag(tagged);
+
+        // Somar as parciais por MCC
+        mccTotals.reset();
+        for (MCCTransactionCount value : values) {
+            mccTotals.add(value.getMccCode(), value.getCount());
+        }
+
+        // Top K por heap limitado (empates pelo menor MCC)
+        topK.reset();
+        mccTotals.offerTo(topK);
+        int topN = topK.finish();
+
+        result.clear();
+        for (int i = 0; i < topN; i++) {
+            result.add(mccTotals.code(topK.idAt(i)), topK.countAt(i));
+        }
+
+        outputKey.set(dimensionKey);
+        if (multipleOutputs == null) {
+            context.write(outputKey, result);
+        } else {
+            multipleOutputs.write(outputKey, result, dimension.getOutputName() + "/part");
+        }
+
+        // Estatísticas
+        int slot = dimension.ordinal();
+        int uniqueMCCCount = mccTotals.distinctCount();
+        groups[slot]++;
+        categories[slot] += uniqueMCCCount;
+        if (uniqueMCCCount > highestUniqueMCCCount[slot]) {
+            highestUniqueMCCCount[slot] = uniqueMCCCount;
+            mostDiverseKey[slot] = dimensionKey;
+        }
+
+        // Log de progresso
+        if (groups[slot] % 100 == 0) {
+            context.setStatus("Processados " + groups[slot] + " grupos de " + dimension.getDisplayName());
+        }
+    }
+
+    /**
+     * Cleanup - fecha as saídas por dimensão e emite estatísticas finais
+     */
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        if (multipleOutputs != null) {
+            multipleOutputs.close();
+        }
+
+        System.out.println("========================================");
+        System.out.println("Estatísticas do Reducer (top " + topK.capacity() + ", métrica: " + metric + "):");
+        for (Dimension dimension : dimensions) {
+            int slot = dimension.ordinal();
+            System.out.println("  Dimensão " + dimension.getDisplayName() + ":");
+            System.out.println("    Grupos: " + groups[slot]);
+            if (groups[slot] > 0) {
+                System.out.println("    Média de categorias por grupo: " +
+                        String.format("%.2f", (double) categories[slot] / groups[slot]));
+                System.out.println("    Maior diversidade: " + mostDiverseKey[slot] + " (" +
+                        highestUniqueMCCCount[slot] + " categorias)");
+            }
+        }
+        System.out.println("========================================");
+
+        super.cleanup(context);
+    }
+}
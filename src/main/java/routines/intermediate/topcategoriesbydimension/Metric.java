@@ -0,0 +1,55 @@
+package routines.intermediate.topcategoriesbydimension;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Métrica usada para ranquear as categorias (MCC) dentro de cada grupo.
+ *   COUNT  - número de transações
+ *   AMOUNT - valor transacionado, acumulado em centavos (long)
+ */
+public enum Metric {
+    COUNT,
+    AMOUNT;
+
+    /** Valor retornado por {@link #valueOf(String[])} quando a linha não tem valor válido */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    /**
+     * Contribuição da transação para a métrica
+     */
+    public long valueOf(String[] cols) {
+        if (this == COUNT) {
+            return 1;
+        }
+        return parseAmountToCents(cols[4]);
+    }
+
+    /**
+     * Converte string de valor monetário para centavos (long)
+     * Formato esperado: $14.57 (formato americano do dataset Kaggle)
+     */
+    private static long parseAmountToCents(String rawAmount) {
+        if (rawAmount == null || rawAmount.trim().isEmpty()) {
+            return INVALID;
+        }
+
+        try {
+            String cleanAmount = rawAmount.trim()
+                    .replace("\"", "")
+                    .replace("$", "")
+                    .replace(" ", "")
+                    .replace(",", "");
+
+            if (cleanAmount.isEmpty()) {
+                return INVALID;
+            }
+
+            return new BigDecimal(cleanAmount).movePointRight(2)
+                    .setScale(0, RoundingMode.HALF_UP).longValueExact();
+
+        } catch (Exception e) {
+            return INVALID;
+        }
+    }
+}
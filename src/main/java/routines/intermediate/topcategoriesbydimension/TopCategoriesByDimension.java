@@ -0,0 +1,256 @@
+package routines.intermediate.topcategoriesbydimension;
+
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.JobAutoTuner;
+import routines.common.LocalMode;
+import routines.common.TopKSelector;
+import routines.intermediate.topcategoriesbycity.MCCTransactionCount;
+import routines.intermediate.topcategoriesbycity.TopCategoriesResult;
+
+// Para executar configure os argumentos da seguinte forma:
+// -Dfta.topk.dimensions=city,state src/main/resources/transactions_data.csv output/top_categories_by_dimension 1 local
+
+/**
+ * Driver class para TopCategoriesByDimension - Top K Categorias por Dimensão
+ *
+ * Versão parametrizada das rotinas TopCategoriesByCity/State/Country (que agora
+ * delegam para esta classe). Um único mapper/combiner/reducer atende qualquer
+ * dimensão, e várias dimensões podem ser processadas na mesma leitura da entrada.
+ *
+ * Configuração (via -D):
+ *   fta.topk.dimensions - city | state | country | zip | merchant, separadas por
+ *                         vírgula (padrão: city)
+ *   fta.topk.k          - número de categorias no ranking (padrão: 3)
+ *   fta.topk.metric     - count (transações) | amount (valor em dólares) (padrão: count)
+ *
+ * Saída: com uma dimensão, "CHAVE    Top-1: MCC (Descrição) N | ..." em output/part-r-*;
+ * com várias, um subdiretório por dimensão (output/city, output/state, ...).
+ *
+ * A chave do shuffle é marcada com a dimensão ("<ordinal>␁<chave>"), o que permite
+ * misturar dimensões no mesmo job sem colisão entre, por exemplo, cidade e país.
+ */
+public class TopCategoriesByDimension extends Configured implements Tool {
+
+    public static final String DIMENSIONS_KEY = "fta.topk.dimensions";
+    public static final String METRIC_KEY = "fta.topk.metric";
+
+    public static final String DEFAULT_DIMENSIONS = "city";
+
+    /** Separador entre a marca da dimensão e a chave (não aparece em dados CSV) */
+    private static final char TAG_SEPARATOR = '\u0001';
+
+    private static final Dimension[] DIMENSIONS_BY_ORDINAL = Dimension.values();
+
+    private final String jobName;
+
+    public TopCategoriesByDimension() {
+        this("top_categories_by_dimension");
+    }
+
+    /**
+     * @param jobName nome do job (as rotinas TopCategoriesBy* mantêm os nomes originais)
+     */
+    public TopCategoriesByDimension(String jobName) {
+        this.jobName = jobName;
+    }
+
+    /**
+     * Dimensões configuradas em fta.topk.dimensions
+     */
+    public static List<Dimension> getDimensions(Configuration conf) {
+        return Dimension.parseList(conf.get(DIMENSIONS_KEY, DEFAULT_DIMENSIONS));
+    }
+
+    /**
+     * Métrica configurada em fta.topk.metric
+     */
+    public static Metric getMetric(Configuration conf) {
+        return Metric.valueOf(conf.get(METRIC_KEY, Metric.COUNT.name()).trim().toUpperCase());
+    }
+
+    /**
+     * Acrescenta a chave marcada com a dimensão ("<ordinal>␁<chave>")
+     */
+    static void appendTaggedKey(StringBuilder builder, Dimension dimension, String key) {
+        builder.append((char) ('0' + dimension.ordinal())).append(TAG_SEPARATOR).append(key);
+    }
+
+    static Dimension dimensionOf(String taggedKey) {
+        return DIMENSIONS_BY_ORDINAL[taggedKey.charAt(0) - '0'];
+    }
+
+    static String untag(String taggedKey) {
+        return taggedKey.substring(2);
+    }
+
+    @Override
+    public int run(String[] args) throws Exception {
+        // Verificação dos argumentos
+        if (args.length < 2 || !JobAutoTuner.isReducersArgument(args, 2)) {
+            System.err.println("Usage: TopCategoriesByDimension [-Dfta.topk.dimensions=city,state] " +
+                    "[-Dfta.topk.k=3] [-Dfta.topk.metric=count|amount] " +
+                    "<input_path> <output_path> [num_reducers] [local]");
+            System.err.println("  input_path: caminho do arquivo CSV de transações");
+            System.err.println("  output_path: caminho do diretório de saída");
+            System.err.println("  num_reducers: número de reducers (opcional, padrão: auto)");
+            System.err.println("  local: para execução local (opcional)");
+            return -1;
+        }
+
+        // Parse dos parâmetros
+        Path inputPath = new Path(args[0]);
+        Path outputDir = new Path(args[1]);
+        int numberOfReducers = JobAutoTuner.parseReducers(args, 2);
+        boolean localMode = LocalMode.isRequested(args, 2);
+
+        // Configuração
+        Configuration conf = this.getConf();
+
+        // Validação antecipada dos parâmetros (falha no driver, não nas tasks)
+        List<Dimension> dimensions;
+        Metric metric;
+        try {
+            dimensions = getDimensions(conf);
+            metric = getMetric(conf);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Parâmetro inválido: " + e.getMessage());
+            System.err.println("  fta.topk.dimensions: city | state | country | zip | merchant");
+            System.err.println("  fta.topk.metric: count | amount");
+            return -1;
+        }
+        int k = Math.max(1, conf.getInt(TopKSelector.K_KEY, TopKSelector.DEFAULT_K));
+
+        // Configuração para modo local
+        if (localMode) {
+            System.out.println("Configurando para execução local (standalone)...");
+            LocalMode.configure(conf);
+        }
+
+        // Reducers, split e sort buffer: auto-tuning por amostragem (overrides via -D)
+        // A agregação in-mapper emite um par por (chave, MCC) distinto, por dimensão
+        JobAutoTuner.Decision tuning = JobAutoTuner.tune(conf, inputPath, numberOfReducers,
+                new JobAutoTuner.Profile(jobName,
+                        JobAutoTuner.Profile.csvColumn(dimensions.get(0).getColumn()),
+                        0.05 * dimensions.size()));
+
+        // Criar e configurar o job
+        Job job = Job.getInstance(conf, jobName);
+
+        // Configuração básica do job
+        job.setJarByClass(TopCategoriesByDimension.class);
+        job.setInputFormatClass(TextInputFormat.class);
+        if (dimensions.size() > 1) {
+            // Cada dimensão escreve no próprio subdiretório; evita part files vazios na raiz
+            LazyOutputFormat.setOutputFormatClass(job, TextOutputFormat.class);
+        } else {
+            job.setOutputFormatClass(TextOutputFormat.class);
+        }
+
+        // Configuração dos caminhos
+        FileInputFormat.addInputPath(job, inputPath);
+        FileOutputFormat.setOutputPath(job, outputDir);
+
+        // Configuração do Mapper (agregação in-mapper por dimensão-chave-MCC)
+        job.setMapperClass(DimensionCategoryMapper.class);
+        job.setMapOutputKeyClass(Text.class);
+        job.setMapOutputValueClass(MCCTransactionCount.class);
+
+        // Combiner: apenas soma parciais por MCC (o corte do top K fica no reducer)
+        job.setCombinerClass(DimensionCategoryCombiner.class);
+
+        // Configuração do Reducer
+        job.setReducerClass(DimensionCategoryReducer.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(TopCategoriesResult.class);  // Custom Writable
+
+        // Número de reducers
+        tuning.apply(job);
+
+        // Compressão do shuffle e da saída (-Dfta.compression=none|fast|dense)
+        CompressionProfile compression = CompressionProfile.fromConf(conf);
+        compression.applyFinal(job);
+
+        // Log de informações
+        System.out.println("========================================");
+        System.out.println("TopCategoriesByDimension Job Configuration:");
+        System.out.println("  Job: " + jobName);
+        System.out.println("  Mode: " + (localMode ? "Local (Standalone)" : "Cluster"));
+        System.out.println("  Input: " + inputPath);
+        System.out.println("  Output: " + outputDir);
+        System.out.println("  Dimensões: " + dimensions);
+        System.out.println("  Top K: " + k);
+        System.out.println("  Métrica: " + metric);
+        System.out.println("  Reducers: " + tuning.getReducers());
+        System.out.println("  Compressão: " + compression.describe());
+        System.out.println("  Combiner: Enabled (soma parciais por MCC)");
+        System.out.println("========================================");
+
+        // Executar o job
+        boolean success = job.waitForCompletion(true);
+
+        if (success) {
+            System.out.println();
+            System.out.println("========================================");
+            System.out.println("Job concluído com sucesso!");
+            System.out.println("========================================");
+
+            // Mostrar estatísticas se for modo local
+            if (localMode) {
+                System.out.println();
+                System.out.println("Estatísticas do Job:");
+                System.out.println("  Registros processados: " +
+                        job.getCounters().findCounter("org.apache.hadoop.mapreduce.TaskCounter",
+                                "MAP_INPUT_RECORDS").getValue());
+
+                System.out.println();
+                System.out.println("Para ver os resultados:");
+                if (dimensions.size() > 1) {
+                    for (Dimension dimension : dimensions) {
+                        System.out.println("  cat " + outputDir + "/" + dimension.getOutputName() + "/part-r-*");
+                    }
+                } else {
+                    System.out.println("  cat " + outputDir + "/part-r-00000");
+                }
+            }
+
+            return 0;
+        } else {
+            System.err.println("Job falhou!");
+            return 1;
+        }
+    }
+
+    /**
+     * Método main - ponto de entrada da aplicação
+     */
+    public static void main(String[] args) throws Exception {
+        System.out.println("========================================");
+        System.out.println("Iniciando TopCategoriesByDimension...");
+        System.out.println("Rotina Intermediária - Top K categorias por dimensão");
+        System.out.println("========================================");
+        System.out.println();
+
+        // Executar com ToolRunner
+        int exitCode = ToolRunner.run(new Configuration(), new TopCategoriesByDimension(), args);
+
+        System.out.println();
+        System.out.println("========================================");
+        System.out.println("TopCategoriesByDimension finalizado com código: " + exitCode);
+        System.out.println("========================================");
+
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,204 @@
+package routines.launcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Escalonador de tarefas com dependências (DAG) e limite de paralelismo
+ *
+ * Cada tarefa é submetida assim que todas as suas dependências terminam com sucesso,
+ * com no máximo {@code parallelism} tarefas em execução ao mesmo tempo. Assim o cluster
+ * (ou o LocalJobRunner) continua ocupado enquanto uma rotina está no setup ou na cauda
+ * dos seus jobs.
+ *
+ * Falhas:
+ *   - dependentes de uma tarefa que falhou nunca são executados (SKIPPED)
+ *   - sem keepGoing, nenhuma tarefa nova é submetida após a primeira falha; as que já
+ *     estão rodando terminam normalmente
+ *
+ * Dependências desconhecidas ou ciclos são rejeitados antes de executar qualquer tarefa.
+ */
+public class DagScheduler {
+
+    /** Unidade de trabalho: retorna o código de saída (0 = sucesso) */
+    public interface Task {
+        int run() throws Exception;
+    }
+
+    public enum Status { SUCCEEDED, FAILED, SKIPPED }
+
+    /** Resultado de uma tarefa */
+    public static final class Result {
+        private final String name;
+        private final Status status;
+        private final int exitCode;
+        private final long wallMillis;
+
+        Result(String name, Status status, int exitCode, long wallMillis) {
+            this.name = name;
+            this.status = status;
+            this.exitCode = exitCode;
+            this.wallMillis = wallMillis;
+        }
+
+        public String getName() { return name; }
+        public Status getStatus() { return status; }
+        public int getExitCode() { return exitCode; }
+        public long getWallMillis() { return wallMillis; }
+    }
+
+    private static final class Node {
+        final String name;
+        final Task task;
+        final List<String> dependsOn;
+        final List<Node> dependents = new ArrayList<>();
+        int pending;
+
+        Node(String name, Task task, List<String> dependsOn) {
+            this.name = name;
+            this.task = task;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    /**
+     * Registra uma tarefa; dependsOn são nomes de tarefas registradas (em qualquer ordem)
+     */
+    public DagScheduler add(String name, Task task, List<String> dependsOn) {
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Tarefa duplicada: " + name);
+        }
+        nodes.put(name, new Node(name, task, new ArrayList<>(dependsOn)));
+        return this;
+    }
+
+    /**
+     * Executa o DAG e retorna os resultados na ordem de registro
+     */
+    public List<Result> run(int parallelism, boolean keepGoing) throws InterruptedException {
+        List<Node> ready = link();
+        Map<String, Result> results = new LinkedHashMap<>();
+        int cap = Math.max(1, parallelism);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(cap, nodes.size())));
+        CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        int running = 0;
+        boolean stopped = false;
+        try {
+            while (true) {
+                // Submete tarefas prontas até o limite de paralelismo
+                while (!stopped && !ready.isEmpty() && running < cap) {
+                    Node node = ready.remove(0);
+                    completion.submit(() -> execute(node));
+                    running++;
+                }
+                if (running == 0) {
+                    break;
+                }
+
+                Result result = takeResult(completion);
+                running--;
+                results.put(result.getName(), result);
+                Node node = nodes.get(result.getName());
+                if (result.getStatus() == Status.SUCCEEDED) {
+                    for (Node dependent : node.dependents) {
+                        if (--dependent.pending == 0) {
+                            ready.add(dependent);
+                        }
+                    }
+                } else if (!keepGoing) {
+                    stopped = true;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Tarefas não executadas: dependência falhou ou execução interrompida
+        List<Result> ordered = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            Result result = results.get(node.name);
+            ordered.add(result != null ? result : new Result(node.name, Status.SKIPPED, -1, 0));
+        }
+        return ordered;
+    }
+
+    private static Result execute(Node node) {
+        long start = System.currentTimeMillis();
+        int exitCode;
+        try {
+            exitCode = node.task.run();
+        } catch (Exception e) {
+            System.err.println("Erro na tarefa " + node.name + ": " + e);
+            exitCode = 1;
+        }
+        long wallMillis = System.currentTimeMillis() - start;
+        return new Result(node.name, exitCode == 0 ? Status.SUCCEEDED : Status.FAILED, exitCode, wallMillis);
+    }
+
+    private static Result takeResult(CompletionService<Result> completion) throws InterruptedException {
+        Future<Result> future = completion.take();
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // execute() não lança exceções verificadas; só chega aqui com Error
+            throw new IllegalStateException("Falha inesperada no escalonador", e.getCause());
+        }
+    }
+
+    /**
+     * Liga dependências, valida o grafo e devolve as tarefas sem dependências
+     */
+    private List<Node> link() {
+        for (Node node : nodes.values()) {
+            node.dependents.clear();
+            node.pending = node.dependsOn.size();
+        }
+        List<Node> ready = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            for (String dependency : node.dependsOn) {
+                Node parent = nodes.get(dependency);
+                if (parent == null) {
+                    throw new IllegalArgumentException("Tarefa " + node.name + " depende de tarefa desconhecida: " + dependency);
+                }
+                parent.dependents.add(node);
+            }
+            if (node.pending == 0) {
+                ready.add(node);
+            }
+        }
+
+        // Detecção de ciclos (Kahn): toda tarefa precisa ser alcançável a partir das prontas
+        Map<Node, Integer> pending = new LinkedHashMap<>();
+        for (Node node : nodes.values()) {
+            pending.put(node, node.pending);
+        }
+        List<Node> queue = new ArrayList<>(ready);
+        int visited = 0;
+        while (!queue.isEmpty()) {
+            Node node = queue.remove(queue.size() - 1);
+            visited++;
+            for (Node dependent : node.dependents) {
+                int left = pending.get(dependent) - 1;
+                pending.put(dependent, left);
+                if (left == 0) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        if (visited != nodes.size()) {
+            throw new IllegalArgumentException("Dependências cíclicas entre as tarefas");
+        }
+        return ready;
+    }
+}
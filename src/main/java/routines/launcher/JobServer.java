@@ -0,0 +1,295 @@
+package routines.launcher;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.util.GenericOptionsParser;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import routines.common.IncrementalState;
+import routines.common.PipelineCheckpoint;
+
+// Para executar configure os argumentos da seguinte forma:
+// serve                      (inicia o servidor em localhost:45123)
+// submit --input src/main/resources/transactions_data.csv --output output/server --local amount_by_city
+// shutdown
+
+/**
+ * Servidor local de jobs com JVM "quente"
+ *
+ * Mantém uma JVM com as classes do Hadoop e das rotinas carregadas (e o JIT aquecido após
+ * as primeiras execuções) e executa pedidos recebidos por socket TCP em localhost. Cada
+ * pedido usa exatamente os argumentos do {@link RoutineLauncher} (inclusive -D), com uma
+ * Configuration nova, e o cliente recebe a saída do driver e o código de saída.
+ *
+ * Modos:
+ *   serve                    inicia o servidor (bloqueia)
+ *   submit <args launcher>   envia um pedido e imprime a saída
+ *   shutdown                 encerra o servidor
+ *
+ * Protocolo e autenticação: {@link LoopbackServer} (segredo do arquivo de token em cada
+ * pedido; argumentos separados por TAB; resposta terminada por "fta.server.exit=<código>").
+ *
+ * Os pedidos são executados um de cada vez (a saída do processo é redirecionada para o
+ * cliente durante a execução); os demais aguardam a vez. Para rodar rotinas em paralelo
+ * use --parallel dentro do próprio pedido.
+ *
+ * Restrições dos pedidos: --overwrite é recusado (o servidor não apaga saídas) e o
+ * --output precisa estar dentro de fta.server.output.root. Os diretórios que as rotinas
+ * gravam e limpam por conta própria (fta.cache.dir, fta.incremental.state), quando o pedido
+ * os altera via -D ou --param, seguem a mesma regra; fta.checkpoint.from (refazer steps
+ * apagando as saídas deles) é recusado. Caminhos relativos do pedido são resolvidos no
+ * diretório de trabalho do servidor.
+ *
+ * Configuração (via -D, antes do modo; ver também {@link LoopbackServer}):
+ *   fta.server.port          - porta TCP em localhost (padrão: 45123)
+ *   fta.server.output.root   - diretório que pode receber saídas (padrão: output)
+ *   fta.server.warmup.input  - CSV pequeno para um job de aquecimento local na subida
+ *                              (opcional; inicializa o LocalJobRunner antes do 1º pedido)
+ */
+public class JobServer extends Configured implements Tool {
+
+    public static final String PORT_KEY = "fta.server.port";
+    public static final int DEFAULT_PORT = 45123;
+    public static final String WARMUP_INPUT_KEY = "fta.server.warmup.input";
+    public static final String OUTPUT_ROOT_KEY = "fta.server.output.root";
+    public static final String DEFAULT_OUTPUT_ROOT = "output";
+
+    private static final String SHUTDOWN_REQUEST = "--shutdown";
+
+    // Diretórios gravados/limpos pelas rotinas: o pedido só pode apontá-los para dentro da raiz
+    private static final String[] PATH_KEYS = {ResultCache.DIR_KEY, IncrementalState.STATE_DIR_KEY};
+    // Propriedades que o pedido não pode alterar
+    private static final String[] REJECTED_KEYS = {PipelineCheckpoint.FROM_KEY};
+
+    // Um pedido por vez: a execução redireciona System.out/System.err para o cliente
+    private final Object executionLock = new Object();
+    private int served = 0;
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 1) {
+            printUsage();
+            return -1;
+        }
+        int port = getConf().getInt(PORT_KEY, DEFAULT_PORT);
+        LoopbackServer.Client client = LoopbackServer.Client.fromConf(getConf(), PORT_KEY, DEFAULT_PORT);
+        String mode = args[0];
+        List<String> rest = Arrays.asList(args).subList(1, args.length);
+
+        switch (mode) {
+            case "serve":
+                return serve(port);
+            case "submit":
+                if (rest.isEmpty()) {
+                    printUsage();
+                    return -1;
+                }
+                return client.submit(rest);
+            case "shutdown":
+                return client.submit(Arrays.asList(SHUTDOWN_REQUEST));
+            default:
+                printUsage();
+                return -1;
+        }
+    }
+
+    // =======================
+    // Servidor
+    // =======================
+
+    private int serve(int port) throws Exception {
+        long start = System.currentTimeMillis();
+        warmUp();
+
+        final Path outputRoot = qualify(getConf(), new Path(getConf().get(OUTPUT_ROOT_KEY, DEFAULT_OUTPUT_ROOT)));
+        try (LoopbackServer server = new LoopbackServer(getConf(), "job-server", port)) {
+            System.out.println("========================================");
+            System.out.println("JobServer - localhost:" + port);
+            System.out.println("  Aquecimento: " + (System.currentTimeMillis() - start) + " ms");
+            System.out.println("  Rotinas: " + Routine.values().length + " registradas");
+            System.out.println("  Saídas permitidas em: " + outputRoot + " (sem --overwrite)");
+            System.out.println("  Conexões: " + server.describe(getConf()));
+            System.out.println("========================================");
+
+            server.serve(request -> {
+                synchronized (executionLock) {
+                    if (request.is(SHUTDOWN_REQUEST)) {
+                        request.getOut().println("JobServer encerrando após " + served + " pedido(s)");
+                        request.finish(0);
+                        server.log().println("Shutdown solicitado; " + served + " pedido(s) atendido(s)");
+                        return true;
+                    }
+                    String rejection = validate(request.getArgs(), outputRoot);
+                    if (rejection != null) {
+                        request.getOut().println("Erro: " + rejection);
+                        request.finish(-1);
+                        server.log().println("Pedido recusado [" + String.join(" ", request.getArgs()) + "]: " +
+                                rejection);
+                        return false;
+                    }
+                    served++;
+                    long requestStart = System.currentTimeMillis();
+                    int exitCode = execute(request);
+                    server.log().println("Pedido #" + served + " [" + String.join(" ", request.getArgs()) +
+                            "] -> código " + exitCode + " (" + (System.currentTimeMillis() - requestStart) + " ms)");
+                    return false;
+                }
+            });
+        }
+        return 0;
+    }
+
+    /**
+     * Restrições do servidor sobre os argumentos do RoutineLauncher
+     * @return motivo da recusa, ou null se o pedido pode ser executado
+     */
+    private String validate(List<String> request, Path outputRoot) {
+        RoutineLauncher.Options options;
+        try {
+            Configuration conf = new Configuration(getConf());
+            String[] launcherArgs = new GenericOptionsParser(conf, request.toArray(new String[0])).getRemainingArgs();
+            options = RoutineLauncher.Options.parse(launcherArgs);
+            if (options.overwrite) {
+                return "--overwrite não é aceito pelo servidor (remova a saída localmente)";
+            }
+            if (options.output != null && !isInside(qualify(conf, options.output), outputRoot)) {
+                return "--output fora do diretório permitido " + outputRoot + " (" + OUTPUT_ROOT_KEY + ")";
+            }
+
+            // -D e --param do pedido, como o RoutineLauncher os aplica
+            for (String param : options.params) {
+                int eq = param.indexOf('=');
+                conf.set(param.substring(0, eq).trim(), param.substring(eq + 1).trim());
+            }
+            for (String key : REJECTED_KEYS) {
+                if (isChangedByRequest(conf, key)) {
+                    return key + " não é aceito pelo servidor";
+                }
+            }
+            for (String key : PATH_KEYS) {
+                if (isChangedByRequest(conf, key)
+                        && !isInside(qualify(conf, new Path(conf.getTrimmed(key))), outputRoot)) {
+                    return key + " fora do diretório permitido " + outputRoot + " (" + OUTPUT_ROOT_KEY + ")";
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Erros de sintaxe são reportados pelo próprio RoutineLauncher
+            return null;
+        } catch (IOException e) {
+            return "argumentos inválidos: " + e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Propriedade definida pelo pedido com valor diferente da configuração do servidor
+     */
+    private boolean isChangedByRequest(Configuration requestConf, String key) {
+        String value = requestConf.getTrimmed(key, "");
+        return !value.isEmpty() && !value.equals(getConf().getTrimmed(key, ""));
+    }
+
+    /**
+     * Verifica se o caminho (qualificado) está dentro da raiz, no mesmo sistema de arquivos
+     */
+    private static boolean isInside(Path path, Path root) {
+        String rootPath = root.toUri().getPath();
+        String value = path.toUri().getPath();
+        boolean sameFs = String.valueOf(path.toUri().getScheme()).equals(String.valueOf(root.toUri().getScheme()))
+                && String.valueOf(path.toUri().getAuthority()).equals(String.valueOf(root.toUri().getAuthority()));
+        return sameFs && (value.equals(rootPath) || value.startsWith(rootPath.endsWith("/") ? rootPath : rootPath + "/"));
+    }
+
+    /**
+     * Caminho absoluto e normalizado (relativos resolvidos no diretório de trabalho do servidor)
+     */
+    private static Path qualify(Configuration conf, Path path) throws IOException {
+        return path.getFileSystem(conf).makeQualified(path);
+    }
+
+    /**
+     * Carrega as classes das rotinas e do Hadoop antes do primeiro pedido
+     */
+    private void warmUp() throws Exception {
+        Configuration conf = new Configuration(getConf());
+        FileSystem.getLocal(conf);
+        Job.getInstance(conf);
+        for (Routine routine : Routine.values()) {
+            Class.forName(routine.getToolClass().getName(), true, JobServer.class.getClassLoader());
+            routine.newTool();
+        }
+
+        String warmupInput = conf.get(WARMUP_INPUT_KEY);
+        if (warmupInput != null) {
+            java.nio.file.Path dir = Files.createTempDirectory("fta_server_warmup");
+            try {
+                int exitCode = ToolRunner.run(new Configuration(getConf()), new RoutineLauncher(), new String[] {
+                        "--input", warmupInput, "--output", dir.toUri().toString(), "--local",
+                        Routine.CHIP_USAGE_COUNT.getRoutineName()});
+                System.out.println("Job de aquecimento finalizado com código: " + exitCode);
+            } finally {
+                FileSystem.getLocal(conf).delete(new Path(dir.toUri()), true);
+            }
+        }
+    }
+
+    /**
+     * Executa o pedido com a saída padrão redirecionada para o cliente
+     */
+    private int execute(LoopbackServer.Request request) {
+        PrintStream client = request.getOut();
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        int exitCode;
+        System.setOut(client);
+        System.setErr(client);
+        try {
+            exitCode = ToolRunner.run(new Configuration(getConf()), new RoutineLauncher(),
+                    request.getArgs().toArray(new String[0]));
+        } catch (Exception e) {
+            client.println("Erro: " + e);
+            exitCode = 1;
+        } finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+        request.finish(exitCode);
+        return exitCode;
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: JobServer [-Dfta.server.port=45123] [-Dfta.server.output.root=output] serve");
+        System.err.println("       JobServer [-Dfta.server.port=45123] submit <argumentos do RoutineLauncher>");
+        System.err.println("       JobServer [-Dfta.server.port=45123] shutdown");
+    }
+
+    /**
+     * Método main - ponto de entrada da aplicação
+     */
+    public static void main(String[] args) throws Exception {
+        // Cliente leve: submit/shutdown não inicializam o Hadoop, só abrem o socket
+        LoopbackServer.Client client = LoopbackServer.Client.fromArgs(args, PORT_KEY, DEFAULT_PORT);
+        int i = client.getFirstArg();
+        if (i < args.length && ("submit".equals(args[i]) || "shutdown".equals(args[i]))) {
+            List<String> request = "shutdown".equals(args[i])
+                    ? Arrays.asList(SHUTDOWN_REQUEST)
+                    : Arrays.asList(args).subList(i + 1, args.length);
+            if (request.isEmpty()) {
+                printUsage();
+                System.exit(-1);
+            }
+            System.exit(client.submit(request));
+        }
+
+        int exitCode = ToolRunner.run(new Configuration(), new JobServer(), args);
+        System.exit(exitCode);
+    }
+}
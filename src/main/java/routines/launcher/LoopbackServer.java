@@ -0,0 +1,404 @@
+package routines.launcher;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Servidor de pedido/resposta em localhost compartilhado por JobServer, DatasetServer e
+ * RiskScoringServer
+ *
+ * Protocolo (UTF-8, uma linha por mensagem):
+ *   1ª linha: "fta.token=<segredo>", lido do arquivo de token (permissão 0600)
+ *   2ª linha: argumentos do pedido separados por TAB
+ *   [linhas seguintes: dados do pedido, para pedidos em fluxo]
+ *   resposta: linhas de saída, terminadas por "fta.server.exit=<código>"
+ *
+ * O segredo fica em um arquivo legível só pelo usuário: qualquer processo local alcança a
+ * porta, mas só quem lê o arquivo consegue fazer pedidos. O servidor cria o arquivo (com
+ * um segredo aleatório) se ele não existir e recusa subir se o arquivo tiver permissões
+ * para grupo/outros.
+ *
+ * Cada conexão é atendida por uma thread de um pool, com timeout de leitura: um cliente
+ * que conecta e não envia nada (ou para no meio de um fluxo) só ocupa a sua thread até o
+ * timeout, sem travar o accept. Serviços que não aceitam pedidos concorrentes
+ * serializam a execução no próprio {@link Handler}.
+ *
+ * Configuração (via -D, antes do modo):
+ *   fta.server.token.file      - arquivo do segredo (padrão: ~/.fta/server.token)
+ *   fta.server.read.timeout.ms - timeout de leitura de cada conexão (padrão: 30000)
+ *   fta.server.workers         - threads de atendimento (padrão: 4)
+ */
+public final class LoopbackServer implements Closeable {
+
+    public static final String TOKEN_FILE_KEY = "fta.server.token.file";
+    public static final String READ_TIMEOUT_KEY = "fta.server.read.timeout.ms";
+    public static final int DEFAULT_READ_TIMEOUT_MS = 30000;
+    public static final String WORKERS_KEY = "fta.server.workers";
+    public static final int DEFAULT_WORKERS = 4;
+
+    public static final String EXIT_MARKER = "fta.server.exit=";
+    private static final String TOKEN_PREFIX = "fta.token=";
+    private static final int TOKEN_BYTES = 32;
+    private static final Set<PosixFilePermission> OWNER_ONLY =
+            EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+
+    /**
+     * Trata um pedido já autenticado
+     */
+    public interface Handler {
+        /**
+         * @return true para encerrar o servidor depois desta resposta
+         */
+        boolean handle(Request request) throws IOException;
+    }
+
+    /**
+     * Pedido recebido: argumentos, leitor da conexão (pedidos em fluxo) e saída para o cliente
+     */
+    public static final class Request {
+        private final List<String> args;
+        private final BufferedReader reader;
+        private final PrintStream out;
+
+        Request(List<String> args, BufferedReader reader, PrintStream out) {
+            this.args = args;
+            this.reader = reader;
+            this.out = out;
+        }
+
+        public List<String> getArgs() { return args; }
+        public BufferedReader getReader() { return reader; }
+        public PrintStream getOut() { return out; }
+
+        /** true se o pedido for exatamente o comando informado (ex.: "--shutdown") */
+        public boolean is(String command) {
+            return args.size() == 1 && command.equals(args.get(0));
+        }
+
+        /** Termina a resposta com o código de saída */
+        public void finish(int exitCode) {
+            out.println(EXIT_MARKER + exitCode);
+            out.flush();
+        }
+    }
+
+    private final String name;
+    private final int port;
+    private final byte[] token;
+    private final int readTimeoutMs;
+    private final int workers;
+    private final ServerSocket server;
+    private final AtomicBoolean stopping = new AtomicBoolean();
+    // Log do servidor (o JobServer redireciona System.out para o cliente durante um pedido)
+    private final PrintStream log = System.out;
+    private final PrintStream errorLog = System.err;
+
+    /**
+     * Garante o arquivo de token e abre a porta em localhost
+     */
+    public LoopbackServer(Configuration conf, String name, int port) throws IOException {
+        this.name = name;
+        this.port = port;
+        this.token = ensureToken(tokenFile(conf.get(TOKEN_FILE_KEY)));
+        this.readTimeoutMs = conf.getInt(READ_TIMEOUT_KEY, DEFAULT_READ_TIMEOUT_MS);
+        this.workers = Math.max(1, conf.getInt(WORKERS_KEY, DEFAULT_WORKERS));
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Linha de configuração para o banner dos servidores
+     */
+    public String describe(Configuration conf) {
+        return "token em " + tokenFile(conf.get(TOKEN_FILE_KEY)) + ", timeout de leitura " +
+                readTimeoutMs + " ms, " + workers + " thread(s) de atendimento";
+    }
+
+    /**
+     * Atende conexões até um pedido pedir o encerramento (bloqueia)
+     */
+    public void serve(Handler handler) throws IOException {
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, name + "-worker-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (!stopping.get()) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketException e) {
+                    if (stopping.get()) {
+                        break;
+                    }
+                    throw e;
+                }
+                pool.execute(() -> handleConnection(socket, handler));
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(readTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void handleConnection(Socket socket, Handler handler) {
+        try (Socket connection = socket) {
+            connection.setSoTimeout(readTimeoutMs);
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            PrintStream out = new PrintStream(connection.getOutputStream(), false, "UTF-8");
+
+            String auth = reader.readLine();
+            if (auth == null || !auth.startsWith(TOKEN_PREFIX) || !MessageDigest.isEqual(token,
+                    auth.substring(TOKEN_PREFIX.length()).getBytes(StandardCharsets.UTF_8))) {
+                errorLog.println(name + ": pedido recusado (token ausente ou inválido)");
+                out.println("Erro: token ausente ou inválido (veja " + TOKEN_FILE_KEY + ")");
+                out.println(EXIT_MARKER + -1);
+                out.flush();
+                return;
+            }
+
+            String line = reader.readLine();
+            List<String> args = new ArrayList<>();
+            if (line != null && !line.isEmpty()) {
+                args.addAll(Arrays.asList(line.split("\t")));
+            }
+            if (handler.handle(new Request(Collections.unmodifiableList(args), reader, out))) {
+                stop();
+            }
+        } catch (IOException e) {
+            errorLog.println(name + ": erro de comunicação com o cliente: " + e.getMessage());
+        } catch (RuntimeException e) {
+            errorLog.println(name + ": erro atendendo pedido: " + e);
+        }
+    }
+
+    /**
+     * Log do servidor (não é afetado pelo redirecionamento de System.out)
+     */
+    public PrintStream log() {
+        return log;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    private void stop() {
+        stopping.set(true);
+        try {
+            server.close();
+        } catch (IOException e) {
+            errorLog.println(name + ": erro fechando a porta: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stopping.set(true);
+        server.close();
+    }
+
+    // =======================
+    // Token
+    // =======================
+
+    static java.nio.file.Path tokenFile(String configured) {
+        return configured != null && !configured.trim().isEmpty()
+                ? Paths.get(configured.trim())
+                : Paths.get(System.getProperty("user.home"), ".fta", "server.token");
+    }
+
+    /**
+     * Lê o segredo do servidor, criando o arquivo (0600, diretório 0700) se não existir
+     */
+    static byte[] ensureToken(java.nio.file.Path file) throws IOException {
+        if (!Files.exists(file)) {
+            java.nio.file.Path dir = file.toAbsolutePath().getParent();
+            boolean posix = Files.getFileAttributeView(dir.getRoot(), PosixFileAttributeView.class) != null;
+            if (!Files.exists(dir)) {
+                if (posix) {
+                    Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(
+                            PosixFilePermissions.fromString("rwx------")));
+                } else {
+                    Files.createDirectories(dir);
+                }
+            }
+            byte[] random = new byte[TOKEN_BYTES];
+            new SecureRandom().nextBytes(random);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : random) {
+                hex.append(String.format("%02x", b & 0xff));
+            }
+            java.nio.file.Path tmp = dir.resolve(file.getFileName() + ".tmp-" + System.nanoTime());
+            if (posix) {
+                Files.createFile(tmp, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            }
+            Files.write(tmp, hex.toString().getBytes(StandardCharsets.US_ASCII));
+            try {
+                Files.move(tmp, file);
+            } catch (IOException e) {
+                // Outro servidor criou o arquivo ao mesmo tempo: vale o que já existe
+                Files.deleteIfExists(tmp);
+            }
+        }
+        return readToken(file);
+    }
+
+    /**
+     * Lê o segredo, recusando arquivos legíveis por grupo/outros
+     */
+    static byte[] readToken(java.nio.file.Path file) throws IOException {
+        if (!Files.exists(file)) {
+            throw new IOException("Arquivo de token não encontrado: " + file +
+                    " (o servidor cria o arquivo ao subir; use -D" + TOKEN_FILE_KEY + " se for outro)");
+        }
+        PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+        if (view != null && !OWNER_ONLY.containsAll(view.readAttributes().permissions())) {
+            throw new IOException("Arquivo de token com permissões abertas: " + file +
+                    " (use chmod 600)");
+        }
+        String value = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+        if (value.isEmpty()) {
+            throw new IOException("Arquivo de token vazio: " + file);
+        }
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // =======================
+    // Cliente
+    // =======================
+
+    /**
+     * Cliente leve (não inicializa o Hadoop): porta e arquivo de token lidos dos -D
+     * iniciais da linha de comando ou de uma Configuration
+     */
+    public static final class Client {
+        private final int port;
+        private final String tokenFile;
+        private final int firstArg;
+
+        private Client(int port, String tokenFile, int firstArg) {
+            this.port = port;
+            this.tokenFile = tokenFile;
+            this.firstArg = firstArg;
+        }
+
+        /**
+         * Lê -Dchave=valor / -D chave=valor do início de args (usado nos main dos servidores)
+         */
+        public static Client fromArgs(String[] args, String portKey, int defaultPort) {
+            int port = defaultPort;
+            String tokenFile = null;
+            int i = 0;
+            while (i < args.length && args[i].startsWith("-D")) {
+                String property = args[i].length() > 2 ? args[i].substring(2) : (i + 1 < args.length ? args[++i] : "");
+                if (property.startsWith(portKey + "=")) {
+                    port = Integer.parseInt(property.substring(portKey.length() + 1).trim());
+                } else if (property.startsWith(TOKEN_FILE_KEY + "=")) {
+                    tokenFile = property.substring(TOKEN_FILE_KEY.length() + 1).trim();
+                }
+                i++;
+            }
+            return new Client(port, tokenFile, i);
+        }
+
+        public static Client fromConf(Configuration conf, String portKey, int defaultPort) {
+            return new Client(conf.getInt(portKey, defaultPort), conf.get(TOKEN_FILE_KEY), 0);
+        }
+
+        /** Índice do primeiro argumento após os -D (modo) */
+        public int getFirstArg() {
+            return firstArg;
+        }
+
+        /**
+         * Conecta, autentica e envia a linha do pedido; o chamador lê a resposta
+         * (ou continua enviando dados, em pedidos em fluxo)
+         */
+        public Socket open(List<String> request) throws IOException {
+            for (String arg : request) {
+                if (arg.indexOf('\t') >= 0 || arg.indexOf('\n') >= 0) {
+                    throw new IllegalArgumentException("Argumento com TAB/quebra de linha não suportado: " + arg);
+                }
+            }
+            byte[] secret = readToken(tokenFile(tokenFile));
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            PrintStream out = new PrintStream(socket.getOutputStream(), false, "UTF-8");
+            out.println(TOKEN_PREFIX + new String(secret, StandardCharsets.UTF_8));
+            out.println(String.join("\t", request));
+            out.flush();
+            return socket;
+        }
+
+        /**
+         * Envia um pedido e imprime a resposta
+         * @return código de saída informado pelo servidor (-1 se não houver servidor na porta)
+         */
+        public int submit(List<String> request) throws IOException {
+            try (Socket socket = open(request)) {
+                return printResponse(socket);
+            } catch (ConnectException e) {
+                System.err.println("Servidor não encontrado em localhost:" + port + " (inicie com o modo serve)");
+                return -1;
+            } catch (IllegalArgumentException | IOException e) {
+                System.err.println("Erro: " + e.getMessage());
+                return -1;
+            }
+        }
+
+        /**
+         * Imprime as linhas da resposta até o código de saída
+         */
+        public int printResponse(Socket socket) throws IOException {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(EXIT_MARKER)) {
+                    return Integer.parseInt(line.substring(EXIT_MARKER.length()).trim());
+                }
+                System.out.println(line);
+            }
+            System.err.println("Conexão encerrada sem código de saída");
+            return 1;
+        }
+
+        public int getPort() {
+            return port;
+        }
+    }
+}
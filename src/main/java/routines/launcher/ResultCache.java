@@ -0,0 +1,507 @@
+package routines.launcher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileChecksum;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import routines.common.IncrementalState;
+import routines.common.InputPreview;
+import routines.common.RankedOutput;
+
+/**
+ * Cache de resultados das rotinas executadas pelo {@link RoutineLauncher} (e, por ele,
+ * pelo {@link JobServer}).
+ *
+ * Com -Dfta.cache.dir=<dir>, a saída de cada rotina bem-sucedida é guardada em
+ * "<dir>/<chave>/data", onde a chave é o SHA-256 de:
+ *   - rotina e formato dos argumentos;
+ *   - arquivos de entrada: checksum do FileSystem quando houver (HDFS), senão tamanho e
+ *     data de modificação (sistema de arquivos local);
+ *   - versão da rotina: bytecode do pacote do driver e dos pacotes routines.* que ele
+ *     referencia (rotina alterada e recompilada = chave nova);
+ *   - parâmetros efetivos: toda chave da configuração diferente do padrão do Hadoop
+ *     (-D, --param, --compression, --local), exceto as do próprio cache/launcher, e --reducers.
+ *
+ * Antes de rodar, se a saída da rotina ainda não existir e a chave estiver no cache, a saída
+ * é restaurada do cache (cópia ou, em fta.cache.mode=link no sistema de arquivos local,
+ * link simbólico) e nenhum job é submetido.
+ *
+ * Cada entrada tem um arquivo ENTRY com a descrição da chave; a data de modificação dele é
+ * o último acesso. Ao gravar, as entradas menos usadas recentemente são removidas até o total
+ * caber em fta.cache.max.mb. Entradas em ".tmp-*" são gravações em andamento e só são
+ * publicadas (rename) quando completas.
+ *
+ * Só o diretório da rotina é guardado, então execuções que gravam fora dele não usam o
+ * cache: modo incremental (fta.incremental.state, o resultado depende do estado acumulado)
+ * e saída ranqueada (fta.ranked.output, grava "<rotina>_ranked" ao lado).
+ *
+ * No modo link, cada link criado é anotado no arquivo LINKS da entrada; a remoção LRU pula
+ * entradas com links ainda ativos (a saída restaurada continua válida) e só as remove depois
+ * que os links forem apagados (ex.: --overwrite) ou apontarem para outro lugar.
+ *
+ * Configuração (via -D):
+ *   fta.cache.dir    - diretório do cache (ausente = cache desligado)
+ *   fta.cache.max.mb - tamanho máximo do cache (padrão: 1024)
+ *   fta.cache.mode   - copy|link (padrão: copy)
+ */
+public final class ResultCache {
+
+    public static final String DIR_KEY = "fta.cache.dir";
+    public static final String MAX_MB_KEY = "fta.cache.max.mb";
+    public static final String MODE_KEY = "fta.cache.mode";
+    public static final String ENTRY_FILE = "ENTRY";
+    public static final String LINKS_FILE = "LINKS";
+    public static final String DATA_DIR = "data";
+
+    // Chaves que não mudam o resultado da rotina
+    private static final String[] IGNORED_PREFIXES = {
+            "fta.cache.", RoutineLauncher.PARALLELISM_KEY, "fta.server.", "fta.checkpoint",
+            "mapreduce.client.genericoptionsparser.used"
+    };
+
+    // Referências a classes de outros pacotes das rotinas no constant pool de um .class
+    private static final Pattern PACKAGE_REFERENCE = Pattern.compile("routines/[a-z0-9_/]+?/(?=[A-Z])");
+    // Orquestração (launcher, servidor): não entra na versão das rotinas
+    private static final String LAUNCHER_PACKAGE = "routines/launcher/";
+
+    private final Configuration conf;
+    private final Path dir;
+    private final long maxBytes;
+    private final boolean link;
+
+    private ResultCache(Configuration conf, Path dir) {
+        this.conf = conf;
+        this.dir = dir;
+        this.maxBytes = conf.getLong(MAX_MB_KEY, 1024) * 1024 * 1024;
+        String mode = conf.getTrimmed(MODE_KEY, "copy");
+        if (!"copy".equals(mode) && !"link".equals(mode)) {
+            throw new IllegalArgumentException(MODE_KEY + " deve ser copy ou link: '" + mode + "'");
+        }
+        this.link = "link".equals(mode);
+    }
+
+    /**
+     * Cache configurado em fta.cache.dir, ou null se desligado
+     */
+    public static ResultCache fromConf(Configuration conf) {
+        String dir = conf.getTrimmed(DIR_KEY, "");
+        return dir.isEmpty() ? null : new ResultCache(conf, new Path(dir));
+    }
+
+    public String describe() {
+        return dir + " (máx. " + (maxBytes / (1024 * 1024)) + " MB, " + (link ? "link" : "copy") + ")";
+    }
+
+    /**
+     * Chave de uma execução da rotina, ou null se a execução não pode usar o cache
+     * @param conf configuração efetiva da rotina
+     */
+    public Key key(Routine routine, Path input, String reducers, Configuration conf) throws IOException {
+        if (bypassReason(conf) != null) {
+            return null;
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add("routine=" + routine.getRoutineName() + " " + routine.getLayout());
+
+        for (Path file : InputPreview.listInputFiles(conf, input)) {
+            FileSystem fs = file.getFileSystem(conf);
+            FileStatus status = fs.getFileStatus(file);
+            FileChecksum checksum = fs.getFileChecksum(file);
+            lines.add("input=" + status.getPath() + " " + status.getLen() + " " + (checksum != null
+                    ? checksum.getAlgorithmName() + ":" + hex(checksum.getBytes())
+                    : Long.toString(status.getModificationTime())));
+        }
+
+        lines.add("version=" + codeVersion(routine.getToolClass()));
+
+        Configuration defaults = new Configuration();
+        Map<String, String> params = new TreeMap<>();
+        for (Map.Entry<String, String> entry : conf) {
+            String name = entry.getKey();
+            if (isIgnored(name)) {
+                continue;
+            }
+            String value = conf.get(name);
+            if (value != null && !value.equals(defaults.get(name))) {
+                params.put(name, value);
+            }
+        }
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            lines.add("param=" + entry.getKey() + "=" + entry.getValue());
+        }
+        lines.add("reducers=" + reducers);
+        return new Key(digest(lines), lines);
+    }
+
+    /**
+     * Motivo para a execução não usar o cache (saídas fora do diretório da rotina), ou null
+     */
+    public static String bypassReason(Configuration conf) {
+        if (!conf.getTrimmed(IncrementalState.STATE_DIR_KEY, "").isEmpty()) {
+            return "modo incremental (" + IncrementalState.STATE_DIR_KEY + ")";
+        }
+        if (RankedOutput.isEnabled(conf)) {
+            return "saída ranqueada grava fora do diretório da rotina (" + RankedOutput.ENABLED_KEY + ")";
+        }
+        return null;
+    }
+
+    /**
+     * Restaura a saída da rotina a partir do cache
+     * @return true se a chave estava no cache e a saída foi restaurada
+     */
+    public boolean restore(Key key, Path outputDir) throws IOException {
+        FileSystem fs = dir.getFileSystem(conf);
+        Path entry = new Path(dir, key.getId());
+        Path data = new Path(entry, DATA_DIR);
+        FileSystem outFs = outputDir.getFileSystem(conf);
+        if (!fs.exists(new Path(entry, ENTRY_FILE)) || outFs.exists(outputDir)) {
+            return false;
+        }
+
+        try {
+            if (link && isLocal(fs) && isLocal(outFs)) {
+                File target = toFile(fs, data);
+                File linkFile = toFile(outFs, outputDir);
+                linkFile.getParentFile().mkdirs();
+                Files.createSymbolicLink(linkFile.toPath(), target.toPath());
+                recordLink(toFile(fs, entry), linkFile);
+            } else {
+                outFs.mkdirs(outputDir.getParent());
+                if (!FileUtil.copy(fs, data, outFs, outputDir, false, conf)) {
+                    throw new IOException("cópia incompleta de " + data);
+                }
+            }
+        } catch (IOException e) {
+            // Entrada removida por outro processo no meio da cópia: a rotina roda normalmente
+            outFs.delete(outputDir, true);
+            System.err.println("[cache] falha ao restaurar " + key.getShortId() + ": " + e.getMessage());
+            return false;
+        }
+        touch(fs, entry);
+        return true;
+    }
+
+    /**
+     * Anota o link no arquivo LINKS da entrada (consultado pela remoção LRU)
+     */
+    private synchronized void recordLink(File entry, File linkFile) throws IOException {
+        Files.write(new File(entry, LINKS_FILE).toPath(),
+                (linkFile.getAbsolutePath() + "\n").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Links anotados da entrada que ainda existem e apontam para os seus dados
+     */
+    private int activeLinks(FileSystem fs, Path entry) throws IOException {
+        if (!isLocal(fs)) {
+            return 0;
+        }
+        File links = new File(toFile(fs, entry), LINKS_FILE);
+        if (!links.isFile()) {
+            return 0;
+        }
+        java.nio.file.Path data = toFile(fs, new Path(entry, DATA_DIR)).toPath();
+        int active = 0;
+        for (String line : Files.readAllLines(links.toPath(), StandardCharsets.UTF_8)) {
+            java.nio.file.Path link = new File(line.trim()).toPath();
+            if (!line.trim().isEmpty() && Files.isSymbolicLink(link) && Files.readSymbolicLink(link).equals(data)) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Guarda a saída de uma execução bem-sucedida e aplica a remoção LRU
+     * @return true se a saída foi guardada (false se já estava no cache ou excede o limite)
+     */
+    public synchronized boolean store(Key key, Path outputDir) throws IOException {
+        FileSystem fs = dir.getFileSystem(conf);
+        Path entry = new Path(dir, key.getId());
+        if (fs.exists(new Path(entry, ENTRY_FILE))) {
+            touch(fs, entry);
+            return false;
+        }
+        FileSystem outFs = outputDir.getFileSystem(conf);
+        long size = outFs.getContentSummary(outputDir).getLength();
+        if (size > maxBytes) {
+            System.out.println("[cache] saída de " + size + " bytes excede " + MAX_MB_KEY + "; não guardada");
+            return false;
+        }
+
+        Path tmp = new Path(dir, ".tmp-" + key.getId() + "-" + System.nanoTime());
+        try {
+            fs.mkdirs(tmp);
+            if (!FileUtil.copy(outFs, outputDir, fs, new Path(tmp, DATA_DIR), false, conf)) {
+                throw new IOException("cópia incompleta de " + outputDir);
+            }
+            try (Writer writer = new OutputStreamWriter(fs.create(new Path(tmp, ENTRY_FILE), true),
+                    StandardCharsets.UTF_8)) {
+                writer.write("key=" + key.getId() + "\n");
+                writer.write("created=" + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()) + "\n");
+                writer.write("size=" + size + "\n");
+                for (String line : key.getDescription()) {
+                    writer.write(line + "\n");
+                }
+            }
+            if (!fs.rename(tmp, entry)) {
+                // Outro processo publicou a mesma chave primeiro
+                return false;
+            }
+        } finally {
+            if (fs.exists(tmp)) {
+                fs.delete(tmp, true);
+            }
+        }
+        evict(fs, key.getId());
+        return true;
+    }
+
+    /**
+     * Remove as entradas usadas há mais tempo até o total caber no limite; a entrada
+     * recém-gravada e as entradas com links ativos (modo link) são preservadas
+     */
+    private void evict(FileSystem fs, String keep) throws IOException {
+        List<FileStatus> entries = new ArrayList<>();
+        Map<Path, Long> sizes = new TreeMap<>();
+        long total = 0;
+        for (FileStatus status : fs.listStatus(dir)) {
+            String name = status.getPath().getName();
+            if (!status.isDirectory() || name.startsWith(".")) {
+                continue;
+            }
+            Path entryFile = new Path(status.getPath(), ENTRY_FILE);
+            if (!fs.exists(entryFile)) {
+                continue;
+            }
+            long size = fs.getContentSummary(status.getPath()).getLength();
+            sizes.put(status.getPath(), size);
+            total += size;
+            if (!name.equals(keep)) {
+                entries.add(fs.getFileStatus(entryFile));
+            }
+        }
+        Collections.sort(entries, (a, b) -> Long.compare(a.getModificationTime(), b.getModificationTime()));
+
+        for (FileStatus entryFile : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            Path entry = entryFile.getPath().getParent();
+            long size = sizes.get(entry);
+            int links = activeLinks(fs, entry);
+            if (links > 0) {
+                System.out.println("[cache] entrada " + entry.getName().substring(0, 12) + " mantida: " +
+                        links + " saída(s) restaurada(s) como link");
+                continue;
+            }
+            if (fs.delete(entry, true)) {
+                total -= size;
+                System.out.println("[cache] removida entrada " + entry.getName().substring(0, 12) +
+                        " (" + size + " bytes, último uso " +
+                        new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(entryFile.getModificationTime())) +
+                        ")");
+            }
+        }
+    }
+
+    private static void touch(FileSystem fs, Path entry) throws IOException {
+        fs.setTimes(new Path(entry, ENTRY_FILE), System.currentTimeMillis(), -1);
+    }
+
+    private static boolean isIgnored(String name) {
+        for (String prefix : IGNORED_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLocal(FileSystem fs) {
+        return fs instanceof LocalFileSystem || fs instanceof RawLocalFileSystem;
+    }
+
+    private static File toFile(FileSystem fs, Path path) {
+        return new File(fs.makeQualified(path).toUri().getPath());
+    }
+
+    // =======================
+    // Versão da rotina
+    // =======================
+
+    /**
+     * Hash do bytecode do pacote do driver e, transitivamente, dos pacotes routines.*
+     * referenciados pelas suas classes (ex.: routines.common, topcategoriesbycity),
+     * exceto routines.launcher
+     */
+    static String codeVersion(Class<?> toolClass) throws IOException {
+        ClassSource source = ClassSource.of(toolClass);
+        Set<String> visited = new TreeSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(toolClass.getPackage().getName().replace('.', '/') + "/");
+
+        MessageDigest digest = sha256();
+        while (!pending.isEmpty()) {
+            String pkg = pending.poll();
+            if (!visited.add(pkg)) {
+                continue;
+            }
+            for (Map.Entry<String, byte[]> resource : source.classes(pkg).entrySet()) {
+                digest.update(resource.getKey().getBytes(StandardCharsets.UTF_8));
+                digest.update(resource.getValue());
+                Matcher matcher = PACKAGE_REFERENCE.matcher(
+                        new String(resource.getValue(), StandardCharsets.ISO_8859_1));
+                while (matcher.find()) {
+                    if (!visited.contains(matcher.group()) && !LAUNCHER_PACKAGE.equals(matcher.group())) {
+                        pending.add(matcher.group());
+                    }
+                }
+            }
+        }
+        return hex(digest.digest()).substring(0, 16) + " " + visited.size() + " pacote(s)";
+    }
+
+    /**
+     * Diretório de classes ou jar de onde o driver foi carregado
+     */
+    private static final class ClassSource {
+        private final File root;
+        private final boolean jar;
+
+        private ClassSource(File root) {
+            this.root = root;
+            this.jar = root.isFile();
+        }
+
+        static ClassSource of(Class<?> cls) throws IOException {
+            URL location = cls.getProtectionDomain().getCodeSource().getLocation();
+            try {
+                return new ClassSource(new File(location.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException("Local das classes inválido: " + location, e);
+            }
+        }
+
+        /** .class diretamente no pacote (nome -> bytecode), em ordem */
+        Map<String, byte[]> classes(String pkg) throws IOException {
+            Map<String, byte[]> resources = new TreeMap<>();
+            if (jar) {
+                try (JarFile file = new JarFile(root)) {
+                    Enumeration<JarEntry> entries = file.entries();
+                    while (entries.hasMoreElements()) {
+                        JarEntry entry = entries.nextElement();
+                        String name = entry.getName();
+                        if (name.startsWith(pkg) && name.endsWith(".class")
+                                && name.indexOf('/', pkg.length()) < 0) {
+                            try (InputStream in = file.getInputStream(entry)) {
+                                resources.put(name, readFully(in));
+                            }
+                        }
+                    }
+                }
+            } else {
+                File[] files = new File(root, pkg).listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        if (file.isFile() && file.getName().endsWith(".class")) {
+                            resources.put(pkg + file.getName(), Files.readAllBytes(file.toPath()));
+                        }
+                    }
+                }
+            }
+            return resources;
+        }
+
+        private static byte[] readFully(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    // =======================
+    // Chave
+    // =======================
+
+    /**
+     * Chave de uma execução: hash + linhas que a compõem (gravadas no ENTRY para inspeção)
+     */
+    public static final class Key {
+        private final String id;
+        private final List<String> description;
+
+        private Key(String id, List<String> description) {
+            this.id = id;
+            this.description = description;
+        }
+
+        public String getId() { return id; }
+        public String getShortId() { return id.substring(0, 12); }
+        public List<String> getDescription() { return description; }
+    }
+
+    private static String digest(List<String> lines) {
+        MessageDigest digest = sha256();
+        for (String line : lines) {
+            digest.update(line.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,190 @@
+package routines.launcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.Tool;
+import routines.advanced.categorybytimeperiod.CategoryByTimePeriod;
+import routines.advanced.clientbehaviorchipuse.ClientBehaviorChipUse;
+import routines.advanced.merchanthrisk.MerchantHealthRisk;
+import routines.advanced.rfmbyuf.RfmByUF;
+import routines.advanced.riskanalysis.RiskAnalysisPipeline;
+import routines.basic.amountbycity.AmountByCity;
+import routines.basic.amountbyclient.AmountByClient;
+import routines.basic.chipusagecount.ChipUsageCount;
+import routines.basic.errorcountbymcc.ErrorCountByMCC;
+import routines.basic.transactioncountbystate.TransactionCountByState;
+import routines.common.LocalMode;
+import routines.intermediate.citystatistics.CityStatistics;
+import routines.intermediate.citytimeperiod.CityTimePeriod;
+import routines.intermediate.georollup.GeoRollup;
+import routines.intermediate.topcategoriesbycity.TopCategoriesByCity;
+import routines.intermediate.topcategoriesbycountry.TopCategoriesByCountry;
+import routines.intermediate.topcategoriesbydimension.TopCategoriesByDimension;
+import routines.intermediate.topcategoriesbystate.TopCategoriesByState;
+
+/**
+ * Registro das rotinas executáveis pelo {@link RoutineLauncher}
+ *
+ * Cada entrada conhece o driver (Tool), o nome usado na linha de comando e o formato
+ * dos argumentos posicionais do driver:
+ *   SINGLE - <input> <output> [reducers] [local]
+ *   STAGED - <input> <stage1> <final> [reducers] [local]
+ *   PREFIX - <input> <prefixo> [reducers] [local] (o driver grava <prefixo>_stepN)
+ *
+ * Nova rotina: basta acrescentar uma constante aqui.
+ */
+public enum Routine {
+    // Básicas
+    CHIP_USAGE_COUNT("chip_usage_count", ChipUsageCount.class, Layout.SINGLE,
+            "Contagem de transações por tipo (chip/swipe/online)"),
+    ERROR_COUNT_BY_MCC("error_count_by_mcc", ErrorCountByMCC.class, Layout.SINGLE,
+            "Contagem de erros por MCC"),
+    AMOUNT_BY_CITY("amount_by_city", AmountByCity.class, Layout.SINGLE,
+            "Valor total por cidade"),
+    AMOUNT_BY_CLIENT("amount_by_client", AmountByClient.class, Layout.SINGLE,
+            "Valor total por cliente"),
+    TRANSACTION_COUNT_BY_STATE("transaction_count_by_state", TransactionCountByState.class, Layout.SINGLE,
+            "Contagem de transações por estado"),
+
+    // Intermediárias
+    CITY_STATISTICS("city_statistics", CityStatistics.class, Layout.SINGLE,
+            "Estatísticas de valor por cidade"),
+    CITY_TIME_PERIOD("city_time_period", CityTimePeriod.class, Layout.SINGLE,
+            "Estatísticas por cidade e período do dia"),
+    TOP_CATEGORIES_BY_CITY("top_categories_by_city", TopCategoriesByCity.class, Layout.SINGLE,
+            "Top categorias (MCC) por cidade"),
+    TOP_CATEGORIES_BY_STATE("top_categories_by_state", TopCategoriesByState.class, Layout.SINGLE,
+            "Top categorias (MCC) por estado"),
+    TOP_CATEGORIES_BY_COUNTRY("top_categories_by_country", TopCategoriesByCountry.class, Layout.SINGLE,
+            "Top categorias (MCC) por país"),
+    TOP_CATEGORIES_BY_DIMENSION("top_categories_by_dimension", TopCategoriesByDimension.class, Layout.SINGLE,
+            "Top categorias por várias dimensões (-Dfta.topk.dimensions)"),
+    GEO_ROLLUP("geo_rollup", GeoRollup.class, Layout.SINGLE,
+            "Rollup cidade → estado → total geral (um shuffle)"),
+
+    // Avançadas
+    CATEGORY_BY_TIME_PERIOD("category_by_time_period", CategoryByTimePeriod.class, Layout.SINGLE,
+            "Categorias por período do dia (2 jobs)"),
+    CLIENT_BEHAVIOR_CHIP_USE("client_behavior_chip_use", ClientBehaviorChipUse.class, Layout.STAGED,
+            "Perfil de clientes (chip vs. falhas) por UF (2 jobs)"),
+    MERCHANT_HEALTH_RISK("merchant_health_risk", MerchantHealthRisk.class, Layout.STAGED,
+            "Saúde e risco de comerciantes por UF (2 jobs)"),
+    RFM_BY_UF("rfm_by_uf", RfmByUF.class, Layout.STAGED,
+            "Segmentação RFM de clientes por UF (2 jobs)"),
+    RISK_ANALYSIS("risk_analysis", RiskAnalysisPipeline.class, Layout.PREFIX,
+            "Pipeline de análise de risco de clientes (3 jobs)");
+
+    /** Formato dos argumentos posicionais do driver */
+    public enum Layout { SINGLE, STAGED, PREFIX }
+
+    private final String routineName;
+    private final Class<? extends Tool> toolClass;
+    private final Layout layout;
+    private final String description;
+
+    Routine(String routineName, Class<? extends Tool> toolClass, Layout layout, String description) {
+        this.routineName = routineName;
+        this.toolClass = toolClass;
+        this.layout = layout;
+        this.description = description;
+    }
+
+    public String getRoutineName() { return routineName; }
+    public Class<? extends Tool> getToolClass() { return toolClass; }
+    public Layout getLayout() { return layout; }
+    public String getDescription() { return description; }
+
+    /**
+     * Nova instância do driver (uma por execução)
+     */
+    public Tool newTool() {
+        return ReflectionUtils.newInstance(toolClass, null);
+    }
+
+    /**
+     * Diretório de saída da rotina dentro do diretório base do launcher
+     */
+    public Path outputDir(Path baseOutput) {
+        return new Path(baseOutput, routineName);
+    }
+
+    /**
+     * Caminhos de saída passados ao driver, todos dentro de {@link #outputDir}:
+     * SINGLE usa o próprio diretório, STAGED usa stage1 + final e PREFIX usa
+     * <dir>/<nome> como prefixo dos diretórios de cada step
+     */
+    public List<Path> outputPaths(Path baseOutput) {
+        List<Path> paths = new ArrayList<>();
+        Path dir = outputDir(baseOutput);
+        if (layout == Layout.STAGED) {
+            paths.add(new Path(dir, "stage1"));
+            paths.add(new Path(dir, "final"));
+        } else if (layout == Layout.PREFIX) {
+            paths.add(new Path(dir, routineName));
+        } else {
+            paths.add(dir);
+        }
+        return paths;
+    }
+
+    /**
+     * Argumentos posicionais do driver no formato esperado pelo seu run()
+     * @param reducers número de reducers ou "auto"
+     */
+    public String[] buildArgs(Path input, Path baseOutput, String reducers, boolean local) {
+        List<String> args = new ArrayList<>();
+        args.add(input.toString());
+        for (Path path : outputPaths(baseOutput)) {
+            args.add(path.toString());
+        }
+        args.add(reducers);
+        if (local) {
+            args.add(LocalMode.ARGUMENT);
+        }
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * Resolve uma rotina pelo nome de linha de comando (amount_by_city), pelo nome da
+     * constante (AMOUNT_BY_CITY) ou pelo nome da classe do driver (AmountByCity)
+     * @throws IllegalArgumentException se o nome não corresponder a nenhuma rotina
+     */
+    public static Routine fromName(String name) {
+        String normalized = name.trim().replace('-', '_');
+        for (Routine routine : values()) {
+            if (routine.routineName.equalsIgnoreCase(normalized)
+                    || routine.name().equalsIgnoreCase(normalized)
+                    || routine.toolClass.getSimpleName().equalsIgnoreCase(normalized)) {
+                return routine;
+            }
+        }
+        throw new IllegalArgumentException("Rotina desconhecida: '" + name + "' (use --list)");
+    }
+
+    /**
+     * Resolve uma lista separada por vírgulas; "all" seleciona todas as rotinas
+     */
+    public static List<Routine> parseList(String names) {
+        List<Routine> routines = new ArrayList<>();
+        for (String name : names.split(",")) {
+            if (name.trim().isEmpty()) {
+                continue;
+            }
+            if ("all".equalsIgnoreCase(name.trim())) {
+                for (Routine routine : values()) {
+                    if (!routines.contains(routine)) {
+                        routines.add(routine);
+                    }
+                }
+            } else {
+                Routine routine = fromName(name);
+                if (!routines.contains(routine)) {
+                    routines.add(routine);
+                }
+            }
+        }
+        return routines;
+    }
+}
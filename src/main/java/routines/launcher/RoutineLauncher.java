@@ -0,0 +1,356 @@
+package routines.launcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import routines.common.CompressionProfile;
+import routines.common.LocalMode;
+import routines.common.RankedOutput;
+
+// Para executar configure os argumentos da seguinte forma:
+// --input src/main/resources/transactions_data.csv --output output/launcher --local amount_by_city,amount_by_client
+// --input src/main/resources/transactions_data.csv --output output/launcher --local --overwrite all
+
+/**
+ * Launcher único das rotinas: executa uma ou várias rotinas do {@link Routine registro}
+ * na mesma JVM, com um só parse de argumentos compartilhado por todas.
+ *
+ * Uso:
+ *   RoutineLauncher [-D...] --input <csv> --output <dir> [opções] <rotina>[,<rotina>...] | all
+ *
+ * Opções:
+ *   --input <caminho>        CSV de transações (obrigatório)
+ *   --output <dir>           diretório base; cada rotina grava em <dir>/<rotina> (obrigatório)
+ *   --reducers <n|auto>      reducers de todas as rotinas (padrão: auto)
+ *   --local                  modo local (LocalJobRunner + file:///)
+ *   --compression <perfil>   none|fast|dense (mesmo que -Dfta.compression)
+ *   --param <chave=valor>    parâmetro/filtro das rotinas (ex.: min.uf.merchants=10); repetível
+ *   --overwrite              remove <dir>/<rotina> antes de executar
+ *   --parallel <n>           rotinas executadas ao mesmo tempo (padrão: fta.launcher.parallelism ou 1)
+ *   --after <r>:<dep>[+<dep>] r só começa após o sucesso das dependências; repetível
+ *   --keep-going             continua após uma rotina falhar
+ *   --list                   lista as rotinas registradas
+ *
+ * Cada rotina recebe uma cópia da configuração base, de modo que os defaults aplicados
+ * por um driver não vazam para o próximo. A JVM, o classpath carregado e o JIT são
+ * reaproveitados entre as rotinas.
+ *
+ * As rotinas formam um DAG ({@link DagScheduler}): sem --after todas são independentes
+ * (cada uma lê apenas o CSV) e, com --parallel > 1, são submetidas concorrentemente.
+ * Os jobs internos de cada rotina continuam encadeados pelo próprio driver, pois a
+ * configuração do Job 2 depende da saída do Job 1 (auto-tuning por amostragem).
+ *
+ * Com -Dfta.cache.dir=<dir> ({@link ResultCache}) uma rotina já executada com a mesma
+ * entrada, versão e parâmetros tem a saída restaurada do cache, sem submeter jobs.
+ */
+public class RoutineLauncher extends Configured implements Tool {
+
+    public static final String PARALLELISM_KEY = "fta.launcher.parallelism";
+
+    /** Opções da linha de comando */
+    static final class Options {
+        Path input;
+        Path output;
+        String reducers = "auto";
+        boolean local;
+        boolean overwrite;
+        boolean keepGoing;
+        boolean list;
+        int parallel;
+        String compression;
+        final List<String> params = new ArrayList<>();
+        final List<Routine> routines = new ArrayList<>();
+        final Map<Routine, List<Routine>> after = new LinkedHashMap<>();
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--input":
+                        options.input = new Path(value(args, ++i, arg));
+                        break;
+                    case "--output":
+                        options.output = new Path(value(args, ++i, arg));
+                        break;
+                    case "--reducers":
+                        options.reducers = value(args, ++i, arg);
+                        break;
+                    case "--compression":
+                        options.compression = value(args, ++i, arg);
+                        break;
+                    case "--param":
+                        String param = value(args, ++i, arg);
+                        if (param.indexOf('=') <= 0) {
+                            throw new IllegalArgumentException("--param espera chave=valor: '" + param + "'");
+                        }
+                        options.params.add(param);
+                        break;
+                    case "--parallel":
+                        String parallel = value(args, ++i, arg);
+                        try {
+                            options.parallel = Integer.parseInt(parallel);
+                        } catch (NumberFormatException e) {
+                            options.parallel = 0;
+                        }
+                        if (options.parallel < 1) {
+                            throw new IllegalArgumentException("--parallel espera um inteiro >= 1: '" + parallel + "'");
+                        }
+                        break;
+                    case "--after":
+                        String edge = value(args, ++i, arg);
+                        int colon = edge.indexOf(':');
+                        if (colon <= 0 || colon == edge.length() - 1) {
+                            throw new IllegalArgumentException("--after espera rotina:dependencia[+dependencia]: '" + edge + "'");
+                        }
+                        List<Routine> dependencies = options.after.computeIfAbsent(
+                                Routine.fromName(edge.substring(0, colon)), k -> new ArrayList<>());
+                        for (String dependency : edge.substring(colon + 1).split("\\+")) {
+                            dependencies.add(Routine.fromName(dependency));
+                        }
+                        break;
+                    case "--local":
+                        options.local = true;
+                        break;
+                    case "--overwrite":
+                        options.overwrite = true;
+                        break;
+                    case "--keep-going":
+                        options.keepGoing = true;
+                        break;
+                    case "--list":
+                        options.list = true;
+                        break;
+                    default:
+                        if (arg.startsWith("--")) {
+                            throw new IllegalArgumentException("Opção desconhecida: " + arg);
+                        }
+                        for (Routine routine : Routine.parseList(arg)) {
+                            if (!options.routines.contains(routine)) {
+                                options.routines.add(routine);
+                            }
+                        }
+                }
+            }
+            if (!options.list) {
+                if (options.input == null || options.output == null) {
+                    throw new IllegalArgumentException("--input e --output são obrigatórios");
+                }
+                if (options.routines.isEmpty()) {
+                    throw new IllegalArgumentException("Nenhuma rotina informada (use --list)");
+                }
+                for (Map.Entry<Routine, List<Routine>> edge : options.after.entrySet()) {
+                    for (Routine routine : edge.getValue()) {
+                        if (!options.routines.contains(edge.getKey()) || !options.routines.contains(routine)) {
+                            throw new IllegalArgumentException("--after só pode ligar rotinas selecionadas: " +
+                                    edge.getKey().getRoutineName() + ":" + routine.getRoutineName());
+                        }
+                    }
+                }
+            }
+            return options;
+        }
+
+        private static String value(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Valor ausente para " + option);
+            }
+            return args[index];
+        }
+    }
+
+    @Override
+    public int run(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            return -1;
+        }
+
+        if (options.list) {
+            printRoutines();
+            return 0;
+        }
+
+        // Configuração base compartilhada (-D genéricos + opções do launcher)
+        Configuration base = getConf();
+        if (options.local) {
+            LocalMode.configure(base);
+        }
+        if (options.compression != null) {
+            base.set(CompressionProfile.KEY, options.compression);
+        }
+        for (String param : options.params) {
+            int eq = param.indexOf('=');
+            base.set(param.substring(0, eq).trim(), param.substring(eq + 1).trim());
+        }
+        // Valida o perfil antes de iniciar qualquer rotina
+        CompressionProfile compression = CompressionProfile.fromConf(base);
+        int parallelism = options.parallel > 0 ? options.parallel : Math.max(1, base.getInt(PARALLELISM_KEY, 1));
+        ResultCache cache = ResultCache.fromConf(base);
+
+        System.out.println("========================================");
+        System.out.println("RoutineLauncher - " + options.routines.size() + " rotina(s)");
+        System.out.println("  Input: " + options.input);
+        System.out.println("  Output base: " + options.output);
+        System.out.println("  Reducers: " + options.reducers + " | Local: " + options.local +
+                " | Paralelismo: " + parallelism);
+        System.out.println("  Compressão: " + compression.describe());
+        if (cache != null) {
+            System.out.println("  Cache de resultados: " + cache.describe());
+        }
+        if (!options.params.isEmpty()) {
+            System.out.println("  Parâmetros: " + String.join(" ", options.params));
+        }
+        System.out.println("========================================");
+
+        Set<Routine> cacheHits = ConcurrentHashMap.newKeySet();
+        DagScheduler scheduler = new DagScheduler();
+        for (Routine routine : options.routines) {
+            List<String> dependsOn = new ArrayList<>();
+            for (Routine dependency : options.after.getOrDefault(routine, Collections.<Routine>emptyList())) {
+                dependsOn.add(dependency.getRoutineName());
+            }
+            scheduler.add(routine.getRoutineName(), () -> runRoutine(routine, base, options, cache, cacheHits),
+                    dependsOn);
+        }
+
+        long start = System.currentTimeMillis();
+        List<DagScheduler.Result> results;
+        try {
+            results = scheduler.run(parallelism, options.keepGoing);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return -1;
+        }
+        return printSummary(options, results, cacheHits, System.currentTimeMillis() - start);
+    }
+
+    private int runRoutine(Routine routine, Configuration base, Options options,
+                           ResultCache cache, Set<Routine> cacheHits) {
+        Configuration conf = new Configuration(base);
+        String[] routineArgs = routine.buildArgs(options.input, options.output, options.reducers, options.local);
+
+        System.out.println();
+        System.out.println("========================================");
+        System.out.println("Rotina: " + routine.getRoutineName() + " (" + routine.getToolClass().getSimpleName() + ")");
+        System.out.println("  " + routine.getDescription());
+        System.out.println("  Argumentos: " + String.join(" ", routineArgs));
+        System.out.println("========================================");
+
+        long start = System.currentTimeMillis();
+        int exitCode;
+        try {
+            if (options.overwrite) {
+                Path dir = routine.outputDir(options.output);
+                List<Path> previous = new ArrayList<>();
+                previous.add(dir);
+                previous.addAll(RankedOutput.siblingPaths(dir));
+                FileSystem fs = dir.getFileSystem(conf);
+                for (Path path : previous) {
+                    if (fs.exists(path)) {
+                        System.out.println("Removendo saída anterior: " + path);
+                        fs.delete(path, true);
+                    }
+                }
+            }
+            ResultCache.Key key = cache != null ? cache.key(routine, options.input, options.reducers, conf) : null;
+            if (cache != null && key == null) {
+                System.out.println("[cache] " + routine.getRoutineName() + ": fora do cache - " +
+                        ResultCache.bypassReason(conf));
+            }
+            if (key != null && cache.restore(key, routine.outputDir(options.output))) {
+                System.out.println("[cache] " + routine.getRoutineName() + ": resultado " + key.getShortId() +
+                        " restaurado em " + routine.outputDir(options.output) + ", nenhum job submetido");
+                cacheHits.add(routine);
+                exitCode = 0;
+            } else {
+                exitCode = ToolRunner.run(conf, routine.newTool(), routineArgs);
+                if (exitCode == 0 && key != null && cache.store(key, routine.outputDir(options.output))) {
+                    System.out.println("[cache] " + routine.getRoutineName() + ": resultado guardado como " +
+                            key.getShortId());
+                }
+            }
+        } catch (Exception e) {
+            // Falha da rotina entra no resumo como qualquer outro código de erro
+            System.err.println("Erro na rotina " + routine.getRoutineName() + ": " + e);
+            exitCode = 1;
+        }
+        long wallMillis = System.currentTimeMillis() - start;
+        System.out.println("Rotina " + routine.getRoutineName() + " finalizada com código: " + exitCode +
+                " (" + wallMillis + " ms)");
+        if (exitCode != 0 && !options.keepGoing) {
+            System.err.println("Rotina " + routine.getRoutineName() + " falhou; nenhuma rotina nova será " +
+                    "iniciada (use --keep-going para continuar)");
+        }
+        return exitCode;
+    }
+
+    private static int printSummary(Options options, List<DagScheduler.Result> results, Set<Routine> cacheHits,
+                                    long elapsedMillis) {
+        int failures = 0;
+        int skipped = 0;
+        long totalMillis = 0;
+        System.out.println();
+        System.out.println("========================================");
+        System.out.println("Resumo do RoutineLauncher");
+        System.out.println(String.format("  %-28s | %-9s | %-6s | %10s | %s",
+                "Rotina", "Status", "Código", "Tempo (ms)", "Saída"));
+        for (DagScheduler.Result result : results) {
+            Routine routine = Routine.fromName(result.getName());
+            System.out.println(String.format("  %-28s | %-9s | %-6d | %10d | %s",
+                    result.getName(), result.getStatus(), result.getExitCode(), result.getWallMillis(),
+                    routine.outputDir(options.output) + (cacheHits.contains(routine) ? " (cache)" : "")));
+            totalMillis += result.getWallMillis();
+            if (result.getStatus() == DagScheduler.Status.FAILED) {
+                failures++;
+            } else if (result.getStatus() == DagScheduler.Status.SKIPPED) {
+                skipped++;
+            }
+        }
+        System.out.println("  Parede: " + elapsedMillis + " ms | Soma das rotinas: " + totalMillis +
+                " ms | Falhas: " + failures +
+                (cacheHits.isEmpty() ? "" : " | Do cache: " + cacheHits.size()) +
+                (skipped > 0 ? " | Não executadas: " + skipped : ""));
+        System.out.println("========================================");
+        return (failures == 0 && skipped == 0) ? 0 : 1;
+    }
+
+    private static void printRoutines() {
+        System.out.println("Rotinas registradas:");
+        for (Routine routine : Routine.values()) {
+            System.out.println(String.format("  %-28s %-7s %s", routine.getRoutineName(),
+                    routine.getLayout().name().toLowerCase(), routine.getDescription()));
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: RoutineLauncher [-D...] --input <csv> --output <dir> [--reducers n|auto] [--local]");
+        System.err.println("       [--compression none|fast|dense] [--param chave=valor]... [--overwrite] [--keep-going]");
+        System.err.println("       [--parallel n] [--after rotina:dep[+dep]]...");
+        System.err.println("       <rotina>[,<rotina>...] | all");
+        System.err.println("       RoutineLauncher --list");
+    }
+
+    /**
+     * Método main - ponto de entrada da aplicação
+     */
+    public static void main(String[] args) throws Exception {
+        int exitCode = ToolRunner.run(new Configuration(), new RoutineLauncher(), args);
+        System.out.println("RoutineLauncher finalizado com código: " + exitCode);
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,115 @@
+package routines.streaming;
+
+import java.text.DecimalFormat;
+import java.util.EnumSet;
+import routines.advanced.categorybytimeperiod.Step1AggregationMapper;
+import routines.basic.amountbycity.AmountByCityMapper;
+import routines.basic.errorcountbymcc.ErrorCountByMCCMapper;
+import routines.basic.transactioncountbystate.TransactionCountByStateMapper;
+import routines.common.TimePeriod;
+
+/**
+ * Agregados mantidos pelo modo streaming, com a mesma normalização de chave dos mappers
+ * das rotinas batch correspondentes:
+ *   AMOUNT_BY_CITY             - valor em centavos por cidade (AmountByCityMapper)
+ *   TRANSACTION_COUNT_BY_STATE - nº de transações por estado (TransactionCountByStateMapper)
+ *   ERROR_COUNT_BY_MCC         - nº de transações com erro por MCC (ErrorCountByMCCMapper)
+ *   CITY_TIME_PERIOD           - nº de transações por cidade e período do dia (CityTimePeriod)
+ *   CATEGORY_BY_TIME_PERIOD    - nº de transações por cidade, período e MCC (CategoryByTimePeriod)
+ *
+ * O período do dia vem da hora da própria transação (coluna date), então os dois últimos
+ * agregados não dependem do relógio usado para as janelas.
+ */
+public enum StreamAggregate {
+    AMOUNT_BY_CITY("amount_by_city"),
+    TRANSACTION_COUNT_BY_STATE("transaction_count_by_state"),
+    ERROR_COUNT_BY_MCC("error_count_by_mcc"),
+    CITY_TIME_PERIOD("city_time_period"),
+    CATEGORY_BY_TIME_PERIOD("category_by_time_period");
+
+    /** Valor retornado por {@link #value(String[])} quando a linha não contribui */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private final String outputName;
+
+    StreamAggregate(String outputName) {
+        this.outputName = outputName;
+    }
+
+    /**
+     * Subdiretório de saída (nome da rotina batch equivalente)
+     */
+    public String getOutputName() {
+        return outputName;
+    }
+
+    /**
+     * Converte uma lista "amount_by_city,city_time_period" (nomes de saída); vazia = todos
+     * @throws IllegalArgumentException se algum nome não existir
+     */
+    public static EnumSet<StreamAggregate> parseList(String names) {
+        if (names == null || names.trim().isEmpty()) {
+            return EnumSet.allOf(StreamAggregate.class);
+        }
+        EnumSet<StreamAggregate> result = EnumSet.noneOf(StreamAggregate.class);
+        for (String name : names.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            StreamAggregate found = null;
+            for (StreamAggregate aggregate : values()) {
+                if (aggregate.outputName.equalsIgnoreCase(trimmed)) {
+                    found = aggregate;
+                }
+            }
+            if (found == null) {
+                throw new IllegalArgumentException("Agregado desconhecido: " + trimmed);
+            }
+            result.add(found);
+        }
+        return result;
+    }
+
+    /**
+     * Chave normalizada da transação, ou null se ela não entra neste agregado
+     */
+    public String key(String[] cols) {
+        switch (this) {
+            case AMOUNT_BY_CITY:
+                String city = AmountByCityMapper.processCityName(cols[7]);
+                return city.isEmpty() ? null : city;
+            case TRANSACTION_COUNT_BY_STATE:
+                return TransactionCountByStateMapper.stateLabel(cols[8], cols[7]);
+            case ERROR_COUNT_BY_MCC:
+                return ErrorCountByMCCMapper.errorKey(cols[10], cols[11]);
+            case CITY_TIME_PERIOD:
+                TimePeriod period = TimePeriod.fromDateTime(cols[1]);
+                return period == null ? null : AmountByCityMapper.processCityName(cols[7]) + "\t" + period.name();
+            default:
+                TimePeriod categoryPeriod = TimePeriod.fromDateTime(cols[1]);
+                String mcc = Step1AggregationMapper.processMCC(cols[10]);
+                if (categoryPeriod == null || mcc.equals("UNKNOWN_MCC")) {
+                    return null;
+                }
+                return AmountByCityMapper.processCityName(cols[7]) + "\t" + categoryPeriod.name() + "\t" + mcc;
+        }
+    }
+
+    /**
+     * Contribuição da transação (centavos ou 1), ou {@link #INVALID}
+     */
+    public long value(String[] cols) {
+        if (this == AMOUNT_BY_CITY) {
+            return AmountByCityMapper.parseAmountToCents(cols[4]);
+        }
+        return 1;
+    }
+
+    /**
+     * Formata o total como na saída da rotina batch
+     */
+    public String format(long total, DecimalFormat decimalFormat) {
+        return this == AMOUNT_BY_CITY ? decimalFormat.format(total / 100.0) : String.valueOf(total);
+    }
+}
@@ -0,0 +1,176 @@
+package routines.streaming;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fonte de linhas do modo streaming (thread leitora)
+ *
+ * Diretório: acompanha os arquivos do diretório (ignora ocultos e iniciados por "_"),
+ * em ordem de nome, guardando o offset já lido de cada um. Arquivos novos e bytes
+ * acrescentados a arquivos existentes são lidos a cada varredura; só linhas completas
+ * (terminadas em \n) são entregues, então um arquivo ainda sendo escrito não gera linhas
+ * partidas.
+ *
+ * Arquivo ou named pipe (FIFO): lê linha a linha. No fim de um arquivo comum a fonte
+ * termina; num pipe ela reabre e espera o próximo escritor.
+ *
+ * As linhas vão para uma fila limitada: se o processamento atrasar, a leitura bloqueia
+ * (backpressure) em vez de acumular memória.
+ */
+final class StreamSource implements Runnable {
+
+    private static final int READ_CHUNK_BYTES = 1 << 20;
+
+    private final Path source;
+    private final BlockingQueue<String> queue;
+    private final long pollMillis;
+
+    private final Map<Path, Long> offsets = new ConcurrentHashMap<>();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile boolean finished;
+    private volatile IOException failure;
+
+    StreamSource(Path source, BlockingQueue<String> queue, long pollMillis) {
+        this.source = source;
+        this.queue = queue;
+        this.pollMillis = pollMillis;
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (Files.isDirectory(source)) {
+                tailDirectory();
+            } else {
+                readStream();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finished = true;
+        }
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    /** A fonte não vai produzir mais linhas (fim de arquivo, erro ou stop) */
+    boolean isFinished() {
+        return finished;
+    }
+
+    IOException getFailure() {
+        return failure;
+    }
+
+    long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    int getTrackedFiles() {
+        return offsets.size();
+    }
+
+    // =======================
+    // Diretório
+    // =======================
+
+    private void tailDirectory() throws IOException, InterruptedException {
+        byte[] buffer = new byte[READ_CHUNK_BYTES];
+        while (running) {
+            for (Path file : listDataFiles()) {
+                readNewLines(file, buffer);
+                if (!running) {
+                    return;
+                }
+            }
+            Thread.sleep(pollMillis);
+        }
+    }
+
+    private List<Path> listDataFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(source)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (Files.isRegularFile(file) && !name.startsWith("_") && !name.startsWith(".")) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Lê as linhas completas a partir do último offset do arquivo
+     */
+    private void readNewLines(Path file, byte[] buffer) throws IOException, InterruptedException {
+        long offset = offsets.getOrDefault(file, 0L);
+        if (Files.size(file) <= offset) {
+            offsets.put(file, offset);
+            return;
+        }
+        try (RandomAccessFile input = new RandomAccessFile(file.toFile(), "r")) {
+            input.seek(offset);
+            int pending = 0;
+            int read;
+            while (running && (read = input.read(buffer, pending, buffer.length - pending)) > 0) {
+                int available = pending + read;
+                int lineStart = 0;
+                for (int i = 0; i < available; i++) {
+                    if (buffer[i] == '\n') {
+                        int lineEnd = (i > lineStart && buffer[i - 1] == '\r') ? i - 1 : i;
+                        queue.put(new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+                        lineStart = i + 1;
+                    }
+                }
+                offset += lineStart;
+                bytesRead.addAndGet(lineStart);
+                // Linha incompleta volta para o início do buffer
+                pending = available - lineStart;
+                if (pending == buffer.length) {
+                    throw new IOException("Linha maior que " + READ_CHUNK_BYTES + " bytes em " + file);
+                }
+                System.arraycopy(buffer, lineStart, buffer, 0, pending);
+            }
+        }
+        offsets.put(file, offset);
+    }
+
+    // =======================
+    // Arquivo / named pipe
+    // =======================
+
+    private void readStream() throws IOException, InterruptedException {
+        boolean pipe = !Files.isRegularFile(source);
+        do {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Files.newInputStream(source), StandardCharsets.UTF_8), 1 << 16)) {
+                String line;
+                while (running && (line = reader.readLine()) != null) {
+                    bytesRead.addAndGet(line.length() + 1);
+                    queue.put(line);
+                }
+            }
+        } while (running && pipe);
+    }
+}
@@ -0,0 +1,354 @@
+package routines.streaming;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import routines.common.InputPreview;
+import routines.dataset.ColumnarDataset;
+
+// Para executar configure os argumentos da seguinte forma:
+// input/stream output/stream                                   (acompanha o diretório)
+// -Dfta.stream.window.seconds=300 -Dfta.stream.slide.seconds=60 /tmp/transactions.fifo output/stream
+// -Dfta.stream.time=event -Dfta.stream.window.seconds=3600 -Dfta.stream.allowed.lateness.seconds=600 input/stream output/stream
+
+/**
+ * Modo streaming local - agregados por janela em quase tempo real, sem Hadoop/cluster
+ *
+ * Lê transações de um diretório (arquivos CSV novos ou crescendo) ou de um named pipe,
+ * aplica a normalização dos mappers batch e mantém, em memória, janelas tumbling ou
+ * sliding de:
+ *   amount_by_city, transaction_count_by_state, error_count_by_mcc,
+ *   city_time_period, category_by_time_period  (ver StreamAggregate)
+ * A cada janela fechada grava os totais em <output>/<rotina>/ (ver WindowFileSink).
+ *
+ * Relógio das janelas (fta.stream.time):
+ *   processing - instante de chegada; a janela fecha pelo relógio da máquina
+ *   event      - coluna date da transação (UTC). O watermark é o maior instante visto menos
+ *                fta.stream.watermark.delay.seconds (desordem esperada do feed); a janela fecha
+ *                quando o watermark passa do seu fim. Transações que chegam depois disso, mas
+ *                dentro de fta.stream.allowed.lateness.seconds, atualizam e reemitem a janela;
+ *                as mais atrasadas vão para <output>/late/late_records.csv (side output).
+ *                O watermark só avança com dados novos; no fim do stream todas as janelas
+ *                abertas são emitidas.
+ *
+ * Memória limitada: fila de leitura com capacidade fixa (backpressure), no máximo
+ * (janela + lateness)/slide panes vivos além da desordem tolerada, e até fta.stream.max.keys
+ * chaves por agregado em cada pane. O estado de janelas fechadas é descartado.
+ *
+ * Métricas (stdout e <output>/_metrics.tsv): transações, taxa por segundo, fila, panes,
+ * chaves, memória estimada, watermark, atrasadas e reemissões.
+ *
+ * Configuração (via -D):
+ *   fta.stream.window.seconds    - tamanho da janela (padrão: 60)
+ *   fta.stream.slide.seconds     - intervalo entre janelas; igual à janela = tumbling (padrão)
+ *   fta.stream.max.keys          - chaves por agregado em cada pane; excedente vai para OTHER (padrão: 10000)
+ *   fta.stream.queue.capacity    - linhas na fila entre leitura e agregação (padrão: 10000)
+ *   fta.stream.poll.ms           - intervalo de varredura do diretório (padrão: 500)
+ *   fta.stream.metrics.seconds   - intervalo entre relatórios de métricas (padrão: 10)
+ *   fta.stream.idle.exit.seconds - encerra após N segundos sem transações (padrão: 0 = nunca)
+ *   fta.stream.time              - processing | event (padrão: processing)
+ *   fta.stream.watermark.delay.seconds   - tempo de evento: desordem tolerada (padrão: 60)
+ *   fta.stream.allowed.lateness.seconds  - tempo de evento: atraso aceito após o fechamento (padrão: 0)
+ *   fta.stream.aggregates        - agregados mantidos, separados por vírgula (padrão: todos)
+ */
+public class StreamingRunner extends Configured implements Tool {
+
+    public static final String WINDOW_SECONDS_KEY = "fta.stream.window.seconds";
+    public static final String SLIDE_SECONDS_KEY = "fta.stream.slide.seconds";
+    public static final String MAX_KEYS_KEY = "fta.stream.max.keys";
+    public static final String QUEUE_CAPACITY_KEY = "fta.stream.queue.capacity";
+    public static final String POLL_MS_KEY = "fta.stream.poll.ms";
+    public static final String METRICS_SECONDS_KEY = "fta.stream.metrics.seconds";
+    public static final String IDLE_EXIT_SECONDS_KEY = "fta.stream.idle.exit.seconds";
+    public static final String TIME_KEY = "fta.stream.time";
+    public static final String WATERMARK_DELAY_SECONDS_KEY = "fta.stream.watermark.delay.seconds";
+    public static final String ALLOWED_LATENESS_SECONDS_KEY = "fta.stream.allowed.lateness.seconds";
+    public static final String AGGREGATES_KEY = "fta.stream.aggregates";
+
+    public static final int DEFAULT_WINDOW_SECONDS = 60;
+    public static final int DEFAULT_MAX_KEYS = 10000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final int DEFAULT_POLL_MS = 500;
+    public static final int DEFAULT_METRICS_SECONDS = 10;
+    public static final int DEFAULT_WATERMARK_DELAY_SECONDS = 60;
+
+    // Linhas drenadas da fila por iteração antes de checar o relógio
+    private static final int DRAIN_BATCH = 4096;
+
+    private volatile boolean stopRequested;
+
+    // Tempo de evento
+    private boolean eventTime;
+    private long watermarkDelayMillis;
+    private long maxEventMillis = Long.MIN_VALUE;
+    private Path lateFile;
+    private BufferedWriter lateWriter;
+
+    // Métricas
+    private long records;
+    private long rejected;
+    private long startMillis;
+    private long lastReportMillis;
+    private long lastReportRecords;
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: StreamingRunner [-D...] <source_dir|pipe> <output_dir>");
+            System.err.println("  source_dir|pipe: diretório acompanhado (CSVs novos) ou named pipe/arquivo");
+            System.err.println("  output_dir: diretório local das janelas e métricas");
+            return -1;
+        }
+        Path source = Paths.get(args[0]);
+        Path outputDir = Paths.get(args[1]);
+        if (!Files.exists(source)) {
+            System.err.println("Fonte não encontrada: " + source);
+            return -1;
+        }
+
+        Configuration conf = getConf();
+        long windowMillis = conf.getInt(WINDOW_SECONDS_KEY, DEFAULT_WINDOW_SECONDS) * 1000L;
+        long slideMillis = conf.getInt(SLIDE_SECONDS_KEY, (int) (windowMillis / 1000)) * 1000L;
+        int maxKeys = conf.getInt(MAX_KEYS_KEY, DEFAULT_MAX_KEYS);
+        int queueCapacity = Math.max(1, conf.getInt(QUEUE_CAPACITY_KEY, DEFAULT_QUEUE_CAPACITY));
+        long pollMillis = Math.max(10, conf.getInt(POLL_MS_KEY, DEFAULT_POLL_MS));
+        long metricsMillis = Math.max(1, conf.getInt(METRICS_SECONDS_KEY, DEFAULT_METRICS_SECONDS)) * 1000L;
+        long idleExitMillis = conf.getInt(IDLE_EXIT_SECONDS_KEY, 0) * 1000L;
+        String time = conf.get(TIME_KEY, "processing").trim().toLowerCase();
+        if (!time.equals("processing") && !time.equals("event")) {
+            System.err.println("fta.stream.time inválido: " + time + " (use processing ou event)");
+            return -1;
+        }
+        eventTime = time.equals("event");
+        watermarkDelayMillis = Math.max(0, conf.getInt(WATERMARK_DELAY_SECONDS_KEY, DEFAULT_WATERMARK_DELAY_SECONDS)) * 1000L;
+        long allowedLatenessMillis = eventTime ? conf.getInt(ALLOWED_LATENESS_SECONDS_KEY, 0) * 1000L : 0;
+        EnumSet<StreamAggregate> aggregates = StreamAggregate.parseList(conf.get(AGGREGATES_KEY));
+        lateFile = outputDir.resolve("late").resolve("late_records.csv");
+
+        WindowedAggregator aggregator = new WindowedAggregator(windowMillis, slideMillis, allowedLatenessMillis,
+                maxKeys, aggregates);
+        WindowFileSink sink = new WindowFileSink(outputDir, aggregates);
+        BlockingQueue<String> queue = new ArrayBlockingQueue<>(queueCapacity);
+        StreamSource reader = new StreamSource(source, queue, pollMillis);
+
+        System.out.println("========================================");
+        System.out.println("StreamingRunner:");
+        System.out.println("  Fonte: " + source + (Files.isDirectory(source) ? " (diretório)" : " (arquivo/pipe)"));
+        System.out.println("  Output: " + outputDir);
+        System.out.println("  Janela: " + windowMillis / 1000 + " s | Slide: " + slideMillis / 1000 + " s" +
+                (windowMillis == slideMillis ? " (tumbling)" : " (sliding)"));
+        if (eventTime) {
+            System.out.println("  Tempo: evento (coluna date) | Watermark: maior instante - " +
+                    watermarkDelayMillis / 1000 + " s | Allowed lateness: " + allowedLatenessMillis / 1000 + " s");
+            System.out.println("  Atrasadas: " + lateFile);
+        } else {
+            System.out.println("  Tempo: processamento (relógio local)");
+        }
+        System.out.println("  Limites: fila " + queueCapacity + " linhas, " + maxKeys + " chaves/agregado/pane");
+        StringBuilder names = new StringBuilder();
+        for (StreamAggregate aggregate : aggregates) {
+            names.append(names.length() > 0 ? ", " : "").append(aggregate.getOutputName());
+        }
+        System.out.println("  Agregados: " + names);
+        System.out.println("========================================");
+
+        // Ctrl+C: encerra o loop e espera a emissão das janelas abertas
+        CountDownLatch done = new CountDownLatch(1);
+        Thread hook = new Thread(() -> {
+            stopRequested = true;
+            try {
+                done.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(hook);
+
+        Thread readerThread = new Thread(reader, "stream-source");
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        startMillis = System.currentTimeMillis();
+        lastReportMillis = startMillis;
+        long lastRecordMillis = startMillis;
+        Path metricsFile = outputDir.resolve("_metrics.tsv");
+
+        try {
+            while (!stopRequested) {
+                String line = queue.poll(100, TimeUnit.MILLISECONDS);
+                long now = System.currentTimeMillis();
+                int drained = 0;
+                while (line != null) {
+                    process(line, now, aggregator);
+                    if (eventTime) {
+                        // O watermark acompanha cada transação, não o lote drenado
+                        aggregator.advanceTo(currentWatermark(now), sink);
+                    }
+                    if (++drained >= DRAIN_BATCH) {
+                        break;
+                    }
+                    line = queue.poll();
+                }
+                if (drained > 0) {
+                    lastRecordMillis = now;
+                }
+
+                aggregator.advanceTo(currentWatermark(now), sink);
+
+                if (now - lastReportMillis >= metricsMillis) {
+                    report(now, queue, reader, aggregator, metricsFile);
+                }
+                if (reader.isFinished() && queue.isEmpty()) {
+                    break;
+                }
+                if (idleExitMillis > 0 && now - lastRecordMillis >= idleExitMillis) {
+                    System.out.println("Sem transações há " + idleExitMillis / 1000 + " s; encerrando.");
+                    break;
+                }
+            }
+
+            // Fim do stream: emite as janelas ainda abertas (parciais)
+            reader.stop();
+            aggregator.flush(sink);
+            report(System.currentTimeMillis(), queue, reader, aggregator, metricsFile);
+        } finally {
+            if (lateWriter != null) {
+                lateWriter.close();
+            }
+            done.countDown();
+            if (!stopRequested) {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            }
+        }
+
+        if (reader.getFailure() != null) {
+            System.err.println("Erro na leitura da fonte: " + reader.getFailure().getMessage());
+            return 1;
+        }
+
+        System.out.println("========================================");
+        System.out.println("StreamingRunner finalizado:");
+        System.out.println("  Transações: " + records + " | Rejeitadas: " + rejected);
+        System.out.println("  Janelas emitidas: " + aggregator.getEmittedWindows() + " (" +
+                sink.getFilesWritten() + " arquivos)");
+        System.out.println("  Contribuições em " + WindowedAggregator.OVERFLOW_KEY + ": " + aggregator.getOverflowRecords());
+        if (eventTime) {
+            System.out.println("  Reemissões por atraso: " + aggregator.getUpdatedEmissions() +
+                    " | Atrasadas descartadas: " + aggregator.getLateRecords());
+        }
+        System.out.println("========================================");
+        return 0;
+    }
+
+    private void process(String line, long now, WindowedAggregator aggregator) throws IOException {
+        if (line.isEmpty() || line.startsWith("id,") || line.startsWith("\"id\"")) {
+            return;
+        }
+        String[] cols = InputPreview.splitCsv(line);
+        if (cols.length < 12) {
+            rejected++;
+            return;
+        }
+        long timeMillis = now;
+        if (eventTime) {
+            long seconds = ColumnarDataset.parseEpochSeconds(cols[1]);
+            if (seconds == ColumnarDataset.INVALID) {
+                rejected++;
+                return;
+            }
+            timeMillis = seconds * 1000L;
+            maxEventMillis = Math.max(maxEventMillis, timeMillis);
+        }
+        records++;
+        if (!aggregator.add(timeMillis, cols)) {
+            writeLate(line);
+        }
+    }
+
+    /**
+     * Watermark atual: relógio local ou maior instante de evento menos a desordem tolerada
+     */
+    private long currentWatermark(long now) {
+        if (!eventTime) {
+            return now;
+        }
+        return maxEventMillis == Long.MIN_VALUE ? Long.MIN_VALUE : maxEventMillis - watermarkDelayMillis;
+    }
+
+    /**
+     * Side output: linha original da transação atrasada
+     */
+    private void writeLate(String line) throws IOException {
+        if (lateWriter == null) {
+            Files.createDirectories(lateFile.getParent());
+            lateWriter = Files.newBufferedWriter(lateFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        lateWriter.write(line);
+        lateWriter.write('\n');
+    }
+
+    private void report(long now, BlockingQueue<String> queue, StreamSource reader,
+                        WindowedAggregator aggregator, Path metricsFile) throws IOException {
+        double elapsed = Math.max(1, now - startMillis) / 1000.0;
+        double interval = Math.max(1, now - lastReportMillis) / 1000.0;
+        double rate = records / elapsed;
+        double intervalRate = (records - lastReportRecords) / interval;
+        lastReportMillis = now;
+        lastReportRecords = records;
+
+        System.out.println(String.format("[stream] transações=%d rejeitadas=%d taxa=%.0f/s (intervalo %.0f/s) " +
+                        "fila=%d panes=%d chaves=%d memória≈%d KB janelas=%d lidos=%d KB",
+                records, rejected, rate, intervalRate, queue.size(), aggregator.getPaneCount(),
+                aggregator.getKeyCount(), aggregator.estimatedBytes() / 1024, aggregator.getEmittedWindows(),
+                reader.getBytesRead() / 1024) +
+                (eventTime ? String.format(" watermark=%s atrasadas=%d reemissões=%d",
+                        formatWatermark(aggregator.getWatermark()), aggregator.getLateRecords(),
+                        aggregator.getUpdatedEmissions()) : ""));
+        if (lateWriter != null) {
+            lateWriter.flush();
+        }
+
+        boolean header = !Files.exists(metricsFile);
+        try (Writer writer = Files.newBufferedWriter(metricsFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (header) {
+                writer.write("epoch_ms\trecords\trejected\trate_per_s\tinterval_rate_per_s\tqueue\tpanes\tkeys\tstate_bytes\twindows" +
+                        "\twatermark_ms\tlate\tupdates\n");
+            }
+            long watermark = aggregator.getWatermark();
+            writer.write(now + "\t" + records + "\t" + rejected + "\t" + Math.round(rate) + "\t" +
+                    Math.round(intervalRate) + "\t" + queue.size() + "\t" + aggregator.getPaneCount() + "\t" +
+                    aggregator.getKeyCount() + "\t" + aggregator.estimatedBytes() + "\t" +
+                    aggregator.getEmittedWindows() + "\t" + (watermark == Long.MIN_VALUE ? "" : watermark) + "\t" +
+                    aggregator.getLateRecords() + "\t" + aggregator.getUpdatedEmissions() + "\n");
+        }
+    }
+
+    private static String formatWatermark(long watermark) {
+        return watermark == Long.MIN_VALUE ? "-" : Instant.ofEpochMilli(watermark).toString();
+    }
+
+    /**
+     * Método main - ponto de entrada da aplicação
+     */
+    public static void main(String[] args) throws Exception {
+        int exitCode = ToolRunner.run(new Configuration(), new StreamingRunner(), args);
+        System.exit(exitCode);
+    }
+}
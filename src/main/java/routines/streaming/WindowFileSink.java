@@ -0,0 +1,76 @@
+package routines.streaming;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * Grava cada janela fechada em arquivos "chave\tvalor" (mesmo formato das rotinas batch):
+ *
+ *   <output>/<rotina>/window_<início>_<fim>.tsv   uma por janela (UTC, yyyyMMdd'T'HHmmss)
+ *   <output>/<rotina>/latest.tsv                  cópia da janela mais recente (maior fim)
+ *
+ * Os arquivos são escritos com nome temporário ("_" no início) e renomeados, então um
+ * dashboard que lê o diretório nunca vê um arquivo pela metade. Uma janela atualizada por
+ * transações atrasadas (tempo de evento) substitui o arquivo emitido antes.
+ */
+final class WindowFileSink implements WindowedAggregator.WindowListener {
+
+    private static final DateTimeFormatter WINDOW_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss").withZone(ZoneOffset.UTC);
+
+    private final Path outputDir;
+    private final EnumSet<StreamAggregate> aggregates;
+    private final DecimalFormat decimalFormat = new DecimalFormat("0.00");
+    private long filesWritten;
+    private long latestEndMillis = Long.MIN_VALUE;
+
+    WindowFileSink(Path outputDir, EnumSet<StreamAggregate> aggregates) throws IOException {
+        this.outputDir = outputDir;
+        this.aggregates = EnumSet.copyOf(aggregates);
+        for (StreamAggregate aggregate : aggregates) {
+            Files.createDirectories(outputDir.resolve(aggregate.getOutputName()));
+        }
+    }
+
+    @Override
+    public void onWindow(WindowedAggregator.WindowResult window) throws IOException {
+        boolean latest = window.getEndMillis() >= latestEndMillis;
+        String name = "window_" + WINDOW_TIME.format(Instant.ofEpochMilli(window.getStartMillis())) + "_" +
+                WINDOW_TIME.format(Instant.ofEpochMilli(window.getEndMillis())) + ".tsv";
+        for (StreamAggregate aggregate : aggregates) {
+            Path dir = outputDir.resolve(aggregate.getOutputName());
+            Path temporary = dir.resolve("_" + name);
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Long> entry : window.getTotals(aggregate).entrySet()) {
+                    writer.write(entry.getKey() + "\t" + aggregate.format(entry.getValue(), decimalFormat) + "\n");
+                }
+            }
+            if (latest) {
+                Path latestCopy = dir.resolve("_latest.tsv");
+                Files.copy(temporary, latestCopy, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(latestCopy, dir.resolve("latest.tsv"), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.move(temporary, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            filesWritten++;
+        }
+        if (latest) {
+            latestEndMillis = window.getEndMillis();
+        }
+    }
+
+    long getFilesWritten() {
+        return filesWritten;
+    }
+}
@@ -0,0 +1,339 @@
+package routines.streaming;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import routines.common.StringLongHashMap;
+
+/**
+ * Agregados por janela (tumbling ou sliding) com memória limitada
+ *
+ * O tempo é dividido em "panes" do tamanho do slide; cada pane guarda um mapa
+ * chave -> total por {@link StreamAggregate}. Uma janela de tamanho W termina a cada
+ * múltiplo do slide S e é a soma dos W/S panes que ela cobre (tumbling: W == S, um pane).
+ *
+ * O relógio é externo: {@link #add} recebe o instante da transação e {@link #advanceTo}
+ * recebe o watermark ("não chegam mais transações antes deste instante", salvo atrasadas):
+ *   - janelas que terminam até o watermark são emitidas;
+ *   - com allowed lateness L, uma transação cuja janela já foi emitida, mas terminou há
+ *     menos de L, ainda é somada e a janela é emitida de novo (atualização);
+ *   - transações mais antigas que isso são rejeitadas por {@link #add} (o chamador decide
+ *     o destino - side output);
+ *   - um pane é descartado quando a última janela que o contém terminou há mais de L,
+ *     então o estado não cresce com o tempo de execução, só com W/S + L/S panes.
+ *
+ * Em tempo de processamento o watermark é o relógio (L = 0, nada chega atrasado); em
+ * tempo de evento é o maior instante visto menos o atraso tolerado.
+ *
+ * Cada pane aceita até maxKeys chaves distintas por agregado; as demais são somadas em
+ * {@link #OVERFLOW_KEY}, o que limita a memória mesmo com chaves de alta cardinalidade.
+ */
+public class WindowedAggregator {
+
+    public static final String OVERFLOW_KEY = "OTHER";
+
+    /** Recebe cada janela fechada (ou atualizada por transações atrasadas) */
+    public interface WindowListener {
+        void onWindow(WindowResult window) throws Exception;
+    }
+
+    /**
+     * Resultado de uma janela: totais por agregado em ordem de chave
+     */
+    public static final class WindowResult {
+        private final long startMillis;
+        private final long endMillis;
+        private final long records;
+        private final boolean update;
+        private final Map<StreamAggregate, TreeMap<String, Long>> totals;
+
+        WindowResult(long startMillis, long endMillis, long records, boolean update,
+                     Map<StreamAggregate, TreeMap<String, Long>> totals) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.records = records;
+            this.update = update;
+            this.totals = totals;
+        }
+
+        public long getStartMillis() { return startMillis; }
+        public long getEndMillis() { return endMillis; }
+        public long getRecords() { return records; }
+        /** true se a janela já tinha sido fechada pelo watermark e recebeu transações atrasadas */
+        public boolean isUpdate() { return update; }
+        public TreeMap<String, Long> getTotals(StreamAggregate aggregate) {
+            TreeMap<String, Long> result = totals.get(aggregate);
+            return result != null ? result : new TreeMap<String, Long>();
+        }
+    }
+
+    private static final class Pane {
+        final StringLongHashMap[] totals = new StringLongHashMap[StreamAggregate.values().length];
+        long records;
+
+        Pane(EnumSet<StreamAggregate> aggregates) {
+            for (StreamAggregate aggregate : aggregates) {
+                totals[aggregate.ordinal()] = new StringLongHashMap(64);
+            }
+        }
+    }
+
+    private final long windowMillis;
+    private final long slideMillis;
+    private final long allowedLatenessMillis;
+    private final int maxKeys;
+    private final EnumSet<StreamAggregate> aggregates;
+
+    // Índice do pane (início / slide) -> pane
+    private final TreeMap<Long, Pane> panes = new TreeMap<>();
+    // Fim das janelas já emitidas que receberam transações atrasadas
+    private final TreeSet<Long> updatedWindows = new TreeSet<>();
+    private long watermark = Long.MIN_VALUE;
+    // Toda janela que termina até aqui já foi emitida (ou estava vazia)
+    private long firedThrough = Long.MIN_VALUE;
+    private long overflowRecords;
+    private long lateRecords;
+    private long emittedWindows;
+    private long updatedEmissions;
+
+    /**
+     * Tumbling/sliding sem atraso, todos os agregados
+     */
+    public WindowedAggregator(long windowMillis, long slideMillis, int maxKeys) {
+        this(windowMillis, slideMillis, 0, maxKeys, EnumSet.allOf(StreamAggregate.class));
+    }
+
+    /**
+     * @param windowMillis tamanho da janela
+     * @param slideMillis intervalo entre janelas (== windowMillis para tumbling)
+     * @param allowedLatenessMillis quanto tempo após o fim uma janela ainda aceita transações atrasadas
+     * @param maxKeys chaves distintas por agregado em cada pane
+     * @param aggregates agregados mantidos
+     * @throws IllegalArgumentException se o slide não dividir a janela ou o atraso for negativo
+     */
+    public WindowedAggregator(long windowMillis, long slideMillis, long allowedLatenessMillis, int maxKeys,
+                              EnumSet<StreamAggregate> aggregates) {
+        if (slideMillis <= 0 || windowMillis < slideMillis || windowMillis % slideMillis != 0) {
+            throw new IllegalArgumentException("Janela (" + windowMillis + " ms) deve ser múltiplo positivo do slide (" +
+                    slideMillis + " ms)");
+        }
+        if (allowedLatenessMillis < 0) {
+            throw new IllegalArgumentException("Allowed lateness negativo: " + allowedLatenessMillis + " ms");
+        }
+        this.windowMillis = windowMillis;
+        this.slideMillis = slideMillis;
+        this.allowedLatenessMillis = allowedLatenessMillis;
+        this.maxKeys = Math.max(1, maxKeys);
+        this.aggregates = EnumSet.copyOf(aggregates);
+    }
+
+    /**
+     * Soma a transação no pane do instante informado
+     * @return false se a transação chegou depois do allowed lateness de todas as suas janelas
+     *         (não foi somada)
+     */
+    public boolean add(long timeMillis, String[] cols) {
+        long paneIndex = Math.floorDiv(timeMillis, slideMillis);
+        if (isExpired(paneIndex)) {
+            lateRecords++;
+            return false;
+        }
+
+        Pane pane = panes.get(paneIndex);
+        if (pane == null) {
+            pane = new Pane(aggregates);
+            panes.put(paneIndex, pane);
+        }
+        pane.records++;
+
+        for (StreamAggregate aggregate : aggregates) {
+            String key = aggregate.key(cols);
+            if (key == null) {
+                continue;
+            }
+            long value = aggregate.value(cols);
+            if (value == StreamAggregate.INVALID) {
+                continue;
+            }
+            StringLongHashMap totals = pane.totals[aggregate.ordinal()];
+            if (totals.size() >= maxKeys && totals.get(key, Long.MIN_VALUE) == Long.MIN_VALUE) {
+                key = OVERFLOW_KEY;
+                overflowRecords++;
+            }
+            totals.add(key, value);
+        }
+
+        // Janelas já emitidas que contêm este pane serão emitidas de novo
+        if (firedThrough != Long.MIN_VALUE) {
+            for (long end = (paneIndex + 1) * slideMillis; end <= lastWindowEnd(paneIndex); end += slideMillis) {
+                if (end <= firedThrough && end + allowedLatenessMillis > watermark) {
+                    updatedWindows.add(end);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Avança o watermark: reemite as janelas atualizadas por transações atrasadas, emite as
+     * janelas que terminam até o watermark (inclusive) e descarta os panes expirados.
+     * Um watermark menor que o atual é ignorado.
+     * @return número de janelas emitidas (novas e atualizadas)
+     */
+    public int advanceTo(long watermarkMillis, WindowListener listener) throws Exception {
+        if (watermarkMillis > watermark) {
+            watermark = watermarkMillis;
+        }
+        int emitted = 0;
+
+        for (long end : updatedWindows) {
+            WindowResult window = merge(end - windowMillis, end, true);
+            if (window.getRecords() > 0) {
+                listener.onWindow(window);
+                updatedEmissions++;
+                emitted++;
+            }
+        }
+        updatedWindows.clear();
+
+        if (!panes.isEmpty()) {
+            long end = firedThrough == Long.MIN_VALUE
+                    ? (panes.firstKey() + 1) * slideMillis
+                    : Math.max(firedThrough + slideMillis, (panes.firstKey() + 1) * slideMillis);
+            while (end <= watermark) {
+                long firstPane = Math.floorDiv(end - windowMillis, slideMillis);
+                Long nextPane = panes.ceilingKey(firstPane);
+                if (nextPane == null) {
+                    break;
+                }
+                if (nextPane >= Math.floorDiv(end, slideMillis)) {
+                    // Pula janelas vazias até a primeira que contém o próximo pane
+                    end = (nextPane + 1) * slideMillis;
+                    continue;
+                }
+                WindowResult window = merge(end - windowMillis, end, false);
+                if (window.getRecords() > 0) {
+                    listener.onWindow(window);
+                    emittedWindows++;
+                    emitted++;
+                }
+                end += slideMillis;
+            }
+        }
+        if (watermark != Long.MIN_VALUE) {
+            long fired = Math.floorDiv(watermark, slideMillis) * slideMillis;
+            firedThrough = Math.max(firedThrough, fired);
+        }
+
+        while (!panes.isEmpty() && isExpired(panes.firstKey())) {
+            panes.pollFirstEntry();
+        }
+        return emitted;
+    }
+
+    /**
+     * Emite todas as janelas que ainda contêm dados (fim do stream)
+     */
+    public int flush(WindowListener listener) throws Exception {
+        if (panes.isEmpty()) {
+            return advanceTo(watermark, listener);
+        }
+        return advanceTo(lastWindowEnd(panes.lastKey()) + allowedLatenessMillis, listener);
+    }
+
+    /** Fim da última janela que contém o pane */
+    private long lastWindowEnd(long paneIndex) {
+        return (paneIndex + 1) * slideMillis + windowMillis - slideMillis;
+    }
+
+    /** Todas as janelas do pane terminaram há mais que o allowed lateness */
+    private boolean isExpired(long paneIndex) {
+        return watermark != Long.MIN_VALUE && lastWindowEnd(paneIndex) + allowedLatenessMillis <= watermark;
+    }
+
+    private WindowResult merge(long startMillis, long endMillis, boolean update) {
+        Map<StreamAggregate, TreeMap<String, Long>> totals = new EnumMap<>(StreamAggregate.class);
+        for (StreamAggregate aggregate : aggregates) {
+            totals.put(aggregate, new TreeMap<String, Long>());
+        }
+        long records = 0;
+        long fromPane = Math.floorDiv(startMillis, slideMillis);
+        long toPane = Math.floorDiv(endMillis, slideMillis);
+        for (Pane pane : panes.subMap(fromPane, true, toPane, false).values()) {
+            records += pane.records;
+            for (StreamAggregate aggregate : aggregates) {
+                StringLongHashMap paneTotals = pane.totals[aggregate.ordinal()];
+                TreeMap<String, Long> windowTotals = totals.get(aggregate);
+                for (int slot = 0; slot < paneTotals.capacity(); slot++) {
+                    String key = paneTotals.keyAt(slot);
+                    if (key != null) {
+                        windowTotals.merge(key, paneTotals.valueAt(slot), Long::sum);
+                    }
+                }
+            }
+        }
+        return new WindowResult(startMillis, endMillis, records, update, totals);
+    }
+
+    public EnumSet<StreamAggregate> getAggregates() {
+        return EnumSet.copyOf(aggregates);
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public int getPaneCount() {
+        return panes.size();
+    }
+
+    /**
+     * Chaves distintas somadas em todos os panes em memória
+     */
+    public long getKeyCount() {
+        long keys = 0;
+        for (Pane pane : panes.values()) {
+            for (StringLongHashMap totals : pane.totals) {
+                if (totals != null) {
+                    keys += totals.size();
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Estimativa dos bytes ocupados pelos panes em memória
+     */
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (Pane pane : panes.values()) {
+            for (StringLongHashMap totals : pane.totals) {
+                if (totals != null) {
+                    bytes += totals.estimatedBytes();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    public long getOverflowRecords() {
+        return overflowRecords;
+    }
+
+    /** Transações rejeitadas por {@link #add} por chegarem depois do allowed lateness */
+    public long getLateRecords() {
+        return lateRecords;
+    }
+
+    public long getEmittedWindows() {
+        return emittedWindows;
+    }
+
+    /** Reemissões de janelas atualizadas por transações atrasadas */
+    public long getUpdatedEmissions() {
+        return updatedEmissions;
+    }
+}